@@ -0,0 +1,184 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for REST ingestion. Each destination gets a limit on concurrent sends that
+ * adapts to the observed send latency, gradient style: every {@code sampleSize} completed sends the
+ * average latency is compared with a long-term baseline, and the limit shrinks in proportion to how
+ * far latency has risen beyond {@code tolerance} times the baseline, or grows by about its square
+ * root while latency holds. A broker that slows down therefore sees fewer concurrent senders
+ * instead of every request thread blocking in a send. Requests over the limit are rejected at once
+ * ({@link #tryAcquire} returns {@code null}); lower priority classes may only use a share of it.
+ * <p>
+ * Publishes {@code artemis.admission.limit}, {@code artemis.admission.in-flight} and
+ * {@code artemis.admission.rejected} (tagged with the configured priority class, or {@code other})
+ * per destination.
+ */
+public class AdmissionLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionLimiter.class);
+
+    /** {@code priority} tag of rejections whose header names no configured priority class. */
+    static final String OTHER_PRIORITY = "other";
+
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    public AdmissionLimiter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Admit one send to {@code destination}.
+     *
+     * @return the permit to release when the send is done, or {@code null} when the request must be
+     * rejected
+     */
+    public Permit tryAcquire(String destination, String priority) {
+        Limit limit = limits.computeIfAbsent(destination, Limit::new);
+        double share = properties.share(priority);
+        while (true) {
+            int inFlight = limit.inFlight.get();
+            if (inFlight >= Math.max(1, (int) (limit.limit * share))) {
+                limit.rejected(priority);
+                return null;
+            }
+            if (limit.inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                return new Permit(limit, inFlight + 1);
+            }
+        }
+    }
+
+    public int getLimit(String destination) {
+        Limit limit = limits.get(destination);
+        return limit != null ? (int) limit.limit : properties.getInitialLimit();
+    }
+
+    public int getInFlight(String destination) {
+        Limit limit = limits.get(destination);
+        return limit != null ? limit.inFlight.get() : 0;
+    }
+
+    public int getRetryAfterSeconds() {
+        return properties.getRetryAfterSeconds();
+    }
+
+    public String getPriorityHeader() {
+        return properties.getPriorityHeader();
+    }
+
+    /**
+     * One admitted send. Release it exactly once, with whether its latency says anything about the
+     * broker (a send that failed fast, e.g. on a bad request, does not).
+     */
+    public static final class Permit {
+        private final Limit limit;
+        private final int inFlightAtStart;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(Limit limit, int inFlightAtStart) {
+            this.limit = limit;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void release(boolean measured) {
+            if (released) {
+                return;
+            }
+            released = true;
+            limit.inFlight.decrementAndGet();
+            if (measured) {
+                limit.sample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+    }
+
+    private final class Limit {
+        final String destination;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+        // Locks rather than synchronized so virtual-thread callers are not pinned while updating
+        final ReentrantLock lock = new ReentrantLock();
+        volatile double limit = properties.getInitialLimit();
+        double baselineNanos;
+        long sampleNanos;
+        int sampleCount;
+        int maxInFlight;
+
+        Limit(String destination) {
+            this.destination = destination;
+            if (meterRegistry != null) {
+                Gauge.builder("artemis.admission.limit", this, l -> l.limit)
+                        .tag("destination", destination).register(meterRegistry);
+                Gauge.builder("artemis.admission.in-flight", inFlight, AtomicInteger::get)
+                        .tag("destination", destination).register(meterRegistry);
+            }
+        }
+
+        void rejected(String priority) {
+            if (meterRegistry != null) {
+                // The header is client input: unknown values share one tag instead of growing the registry
+                String priorityClass = priority != null ? priority.toLowerCase() : properties.getDefaultPriority();
+                if (!properties.getPriorities().containsKey(priorityClass)) {
+                    priorityClass = OTHER_PRIORITY;
+                }
+                rejected.computeIfAbsent(priorityClass, p -> Counter.builder("artemis.admission.rejected")
+                        .tag("destination", destination).tag("priority", p).register(meterRegistry)).increment();
+            }
+        }
+
+        void sample(long latencyNanos, int inFlightAtStart) {
+            lock.lock();
+            try {
+                sampleNanos += latencyNanos;
+                maxInFlight = Math.max(maxInFlight, inFlightAtStart);
+                if (++sampleCount < properties.getSampleSize()) {
+                    return;
+                }
+                double latency = (double) sampleNanos / sampleCount;
+                boolean saturated = maxInFlight * 2 >= limit;
+                sampleNanos = 0;
+                sampleCount = 0;
+                maxInFlight = 0;
+
+                if (baselineNanos == 0) {
+                    baselineNanos = latency;
+                    return;
+                }
+                baselineNanos += (latency - baselineNanos) / properties.getBaselineWindow();
+                if (baselineNanos > 2 * latency) {
+                    // Latency dropped well below the baseline (the broker recovered): catch up quickly
+                    baselineNanos = latency;
+                }
+                double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * baselineNanos / latency));
+                if (gradient == 1.0 && !saturated) {
+                    // Too few concurrent sends to tell whether a higher limit would still be fast
+                    return;
+                }
+                double estimate = limit * gradient + Math.sqrt(limit);
+                double next = limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing();
+                next = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+                if ((int) next != (int) limit) {
+                    logger.debug("Admission limit for {}: {} -> {} (latency {} us, baseline {} us)", destination,
+                            (int) limit, (int) next, (long) latency / 1000, (long) baselineNanos / 1000);
+                }
+                limit = next;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
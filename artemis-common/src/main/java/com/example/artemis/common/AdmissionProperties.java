@@ -0,0 +1,55 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST admission control settings ({@code artemis.admission.*}): an adaptive per-destination limit
+ * on concurrent sends, see {@link AdmissionLimiter}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = false;
+
+    /** Concurrent sends allowed per destination before any latency has been observed. */
+    private int initialLimit = 20;
+
+    private int minLimit = 2;
+    private int maxLimit = 200;
+
+    /** How far recent latency may rise above the long-term baseline before the limit shrinks. */
+    private double tolerance = 1.5;
+
+    /** Weight of each new limit estimate (0-1); lower reacts more slowly but flaps less. */
+    private double smoothing = 0.2;
+
+    /** Completed sends averaged into one latency sample, i.e. one limit update. */
+    private int sampleSize = 20;
+
+    /** Samples the long-term latency baseline is averaged over. */
+    private int baselineWindow = 100;
+
+    /** {@code Retry-After} of a rejected request. */
+    private int retryAfterSeconds = 1;
+
+    /** Request header naming the priority class; requests without it are {@code default-priority}. */
+    private String priorityHeader = "X-Priority";
+
+    private String defaultPriority = "normal";
+
+    /**
+     * Share of the limit each priority class may use: with the defaults, bulk traffic is rejected
+     * once half the limit is in use, leaving the rest for interactive and critical requests.
+     */
+    private Map<String, Double> priorities = new LinkedHashMap<>(Map.of("critical", 1.0, "normal", 0.9, "bulk", 0.5));
+
+    public double share(String priority) {
+        Double share = priorities.get(priority != null ? priority.toLowerCase() : defaultPriority);
+        return share != null ? share : priorities.getOrDefault(defaultPriority, 1.0);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Artemis client tuning shared by all components ({@code artemis.client.*}). Defaults match the
+ * Artemis client defaults, so an empty section behaves like a plain {@code ActiveMQConnectionFactory}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.client")
+public class ArtemisClientProperties {
+
+    /** Bytes buffered per consumer on the client; 0 disables buffering, -1 is unbounded. */
+    private int consumerWindowSize = 1024 * 1024;
+
+    /** Bytes a producer may send before waiting for broker credits; -1 is unbounded. */
+    private int producerWindowSize = 64 * 1024;
+
+    /** Bytes sent before the broker confirms; must be positive for asynchronous send completion. */
+    private int confirmationWindowSize = -1;
+
+    /** Block durable sends until the broker acknowledges them. */
+    private boolean blockOnDurableSend = true;
+
+    /** Block non-durable sends until the broker acknowledges them. */
+    private boolean blockOnNonDurableSend = false;
+
+    /** Cache destination lookups on the client. */
+    private boolean cacheDestinations = false;
+
+    /** Body size from which messages are sent and consumed in chunks as Artemis large messages. */
+    private int minLargeMessageSize = 100 * 1024;
+
+    private PoolConfig pool = new PoolConfig();
+
+    @Data
+    public static class PoolConfig {
+
+        /** Physical connections in the pool; 0 means one per available processor. */
+        private int connections = 0;
+
+        /** Sessions cached per physical connection and acknowledge mode. */
+        private int sessionCacheSize = 10;
+
+        /** Cache producers per session, keyed by destination. */
+        private boolean cacheProducers = true;
+
+        /**
+         * Cache consumers per session, keyed by destination and selector. Listener containers use
+         * their own pool without consumer caching whatever this says.
+         */
+        private boolean cacheConsumers = true;
+
+        public int resolveConnections() {
+            return connections > 0 ? connections : Runtime.getRuntime().availableProcessors();
+        }
+    }
+}
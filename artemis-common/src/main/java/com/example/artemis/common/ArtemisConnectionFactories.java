@@ -0,0 +1,51 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+/**
+ * Builds Artemis connection factories with the shared client tuning applied.
+ */
+public final class ArtemisConnectionFactories {
+
+    private ArtemisConnectionFactories() {
+    }
+
+    /**
+     * Create a tuned, unpooled Artemis connection factory.
+     */
+    public static ActiveMQConnectionFactory create(String url, String user, String password,
+                                                   ArtemisClientProperties properties) {
+        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(url, user, password);
+        factory.setConsumerWindowSize(properties.getConsumerWindowSize());
+        factory.setProducerWindowSize(properties.getProducerWindowSize());
+        factory.setConfirmationWindowSize(properties.getConfirmationWindowSize());
+        factory.setBlockOnDurableSend(properties.isBlockOnDurableSend());
+        factory.setBlockOnNonDurableSend(properties.isBlockOnNonDurableSend());
+        factory.setCacheDestinations(properties.isCacheDestinations());
+        factory.setMinLargeMessageSize(properties.getMinLargeMessageSize());
+        return factory;
+    }
+
+    /**
+     * Create a tuned Artemis connection factory behind a {@link PooledConnectionFactory}.
+     *
+     * @param name          pool name used as the {@code pool} metric tag
+     * @param meterRegistry registry for pool metrics, may be {@code null}
+     */
+    public static PooledConnectionFactory createPooled(String name, String url, String user, String password,
+                                                       ArtemisClientProperties properties, MeterRegistry meterRegistry) {
+        return new PooledConnectionFactory(name, create(url, user, password, properties), properties.getPool(), meterRegistry);
+    }
+
+    /**
+     * {@link #createPooled} for listener containers, without consumer caching: a cached consumer
+     * stays open on the broker after the container closes it (when it scales down or recovers),
+     * holding the messages already buffered for it until its session is reused.
+     */
+    public static PooledConnectionFactory createListenerPool(String name, String url, String user, String password,
+                                                             ArtemisClientProperties properties, MeterRegistry meterRegistry) {
+        return new PooledConnectionFactory(name, create(url, user, password, properties), properties.getPool(), false,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.artemis.common;
+
+import jakarta.jms.CompletionListener;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous Artemis sender built on JMS 2.0 {@link CompletionListener}. Sends return as soon as
+ * the message is written to the connection; the broker acknowledgement arrives through the
+ * Artemis confirmation window. At most {@code maxInFlight} sends are unacknowledged at a time,
+ * failed acknowledgements are retried with backoff and every send can be polled by tracking ID.
+ */
+public class AsyncMessageSender implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncMessageSender.class);
+
+    public enum Status { PENDING, ACKNOWLEDGED, FAILED }
+
+    @Data
+    public static class SendTracking {
+        private final String trackingId;
+        private final String destination;
+        /**
+         * Duplicate-detection ID stamped on every attempt, so a retry after a lost acknowledgement
+         * is dropped by the broker, or by consumer-side deduplication, instead of delivered twice.
+         */
+        private final String duplicateId;
+        private final long submittedAt = System.currentTimeMillis();
+        private final long originTimestampNanos = LatencyTracing.now();
+        private volatile Status status = Status.PENDING;
+        private volatile int attempts;
+        private volatile String error;
+        private volatile long completedAt;
+        /** Completes when the send settles: normally on acknowledgement, exceptionally once retries are exhausted. */
+        private final CompletableFuture<SendTracking> completion = new CompletableFuture<>();
+    }
+
+    private final Connection connection;
+    private final Session[] sessions;
+    private final MessageProducer[] producers;
+    // Locks rather than synchronized so virtual-thread callers are not pinned while sending
+    private final ReentrantLock[] sessionLocks;
+    private final AtomicInteger nextSession = new AtomicInteger();
+    private final int maxInFlight;
+    private final Semaphore window;
+    private final long windowTimeoutMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long trackingRetentionMs;
+    private final Map<String, SendTracking> tracking = new ConcurrentHashMap<>();
+    private MessageConverter messageConverter = new SimpleMessageConverter();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "async-sender-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AsyncMessageSender(ConnectionFactory connectionFactory, int sessionCount, int maxInFlight,
+                              long windowTimeoutMs, int maxRetries, long retryBackoffMs,
+                              long trackingRetentionMs) throws JMSException {
+        this.maxInFlight = maxInFlight;
+        this.window = new Semaphore(maxInFlight);
+        this.windowTimeoutMs = windowTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.trackingRetentionMs = trackingRetentionMs;
+
+        this.connection = connectionFactory.createConnection();
+        this.sessions = new Session[sessionCount];
+        this.producers = new MessageProducer[sessionCount];
+        this.sessionLocks = new ReentrantLock[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            sessions[i] = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            producers[i] = sessions[i].createProducer(null);
+            producers[i].setDeliveryMode(DeliveryMode.PERSISTENT);
+            sessionLocks[i] = new ReentrantLock();
+        }
+        connection.start();
+
+        scheduler.scheduleWithFixedDelay(this::evictCompleted, trackingRetentionMs, trackingRetentionMs, TimeUnit.MILLISECONDS);
+        logger.info("Async sender started: sessions={}, maxInFlight={}, maxRetries={}", sessionCount, maxInFlight, maxRetries);
+    }
+
+    /**
+     * Submit a message for asynchronous delivery and return its tracking ID.
+     * Blocks for at most {@code windowTimeoutMs} when the in-flight window is full.
+     */
+    public String send(String destination, String payload) {
+        try {
+            if (!window.tryAcquire(windowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Async send window is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for async send window", e);
+        }
+
+        SendTracking sendTracking = track(destination);
+        attemptSend(sendTracking, payload);
+        return sendTracking.getTrackingId();
+    }
+
+    /**
+     * Submit a message without waiting for the in-flight window, for callers that bound their own
+     * concurrency (e.g. by reactive demand). The future completes when the broker acknowledges the
+     * message, after retries if needed, and fails when they are exhausted, or at once with a
+     * {@link RejectedExecutionException} when the window is full.
+     */
+    public CompletableFuture<SendTracking> submit(String destination, String payload) {
+        if (!window.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Async send window is full"));
+        }
+        SendTracking sendTracking = track(destination);
+        attemptSend(sendTracking, payload);
+        return sendTracking.getCompletion();
+    }
+
+    /**
+     * Converter that turns payloads into messages, e.g. a {@code WireMessageConverter}; defaults to
+     * TextMessages.
+     */
+    public void setMessageConverter(MessageConverter messageConverter) {
+        this.messageConverter = messageConverter;
+    }
+
+    public SendTracking getTracking(String trackingId) {
+        return tracking.get(trackingId);
+    }
+
+    public long getWindowTimeoutMs() {
+        return windowTimeoutMs;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - window.availablePermits();
+    }
+
+    private SendTracking track(String destination) {
+        String trackingId = UUID.randomUUID().toString();
+        SendTracking sendTracking = new SendTracking(trackingId, destination, DuplicateIds.derive(trackingId, destination));
+        tracking.put(trackingId, sendTracking);
+        return sendTracking;
+    }
+
+    private void attemptSend(SendTracking sendTracking, String payload) {
+        sendTracking.setAttempts(sendTracking.getAttempts() + 1);
+        int index = Math.floorMod(nextSession.getAndIncrement(), sessions.length);
+        Session session = sessions[index];
+        try {
+            sessionLocks[index].lock();
+            try {
+                Message message = messageConverter.toMessage(payload, session);
+                LatencyTracing.stampOrigin(message, sendTracking.getOriginTimestampNanos());
+                // The same ID on every attempt: the broker drops a retry of a send it already stored
+                message.setStringProperty(DuplicateIds.PROPERTY, sendTracking.getDuplicateId());
+                producers[index].send(session.createQueue(sendTracking.getDestination()), message,
+                        new TrackingCompletionListener(sendTracking, payload));
+            } finally {
+                sessionLocks[index].unlock();
+            }
+        } catch (Exception e) {
+            onFailure(sendTracking, payload, e);
+        }
+    }
+
+    private void onFailure(SendTracking sendTracking, String payload, Exception e) {
+        if (sendTracking.getAttempts() <= maxRetries) {
+            long delay = retryBackoffMs << Math.min(sendTracking.getAttempts() - 1, 10);
+            logger.warn("Async send {} to {} failed (attempt {}), retrying in {} ms: {}", sendTracking.getTrackingId(),
+                    sendTracking.getDestination(), sendTracking.getAttempts(), delay, e.getMessage());
+            // Retry off the completion thread; the in-flight permit stays held until the send settles
+            scheduler.schedule(() -> attemptSend(sendTracking, payload), delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        logger.error("Async send {} to {} failed after {} attempt(s): {}", sendTracking.getTrackingId(),
+                sendTracking.getDestination(), sendTracking.getAttempts(), e.getMessage(), e);
+        sendTracking.setError(e.getMessage());
+        complete(sendTracking, Status.FAILED);
+        sendTracking.getCompletion().completeExceptionally(e);
+    }
+
+    private void complete(SendTracking sendTracking, Status status) {
+        sendTracking.setCompletedAt(System.currentTimeMillis());
+        sendTracking.setStatus(status);
+        window.release();
+        if (status == Status.ACKNOWLEDGED) {
+            sendTracking.getCompletion().complete(sendTracking);
+        }
+    }
+
+    private void evictCompleted() {
+        long cutoff = System.currentTimeMillis() - trackingRetentionMs;
+        tracking.values().removeIf(t -> t.getStatus() != Status.PENDING && t.getCompletedAt() < cutoff);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        JmsUtils.closeConnection(connection, true);
+        logger.info("Async sender stopped");
+    }
+
+    private class TrackingCompletionListener implements CompletionListener {
+
+        private final SendTracking sendTracking;
+        private final String payload;
+
+        TrackingCompletionListener(SendTracking sendTracking, String payload) {
+            this.sendTracking = sendTracking;
+            this.payload = payload;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            complete(sendTracking, Status.ACKNOWLEDGED);
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            onFailure(sendTracking, payload, exception);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Listener concurrency autoscaler settings ({@code artemis.autoscaler.*}). Bounds can be
+ * overridden per destination under {@code destinations.<queue-name>}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.autoscaler")
+public class AutoscalerProperties {
+
+    private boolean enabled = false;
+
+    /** Sampling interval. */
+    private long intervalMs = 5000;
+
+    private int minConsumers = 1;
+    private int maxConsumers = 10;
+
+    /** Scale up while the backlog exceeds this many messages per consumer, or... */
+    private long scaleUpBacklogPerConsumer = 100;
+
+    /** Scale up while draining the backlog at the observed processing time would take longer than this... */
+    private long targetDrainMs = 10000;
+
+    /** ...and consumers are idle less than this fraction of the interval. */
+    private double scaleUpMaxIdleRatio = 0.2;
+
+    /** Scale down when consumers are idle more than this fraction of the interval. */
+    private double scaleDownMinIdleRatio = 0.7;
+
+    /** Consecutive samples that must agree before a resize (hysteresis). */
+    private int stableSamples = 3;
+
+    /** Minimum time between two resizes of the same container. */
+    private long cooldownMs = 30000;
+
+    /** Timeout for the management queue-depth query. */
+    private long managementTimeoutMs = 2000;
+
+    private Map<String, Bounds> destinations = new HashMap<>();
+
+    @Data
+    public static class Bounds {
+        private Integer minConsumers;
+        private Integer maxConsumers;
+    }
+
+    public int minConsumers(String destination) {
+        Bounds bounds = destinations.get(destination);
+        return bounds != null && bounds.getMinConsumers() != null ? bounds.getMinConsumers() : minConsumers;
+    }
+
+    public int maxConsumers(String destination) {
+        Bounds bounds = destinations.get(destination);
+        return bounds != null && bounds.getMaxConsumers() != null ? bounds.getMaxConsumers() : maxConsumers;
+    }
+}
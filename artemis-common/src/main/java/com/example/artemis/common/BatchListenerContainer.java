@@ -0,0 +1,356 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jms.support.JmsUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transacted batch consumer for one queue. Each consumer receives up to {@code batchSize}
+ * messages, waiting at most {@code lingerMs} for the batch to fill, hands them to a
+ * {@link BatchMessageListener} and commits once per batch.
+ * <p>
+ * When the listener throws, the batch is rolled back and its messages are replayed in batches
+ * of half the size until they have all been committed again. The reduced size is shared by all
+ * consumers of the container, since a rolled-back message may be redelivered to any of them and
+ * must not land in another consumer's full-size batch; a redelivered message also caps its own
+ * batch at {@code batchSize} halved per earlier delivery. Repeated failures therefore narrow
+ * down to the failing message alone: the good messages around it are committed and only the bad
+ * one keeps being rolled back, until the broker's {@code max-delivery-attempts} moves it to the
+ * dead letter address. Listeners must tolerate replays of messages from a failed batch.
+ * Every halving redelivers the failing half once more, so keep {@code batchSize} below
+ * 2^{@code max-delivery-attempts} (1024 with the Artemis default of 10) for good messages never
+ * to be dead-lettered by their neighbour.
+ * <p>
+ * With a {@link RetryScheduler} set, the failing message, once isolated, is rescheduled with
+ * backoff (or dead-lettered) and committed instead of being rolled back again.
+ * <p>
+ * After an error a consumer reopens its session on the {@link SharedConnection}, which connects
+ * again if the connection itself has failed.
+ */
+public class BatchListenerContainer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchListenerContainer.class);
+
+    private final ConnectionFactory connectionFactory;
+    private final String destination;
+    private final BatchMessageListener listener;
+    private final BatchListenerProperties properties;
+    private final int consumers;
+    private TaskExecutor taskExecutor;
+    private RetryScheduler retryScheduler;
+
+    private final AtomicLong messagesCommitted = new AtomicLong();
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong batchesRolledBack = new AtomicLong();
+    private final DistributionSummary batchSizes;
+    private final Timer processingTimer;
+
+    private volatile boolean running;
+    private SharedConnection connection;
+    private CountDownLatch stopped;
+
+    // Not the container's monitor: stop() holds that while waiting for the consumers
+    private final Object replayLock = new Object();
+
+    /** Batch size to receive, shared by all consumers; halved while replaying a failed batch. */
+    private volatile int currentBatchSize;
+
+    /** Messages of a failed batch not yet committed again; full-size batches resume at zero. */
+    private int suspects;
+
+    /** Incremented on every failure, so batches received before it do not count as replays. */
+    private volatile long replayGeneration;
+
+    public BatchListenerContainer(ConnectionFactory connectionFactory, String destination, BatchMessageListener listener,
+                                  BatchListenerProperties properties, int consumers, MeterRegistry meterRegistry) {
+        this(connectionFactory, destination, listener, properties, consumers, meterRegistry, Tags.empty());
+    }
+
+    /**
+     * @param tags added to the metrics' {@code destination} tag, e.g. the shard when one container
+     *             runs per broker
+     */
+    public BatchListenerContainer(ConnectionFactory connectionFactory, String destination, BatchMessageListener listener,
+                                  BatchListenerProperties properties, int consumers, MeterRegistry meterRegistry,
+                                  Iterable<Tag> tags) {
+        this.connectionFactory = connectionFactory;
+        this.destination = destination;
+        this.listener = listener;
+        this.properties = properties;
+        this.consumers = consumers;
+        this.taskExecutor = new SimpleAsyncTaskExecutor("batch-listener-");
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("artemis.batch.messages", messagesCommitted, AtomicLong::get)
+                    .tag("destination", destination).tags(tags).register(meterRegistry);
+            FunctionCounter.builder("artemis.batch.commits", batchesCommitted, AtomicLong::get)
+                    .tag("destination", destination).tags(tags).register(meterRegistry);
+            FunctionCounter.builder("artemis.batch.rollbacks", batchesRolledBack, AtomicLong::get)
+                    .tag("destination", destination).tags(tags).register(meterRegistry);
+            batchSizes = DistributionSummary.builder("artemis.batch.size")
+                    .tag("destination", destination).tags(tags).register(meterRegistry);
+            processingTimer = Timer.builder("artemis.batch.processing")
+                    .tag("destination", destination).tags(tags).register(meterRegistry);
+        } else {
+            batchSizes = null;
+            processingTimer = null;
+        }
+    }
+
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public void setRetryScheduler(RetryScheduler retryScheduler) {
+        this.retryScheduler = retryScheduler;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.info("Starting batch listener: destination={}, batchSize={}, lingerMs={}, consumers={}",
+                destination, properties.getBatchSize(), properties.getLingerMs(), consumers);
+        connection = new SharedConnection(connectionFactory, "batch listener on " + destination);
+        try {
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to open connection for batch listener on " + destination, e);
+        }
+
+        currentBatchSize = properties.getBatchSize();
+        running = true;
+        stopped = new CountDownLatch(consumers);
+        for (int i = 0; i < consumers; i++) {
+            taskExecutor.execute(new Worker());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (stopped != null) {
+            try {
+                stopped.await(properties.getReceiveTimeoutMs() * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        logger.info("Batch listener on {} stopped: {} message(s) in {} batch(es), {} rollback(s)",
+                destination, messagesCommitted.get(), batchesCommitted.get(), batchesRolledBack.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public long getMessagesCommitted() {
+        return messagesCommitted.get();
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public long getBatchesRolledBack() {
+        return batchesRolledBack.get();
+    }
+
+    private final class Worker implements Runnable {
+
+        private Session session;
+        private MessageConsumer consumer;
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        if (session == null) {
+                            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                            consumer = session.createConsumer(session.createQueue(destination));
+                        }
+                        consumeBatch();
+                    } catch (Exception e) {
+                        if (!running) {
+                            break;
+                        }
+                        logger.error("Error in batch listener on {}: {}", destination, e.getMessage(), e);
+                        close();
+                        sleepQuietly(properties.getRecoveryIntervalMs());
+                    }
+                }
+            } finally {
+                close();
+                stopped.countDown();
+            }
+        }
+
+        private void consumeBatch() throws JMSException {
+            long generation = replayGeneration;
+            List<Message> batch = receiveBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            boolean retried = false;
+            try {
+                listener.receiveBatch(batch, session);
+            } catch (Exception e) {
+                if (!retry(batch, e)) {
+                    // Lower the shared batch size before the messages are back on the queue
+                    onRolledBack(batch);
+                    session.rollback();
+                    batchesRolledBack.incrementAndGet();
+                    onFailure(batch, e);
+                    return;
+                }
+                retried = true;
+            }
+            session.commit();
+
+            if (!retried) {
+                messagesCommitted.addAndGet(batch.size());
+                batchesCommitted.incrementAndGet();
+                if (processingTimer != null) {
+                    processingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    batchSizes.record(batch.size());
+                }
+                if (retryScheduler != null) {
+                    for (Message message : batch) {
+                        retryScheduler.onSuccess(message);
+                    }
+                }
+            }
+            onCommitted(batch, generation);
+        }
+
+        private List<Message> receiveBatch() throws JMSException {
+            List<Message> batch = new ArrayList<>(properties.getBatchSize());
+            Message first = consumer.receive(properties.getReceiveTimeoutMs());
+            if (first == null) {
+                return batch;
+            }
+            batch.add(first);
+            int limit = batchSizeLimit(first);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getLingerMs());
+            while (batch.size() < Math.min(limit, currentBatchSize)) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                Message next = remainingMs > 0 ? consumer.receive(remainingMs) : consumer.receiveNoWait();
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                limit = Math.min(limit, batchSizeLimit(next));
+            }
+            return batch;
+        }
+
+        /**
+         * The largest batch {@code message} may be part of: {@code batchSize} halved once per earlier
+         * delivery ({@code JMSXDeliveryCount}), so a message that failed before stays in small
+         * batches even after the container has resumed full-size ones.
+         */
+        private int batchSizeLimit(Message message) throws JMSException {
+            Object deliveryCount = message.getObjectProperty("JMSXDeliveryCount");
+            int redeliveries = deliveryCount instanceof Number number ? number.intValue() - 1 : 0;
+            return redeliveries <= 0 ? properties.getBatchSize()
+                    : Math.max(1, properties.getBatchSize() >> Math.min(redeliveries, 30));
+        }
+
+        /**
+         * Hand a single failed message to the retry scheduler, whose copy then commits with it.
+         */
+        private boolean retry(List<Message> batch, Exception e) {
+            if (retryScheduler == null || batch.size() > 1) {
+                return false;
+            }
+            try {
+                return retryScheduler.retry(batch.get(0), session, e);
+            } catch (JMSException | RuntimeException retryFailure) {
+                e.addSuppressed(retryFailure);
+                return false;
+            }
+        }
+
+        private void onFailure(List<Message> batch, Exception e) throws JMSException {
+            if (batch.size() > 1) {
+                logger.warn("Batch of {} on {} failed, replaying in batches of {}: {}",
+                        batch.size(), destination, currentBatchSize, e.getMessage());
+                return;
+            }
+            Message message = batch.get(0);
+            logger.error("Message {} on {} failed (delivery {}), rolled back for redelivery: {}",
+                    message.getJMSMessageID(), destination, message.getIntProperty("JMSXDeliveryCount"),
+                    e.getMessage(), e);
+        }
+
+        private void close() {
+            JmsUtils.closeMessageConsumer(consumer);
+            JmsUtils.closeSession(session);
+            consumer = null;
+            session = null;
+        }
+    }
+
+    private void onRolledBack(List<Message> batch) {
+        synchronized (replayLock) {
+            suspects = batch.size();
+            currentBatchSize = Math.max(1, Math.min(currentBatchSize, batch.size() / 2));
+            replayGeneration++;
+        }
+    }
+
+    /**
+     * Count a committed batch towards the replay of failed messages, unless it was received before
+     * the last failure and so with a larger batch size.
+     */
+    private void onCommitted(List<Message> batch, long generation) {
+        synchronized (replayLock) {
+            if (suspects == 0 || generation != replayGeneration) {
+                return;
+            }
+            suspects -= batch.size();
+            if (suspects <= 0) {
+                suspects = 0;
+                currentBatchSize = properties.getBatchSize();
+                logger.info("Batch listener on {} resumed batches of {}", destination, currentBatchSize);
+            }
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Batch consumption settings ({@code artemis.listener.batch.*}) for {@link BatchListenerContainer}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.listener.batch")
+public class BatchListenerProperties {
+
+    /** Consume through {@link BatchMessageListener#receiveBatch} instead of the per-message listener. */
+    private boolean enabled = false;
+
+    /** Maximum messages per batch (and per transaction). */
+    private int batchSize = 100;
+
+    /** Maximum time to wait for a batch to fill once its first message has arrived. */
+    private long lingerMs = 50;
+
+    /** Receive timeout while waiting for the first message of a batch. */
+    private long receiveTimeoutMs = 1000;
+
+    /** Pause before reconnecting after a consumer error. */
+    private long recoveryIntervalMs = 5000;
+}
@@ -0,0 +1,25 @@
+package com.example.artemis.common;
+
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+
+import java.util.List;
+
+/**
+ * Listener contract for {@link BatchListenerContainer}. The whole batch is received and committed
+ * in one transaction; throwing rolls the batch back, after which the container replays it in
+ * smaller batches to isolate the failing message.
+ */
+@FunctionalInterface
+public interface BatchMessageListener {
+
+    void receiveBatch(List<Message> messages) throws Exception;
+
+    /**
+     * Variant the container calls, with the batch's transacted session: whatever the listener sends
+     * on it (e.g. {@link Replies}) commits or rolls back with the batch.
+     */
+    default void receiveBatch(List<Message> messages, Session session) throws Exception {
+        receiveBatch(messages);
+    }
+}
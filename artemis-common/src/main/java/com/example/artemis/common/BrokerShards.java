@@ -0,0 +1,344 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jms.JmsException;
+import org.springframework.jms.core.JmsTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Client-side sharding of sends across several brokers ({@code artemis.sharding.*}), one
+ * {@link JmsTemplate} per broker.
+ * <p>
+ * Keyed sends go to the shard that owns the key on a consistent-hash ring with
+ * {@code virtual-nodes} points per unit of weight. A key therefore always lands on the same broker
+ * (and its messages stay in order there), and adding a broker moves only its share of the keys.
+ * Unkeyed sends go to the healthy shard with the fewest sends in flight relative to its weight
+ * ({@code least-loaded}) or to one picked at random in proportion to weight ({@code weighted}).
+ * <p>
+ * A send that fails with a {@link JmsException} marks its shard unhealthy for
+ * {@code unhealthy-backoff-ms} and is retried on the next shard: for a keyed send the next one
+ * clockwise on the ring, so all of a failed shard's keys move together and come back together.
+ * Unhealthy shards are tried again after the backoff, and last of all when no shard is healthy.
+ * Per-key order only holds while the key's shard stays up, and a send whose outcome was unknown
+ * may reach two brokers; consumers drop the second copy by its duplicate-detection ID, so callers
+ * stamp one on every send that may fail over.
+ * <p>
+ * Publishes {@code artemis.shard.healthy} and {@code artemis.shard.in-flight} gauges and
+ * {@code artemis.shard.sends} and {@code artemis.shard.failovers} counters, tagged with the shard.
+ */
+public class BrokerShards implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerShards.class);
+
+    /**
+     * One broker and the template that sends to it.
+     */
+    public static class Shard {
+        private final String name;
+        private final int weight;
+        private final JmsTemplate jmsTemplate;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile long unhealthyUntilNanos;
+        private volatile boolean markedUnhealthy;
+        private Counter sends;
+        private Counter failovers;
+
+        public Shard(String name, int weight, JmsTemplate jmsTemplate) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Shard " + name + " needs a positive weight");
+            }
+            this.name = name;
+            this.weight = weight;
+            this.jmsTemplate = jmsTemplate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public JmsTemplate getJmsTemplate() {
+            return jmsTemplate;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public boolean isHealthy() {
+            return !markedUnhealthy || System.nanoTime() - unhealthyUntilNanos >= 0;
+        }
+    }
+
+    private final List<Shard> shards;
+    private final ShardingProperties properties;
+    // Ring points in hash order and the shard owning each
+    private final long[] ringHashes;
+    private final Shard[] ringOwners;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    public BrokerShards(List<Shard> shards, ShardingProperties properties, MeterRegistry meterRegistry) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Sharding needs at least one broker");
+        }
+        this.shards = List.copyOf(shards);
+        this.properties = properties;
+
+        int points = 0;
+        for (Shard shard : this.shards) {
+            points += shard.weight * Math.max(1, properties.getVirtualNodes());
+        }
+        long[] hashes = new long[points];
+        Shard[] owners = new Shard[points];
+        int index = 0;
+        for (Shard shard : this.shards) {
+            for (int node = 0; node < shard.weight * Math.max(1, properties.getVirtualNodes()); node++) {
+                hashes[index] = hash(shard.name + "#" + node);
+                owners[index++] = shard;
+            }
+        }
+        Integer[] order = new Integer[points];
+        for (int i = 0; i < points; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.ringHashes = new long[points];
+        this.ringOwners = new Shard[points];
+        for (int i = 0; i < points; i++) {
+            ringHashes[i] = hashes[order[i]];
+            ringOwners[i] = owners[order[i]];
+        }
+
+        if (meterRegistry != null) {
+            for (Shard shard : this.shards) {
+                Gauge.builder("artemis.shard.healthy", shard, s -> s.isHealthy() ? 1 : 0)
+                        .tag("shard", shard.name).register(meterRegistry);
+                Gauge.builder("artemis.shard.in-flight", shard.inFlight, AtomicInteger::get)
+                        .tag("shard", shard.name).register(meterRegistry);
+                shard.sends = Counter.builder("artemis.shard.sends").tag("shard", shard.name).register(meterRegistry);
+                shard.failovers = Counter.builder("artemis.shard.failovers").tag("shard", shard.name).register(meterRegistry);
+            }
+        }
+        logger.info("Sharding sends across {} broker(s): {}", this.shards.size(),
+                this.shards.stream().map(s -> s.name + " (weight " + s.weight + ")").toList());
+    }
+
+    /**
+     * Run a send on the shard for {@code key} ({@code null} for unkeyed), failing over to the next
+     * shards while it fails with a {@link JmsException}. A duplicate rejection is not a broker
+     * failure and is rethrown as is.
+     */
+    public <R> R execute(String key, Function<JmsTemplate, R> send) {
+        List<Shard> candidates = candidates(key);
+        JmsException failure = null;
+        for (Shard shard : candidates) {
+            try {
+                return attempt(shard, send);
+            } catch (JmsException e) {
+                if (DuplicateIds.isDuplicateRejection(e)) {
+                    throw e;
+                }
+                markUnhealthy(shard, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Run a send on the shard for {@code key} without failing over, for sends that cannot be
+     * repeated (a streamed body is consumed by the first attempt).
+     */
+    public <R> R executeOnce(String key, Function<JmsTemplate, R> send) {
+        Shard shard = candidates(key).get(0);
+        try {
+            return attempt(shard, send);
+        } catch (JmsException e) {
+            if (!DuplicateIds.isDuplicateRejection(e)) {
+                markUnhealthy(shard, e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Shards in the order a send for {@code key} tries them: healthy ones first.
+     */
+    public List<Shard> candidates(String key) {
+        List<Shard> ordered = key != null ? ringOrder(key) : balancedOrder();
+        List<Shard> candidates = new ArrayList<>(ordered.size());
+        for (Shard shard : ordered) {
+            if (shard.isHealthy()) {
+                candidates.add(shard);
+            }
+        }
+        for (Shard shard : ordered) {
+            if (!shard.isHealthy()) {
+                candidates.add(shard);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Skip {@code name} for {@code unhealthy-backoff-ms}, e.g. from a health check or during
+     * maintenance.
+     */
+    public void markUnhealthy(String name) {
+        shards.stream().filter(s -> s.name.equals(name)).findFirst()
+                .ifPresent(shard -> markUnhealthy(shard, null));
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (Shard shard : shards) {
+            if (shard.jmsTemplate.getConnectionFactory() instanceof DisposableBean connectionFactory) {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    private <R> R attempt(Shard shard, Function<JmsTemplate, R> send) {
+        shard.inFlight.incrementAndGet();
+        try {
+            R result = send.apply(shard.jmsTemplate);
+            if (shard.markedUnhealthy) {
+                shard.markedUnhealthy = false;
+                logger.info("Shard {} is accepting sends again", shard.name);
+            }
+            if (shard.sends != null) {
+                shard.sends.increment();
+            }
+            return result;
+        } finally {
+            shard.inFlight.decrementAndGet();
+        }
+    }
+
+    private void markUnhealthy(Shard shard, JmsException cause) {
+        boolean wasHealthy = shard.isHealthy();
+        shard.unhealthyUntilNanos = System.nanoTime() + properties.getUnhealthyBackoffMs() * 1_000_000L;
+        shard.markedUnhealthy = true;
+        if (shard.failovers != null && cause != null) {
+            shard.failovers.increment();
+        }
+        if (wasHealthy) {
+            logger.warn("Shard {} marked unhealthy for {} ms{}", shard.name, properties.getUnhealthyBackoffMs(),
+                    cause != null ? ": " + cause.getMessage() : "");
+        }
+    }
+
+    /**
+     * Distinct shards clockwise from the key's point on the ring.
+     */
+    private List<Shard> ringOrder(String key) {
+        int position = Arrays.binarySearch(ringHashes, hash(key));
+        if (position < 0) {
+            position = -position - 1;
+        }
+        List<Shard> ordered = new ArrayList<>(shards.size());
+        for (int i = 0; i < ringOwners.length && ordered.size() < shards.size(); i++) {
+            Shard owner = ringOwners[(position + i) % ringOwners.length];
+            if (!ordered.contains(owner)) {
+                ordered.add(owner);
+            }
+        }
+        return ordered;
+    }
+
+    private List<Shard> balancedOrder() {
+        List<Shard> ordered = new ArrayList<>(shards.size());
+        if (properties.getBalancing() == ShardingProperties.Balancing.WEIGHTED) {
+            ordered.add(weightedPick());
+        } else {
+            ordered.add(leastLoaded());
+        }
+        // Fail over round the rest in configuration order
+        int first = shards.indexOf(ordered.get(0));
+        for (int i = 1; i < shards.size(); i++) {
+            ordered.add(shards.get((first + i) % shards.size()));
+        }
+        return ordered;
+    }
+
+    private Shard leastLoaded() {
+        // Start the scan at a rotating shard so that ties are spread rather than all won by the first
+        int start = Math.floorMod(nextStart.getAndIncrement(), shards.size());
+        Shard best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (int i = 0; i < shards.size(); i++) {
+            Shard shard = shards.get((start + i) % shards.size());
+            if (!shard.isHealthy()) {
+                continue;
+            }
+            double load = (shard.inFlight.get() + 1) / (double) shard.weight;
+            if (load < bestLoad) {
+                best = shard;
+                bestLoad = load;
+            }
+        }
+        return best != null ? best : shards.get(start);
+    }
+
+    private Shard weightedPick() {
+        int total = 0;
+        for (Shard shard : shards) {
+            if (shard.isHealthy()) {
+                total += shard.weight;
+            }
+        }
+        if (total == 0) {
+            return shards.get(ThreadLocalRandom.current().nextInt(shards.size()));
+        }
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Shard shard : shards) {
+            if (shard.isHealthy()) {
+                pick -= shard.weight;
+                if (pick < 0) {
+                    return shard;
+                }
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    /**
+     * 64-bit FNV-1a with a final avalanche, so that similar keys spread over the whole ring.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Consumer-side duplicate detection settings ({@code artemis.dedup.*}) for {@link ProcessedMessageCache}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.dedup")
+public class DeduplicationProperties {
+
+    /** Skip messages whose duplicate-detection ID (or message ID) was already processed. */
+    private boolean enabled = true;
+
+    /** Message IDs remembered; rounded up to a power of two. Each entry takes 16 bytes. */
+    private int maxEntries = 131072;
+
+    /** How long a processed ID is remembered. */
+    private long windowMs = 3600000;
+
+    /** Memory-mapped file that keeps the cache across restarts; empty keeps it off-heap in memory only. */
+    private String file;
+}
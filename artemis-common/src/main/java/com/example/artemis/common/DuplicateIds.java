@@ -0,0 +1,59 @@
+package com.example.artemis.common;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import org.apache.activemq.artemis.api.core.ActiveMQDuplicateIdException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for Artemis duplicate detection ({@code _AMQ_DUPL_ID}): deriving stable IDs for forwarded
+ * copies, reading a message's deduplication key and recognising broker-side duplicate rejections.
+ */
+public final class DuplicateIds {
+
+    /** The Artemis duplicate-detection property, {@code _AMQ_DUPL_ID}. */
+    public static final String PROPERTY = org.apache.activemq.artemis.api.core.Message.HDR_DUPLICATE_DETECTION_ID.toString();
+
+    private DuplicateIds() {
+    }
+
+    /**
+     * Duplicate-detection ID for the copy of a source message sent to {@code destination}; the same
+     * source always yields the same ID, so re-sends after a redelivery are recognised as duplicates.
+     */
+    public static String derive(String sourceId, String destination) {
+        return sourceId + ":" + destination;
+    }
+
+    /**
+     * Key identifying a message for consumer-side deduplication: its duplicate-detection ID when
+     * the producer stamped one, otherwise the JMS message ID (stable across redeliveries).
+     * Returns {@code null} for a {@code null} message.
+     */
+    public static String key(Message message) throws JMSException {
+        if (message == null) {
+            return null;
+        }
+        Object duplicateId = message.getObjectProperty(PROPERTY);
+        if (duplicateId instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return duplicateId != null ? duplicateId.toString() : message.getJMSMessageID();
+    }
+
+    /**
+     * Whether a send or commit failed because the broker had already seen the duplicate-detection ID.
+     */
+    public static boolean isDuplicateRejection(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ActiveMQDuplicateIdException) {
+                return true;
+            }
+            if (cause instanceof JMSException jmsException && jmsException.getLinkedException() instanceof ActiveMQDuplicateIdException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
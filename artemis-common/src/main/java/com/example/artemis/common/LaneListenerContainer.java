@@ -0,0 +1,354 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+import org.springframework.jms.support.JmsUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weighted fair consumer over the lane queues of one queue (see {@link LaneRouter}). Each worker
+ * holds a transacted session per lane and takes its next message in smooth weighted round-robin
+ * order: in every cycle of (sum of weights) turns a lane gets {@code weight} turns, spread evenly.
+ * A lane with a backlog is therefore served at least {@code weight} times per cycle, however large
+ * the other lanes' backlogs, and a bulk backfill delays a high-weight lane by about
+ * {@code total / weight} messages per worker at most. The turn of an empty lane passes to the
+ * next one, so a lane on its own gets all the capacity.
+ * <p>
+ * A worker that finds every lane empty waits up to {@code idle-wait-ms} for the highest-weight
+ * lane; messages for the other lanes can wait that long while the consumer is idle. Each message
+ * is processed and committed in its lane's transaction. A failure rolls it back or, with a
+ * {@link RetryScheduler}, reschedules it. After an error a worker reopens its sessions on the
+ * {@link SharedConnection}, which connects again if the connection itself has failed.
+ */
+public class LaneListenerContainer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LaneListenerContainer.class);
+
+    private final ConnectionFactory connectionFactory;
+    private final String destination;
+    private final SessionAwareMessageListener<Message> listener;
+    private final LaneProperties properties;
+    private final int consumers;
+    private final Lane[] lanes;
+    /** Lane index for each turn of a cycle. */
+    private final int[] schedule;
+    private final int idleLane;
+    private TaskExecutor taskExecutor;
+    private RetryScheduler retryScheduler;
+
+    private volatile boolean running;
+    private SharedConnection connection;
+    private CountDownLatch stopped;
+
+    private static final class Lane {
+        private final String name;
+        private final String queue;
+        private final int weight;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong rolledBack = new AtomicLong();
+        private Timer waitTimer;
+        private Timer processingTimer;
+
+        private Lane(String name, String queue, int weight) {
+            this.name = name;
+            this.queue = queue;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param destination   the queue split into lanes ({@code artemis.lanes.queues})
+     * @param meterRegistry registry for per-lane metrics, may be {@code null}
+     */
+    public LaneListenerContainer(ConnectionFactory connectionFactory, String destination, LaneProperties properties,
+                                 SessionAwareMessageListener<Message> listener, int consumers, MeterRegistry meterRegistry) {
+        this(connectionFactory, destination, properties, listener, consumers, meterRegistry, Tags.empty());
+    }
+
+    /**
+     * @param tags added to the metrics' {@code destination} and {@code lane} tags, e.g. the shard
+     *             when one container runs per broker
+     */
+    public LaneListenerContainer(ConnectionFactory connectionFactory, String destination, LaneProperties properties,
+                                 SessionAwareMessageListener<Message> listener, int consumers, MeterRegistry meterRegistry,
+                                 Iterable<Tag> tags) {
+        this.connectionFactory = connectionFactory;
+        this.destination = destination;
+        this.listener = listener;
+        this.properties = properties;
+        this.consumers = consumers;
+        this.taskExecutor = new SimpleAsyncTaskExecutor("lane-listener-");
+
+        LaneRouter router = new LaneRouter(properties);
+        List<Map.Entry<String, LaneProperties.Lane>> entries = List.copyOf(properties.getLanes().entrySet());
+        this.lanes = new Lane[entries.size()];
+        int highest = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            String name = entries.get(i).getKey();
+            int weight = entries.get(i).getValue().getWeight();
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight of lane '" + name + "' must be at least 1");
+            }
+            lanes[i] = new Lane(name, router.queue(destination, name), weight);
+            if (weight > lanes[highest].weight) {
+                highest = i;
+            }
+        }
+        this.idleLane = highest;
+        this.schedule = schedule(Arrays.stream(lanes).mapToInt(lane -> lane.weight).toArray());
+
+        if (meterRegistry != null) {
+            for (Lane lane : lanes) {
+                FunctionCounter.builder("artemis.lane.messages", lane.processed, AtomicLong::get)
+                        .tag("destination", destination).tag("lane", lane.name).tags(tags).register(meterRegistry);
+                FunctionCounter.builder("artemis.lane.rollbacks", lane.rolledBack, AtomicLong::get)
+                        .tag("destination", destination).tag("lane", lane.name).tags(tags).register(meterRegistry);
+                lane.waitTimer = Timer.builder("artemis.lane.wait")
+                        .description("Time from send (JMSTimestamp) to the start of processing")
+                        .tag("destination", destination).tag("lane", lane.name).tags(tags)
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(60))
+                        .register(meterRegistry);
+                lane.processingTimer = Timer.builder("artemis.lane.processing")
+                        .tag("destination", destination).tag("lane", lane.name).tags(tags).register(meterRegistry);
+            }
+        }
+    }
+
+    /**
+     * Smooth weighted round-robin order of one cycle over lanes with the given weights: each turn
+     * every lane gains its weight and the lane with the most credit takes the turn, paying the
+     * total weight.
+     */
+    static int[] schedule(int[] weights) {
+        int total = Arrays.stream(weights).sum();
+        int[] schedule = new int[total];
+        int[] credit = new int[weights.length];
+        for (int turn = 0; turn < total; turn++) {
+            int best = 0;
+            for (int i = 0; i < weights.length; i++) {
+                credit[i] += weights[i];
+                if (credit[i] > credit[best]) {
+                    best = i;
+                }
+            }
+            credit[best] -= total;
+            schedule[turn] = best;
+        }
+        return schedule;
+    }
+
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public void setRetryScheduler(RetryScheduler retryScheduler) {
+        this.retryScheduler = retryScheduler;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.info("Starting lane listener: destination={}, lanes={}, consumers={}", destination,
+                Arrays.stream(lanes).map(lane -> lane.queue + "(" + lane.weight + ")").toList(), consumers);
+        connection = new SharedConnection(connectionFactory, "lane listener on " + destination);
+        try {
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to open connection for lane listener on " + destination, e);
+        }
+
+        running = true;
+        stopped = new CountDownLatch(consumers);
+        for (int i = 0; i < consumers; i++) {
+            // Stagger the workers' positions in the cycle
+            taskExecutor.execute(new Worker(i * schedule.length / consumers));
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (stopped != null) {
+            try {
+                stopped.await(Math.max(1000, properties.getIdleWaitMs() * 2), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+        logger.info("Lane listener on {} stopped: {}", destination, Arrays.stream(lanes)
+                .map(lane -> lane.name + "=" + lane.processed.get()).toList());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    /**
+     * Messages committed per lane.
+     */
+    public Map<String, Long> getProcessed() {
+        Map<String, Long> processed = new LinkedHashMap<>();
+        for (Lane lane : lanes) {
+            processed.put(lane.name, lane.processed.get());
+        }
+        return processed;
+    }
+
+    private final class Worker implements Runnable {
+
+        private final Session[] sessions = new Session[lanes.length];
+        private final MessageConsumer[] laneConsumers = new MessageConsumer[lanes.length];
+        private final boolean[] empty = new boolean[lanes.length];
+        private int turn;
+
+        private Worker(int turn) {
+            this.turn = turn;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        if (sessions[0] == null) {
+                            for (int i = 0; i < lanes.length; i++) {
+                                sessions[i] = connection.createSession(true, Session.SESSION_TRANSACTED);
+                                laneConsumers[i] = sessions[i].createConsumer(sessions[i].createQueue(lanes[i].queue));
+                            }
+                        }
+                        consumeNext();
+                    } catch (Exception e) {
+                        if (!running) {
+                            break;
+                        }
+                        logger.error("Error in lane listener on {}: {}", destination, e.getMessage(), e);
+                        close();
+                        sleepQuietly(properties.getRecoveryIntervalMs());
+                    }
+                }
+            } finally {
+                close();
+                stopped.countDown();
+            }
+        }
+
+        /**
+         * Process the next message in cycle order, starting at this worker's turn; a lane found
+         * empty is skipped for the rest of the pass.
+         */
+        private void consumeNext() throws JMSException {
+            Arrays.fill(empty, false);
+            int emptyLanes = 0;
+            for (int i = 0; i < schedule.length && emptyLanes < lanes.length; i++) {
+                int slot = (turn + i) % schedule.length;
+                int lane = schedule[slot];
+                if (empty[lane]) {
+                    continue;
+                }
+                Message message = laneConsumers[lane].receiveNoWait();
+                if (message != null) {
+                    turn = slot + 1;
+                    process(lane, message);
+                    return;
+                }
+                empty[lane] = true;
+                emptyLanes++;
+            }
+            Message message = laneConsumers[idleLane].receive(properties.getIdleWaitMs());
+            if (message != null) {
+                process(idleLane, message);
+            }
+        }
+
+        private void process(int index, Message message) throws JMSException {
+            Lane lane = lanes[index];
+            Session session = sessions[index];
+            long start = System.nanoTime();
+            if (lane.waitTimer != null && message.getJMSTimestamp() > 0) {
+                lane.waitTimer.record(Math.max(0, System.currentTimeMillis() - message.getJMSTimestamp()), TimeUnit.MILLISECONDS);
+            }
+            try {
+                listener.onMessage(message, session);
+            } catch (JMSException | RuntimeException e) {
+                if (retry(session, message, e)) {
+                    session.commit();
+                    return;
+                }
+                session.rollback();
+                lane.rolledBack.incrementAndGet();
+                logger.error("Message {} on {} failed, rolled back for redelivery: {}", message.getJMSMessageID(),
+                        lane.queue, e.getMessage(), e);
+                return;
+            }
+            session.commit();
+            lane.processed.incrementAndGet();
+            if (lane.processingTimer != null) {
+                lane.processingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (retryScheduler != null) {
+                retryScheduler.onSuccess(message);
+            }
+        }
+
+        private boolean retry(Session session, Message message, Exception e) {
+            if (retryScheduler == null) {
+                return false;
+            }
+            try {
+                return retryScheduler.retry(message, session, e);
+            } catch (JMSException | RuntimeException retryFailure) {
+                e.addSuppressed(retryFailure);
+                return false;
+            }
+        }
+
+        private void close() {
+            for (int i = 0; i < lanes.length; i++) {
+                JmsUtils.closeMessageConsumer(laneConsumers[i]);
+                JmsUtils.closeSession(sessions[i]);
+                laneConsumers[i] = null;
+                sessions[i] = null;
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
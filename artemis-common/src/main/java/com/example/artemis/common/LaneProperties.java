@@ -0,0 +1,68 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Priority lane settings ({@code artemis.lanes.*}), shared by the producers ({@link LaneRouter})
+ * and the consumer ({@link LaneListenerContainer}) of the lane queues.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.lanes")
+public class LaneProperties {
+
+    /** Split the traffic of {@code queues} into one queue per lane. */
+    private boolean enabled = false;
+
+    /** Queues split into lanes: {@code <queue>} for the default lane, {@code <queue>.<lane>} for the others. */
+    private List<String> queues = new ArrayList<>(List.of("component4.queue"));
+
+    /** Message property naming a message's lane; without it the lane follows the JMS priority. */
+    private String header = "lane";
+
+    /** Lane of messages whose lane is unknown and whose priority matches no {@code min-priority}. */
+    private String defaultLane = "normal";
+
+    /** Lanes by name; with the defaults, priorities 7-9 go to high, 4-6 to normal and 0-3 to bulk. */
+    private Map<String, Lane> lanes = defaultLanes();
+
+    /**
+     * How long an idle consumer waits for the highest-weight lane before polling every lane again;
+     * the extra latency other lanes can see while the consumer is idle.
+     */
+    private long idleWaitMs = 5;
+
+    /** Pause before reconnecting after a consumer error. */
+    private long recoveryIntervalMs = 5000;
+
+    private static Map<String, Lane> defaultLanes() {
+        Map<String, Lane> lanes = new LinkedHashMap<>();
+        lanes.put("high", new Lane(8, 7));
+        lanes.put("normal", new Lane(4, 4));
+        lanes.put("bulk", new Lane(1, 0));
+        return lanes;
+    }
+
+    @Data
+    public static class Lane {
+
+        /** Share of the consumers' capacity while every lane has a backlog. */
+        private int weight = 1;
+
+        /** Lowest JMS priority (0-9) sent to this lane when a message names no lane. */
+        private int minPriority = 0;
+
+        public Lane() {
+        }
+
+        public Lane(int weight, int minPriority) {
+            this.weight = weight;
+            this.minPriority = minPriority;
+        }
+    }
+}
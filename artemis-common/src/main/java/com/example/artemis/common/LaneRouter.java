@@ -0,0 +1,97 @@
+package com.example.artemis.common;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Producer side of priority lanes: picks a message's lane and the lane queue to send it to. A
+ * message goes to the lane it names ({@code artemis.lanes.header} property, or the {@code X-Lane}
+ * header on REST endpoints), else to the lane with the highest {@code min-priority} at or below its
+ * JMS priority, else to the default lane. Destinations other than {@code artemis.lanes.queues}
+ * are left alone.
+ */
+public class LaneRouter {
+
+    /** REST request header naming the lane. */
+    public static final String REQUEST_HEADER = "X-Lane";
+
+    private final LaneProperties properties;
+    private final Set<String> queues;
+
+    public LaneRouter(LaneProperties properties) {
+        if (!properties.getLanes().containsKey(properties.getDefaultLane())) {
+            throw new IllegalArgumentException("Default lane '" + properties.getDefaultLane() + "' is not one of "
+                    + properties.getLanes().keySet());
+        }
+        this.properties = properties;
+        this.queues = Set.copyOf(properties.getQueues());
+    }
+
+    /**
+     * Lane for a message naming {@code lane} (may be {@code null}) with JMS {@code priority} (may be
+     * {@code null}).
+     */
+    public String lane(String lane, Integer priority) {
+        if (lane != null) {
+            String name = lane.trim().toLowerCase();
+            if (properties.getLanes().containsKey(name)) {
+                return name;
+            }
+        }
+        String byPriority = null;
+        if (priority != null) {
+            int best = -1;
+            for (Map.Entry<String, LaneProperties.Lane> entry : properties.getLanes().entrySet()) {
+                int minPriority = entry.getValue().getMinPriority();
+                if (minPriority <= priority && minPriority > best) {
+                    best = minPriority;
+                    byPriority = entry.getKey();
+                }
+            }
+        }
+        return byPriority != null ? byPriority : properties.getDefaultLane();
+    }
+
+    /**
+     * Lane of a received message, from its lane property and JMS priority.
+     */
+    public String lane(Message message) throws JMSException {
+        return lane(message.getStringProperty(properties.getHeader()), message.getJMSPriority());
+    }
+
+    /**
+     * Queue of {@code lane} for the lane queue {@code baseQueue}.
+     */
+    public String queue(String baseQueue, String lane) {
+        return lane.equals(properties.getDefaultLane()) ? baseQueue : baseQueue + "." + lane;
+    }
+
+    /**
+     * Where to send a message meant for {@code destination}: its lane's queue when
+     * {@code destination} is split into lanes, otherwise {@code destination} itself.
+     */
+    public String destination(String destination, String lane, Integer priority) {
+        return queues.contains(destination) ? queue(destination, lane(lane, priority)) : destination;
+    }
+
+    /**
+     * {@link #destination} for each of {@code destinations}.
+     */
+    public List<String> destinations(Collection<String> destinations, String lane, Integer priority) {
+        List<String> routed = new ArrayList<>(destinations.size());
+        for (String destination : destinations) {
+            routed.add(destination(destination, lane, priority));
+        }
+        return routed;
+    }
+
+    public String getHeader() {
+        return properties.getHeader();
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.artemis.common;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import org.apache.activemq.artemis.api.jms.ActiveMQJMSConstants;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming access to Artemis large-message bodies, so payloads of any size pass through in
+ * chunks instead of being held in memory. A producer hands the body over as an {@link InputStream}
+ * ({@code JMS_AMQ_InputStream}); the client sends it in chunks as an Artemis large message once it
+ * exceeds {@code min-large-message-size}. A consumer reads the body as a stream, or has the client
+ * write it straight to a file ({@code JMS_AMQ_SaveStream}).
+ */
+public final class LargeMessages {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PIPE_CHUNKS = 16;
+
+    private LargeMessages() {
+    }
+
+    /**
+     * Use {@code body} as the message body; it is read to the end while the message is sent.
+     */
+    public static void setBodyStream(BytesMessage message, InputStream body) throws JMSException {
+        message.setObjectProperty(ActiveMQJMSConstants.JMS_ACTIVEMQ_INPUT_STREAM, body);
+    }
+
+    /**
+     * Stream over the message body, read front to back once. The client does not stream a body read
+     * through {@link BytesMessage#readBytes(byte[])} (it loads it whole), so the body is saved instead
+     * into a pipe of at most {@value #PIPE_CHUNKS} large-message chunks. While the pipe is full the
+     * client's delivery thread for the connection waits, so do not wait on the same connection (for
+     * example by sending on it) while reading: spool the body with {@link #saveBody} instead.
+     */
+    public static InputStream bodyStream(BytesMessage message) {
+        BodyPipe pipe = new BodyPipe();
+        Thread writer = new Thread(() -> {
+            try {
+                message.setObjectProperty(ActiveMQJMSConstants.JMS_ACTIVEMQ_SAVE_STREAM, pipe.sink);
+                pipe.finish(null);
+            } catch (Exception | Error e) {
+                pipe.finish(e);
+            }
+        }, "large-message-body");
+        writer.setDaemon(true);
+        writer.start();
+        return pipe;
+    }
+
+    /**
+     * Write the message body to {@code file}, blocking until the whole body has arrived.
+     *
+     * @return the number of bytes written
+     */
+    public static long saveBody(BytesMessage message, Path file) throws JMSException, IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+            message.setObjectProperty(ActiveMQJMSConstants.JMS_ACTIVEMQ_SAVE_STREAM, out);
+        }
+        return Files.size(file);
+    }
+
+    /**
+     * Input stream that counts the bytes read through it, for reporting the size of a streamed body.
+     */
+    public static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Bounded hand-off of body chunks from the client's writer to a single reader.
+     */
+    private static final class BodyPipe extends InputStream {
+
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(PIPE_CHUNKS);
+        private final byte[] single = new byte[1];
+        private volatile boolean closed;
+        private volatile Throwable failure;
+        private byte[] chunk;
+        private int position;
+
+        final OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                if (length > 0) {
+                    put(Arrays.copyOfRange(buffer, offset, offset + length));
+                }
+            }
+        };
+
+        void finish(Throwable failure) {
+            this.failure = failure;
+            try {
+                put(END);
+            } catch (IOException e) {
+                // Reader is gone
+            }
+        }
+
+        private void put(byte[] next) throws IOException {
+            try {
+                while (!closed) {
+                    if (chunks.offer(next, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+                throw new IOException("Message body stream was closed by the reader");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing the message body");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (chunk == null || (chunk != END && position == chunk.length)) {
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading the message body");
+                }
+                position = 0;
+            }
+            if (chunk == END) {
+                if (failure != null) {
+                    throw new IOException("Failed to read message body", failure);
+                }
+                return -1;
+            }
+            int read = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            chunks.clear();
+        }
+    }
+}
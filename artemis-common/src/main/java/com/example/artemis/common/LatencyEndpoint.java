@@ -0,0 +1,58 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /actuator/latency}: end-to-end and per-hop latency percentiles (as published by
+ * {@link LatencyRecorder}, e.g. p50/p99/p99.9) in milliseconds, per queue.
+ */
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private final LatencyRecorder latencyRecorder;
+
+    public LatencyEndpoint(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> latency() {
+        Map<String, Object> queues = new TreeMap<>();
+        latencyRecorder.getEndToEndTimers().forEach((queue, timer) -> queueEntry(queues, queue).put("endToEnd", summary(timer)));
+        latencyRecorder.getHopTimers().forEach((queue, timer) -> queueEntry(queues, queue).put("hop", summary(timer)));
+        return queues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> queueEntry(Map<String, Object> queues, String queue) {
+        return (Map<String, Object>) queues.computeIfAbsent(queue, q -> new LinkedHashMap<String, Object>());
+    }
+
+    private Map<String, Object> summary(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            summary.put(label(percentile.percentile()), percentile.value(TimeUnit.MILLISECONDS));
+        }
+        summary.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+        return summary;
+    }
+
+    /**
+     * {@code p} followed by the percentile in percent, e.g. p50, p99, p99.9 or p99.99.
+     */
+    static String label(double percentile) {
+        return "p" + BigDecimal.valueOf(percentile).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+}
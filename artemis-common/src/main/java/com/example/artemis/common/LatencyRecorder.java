@@ -0,0 +1,61 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per-hop and end-to-end latency of traced messages as Micrometer timers with
+ * percentile histograms, tagged by queue.
+ */
+public class LatencyRecorder {
+
+    public static final String END_TO_END = "artemis.message.latency.end-to-end";
+    public static final String HOP = "artemis.message.latency.hop";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> endToEndTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> hopTimers = new ConcurrentHashMap<>();
+
+    public LatencyRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record the latency of a message received from {@code queue}. Untraced messages
+     * (null timestamps) are ignored.
+     */
+    public void record(String queue, Long originTimestampNanos, Long hopTimestampNanos) {
+        long now = LatencyTracing.now();
+        if (originTimestampNanos != null) {
+            endToEndTimers.computeIfAbsent(queue, q -> timer(END_TO_END, q))
+                    .record(Math.max(0, now - originTimestampNanos), TimeUnit.NANOSECONDS);
+        }
+        if (hopTimestampNanos != null) {
+            hopTimers.computeIfAbsent(queue, q -> timer(HOP, q))
+                    .record(Math.max(0, now - hopTimestampNanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public Map<String, Timer> getEndToEndTimers() {
+        return endToEndTimers;
+    }
+
+    public Map<String, Timer> getHopTimers() {
+        return hopTimers;
+    }
+
+    private Timer timer(String name, String queue) {
+        return Timer.builder(name)
+                .tag("queue", queue)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(60))
+                .register(meterRegistry);
+    }
+}
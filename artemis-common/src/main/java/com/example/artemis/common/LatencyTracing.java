@@ -0,0 +1,81 @@
+package com.example.artemis.common;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.time.Instant;
+
+/**
+ * JMS properties used to trace a message through the component pipeline. Timestamps are epoch
+ * nanoseconds (wall clock, so they are comparable across hosts with synchronised clocks).
+ * Component-1 stamps the origin ({@link #stampOrigin}); every later hop stamps the message it sends
+ * on ({@link #stamp}) and records the latency of the messages it receives ({@link LatencyRecorder}).
+ */
+public final class LatencyTracing {
+
+    /** Time the message entered the pipeline at component-1. */
+    public static final String ORIGIN_TIMESTAMP = "originTimestampNanos";
+
+    /** Time the message was sent by the previous hop. */
+    public static final String HOP_TIMESTAMP = "hopTimestampNanos";
+
+    /** Number of sends the message has gone through, starting at 1 for component-1. */
+    public static final String HOP_COUNT = "hopCount";
+
+    private LatencyTracing() {
+    }
+
+    public static long now() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    /**
+     * Stamp a message leaving component-1 as the first hop of the pipeline.
+     */
+    public static void stampOrigin(Message message, long originTimestampNanos) throws JMSException {
+        stamp(message, originTimestampNanos, 1);
+    }
+
+    /**
+     * Stamp a message leaving this component as hop {@code hopCount}, in a {@link TraceEnvelope} when
+     * the message was created for one.
+     */
+    public static void stamp(Message message, long originTimestampNanos, int hopCount) throws JMSException {
+        long now = now();
+        if (TraceEnvelope.isRequested(message)) {
+            TraceEnvelope.write(message, originTimestampNanos, now, hopCount);
+            return;
+        }
+        message.setLongProperty(ORIGIN_TIMESTAMP, originTimestampNanos);
+        message.setLongProperty(HOP_TIMESTAMP, now);
+        message.setIntProperty(HOP_COUNT, hopCount);
+    }
+
+    /**
+     * Origin timestamp of a received message, from its {@link TraceEnvelope} or property; {@code null} if absent.
+     */
+    public static Long originTimestamp(Message message) throws JMSException {
+        TraceEnvelope envelope = TraceEnvelope.read(message);
+        if (envelope != null) {
+            return envelope.getOriginTimestampNanos();
+        }
+        return message.propertyExists(ORIGIN_TIMESTAMP) ? message.getLongProperty(ORIGIN_TIMESTAMP) : null;
+    }
+
+    public static Long hopTimestamp(Message message) throws JMSException {
+        TraceEnvelope envelope = TraceEnvelope.read(message);
+        if (envelope != null) {
+            return envelope.getHopTimestampNanos();
+        }
+        return message.propertyExists(HOP_TIMESTAMP) ? message.getLongProperty(HOP_TIMESTAMP) : null;
+    }
+
+    public static Integer hopCount(Message message) throws JMSException {
+        TraceEnvelope envelope = TraceEnvelope.read(message);
+        if (envelope != null) {
+            return envelope.getHopCount();
+        }
+        return message.propertyExists(HOP_COUNT) ? message.getIntProperty(HOP_COUNT) : null;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageListener;
+import jakarta.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resizes each Artemis {@link DefaultMessageListenerContainer} between per-destination bounds.
+ * Every interval it samples the queue depth through Artemis management together with the
+ * listener's processing time and idle ratio; a resize needs {@code stableSamples} consecutive
+ * samples agreeing on the direction and is followed by a cooldown, so the consumer count does
+ * not flap. Containers on other connection factories (e.g. WebLogic) are left alone.
+ */
+public class ListenerConcurrencyAutoscaler implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerConcurrencyAutoscaler.class);
+
+    private final JmsListenerEndpointRegistry registry;
+    private final ConnectionFactory connectionFactory;
+    private final AutoscalerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final QueueDepthProbe probe;
+    private final List<ScaledContainer> containers = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private boolean instrumented;
+    private volatile boolean running;
+
+    public ListenerConcurrencyAutoscaler(JmsListenerEndpointRegistry registry, ConnectionFactory connectionFactory,
+                                         AutoscalerProperties properties, MeterRegistry meterRegistry) {
+        this.registry = registry;
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.probe = new QueueDepthProbe(connectionFactory, properties.getManagementTimeoutMs());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        // Listeners are wrapped and gauges registered once; a restart only resumes sampling
+        if (!instrumented) {
+            for (MessageListenerContainer candidate : registry.getListenerContainers()) {
+                if (candidate instanceof DefaultMessageListenerContainer container
+                        && container.getConnectionFactory() == connectionFactory
+                        && container.getDestinationName() != null) {
+                    containers.add(new ScaledContainer(container));
+                }
+            }
+            instrumented = true;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "listener-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sampleAll, properties.getIntervalMs(), properties.getIntervalMs(), TimeUnit.MILLISECONDS);
+        running = true;
+        logger.info("Listener autoscaler started for destinations: {}",
+                containers.stream().map(c -> c.destination).toList());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(properties.getManagementTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        probe.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start just before the listener containers so their listeners are instrumented before the
+        // first delivery, and stop just after them
+        return DEFAULT_PHASE - 1;
+    }
+
+    private void sampleAll() {
+        for (ScaledContainer container : containers) {
+            try {
+                container.sample();
+            } catch (Exception e) {
+                logger.warn("Autoscaler sample failed for {}: {}", container.destination, e.getMessage());
+            }
+        }
+    }
+
+    private final class ScaledContainer {
+
+        private final DefaultMessageListenerContainer container;
+        private final String destination;
+        private final TimedMessageListener listener;
+        private final int minConsumers;
+        private final int maxConsumers;
+        private final AtomicLong queueDepth = new AtomicLong();
+        private volatile double idleRatio = 1.0;
+        private volatile double avgProcessingMs;
+        private final Counter scaleUps;
+        private final Counter scaleDowns;
+
+        private long lastBusyNanos;
+        private long lastMessages;
+        private long lastSampleNanos = System.nanoTime();
+        private int pendingDirection;
+        private int pendingSamples;
+        private long lastResizeMillis;
+
+        ScaledContainer(DefaultMessageListenerContainer container) {
+            this.container = container;
+            this.destination = container.getDestinationName();
+            this.minConsumers = properties.minConsumers(destination);
+            this.maxConsumers = properties.maxConsumers(destination);
+            this.listener = new TimedMessageListener(container.getMessageListener());
+            container.setupMessageListener(listener);
+
+            int current = container.getConcurrentConsumers();
+            int clamped = Math.max(minConsumers, Math.min(maxConsumers, current));
+            if (clamped != current || container.getMaxConcurrentConsumers() != current) {
+                container.setConcurrency(String.valueOf(clamped));
+            }
+
+            Gauge.builder("artemis.autoscaler.consumers", container, DefaultMessageListenerContainer::getConcurrentConsumers)
+                    .tag("destination", destination).register(meterRegistry);
+            Gauge.builder("artemis.autoscaler.queue.depth", queueDepth, AtomicLong::get)
+                    .tag("destination", destination).register(meterRegistry);
+            Gauge.builder("artemis.autoscaler.idle.ratio", this, c -> c.idleRatio)
+                    .tag("destination", destination).register(meterRegistry);
+            Gauge.builder("artemis.autoscaler.processing.time", this, c -> c.avgProcessingMs)
+                    .tag("destination", destination).baseUnit("milliseconds").register(meterRegistry);
+            scaleUps = Counter.builder("artemis.autoscaler.decisions")
+                    .tag("destination", destination).tag("direction", "up").register(meterRegistry);
+            scaleDowns = Counter.builder("artemis.autoscaler.decisions")
+                    .tag("destination", destination).tag("direction", "down").register(meterRegistry);
+        }
+
+        void sample() throws JMSException {
+            long depth = probe.messageCount(destination);
+            if (depth < 0) {
+                return;
+            }
+            queueDepth.set(depth);
+
+            long now = System.nanoTime();
+            long busy = listener.busyNanos.sum();
+            long messages = listener.messages.sum();
+            long elapsed = Math.max(1, now - lastSampleNanos);
+            int consumers = container.getConcurrentConsumers();
+
+            idleRatio = Math.max(0.0, Math.min(1.0, 1.0 - (double) (busy - lastBusyNanos) / ((double) elapsed * consumers)));
+            if (messages > lastMessages) {
+                avgProcessingMs = (busy - lastBusyNanos) / 1_000_000.0 / (messages - lastMessages);
+            }
+            lastBusyNanos = busy;
+            lastMessages = messages;
+            lastSampleNanos = now;
+
+            double estimatedDrainMs = depth * avgProcessingMs / consumers;
+            boolean backlogged = depth > properties.getScaleUpBacklogPerConsumer() * consumers
+                    || estimatedDrainMs > properties.getTargetDrainMs();
+
+            int direction = 0;
+            if (backlogged && idleRatio < properties.getScaleUpMaxIdleRatio() && consumers < maxConsumers) {
+                direction = 1;
+            } else if (!backlogged && idleRatio > properties.getScaleDownMinIdleRatio() && consumers > minConsumers) {
+                direction = -1;
+            }
+
+            if (direction == 0 || direction != pendingDirection) {
+                pendingDirection = direction;
+                pendingSamples = direction == 0 ? 0 : 1;
+            } else {
+                pendingSamples++;
+            }
+
+            boolean cooledDown = System.currentTimeMillis() - lastResizeMillis >= properties.getCooldownMs();
+            if (direction != 0 && pendingSamples >= properties.getStableSamples() && cooledDown) {
+                int target = direction > 0
+                        ? Math.min(maxConsumers, consumers + Math.max(1, consumers / 2))
+                        : Math.max(minConsumers, consumers - 1);
+                container.setConcurrency(String.valueOf(target));
+                (direction > 0 ? scaleUps : scaleDowns).increment();
+                lastResizeMillis = System.currentTimeMillis();
+                pendingDirection = 0;
+                pendingSamples = 0;
+                logger.info("Autoscaler resized {} from {} to {} consumers (depth={}, idle={}, avgProcessingMs={})",
+                        destination, consumers, target, depth, String.format("%.2f", idleRatio),
+                        String.format("%.3f", avgProcessingMs));
+            }
+        }
+    }
+
+    /**
+     * Delegating listener that accumulates time spent inside the wrapped listener.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final class TimedMessageListener implements SessionAwareMessageListener<Message> {
+
+        private final Object delegate;
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder messages = new LongAdder();
+
+        TimedMessageListener(Object delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(Message message, Session session) throws JMSException {
+            long start = System.nanoTime();
+            try {
+                if (delegate instanceof SessionAwareMessageListener sessionAware) {
+                    sessionAware.onMessage(message, session);
+                } else {
+                    ((MessageListener) delegate).onMessage(message);
+                }
+            } finally {
+                busyNanos.add(System.nanoTime() - start);
+                messages.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.artemis.common;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate compression of text payloads ({@code artemis.wire.compression.*}). A compressed body is
+ * the UTF-8 length of the payload as an int followed by a zlib stream (deflate with a checksum),
+ * and the message carries {@value #PROPERTY}{@code =}{@value #DEFLATE}. Only payloads of at least
+ * {@code threshold-bytes} are compressed, and one is sent as it is when compression saves less than
+ * {@code min-savings-percent}, so small and already dense payloads do not pay for it.
+ * <p>
+ * Deflaters and inflaters hold native memory and are costly to create, so they are pooled like the
+ * {@link WireMessageConverter} buffers they work through.
+ */
+public class PayloadCompression {
+
+    public static final String PROPERTY = "wireCompression";
+    public static final String DEFLATE = "deflate";
+
+    private static final int POOL_SIZE = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * Receives encoded bytes chunk by chunk; {@code BytesMessage::writeBytes} and
+     * {@code ActiveMQBuffer::writeBytes} both fit.
+     */
+    @FunctionalInterface
+    public interface ByteSink {
+        void write(byte[] buffer, int offset, int length) throws JMSException;
+    }
+
+    /**
+     * Writes uncompressed bytes to a sink.
+     */
+    @FunctionalInterface
+    public interface ByteSource {
+        void writeTo(ByteSink sink) throws JMSException;
+    }
+
+    private final boolean enabled;
+    private final int thresholdBytes;
+    private final int level;
+    private final int minSavingsPercent;
+
+    public PayloadCompression(WireFormatProperties.CompressionConfig config) {
+        this.enabled = config.isEnabled();
+        this.thresholdBytes = config.getThresholdBytes();
+        this.level = config.getLevel();
+        this.minSavingsPercent = config.getMinSavingsPercent();
+    }
+
+    /**
+     * Whether a payload of {@code length} UTF-8 bytes should be compressed.
+     */
+    public boolean appliesTo(long length) {
+        return enabled && length >= thresholdBytes;
+    }
+
+    /**
+     * Whether compressing {@code length} bytes down to {@code compressedLength} is worth sending.
+     */
+    public boolean pays(long length, long compressedLength) {
+        return compressedLength * 100 <= length * (100 - minSavingsPercent);
+    }
+
+    /**
+     * Deflate what {@code source} writes into {@code sink}.
+     *
+     * @return the number of compressed bytes written
+     */
+    public long deflate(ByteSource source, ByteSink sink) throws JMSException {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        } else {
+            deflater.setLevel(level);
+        }
+        byte[] output = WireMessageConverter.acquire();
+        try {
+            Deflater active = deflater;
+            long[] written = new long[1];
+            source.writeTo((buffer, offset, length) -> {
+                active.setInput(buffer, offset, length);
+                while (!active.needsInput()) {
+                    written[0] += drain(active, output, sink);
+                }
+            });
+            deflater.finish();
+            while (!deflater.finished()) {
+                written[0] += drain(deflater, output, sink);
+            }
+            return written[0];
+        } finally {
+            WireMessageConverter.release(output);
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Whether {@code message} has a compressed body.
+     */
+    public static boolean isCompressed(Message message) throws JMSException {
+        return DEFLATE.equals(message.getStringProperty(PROPERTY));
+    }
+
+    /**
+     * Inflate the rest of a compressed body, after its length, into {@code target[0..length)}.
+     */
+    public static void inflate(BytesMessage message, byte[] target, int length) throws JMSException {
+        Inflater inflater = acquireInflater();
+        byte[] input = WireMessageConverter.acquire();
+        try {
+            int position = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    int read = message.readBytes(input);
+                    if (read <= 0) {
+                        throw corrupt("body ended before the zlib stream", null);
+                    }
+                    inflater.setInput(input, 0, read);
+                }
+                position += inflate(inflater, target, position, length - position);
+            }
+            checkLength(position, length);
+        } finally {
+            WireMessageConverter.release(input);
+            releaseInflater(inflater);
+        }
+    }
+
+    /**
+     * Inflate the deflate stream in {@code compressed} into {@code target[offset..offset+length)}.
+     */
+    public static void inflate(ByteBuffer compressed, byte[] target, int offset, int length) throws JMSException {
+        Inflater inflater = acquireInflater();
+        try {
+            inflater.setInput(compressed);
+            int position = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    throw corrupt("body ended before the zlib stream", null);
+                }
+                position += inflate(inflater, target, offset + position, length - position);
+            }
+            checkLength(position, length);
+        } finally {
+            releaseInflater(inflater);
+        }
+    }
+
+    private static int drain(Deflater deflater, byte[] output, ByteSink sink) throws JMSException {
+        int count = deflater.deflate(output);
+        if (count > 0) {
+            sink.write(output, 0, count);
+        }
+        return count;
+    }
+
+    private static int inflate(Inflater inflater, byte[] target, int offset, int count) throws JMSException {
+        // Once the declared length is filled, the rest of the stream must not produce any output
+        byte[] into = count > 0 ? target : new byte[1];
+        try {
+            int inflated = count > 0 ? inflater.inflate(target, offset, count) : inflater.inflate(into);
+            if (into != target && inflated > 0) {
+                throw corrupt("payload is longer than its declared length", null);
+            }
+            if (inflated == 0 && !inflater.finished() && !inflater.needsInput()) {
+                throw corrupt("unexpected zlib stream", null);
+            }
+            return inflated;
+        } catch (DataFormatException e) {
+            throw corrupt(e.getMessage(), e);
+        }
+    }
+
+    private static void checkLength(int actual, int expected) throws JMSException {
+        if (actual != expected) {
+            throw corrupt("payload is " + actual + " bytes, declared " + expected, null);
+        }
+    }
+
+    private static Inflater acquireInflater() {
+        Inflater inflater = INFLATERS.poll();
+        return inflater != null ? inflater : new Inflater();
+    }
+
+    private static void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (!INFLATERS.offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    private static JMSException corrupt(String reason, Exception cause) {
+        JMSException exception = new JMSException("Corrupt compressed message body: " + reason);
+        if (cause != null) {
+            exception.setLinkedException(cause);
+            exception.initCause(cause);
+        }
+        return exception;
+    }
+}
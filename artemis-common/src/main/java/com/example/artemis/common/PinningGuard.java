@@ -0,0 +1,59 @@
+package com.example.artemis.common;
+
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Bounds how many threads may be inside a blocking broker call at once. Blocking Artemis sends
+ * wait inside {@code synchronized} blocks, which pins a virtual thread to its carrier; without a
+ * bound, enough concurrent senders pin every carrier and stall all other virtual threads. With
+ * virtual threads off the guard is a pass-through.
+ */
+public class PinningGuard {
+
+    private final Semaphore permits;
+
+    private PinningGuard(Semaphore permits) {
+        this.permits = permits;
+    }
+
+    /**
+     * A guard that never blocks.
+     */
+    public static PinningGuard unbounded() {
+        return new PinningGuard(null);
+    }
+
+    /**
+     * A guard sized for the current threading mode: at most {@code maxPinned} concurrent calls
+     * (default: carriers minus one) when virtual threads are active, unbounded otherwise.
+     */
+    public static PinningGuard forEnvironment(Environment environment, int maxPinned) {
+        if (!VirtualThreads.isEnabled(environment)) {
+            return unbounded();
+        }
+        int bound = maxPinned > 0 ? maxPinned : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new PinningGuard(new Semaphore(bound, true));
+    }
+
+    public <T> T call(Supplier<T> action) {
+        if (permits == null) {
+            return action.get();
+        }
+        permits.acquireUninterruptibly();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+}
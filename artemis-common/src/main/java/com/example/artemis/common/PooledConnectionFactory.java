@@ -0,0 +1,178 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSContext;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jms.connection.CachingConnectionFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection factory that spreads work over several physical connections. Each pool slot is a
+ * {@link CachingConnectionFactory} holding one connection plus a session cache whose producers and
+ * consumers are keyed by destination; {@link #createConnection()} hands slots out round-robin.
+ * Session cache hits and misses are published as Micrometer metrics, together with the time callers
+ * block acquiring a connection (waiting for the slot's shared connection, including connecting or
+ * reconnecting it) and a session (a cache hit, or creating one on a miss).
+ */
+public class PooledConnectionFactory implements ConnectionFactory, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnectionFactory.class);
+
+    private final InstrumentedCachingConnectionFactory[] slots;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong sessionRequests = new AtomicLong();
+    private final AtomicLong sessionMisses = new AtomicLong();
+    private final Timer connectionAcquireTimer;
+    private final Timer acquireTimer;
+
+    public PooledConnectionFactory(String name, ConnectionFactory targetConnectionFactory,
+                                   ArtemisClientProperties.PoolConfig pool, MeterRegistry meterRegistry) {
+        this(name, targetConnectionFactory, pool, pool.isCacheConsumers(), meterRegistry);
+    }
+
+    /**
+     * @param cacheConsumers whether the session caches keep consumers, overriding
+     *                       {@code pool.cache-consumers}; {@code false} for listener containers
+     */
+    public PooledConnectionFactory(String name, ConnectionFactory targetConnectionFactory,
+                                   ArtemisClientProperties.PoolConfig pool, boolean cacheConsumers,
+                                   MeterRegistry meterRegistry) {
+        int connections = pool.resolveConnections();
+        this.slots = new InstrumentedCachingConnectionFactory[connections];
+        for (int i = 0; i < connections; i++) {
+            InstrumentedCachingConnectionFactory slot = new InstrumentedCachingConnectionFactory(targetConnectionFactory);
+            slot.setSessionCacheSize(pool.getSessionCacheSize());
+            slot.setCacheProducers(pool.isCacheProducers());
+            slot.setCacheConsumers(cacheConsumers);
+            slot.setReconnectOnException(true);
+            slots[i] = slot;
+        }
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("artemis.pool.session.hits", this, PooledConnectionFactory::getSessionHits)
+                    .tag("pool", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.pool.session.misses", this, PooledConnectionFactory::getSessionMisses)
+                    .tag("pool", name).register(meterRegistry);
+            acquireTimer = Timer.builder("artemis.pool.session.acquire").tag("pool", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            connectionAcquireTimer = Timer.builder("artemis.pool.connection.acquire").tag("pool", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            Gauge.builder("artemis.pool.connections", slots, s -> s.length).tag("pool", name).register(meterRegistry);
+        } else {
+            connectionAcquireTimer = null;
+            acquireTimer = null;
+        }
+        logger.info("Artemis connection pool '{}' created: connections={}, sessionCacheSize={}",
+                name, connections, pool.getSessionCacheSize());
+    }
+
+    @Override
+    public Connection createConnection() throws JMSException {
+        long start = System.nanoTime();
+        Connection connection = nextSlot().createConnection();
+        recordConnectionAcquire(start);
+        return connection;
+    }
+
+    @Override
+    public Connection createConnection(String userName, String password) throws JMSException {
+        long start = System.nanoTime();
+        Connection connection = nextSlot().createConnection(userName, password);
+        recordConnectionAcquire(start);
+        return connection;
+    }
+
+    @Override
+    public JMSContext createContext() {
+        return nextSlot().createContext();
+    }
+
+    @Override
+    public JMSContext createContext(String userName, String password) {
+        return nextSlot().createContext(userName, password);
+    }
+
+    @Override
+    public JMSContext createContext(String userName, String password, int sessionMode) {
+        return nextSlot().createContext(userName, password, sessionMode);
+    }
+
+    @Override
+    public JMSContext createContext(int sessionMode) {
+        return nextSlot().createContext(sessionMode);
+    }
+
+    public int getConnectionCount() {
+        return slots.length;
+    }
+
+    public long getSessionHits() {
+        return sessionRequests.get() - sessionMisses.get();
+    }
+
+    public long getSessionMisses() {
+        return sessionMisses.get();
+    }
+
+    @Override
+    public void destroy() {
+        for (CachingConnectionFactory slot : slots) {
+            slot.destroy();
+        }
+    }
+
+    private void recordConnectionAcquire(long start) {
+        if (connectionAcquireTimer != null) {
+            connectionAcquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CachingConnectionFactory nextSlot() {
+        return slots[Math.floorMod(next.getAndIncrement(), slots.length)];
+    }
+
+    /**
+     * {@link CachingConnectionFactory} that reports whether each session came from its cache.
+     */
+    private class InstrumentedCachingConnectionFactory extends CachingConnectionFactory {
+
+        InstrumentedCachingConnectionFactory(ConnectionFactory targetConnectionFactory) {
+            super(targetConnectionFactory);
+        }
+
+        @Override
+        protected Session getSession(Connection con, Integer mode) throws JMSException {
+            // Covers the cache lookup and, on a miss, creating the session on the broker
+            long start = System.nanoTime();
+            Session session = super.getSession(con, mode);
+            if (session != null) {
+                sessionRequests.incrementAndGet();
+                if (acquireTimer != null) {
+                    acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+            return session;
+        }
+
+        @Override
+        protected Session createSession(Connection con, Integer mode) throws JMSException {
+            // Only reached when the session cache had nothing to hand out
+            sessionMisses.incrementAndGet();
+            return super.createSession(con, mode);
+        }
+    }
+}
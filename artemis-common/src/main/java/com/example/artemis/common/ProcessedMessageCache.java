@@ -0,0 +1,274 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, time-windowed set of processed message IDs for idempotent consumers.
+ * <p>
+ * IDs are stored as 64-bit fingerprints with their processing time in a fixed-size off-heap table
+ * (16 bytes per entry), organised as 16-way sets: an ID hashes to one set, and a new entry takes an
+ * empty or expired slot there, or else evicts the set's oldest entry. Memory use is therefore fixed
+ * at {@code maxEntries * 16} bytes and nothing is allocated per message. With a file configured the
+ * table is a memory-mapped file, so it survives restarts (and process crashes, as the OS writes the
+ * pages back).
+ * <p>
+ * Fingerprint collisions make a distinct ID look processed with a probability of about
+ * {@code entries / 2^64}, negligible at the supported sizes.
+ */
+public class ProcessedMessageCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedMessageCache.class);
+
+    private static final int WAYS = 16;
+    private static final int SLOT_BYTES = 16;
+    private static final int HEADER_BYTES = 16;
+    private static final int MAGIC = 0x44555043;
+    private static final int VERSION = 1;
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_ENTRIES = 1 << 26;
+
+    private final String name;
+    private final long windowMs;
+    private final int sets;
+    private final ByteBuffer table;
+    private final FileChannel channel;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final AtomicLong entries = new AtomicLong();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param name          cache name, used in logs and as the {@code cache} metric tag
+     * @param meterRegistry registry for hit-rate and footprint metrics, may be {@code null}
+     */
+    public ProcessedMessageCache(String name, DeduplicationProperties properties, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.windowMs = properties.getWindowMs();
+        if (properties.getMaxEntries() > MAX_ENTRIES) {
+            throw new IllegalArgumentException("artemis.dedup.max-entries must not exceed " + MAX_ENTRIES);
+        }
+        this.sets = Math.max(WAYS, Integer.highestOneBit(properties.getMaxEntries() - 1) << 1) / WAYS;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        long size = HEADER_BYTES + (long) sets * WAYS * SLOT_BYTES;
+        String file = properties.getFile();
+        if (file == null || file.isBlank()) {
+            this.channel = null;
+            this.table = ByteBuffer.allocateDirect((int) size);
+            writeHeader();
+        } else {
+            try {
+                Path path = Path.of(file);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (channel.size() > size) {
+                    channel.truncate(size);
+                }
+                this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open duplicate cache file " + file, e);
+            }
+            if (table.getInt(0) == MAGIC && table.getInt(4) == VERSION && table.getInt(8) == sets) {
+                entries.set(countEntries());
+                logger.info("Duplicate cache '{}' restored {} entries from {}", name, entries.get(), file);
+            } else {
+                for (long offset = HEADER_BYTES; offset < size; offset += 8) {
+                    table.putLong((int) offset, 0);
+                }
+                writeHeader();
+            }
+        }
+
+        if (meterRegistry != null) {
+            FunctionCounter.builder("artemis.dedup.lookups", lookups, LongAdder::sum)
+                    .tag("cache", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.dedup.duplicates", duplicates, LongAdder::sum)
+                    .description("Lookups that found an already processed message")
+                    .tag("cache", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.dedup.evictions", evictions, LongAdder::sum)
+                    .description("Entries evicted before their window expired; the cache is too small if this grows")
+                    .tag("cache", name).register(meterRegistry);
+            Gauge.builder("artemis.dedup.entries", entries, AtomicLong::get)
+                    .description("Occupied slots, including expired entries awaiting reuse")
+                    .tag("cache", name).register(meterRegistry);
+            Gauge.builder("artemis.dedup.capacity", this, ProcessedMessageCache::getCapacity)
+                    .tag("cache", name).register(meterRegistry);
+            Gauge.builder("artemis.dedup.memory", table, ByteBuffer::capacity).baseUnit("bytes")
+                    .tag("cache", name).register(meterRegistry);
+        }
+        logger.info("Duplicate cache '{}': capacity={}, window={} ms, {} bytes {}", name, getCapacity(), windowMs,
+                table.capacity(), channel != null ? "mapped from " + file : "off-heap");
+    }
+
+    /**
+     * Whether {@code messageId} was marked processed within the window.
+     */
+    public boolean isDuplicate(String messageId) {
+        long fingerprint = fingerprint(messageId);
+        int set = set(fingerprint);
+        long cutoff = System.currentTimeMillis() - windowMs;
+        lookups.increment();
+
+        ReentrantLock lock = locks[set & (LOCK_STRIPES - 1)];
+        lock.lock();
+        try {
+            for (int way = 0; way < WAYS; way++) {
+                int offset = offset(set, way);
+                long stored = table.getLong(offset);
+                if (stored == 0) {
+                    return false;
+                }
+                if (stored == fingerprint) {
+                    boolean duplicate = table.getLong(offset + 8) >= cutoff;
+                    if (duplicate) {
+                        duplicates.increment();
+                    }
+                    return duplicate;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remember {@code messageId} as processed, evicting the oldest entry of its set if it is full.
+     */
+    public void markProcessed(String messageId) {
+        long fingerprint = fingerprint(messageId);
+        int set = set(fingerprint);
+        long now = System.currentTimeMillis();
+        long cutoff = now - windowMs;
+
+        ReentrantLock lock = locks[set & (LOCK_STRIPES - 1)];
+        lock.lock();
+        try {
+            int target = -1;
+            long targetTime = Long.MAX_VALUE;
+            for (int way = 0; way < WAYS; way++) {
+                int offset = offset(set, way);
+                long stored = table.getLong(offset);
+                if (stored == fingerprint || stored == 0) {
+                    target = offset;
+                    targetTime = stored == 0 ? 0 : table.getLong(offset + 8);
+                    break;
+                }
+                long time = table.getLong(offset + 8);
+                if (time < targetTime) {
+                    target = offset;
+                    targetTime = time;
+                }
+            }
+
+            long stored = table.getLong(target);
+            if (stored == 0) {
+                entries.incrementAndGet();
+            } else if (stored != fingerprint && targetTime >= cutoff) {
+                evictions.increment();
+            }
+            table.putLong(target, fingerprint);
+            table.putLong(target + 8, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacity() {
+        return (long) sets * WAYS;
+    }
+
+    public long getEntries() {
+        return entries.get();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void destroy() {
+        if (channel != null) {
+            try {
+                ((MappedByteBuffer) table).force();
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close duplicate cache '{}': {}", name, e.getMessage());
+            }
+        }
+        logger.info("Duplicate cache '{}' closed: lookups={}, duplicates={}, evictions={}", name,
+                lookups.sum(), duplicates.sum(), evictions.sum());
+    }
+
+    private void writeHeader() {
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, sets);
+    }
+
+    private long countEntries() {
+        long count = 0;
+        for (int offset = HEADER_BYTES; offset < table.capacity(); offset += SLOT_BYTES) {
+            if (table.getLong(offset) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int set(long fingerprint) {
+        return (int) (fingerprint >>> 32) & (sets - 1);
+    }
+
+    private static int offset(int set, int way) {
+        return HEADER_BYTES + (set * WAYS + way) * SLOT_BYTES;
+    }
+
+    /**
+     * 64-bit FNV-1a over the ID's characters with a final avalanche step; never returns 0, which
+     * marks an empty slot.
+     */
+    private static long fingerprint(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.artemis.common;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.api.jms.management.JMSManagementHelper;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Reads queue message counts through the Artemis management address. The connection, session and
+ * temporary reply queue are opened on first use and kept for later reads; they are dropped when a
+ * read fails or times out, so a late reply can never be taken for the answer to the next request.
+ */
+public class QueueDepthProbe {
+
+    private static final String MANAGEMENT_ADDRESS = "activemq.management";
+
+    private final ConnectionFactory connectionFactory;
+    private final long timeoutMs;
+
+    private Connection connection;
+    private Session session;
+    private TemporaryQueue replyQueue;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+
+    public QueueDepthProbe(ConnectionFactory connectionFactory, long timeoutMs) {
+        this.connectionFactory = connectionFactory;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return the number of messages in {@code queueName}, or -1 if the broker did not answer in time
+     */
+    public synchronized long messageCount(String queueName) throws JMSException {
+        boolean answered = false;
+        try {
+            if (connection == null) {
+                open();
+            }
+            Message request = session.createMessage();
+            JMSManagementHelper.putAttribute(request, ResourceNames.QUEUE + queueName, "messageCount");
+            request.setJMSReplyTo(replyQueue);
+            producer.send(request);
+
+            Message reply = consumer.receive(timeoutMs);
+            if (reply == null) {
+                return -1;
+            }
+            answered = true;
+            if (!JMSManagementHelper.hasOperationSucceeded(reply)) {
+                return -1;
+            }
+            Object result = JMSManagementHelper.getResult(reply);
+            return result instanceof Number number ? number.longValue() : -1;
+        } catch (JMSException e) {
+            throw e;
+        } catch (Exception e) {
+            JMSException jmsException = new JMSException("Failed to read message count of " + queueName + ": " + e.getMessage());
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        } finally {
+            if (!answered) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Release the connection; the next read opens a new one.
+     */
+    public synchronized void close() {
+        if (connection == null) {
+            return;
+        }
+        JmsUtils.closeMessageConsumer(consumer);
+        JmsUtils.closeMessageProducer(producer);
+        try {
+            replyQueue.delete();
+        } catch (Exception e) {
+            // Deleted with the connection anyway
+        }
+        JmsUtils.closeSession(session);
+        JmsUtils.closeConnection(connection);
+        connection = null;
+        session = null;
+        replyQueue = null;
+        producer = null;
+        consumer = null;
+    }
+
+    private void open() throws JMSException {
+        connection = connectionFactory.createConnection();
+        try {
+            connection.start();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            replyQueue = session.createTemporaryQueue();
+            producer = session.createProducer(session.createQueue(MANAGEMENT_ADDRESS));
+            consumer = session.createConsumer(replyQueue);
+        } catch (JMSException e) {
+            JmsUtils.closeConnection(connection);
+            connection = null;
+            throw e;
+        }
+    }
+}
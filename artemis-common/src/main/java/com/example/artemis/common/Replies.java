@@ -0,0 +1,64 @@
+package com.example.artemis.common;
+
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Replier side of request/reply: answers messages that carry a {@code JMSReplyTo}, correlated by
+ * the request's {@code JMSCorrelationID} (its {@code JMSMessageID} when it has none). Replies are
+ * sent on the consuming session, so on a transacted session they commit or roll back with the
+ * request, and go to the broker the request came from.
+ */
+public final class Replies {
+
+    private Replies() {
+    }
+
+    /**
+     * Whether the sender of {@code message} waits for a reply.
+     */
+    public static boolean isRequest(Message message) throws JMSException {
+        return message != null && message.getJMSReplyTo() != null;
+    }
+
+    /**
+     * Send {@code body} to the reply destination of {@code request}, with the request's delivery
+     * mode and whatever remains of its time to live. Does nothing for messages that expect no
+     * reply, without a session (direct calls) or once the request has expired, since its sender
+     * has then given up waiting.
+     *
+     * @return whether a reply was sent
+     */
+    public static boolean send(Session session, Message request, String body) throws JMSException {
+        if (session == null || !isRequest(request)) {
+            return false;
+        }
+        long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+        if (request.getJMSExpiration() > 0) {
+            timeToLive = request.getJMSExpiration() - System.currentTimeMillis();
+            if (timeToLive <= 0) {
+                return false;
+            }
+        }
+
+        TextMessage reply = session.createTextMessage(body);
+        String correlationId = request.getJMSCorrelationID();
+        reply.setJMSCorrelationID(correlationId != null ? correlationId : request.getJMSMessageID());
+        Destination replyTo = request.getJMSReplyTo();
+        MessageProducer producer = session.createProducer(replyTo);
+        try {
+            int deliveryMode = request.getJMSDeliveryMode() == DeliveryMode.NON_PERSISTENT
+                    ? DeliveryMode.NON_PERSISTENT : DeliveryMode.PERSISTENT;
+            producer.send(reply, deliveryMode, Message.DEFAULT_PRIORITY, timeToLive);
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+        return true;
+    }
+}
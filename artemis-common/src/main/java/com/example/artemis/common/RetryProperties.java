@@ -0,0 +1,46 @@
+package com.example.artemis.common;
+
+import jakarta.jms.MessageFormatException;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retry settings ({@code artemis.retry.*}) for {@link RetryScheduler}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.retry")
+public class RetryProperties {
+
+    /** Reschedule failed messages with backoff instead of rolling them back for immediate redelivery. */
+    private boolean enabled = false;
+
+    /** Processing attempts, the first delivery included, before a message goes to the dead letter queue. */
+    private int maxAttempts = 5;
+
+    /** Delay before the first retry. */
+    private long initialDelayMs = 1000;
+
+    /** Factor applied to the delay for each further retry. */
+    private double multiplier = 2.0;
+
+    /** Upper bound of the delay. */
+    private long maxDelayMs = 300000;
+
+    /** Random spread of each delay, as a fraction of it (0.2 = plus or minus 20%). */
+    private double jitter = 0.2;
+
+    /** Where exhausted and non-retryable messages go. */
+    private String deadLetterQueue = "DLQ";
+
+    /**
+     * Failures that no retry can fix (a malformed or unsupported message), matched against the
+     * exception and its causes: the message goes to the dead letter queue at once.
+     */
+    private List<Class<? extends Throwable>> nonRetryableExceptions = new ArrayList<>(List.of(
+            IllegalArgumentException.class, ClassCastException.class, MessageFormatException.class,
+            MessageConversionException.class));
+}
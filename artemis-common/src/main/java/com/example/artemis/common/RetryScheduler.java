@@ -0,0 +1,270 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.support.JmsUtils;
+
+import java.util.Enumeration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries failed messages without holding up a consumer. Rolling a failed delivery back makes
+ * Artemis redeliver it at once, so a poison message or a downstream outage keeps the consumer
+ * spinning through rollbacks. Instead, a copy of the message is sent back to its queue on the
+ * consuming session with an Artemis scheduled delivery time ({@code _AMQ_SCHED_DELIVERY}), and the
+ * failed delivery is committed together with it. The consumer moves straight on to the next
+ * message; nothing sleeps.
+ * <p>
+ * Retry n is due after {@code initial-delay-ms * multiplier^(n-1)}, capped at {@code max-delay-ms}
+ * and spread by {@code jitter}. Copies carry the attempts so far ({@value #ATTEMPT_PROPERTY}), the
+ * time of the first failure ({@value #FIRST_FAILURE_PROPERTY}) and the last error
+ * ({@value #LAST_ERROR_PROPERTY}). After {@code max-attempts}, or at once for a non-retryable
+ * exception, the copy goes to the dead letter queue instead, with
+ * {@value #ORIGINAL_DESTINATION_PROPERTY}.
+ * <p>
+ * Each copy gets a duplicate-detection ID derived from the original's and the attempt, so a copy
+ * sent twice (after a commit with an unknown outcome) is dropped by the broker. Only text payloads
+ * (TextMessages and wire-format BytesMessages) are copied. A streamed body cannot be read twice,
+ * so such a message is rolled back as before and waits out the broker's redelivery delay.
+ * <p>
+ * Whatever else the listener sent on the consuming session commits with the copy, so listeners
+ * should fail before they send.
+ * <p>
+ * Publishes {@code artemis.retry.scheduled} and {@code artemis.retry.dead-lettered} (tagged with the
+ * reason) counters and an {@code artemis.retry.time-to-success} timer, from the first failure to
+ * successful processing, all tagged with the destination.
+ */
+public class RetryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryScheduler.class);
+
+    /** Failed processing attempts before this copy. */
+    public static final String ATTEMPT_PROPERTY = "retryAttempt";
+    /** Epoch milliseconds of the first failure. */
+    public static final String FIRST_FAILURE_PROPERTY = "retryFirstFailure";
+    /** Exception class and message of the last failure. */
+    public static final String LAST_ERROR_PROPERTY = "retryLastError";
+    /** Duplicate-detection key of the original message, which the copies' IDs derive from. */
+    public static final String ORIGINAL_ID_PROPERTY = "retryOriginalId";
+    /** Queue a dead-lettered message failed on. */
+    public static final String ORIGINAL_DESTINATION_PROPERTY = "retryOriginalDestination";
+
+    private static final String SCHEDULED_DELIVERY =
+            org.apache.activemq.artemis.api.core.Message.HDR_SCHEDULED_DELIVERY_TIME.toString();
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final String destination;
+    private final RetryProperties properties;
+    private final Counter scheduled;
+    private final Counter exhausted;
+    private final Counter nonRetryable;
+    private final Timer timeToSuccess;
+
+    /**
+     * @param destination   queue the consumers read, used for dead-letter headers and as the metrics tag
+     * @param meterRegistry registry for retry metrics, may be {@code null}
+     */
+    public RetryScheduler(String destination, RetryProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getMaxAttempts() < 1) {
+            throw new IllegalArgumentException("artemis.retry.max-attempts must be at least 1");
+        }
+        this.destination = destination;
+        this.properties = properties;
+        if (meterRegistry != null) {
+            scheduled = Counter.builder("artemis.retry.scheduled").tag("destination", destination).register(meterRegistry);
+            exhausted = Counter.builder("artemis.retry.dead-lettered").tag("destination", destination)
+                    .tag("reason", "exhausted").register(meterRegistry);
+            nonRetryable = Counter.builder("artemis.retry.dead-lettered").tag("destination", destination)
+                    .tag("reason", "non-retryable").register(meterRegistry);
+            timeToSuccess = Timer.builder("artemis.retry.time-to-success").tag("destination", destination)
+                    .publishPercentiles(0.5, 0.99).register(meterRegistry);
+        } else {
+            scheduled = null;
+            exhausted = null;
+            nonRetryable = null;
+            timeToSuccess = null;
+        }
+    }
+
+    /**
+     * Handle a failed delivery of {@code message} from the transacted {@code session}: send it back
+     * for a scheduled retry, or to the dead letter queue once it is exhausted or not retryable. The
+     * caller commits the session, which acknowledges the delivery and releases the copy.
+     *
+     * @return {@code false} when the message cannot be copied; the caller then rolls back as before
+     */
+    public boolean retry(Message message, Session session, Throwable failure) throws JMSException {
+        int attempt = message.propertyExists(ATTEMPT_PROPERTY) ? message.getIntProperty(ATTEMPT_PROPERTY) + 1 : 1;
+        if (!isRetryable(failure) || attempt >= properties.getMaxAttempts()) {
+            return deadLetter(message, session, failure, attempt);
+        }
+        Message copy = copy(message, session, failure, attempt);
+        if (copy == null) {
+            return false;
+        }
+        long delayMs = delayMs(attempt);
+        copy.setLongProperty(SCHEDULED_DELIVERY, System.currentTimeMillis() + delayMs);
+        copy.setStringProperty(DuplicateIds.PROPERTY, copy.getStringProperty(ORIGINAL_ID_PROPERTY) + ":retry-" + attempt);
+        Destination target = message.getJMSDestination() != null ? message.getJMSDestination() : session.createQueue(destination);
+        send(session, target, copy, message);
+        if (scheduled != null) {
+            scheduled.increment();
+        }
+        logger.warn("Message {} on {} failed (attempt {} of {}), retrying in {} ms: {}", message.getJMSMessageID(),
+                destination, attempt, properties.getMaxAttempts(), delayMs, describe(failure));
+        logger.debug("Failure of message {}", message.getJMSMessageID(), failure);
+        return true;
+    }
+
+    /**
+     * For messages from a broker without scheduled delivery (WebLogic), whose retries are that
+     * broker's redeliveries: send {@code message} to the dead letter queue on {@code session} if
+     * {@code failure} is not retryable or this was its last delivery ({@code JMSXDeliveryCount}).
+     * The caller commits the session.
+     *
+     * @return whether the message was dead-lettered; if not, let its broker redeliver it
+     */
+    public boolean deadLetterIfExhausted(Message message, Session session, Throwable failure) throws JMSException {
+        Object deliveryCount = message.getObjectProperty("JMSXDeliveryCount");
+        int attempt = deliveryCount instanceof Number number ? number.intValue() : 1;
+        if (isRetryable(failure) && attempt < properties.getMaxAttempts()) {
+            return false;
+        }
+        return deadLetter(message, session, failure, attempt);
+    }
+
+    /**
+     * Record the successful processing of {@code message}; for a retried one, the time since its
+     * first failure.
+     */
+    public void onSuccess(Message message) throws JMSException {
+        if (timeToSuccess != null && message.propertyExists(FIRST_FAILURE_PROPERTY)) {
+            timeToSuccess.record(System.currentTimeMillis() - message.getLongProperty(FIRST_FAILURE_PROPERTY),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Whether retrying can help: {@code false} when {@code failure} or one of its causes is one of
+     * the {@code non-retryable-exceptions}.
+     */
+    public boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            for (Class<? extends Throwable> type : properties.getNonRetryableExceptions()) {
+                if (type.isInstance(cause)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    private boolean deadLetter(Message message, Session session, Throwable failure, int attempt) throws JMSException {
+        Message copy = copy(message, session, failure, attempt);
+        if (copy == null) {
+            return false;
+        }
+        copy.setStringProperty(ORIGINAL_DESTINATION_PROPERTY, destination);
+        copy.setStringProperty(DuplicateIds.PROPERTY, copy.getStringProperty(ORIGINAL_ID_PROPERTY) + ":dead-letter");
+        send(session, session.createQueue(properties.getDeadLetterQueue()), copy, message);
+        boolean retryable = isRetryable(failure);
+        Counter counter = retryable ? exhausted : nonRetryable;
+        if (counter != null) {
+            counter.increment();
+        }
+        logger.error("Message {} on {} failed {}, moved to {}: {}", message.getJMSMessageID(), destination,
+                retryable ? "for the last time (attempt " + attempt + ")" : "with a non-retryable error",
+                properties.getDeadLetterQueue(), describe(failure), failure);
+        return true;
+    }
+
+    /**
+     * Copy of a text message with its properties and the retry headers, or {@code null} for a
+     * message whose body cannot be copied.
+     */
+    private static Message copy(Message message, Session session, Throwable failure, int attempt) throws JMSException {
+        Message copy;
+        if (message instanceof TextMessage textMessage) {
+            copy = session.createTextMessage(textMessage.getText());
+        } else if (message instanceof BytesMessage bytesMessage && WireMessageConverter.isText(message)) {
+            // UTF-8 (possibly compressed) body: copied as is, with the properties that describe it
+            bytesMessage.reset();
+            byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(body);
+            BytesMessage bytesCopy = session.createBytesMessage();
+            bytesCopy.writeBytes(body);
+            copy = bytesCopy;
+        } else {
+            return null;
+        }
+
+        Enumeration<?> names = message.getPropertyNames();
+        while (names.hasMoreElements()) {
+            String property = (String) names.nextElement();
+            // Skip broker-internal and JMS-defined properties, except the message group
+            if (property.startsWith("_AMQ_") || property.startsWith("JMS") && !property.equals("JMSXGroupID")) {
+                continue;
+            }
+            copy.setObjectProperty(property, message.getObjectProperty(property));
+        }
+        copy.setJMSCorrelationID(message.getJMSCorrelationID());
+        copy.setJMSReplyTo(message.getJMSReplyTo());
+        copy.setJMSType(message.getJMSType());
+
+        if (!message.propertyExists(ORIGINAL_ID_PROPERTY)) {
+            copy.setStringProperty(ORIGINAL_ID_PROPERTY, DuplicateIds.key(message));
+        }
+        if (!message.propertyExists(FIRST_FAILURE_PROPERTY)) {
+            copy.setLongProperty(FIRST_FAILURE_PROPERTY, System.currentTimeMillis());
+        }
+        copy.setIntProperty(ATTEMPT_PROPERTY, attempt);
+        copy.setStringProperty(LAST_ERROR_PROPERTY, describe(failure));
+        return copy;
+    }
+
+    private static void send(Session session, Destination target, Message copy, Message original) throws JMSException {
+        MessageProducer producer = session.createProducer(target);
+        try {
+            int deliveryMode = original.getJMSDeliveryMode() == DeliveryMode.NON_PERSISTENT
+                    ? DeliveryMode.NON_PERSISTENT : DeliveryMode.PERSISTENT;
+            producer.send(copy, deliveryMode, original.getJMSPriority(), Message.DEFAULT_TIME_TO_LIVE);
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+    }
+
+    private long delayMs(int attempt) {
+        double delay = Math.min(properties.getMaxDelayMs(),
+                properties.getInitialDelayMs() * Math.pow(properties.getMultiplier(), attempt - 1));
+        double spread = delay * properties.getJitter();
+        return Math.max(0, Math.round(delay - spread + ThreadLocalRandom.current().nextDouble() * 2 * spread));
+    }
+
+    /**
+     * Class and message of the innermost cause, which says more than the listener wrappers around it.
+     */
+    private static String describe(Throwable failure) {
+        Throwable root = failure;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String description = root.getClass().getName() + ": " + root.getMessage();
+        return description.length() > MAX_ERROR_LENGTH ? description.substring(0, MAX_ERROR_LENGTH) : description;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.artemis.common;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+/**
+ * Transacted listener container that hands failed deliveries to a {@link RetryScheduler}: the
+ * failed message is rescheduled (or dead-lettered) and the delivery committed, instead of rolled
+ * back for immediate redelivery. Messages the scheduler cannot copy are rolled back as before.
+ */
+public class RetryingMessageListenerContainer extends DefaultMessageListenerContainer {
+
+    private final RetryScheduler retryScheduler;
+
+    public RetryingMessageListenerContainer(RetryScheduler retryScheduler) {
+        this.retryScheduler = retryScheduler;
+    }
+
+    /**
+     * Factory for {@code @JmsListener} endpoints whose containers retry through {@code retryScheduler}.
+     */
+    public static DefaultJmsListenerContainerFactory factory(RetryScheduler retryScheduler) {
+        return new DefaultJmsListenerContainerFactory() {
+            @Override
+            protected DefaultMessageListenerContainer createContainerInstance() {
+                return new RetryingMessageListenerContainer(retryScheduler);
+            }
+        };
+    }
+
+    @Override
+    protected void invokeListener(Session session, Message message) throws JMSException {
+        try {
+            super.invokeListener(session, message);
+        } catch (JMSException | RuntimeException e) {
+            boolean retried;
+            try {
+                retried = isSessionTransacted() && retryScheduler.retry(message, session, e);
+            } catch (JMSException | RuntimeException retryFailure) {
+                // Could not send the copy: roll back, the broker redelivers after its redelivery delay
+                e.addSuppressed(retryFailure);
+                throw e;
+            }
+            if (!retried) {
+                throw e;
+            }
+            return;
+        }
+        retryScheduler.onSuccess(message);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.jms.ConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Consumers of a sharded queue: one listener container per broker in
+ * {@code artemis.sharding.brokers}, each on its own listener pool
+ * ({@link ArtemisConnectionFactories#createListenerPool}), so every shard's
+ * messages are consumed on the broker they were sent to. A broker that is down only idles its own
+ * container; one that cannot even be started is retried every {@code unhealthy-backoff-ms}
+ * while the other shards carry on.
+ */
+public class ShardListenerContainers implements SmartLifecycle, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardListenerContainers.class);
+
+    private final ShardingProperties properties;
+    private final Map<String, PooledConnectionFactory> connectionFactories = new LinkedHashMap<>();
+    private final Map<String, SmartLifecycle> containers = new LinkedHashMap<>();
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    /**
+     * @param containerFactory creates the (not yet started) container for a shard, given its name
+     *                         and connection factory
+     */
+    public ShardListenerContainers(ShardingProperties properties, ArtemisClientProperties clientProperties,
+                                   MeterRegistry meterRegistry,
+                                   BiFunction<String, ConnectionFactory, SmartLifecycle> containerFactory) {
+        if (properties.getBrokers().isEmpty()) {
+            throw new IllegalStateException("artemis.sharding.enabled needs artemis.sharding.brokers");
+        }
+        this.properties = properties;
+        for (ShardingProperties.Broker broker : properties.getBrokers()) {
+            PooledConnectionFactory connectionFactory = ArtemisConnectionFactories.createListenerPool(
+                    "artemis-" + broker.getName(), broker.getUrl(), broker.getUser(), broker.getPassword(),
+                    clientProperties, meterRegistry);
+            connectionFactories.put(broker.getName(), connectionFactory);
+            containers.put(broker.getName(), containerFactory.apply(broker.getName(), connectionFactory));
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (Map.Entry<String, SmartLifecycle> container : containers.entrySet()) {
+            startContainer(container.getKey(), container.getValue());
+        }
+        logger.info("Consuming from {} shard(s): {}", containers.size(), containers.keySet());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+            retryScheduler = null;
+        }
+        for (SmartLifecycle container : containers.values()) {
+            if (container.isRunning()) {
+                container.stop();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public List<SmartLifecycle> getContainers() {
+        return List.copyOf(containers.values());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        stop();
+        for (SmartLifecycle container : containers.values()) {
+            if (container instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+        }
+        for (PooledConnectionFactory connectionFactory : connectionFactories.values()) {
+            connectionFactory.destroy();
+        }
+    }
+
+    private synchronized void startContainer(String shard, SmartLifecycle container) {
+        if (!running || container.isRunning()) {
+            return;
+        }
+        try {
+            container.start();
+        } catch (RuntimeException e) {
+            logger.warn("Listener for shard {} could not start, retrying in {} ms: {}", shard,
+                    properties.getUnhealthyBackoffMs(), e.getMessage());
+            if (retryScheduler == null) {
+                retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "shard-listener-retry");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            retryScheduler.schedule(() -> startContainer(shard, container), properties.getUnhealthyBackoffMs(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+}
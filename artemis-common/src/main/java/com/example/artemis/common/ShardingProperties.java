@@ -0,0 +1,49 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client-side sharding across several brokers ({@code artemis.sharding.*}): {@link BrokerShards}
+ * for producers and {@link ShardListenerContainers} for consumers.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * The shards. Component-1 shards its sends across its {@code artemis.listener} entries instead.
+     */
+    private List<Broker> brokers = new ArrayList<>();
+
+    /** Points on the consistent-hash ring per unit of shard weight. */
+    private int virtualNodes = 128;
+
+    /** How unkeyed sends pick a shard. */
+    private Balancing balancing = Balancing.LEAST_LOADED;
+
+    /** How long a shard whose send failed is skipped before it is tried again. */
+    private long unhealthyBackoffMs = 5000;
+
+    @Data
+    public static class Broker {
+        private String name;
+        private String url;
+        private String user;
+        private String password;
+        /** Relative share of the keys and of unkeyed traffic. */
+        private int weight = 1;
+    }
+
+    public enum Balancing {
+        /** Fewest sends in flight relative to weight. */
+        LEAST_LOADED,
+        /** Random, in proportion to weight. */
+        WEIGHTED
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.artemis.common;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.support.JmsUtils;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The one connection the workers of a hand-rolled listener container share, recreated after it
+ * fails, as {@code DefaultMessageListenerContainer} refreshes its shared connection. The
+ * connection is marked broken by its ExceptionListener or when it cannot create a session; the
+ * next worker to ask for a session then closes it and connects again. A worker that cannot
+ * connect gets the exception and retries after its recovery interval.
+ */
+public class SharedConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedConnection.class);
+
+    private final ConnectionFactory connectionFactory;
+    private final String description;
+    // A lock rather than synchronized so virtual-thread workers are not pinned while connecting
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection connection;
+    private volatile Connection broken;
+    private boolean closed;
+
+    /**
+     * @param description what the connection is for, used in log messages
+     */
+    public SharedConnection(ConnectionFactory connectionFactory, String description) {
+        this.connectionFactory = connectionFactory;
+        this.description = description;
+    }
+
+    /**
+     * Open and start the connection, so that a broker that cannot be reached fails at startup.
+     */
+    public void start() throws JMSException {
+        lock.lock();
+        try {
+            closed = false;
+            if (connection == null) {
+                connection = connect();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Create a session, connecting again first if the connection has failed.
+     */
+    public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new jakarta.jms.IllegalStateException("Connection for " + description + " is closed");
+            }
+            if (connection != null && connection == broken) {
+                logger.warn("Connection for {} failed, reconnecting", description);
+                JmsUtils.closeConnection(connection);
+                connection = null;
+            }
+            if (connection == null) {
+                connection = connect();
+            }
+            Connection current = connection;
+            try {
+                return current.createSession(transacted, acknowledgeMode);
+            } catch (JMSException | RuntimeException e) {
+                broken = current;
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            JmsUtils.closeConnection(connection, true);
+            connection = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Connection connect() throws JMSException {
+        Connection created = connectionFactory.createConnection();
+        try {
+            created.setExceptionListener(e -> {
+                logger.warn("Connection for {} failed: {}", description, e.getMessage());
+                broken = created;
+            });
+        } catch (JMSException | RuntimeException e) {
+            // e.g. a shared connection proxy that reconnects by itself; a failed createSession still marks it broken
+            logger.debug("No exception listener on connection for {}: {}", description, e.getMessage());
+        }
+        try {
+            created.start();
+        } catch (JMSException | RuntimeException e) {
+            JmsUtils.closeConnection(created);
+            throw e;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.artemis.common;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+
+/**
+ * Opt-in virtual-thread execution for listener containers, following Spring Boot's
+ * {@code spring.threads.virtual.enabled} switch. The switch only takes effect on a Java 21+
+ * runtime; on older runtimes containers keep the default platform-thread executor.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isEnabled(Environment environment) {
+        return Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Run the factory's listener containers on virtual threads when the virtual-thread mode is active.
+     */
+    public static void apply(DefaultJmsListenerContainerFactory factory, Environment environment, String threadNamePrefix) {
+        if (isEnabled(environment)) {
+            factory.setTaskExecutor(taskExecutor(environment, threadNamePrefix));
+        }
+    }
+
+    /**
+     * Thread-per-task executor for long-running consumer loops: virtual threads when the
+     * virtual-thread mode is active, platform threads otherwise.
+     */
+    public static TaskExecutor taskExecutor(Environment environment, String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(isEnabled(environment));
+        return executor;
+    }
+}
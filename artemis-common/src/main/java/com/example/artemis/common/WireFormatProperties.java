@@ -0,0 +1,41 @@
+package com.example.artemis.common;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Body encoding of the messages a component sends ({@code artemis.wire.*}), see {@link WireMessageConverter}.
+ */
+@Data
+@ConfigurationProperties(prefix = "artemis.wire")
+public class WireFormatProperties {
+
+    public enum Format { TEXT, BYTES }
+
+    /** TEXT sends TextMessages; BYTES sends UTF-8 BytesMessages. Consumers read both. */
+    private Format format = Format.TEXT;
+
+    /** With BYTES, carry the tracing headers in one compact binary property ({@link TraceEnvelope}). */
+    private boolean envelope = false;
+
+    private CompressionConfig compression = new CompressionConfig();
+
+    /**
+     * Deflate compression of large text payloads, see {@link PayloadCompression}. Compressed payloads
+     * are sent as UTF-8 BytesMessages whatever the format.
+     */
+    @Data
+    public static class CompressionConfig {
+
+        private boolean enabled = false;
+
+        /** Payloads from this UTF-8 size are compressed; smaller ones cost more CPU than they save. */
+        private int thresholdBytes = 2048;
+
+        /** Deflate level, 1 (fastest) to 9 (smallest). */
+        private int level = 1;
+
+        /** A payload is sent uncompressed when deflate saves less than this share of its size. */
+        private int minSavingsPercent = 10;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.artemis.common;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Message converter that sends {@code String} payloads as UTF-8 {@link BytesMessage}s when
+ * {@code artemis.wire.format} is {@code BYTES}. Artemis stores a TextMessage body as UTF-16, so
+ * this halves the wire size of ASCII payloads, and encoding and decoding go through a shared pool of
+ * byte buffers instead of per-message intermediate arrays.
+ * <p>
+ * Such messages carry {@value #FORMAT_PROPERTY}, which tells them apart from the raw bytes of a
+ * streamed large message. Reading accepts both TextMessages and UTF-8 BytesMessages whatever the
+ * configured format, so consumers can be upgraded before producers switch to {@code BYTES}. Other
+ * payloads and messages go through a {@link SimpleMessageConverter}.
+ * <p>
+ * Payloads above the compression threshold are sent deflated ({@link PayloadCompression}), as UTF-8
+ * BytesMessages whatever the format; reading inflates them.
+ */
+public class WireMessageConverter implements MessageConverter {
+
+    /** Marks a UTF-8 BytesMessage body; the value is {@link #UTF8} or {@link #UTF8_ENVELOPE}. */
+    public static final String FORMAT_PROPERTY = "wireFormat";
+    public static final String UTF8 = "utf8";
+    /** UTF-8 body whose tracing headers travel in a {@link TraceEnvelope}. */
+    public static final String UTF8_ENVELOPE = "utf8+envelope";
+
+    static final int BUFFER_SIZE = 16 * 1024;
+    private static final BlockingQueue<byte[]> BUFFERS =
+            new ArrayBlockingQueue<>(Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+
+    private final MessageConverter fallback = new SimpleMessageConverter();
+    private final boolean bytes;
+    private final boolean envelope;
+    private final PayloadCompression compression;
+
+    public WireMessageConverter(WireFormatProperties properties) {
+        this.bytes = properties.getFormat() == WireFormatProperties.Format.BYTES;
+        this.envelope = bytes && properties.isEnvelope();
+        this.compression = new PayloadCompression(properties.getCompression());
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+        // Artemis reads back a BytesMessage with nothing written as a 4-byte body, so an empty payload stays text
+        if (!(object instanceof String payload) || payload.isEmpty()) {
+            return fallback.toMessage(object, session);
+        }
+        int length = utf8Length(payload);
+        if (compression.appliesTo(length)) {
+            BytesMessage message = session.createBytesMessage();
+            message.writeInt(length);
+            long compressedLength = compression.deflate(sink -> writeUtf8(payload, sink), message::writeBytes);
+            if (compression.pays(length, compressedLength)) {
+                message.setStringProperty(FORMAT_PROPERTY, envelope ? UTF8_ENVELOPE : UTF8);
+                message.setStringProperty(PayloadCompression.PROPERTY, PayloadCompression.DEFLATE);
+                return message;
+            }
+        }
+        if (!bytes) {
+            return fallback.toMessage(object, session);
+        }
+        BytesMessage message = session.createBytesMessage();
+        writeUtf8(payload, message::writeBytes);
+        message.setStringProperty(FORMAT_PROPERTY, envelope ? UTF8_ENVELOPE : UTF8);
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+        return isText(message) ? readText(message) : fallback.fromMessage(message);
+    }
+
+    /**
+     * Whether {@code message} has a text payload: a TextMessage or a UTF-8 BytesMessage. Any other
+     * BytesMessage is a raw (possibly streamed) body.
+     */
+    public static boolean isText(Message message) throws JMSException {
+        return message instanceof TextMessage
+                || message instanceof BytesMessage && message.getStringProperty(FORMAT_PROPERTY) != null;
+    }
+
+    /**
+     * Text payload of a message for which {@link #isText} holds. A BytesMessage body is read from the
+     * start, so it can be read more than once.
+     */
+    public static String readText(Message message) throws JMSException {
+        if (message instanceof TextMessage textMessage) {
+            return textMessage.getText();
+        }
+        BytesMessage bytesMessage = (BytesMessage) message;
+        bytesMessage.reset();
+        if (PayloadCompression.isCompressed(message)) {
+            int length = bytesMessage.readInt();
+            byte[] target = length > BUFFER_SIZE ? new byte[length] : acquire();
+            try {
+                PayloadCompression.inflate(bytesMessage, target, length);
+                return new String(target, 0, length, StandardCharsets.UTF_8);
+            } finally {
+                if (length <= BUFFER_SIZE) {
+                    release(target);
+                }
+            }
+        }
+        long bodyLength = bytesMessage.getBodyLength();
+        if (bodyLength == 0) {
+            return "";
+        }
+        if (bodyLength > BUFFER_SIZE) {
+            byte[] body = new byte[Math.toIntExact(bodyLength)];
+            bytesMessage.readBytes(body);
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        byte[] buffer = acquire();
+        try {
+            int length = bytesMessage.readBytes(buffer, (int) bodyLength);
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Encode {@code text} as UTF-8 straight into a pooled buffer, passing it to {@code sink} one buffer
+     * at a time; unpaired surrogates become {@code '?'}, as with {@link String#getBytes}.
+     */
+    private static void writeUtf8(String text, PayloadCompression.ByteSink sink) throws JMSException {
+        byte[] buffer = acquire();
+        try {
+            int position = 0;
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                if (position > BUFFER_SIZE - 4) {
+                    sink.write(buffer, 0, position);
+                    position = 0;
+                }
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xc0 | c >> 6);
+                    buffer[position++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xe0 | c >> 12);
+                    buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    buffer[position++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            if (position > 0) {
+                sink.write(buffer, 0, position);
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Length of {@code text} encoded by {@link #writeUtf8}.
+     */
+    private static int utf8Length(String text) {
+        int length = text.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x800) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    // Two chars, four bytes
+                    utf8Length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    utf8Length += 2;
+                }
+            } else if (c >= 0x80) {
+                utf8Length++;
+            }
+        }
+        return utf8Length;
+    }
+
+    static byte[] acquire() {
+        byte[] buffer = BUFFERS.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    static void release(byte[] buffer) {
+        // Dropped when the pool is full, e.g. after a burst of concurrent virtual-thread senders
+        BUFFERS.offer(buffer);
+    }
+}
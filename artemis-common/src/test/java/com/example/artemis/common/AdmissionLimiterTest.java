@@ -0,0 +1,32 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionLimiterTest {
+
+    @Test
+    void rejectionsOfUnknownPrioritiesShareOneTag() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLimit(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionLimiter limiter = new AdmissionLimiter(properties, registry);
+        AdmissionLimiter.Permit permit = limiter.tryAcquire("component2.queue", "critical");
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("component2.queue", "made-up-" + i)).isNull();
+        }
+        assertThat(limiter.tryAcquire("component2.queue", "BULK")).isNull();
+        assertThat(limiter.tryAcquire("component2.queue", null)).isNull();
+        permit.release(false);
+
+        assertThat(registry.find("artemis.admission.rejected").counters())
+                .extracting(counter -> counter.getId().getTag("priority"))
+                .containsExactlyInAnyOrder("other", "bulk", "normal");
+        Counter other = registry.get("artemis.admission.rejected").tag("priority", "other").counter();
+        assertThat(other.count()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.artemis.common;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncMessageSenderTest {
+
+    private static final String QUEUE = "async.queue";
+
+    @Test
+    void retriesCarryTheDuplicateIdOfTheFirstAttempt() throws Exception {
+        try (TestBroker broker = new TestBroker(0, 10);
+             ActiveMQConnectionFactory connectionFactory = broker.connectionFactory()) {
+            AsyncMessageSender sender = new AsyncMessageSender(connectionFactory, 1, 4, 1000, 2, 10, 60000);
+            AtomicInteger conversions = new AtomicInteger();
+            sender.setMessageConverter(new SimpleMessageConverter() {
+                @Override
+                public Message toMessage(Object object, Session session) throws JMSException {
+                    Message message = super.toMessage(object, session);
+                    if (conversions.incrementAndGet() == 1) {
+                        throw new JMSException("first attempt fails");
+                    }
+                    return message;
+                }
+            });
+            try {
+                AsyncMessageSender.SendTracking tracking = sender.submit(QUEUE, "payload").get(10, TimeUnit.SECONDS);
+
+                assertThat(tracking.getAttempts()).isEqualTo(2);
+                assertThat(tracking.getDuplicateId()).isEqualTo(DuplicateIds.derive(tracking.getTrackingId(), QUEUE));
+                try (Connection connection = connectionFactory.createConnection()) {
+                    connection.start();
+                    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE));
+                    TextMessage received = (TextMessage) consumer.receive(1000);
+                    assertThat(received.getText()).isEqualTo("payload");
+                    assertThat(DuplicateIds.key(received)).isEqualTo(tracking.getDuplicateId());
+                    assertThat(consumer.receive(200)).isNull();
+                }
+            } finally {
+                sender.destroy();
+            }
+        }
+    }
+
+    @Test
+    void copyOfAnAlreadyStoredSendIsDropped() throws Exception {
+        try (TestBroker broker = new TestBroker(0, 10);
+             ActiveMQConnectionFactory connectionFactory = broker.connectionFactory()) {
+            AsyncMessageSender sender = new AsyncMessageSender(connectionFactory, 1, 4, 1000, 0, 10, 60000);
+            try {
+                AsyncMessageSender.SendTracking tracking = sender.submit(QUEUE, "payload").get(10, TimeUnit.SECONDS);
+                // What a retry after a lost acknowledgement sends again
+                try (Connection connection = connectionFactory.createConnection()) {
+                    Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                    Message copy = session.createTextMessage("payload");
+                    copy.setStringProperty(DuplicateIds.PROPERTY, tracking.getDuplicateId());
+                    session.createProducer(session.createQueue(QUEUE)).send(copy);
+                }
+
+                assertThat(TestBroker.drain(connectionFactory, QUEUE, 200)).containsExactly("payload");
+            } finally {
+                sender.destroy();
+            }
+        }
+    }
+}
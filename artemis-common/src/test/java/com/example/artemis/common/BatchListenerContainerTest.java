@@ -0,0 +1,144 @@
+package com.example.artemis.common;
+
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchListenerContainerTest {
+
+    private static final String QUEUE = "batch.queue";
+    private static final int MESSAGES = 200;
+
+    private TestBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = new TestBroker(0, 10);
+        connectionFactory = broker.connectionFactory();
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        connectionFactory.close();
+        broker.close();
+    }
+
+    @Test
+    void poisonMessageIsIsolatedAcrossConcurrentConsumers() throws Exception {
+        // Without client-side buffering a rolled-back message goes to whichever consumer asks next
+        connectionFactory.setConsumerWindowSize(0);
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(QUEUE));
+            for (int i = 0; i < MESSAGES; i++) {
+                producer.send(session.createTextMessage(i == 3 ? "poison" : "m-" + i));
+            }
+        }
+
+        BatchListenerProperties properties = new BatchListenerProperties();
+        properties.setBatchSize(16);
+        properties.setLingerMs(20);
+        properties.setReceiveTimeoutMs(100);
+        List<Integer> poisonBatchSizes = new ArrayList<>();
+        BatchListenerContainer container = new BatchListenerContainer(connectionFactory, QUEUE, messages -> {
+            List<String> bodies = new ArrayList<>();
+            for (Message message : messages) {
+                bodies.add(((TextMessage) message).getText());
+            }
+            if (bodies.contains("poison")) {
+                synchronized (poisonBatchSizes) {
+                    poisonBatchSizes.add(messages.size());
+                }
+                throw new IllegalStateException("poison");
+            }
+        }, properties, 4, null);
+        container.start();
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (container.getMessagesCommitted() < MESSAGES - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(500);
+        container.stop();
+
+        // Whichever consumer it was redelivered to, the poison message ended up alone in its batch
+        // well within its 10 deliveries; halving per consumer would take 4 x 4 + 1 of them
+        assertThat(poisonBatchSizes).hasSize(10).contains(1);
+        // Only the poison message is dead-lettered; every other one is committed exactly once
+        assertThat(TestBroker.drain(connectionFactory, TestBroker.DLQ, 200)).containsExactly("poison");
+        assertThat(container.getMessagesCommitted()).isEqualTo(MESSAGES - 1);
+        assertThat(TestBroker.drain(connectionFactory, QUEUE, 200)).isEmpty();
+    }
+
+    @Test
+    void freshMessagesKeepFullBatches() throws Exception {
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(QUEUE));
+            for (int i = 0; i < 64; i++) {
+                producer.send(session.createTextMessage("m-" + i));
+            }
+        }
+
+        BatchListenerProperties properties = new BatchListenerProperties();
+        properties.setBatchSize(16);
+        properties.setLingerMs(200);
+        properties.setReceiveTimeoutMs(100);
+        List<Integer> sizes = new ArrayList<>();
+        BatchListenerContainer container = new BatchListenerContainer(connectionFactory, QUEUE, messages -> {
+            synchronized (sizes) {
+                sizes.add(messages.size());
+            }
+        }, properties, 1, null);
+        container.start();
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (container.getMessagesCommitted() < 64 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        container.stop();
+
+        assertThat(sizes).containsExactly(16, 16, 16, 16);
+    }
+
+    @Test
+    void reconnectsAfterTheBrokerRestarts() throws Exception {
+        BatchListenerProperties properties = new BatchListenerProperties();
+        properties.setBatchSize(4);
+        properties.setLingerMs(20);
+        properties.setReceiveTimeoutMs(100);
+        properties.setRecoveryIntervalMs(100);
+        BatchListenerContainer container = new BatchListenerContainer(connectionFactory, QUEUE, messages -> {
+        }, properties, 2, null);
+        container.start();
+        try {
+            TestBroker.send(connectionFactory, QUEUE, "before");
+            awaitCommitted(container, 1);
+
+            broker.restart();
+            TestBroker.send(connectionFactory, QUEUE, "after");
+            awaitCommitted(container, 2);
+        } finally {
+            container.stop();
+        }
+
+        assertThat(container.getMessagesCommitted()).isEqualTo(2);
+    }
+
+    private static void awaitCommitted(BatchListenerContainer container, long messages) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (container.getMessagesCommitted() < messages && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
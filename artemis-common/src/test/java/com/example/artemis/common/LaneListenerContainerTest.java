@@ -0,0 +1,140 @@
+package com.example.artemis.common;
+
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LaneListenerContainerTest {
+
+    private static final String QUEUE = "lane.queue";
+
+    private TestBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = new TestBroker(0, 10);
+        connectionFactory = broker.connectionFactory();
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        connectionFactory.close();
+        broker.close();
+    }
+
+    @Test
+    void eachLaneGetsItsWeightOfTurnsPerCycle() {
+        // high, normal and bulk as in the default lanes: 8, 4 and 1 turns of 13, spread out
+        assertThat(LaneListenerContainer.schedule(new int[] {8, 4, 1}))
+                .containsExactly(0, 1, 0, 0, 1, 0, 2, 0, 1, 0, 0, 1, 0);
+        assertThat(LaneListenerContainer.schedule(new int[] {2, 1})).containsExactly(0, 1, 0);
+        assertThat(LaneListenerContainer.schedule(new int[] {1, 1, 1})).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void backlogsAreServedByWeight() throws Exception {
+        for (String lane : List.of("high", "normal", "bulk")) {
+            String queue = lane.equals("normal") ? QUEUE : QUEUE + "." + lane;
+            TestBroker.send(connectionFactory, queue, Collections.nCopies(20, lane).toArray(String[]::new));
+        }
+        List<String> received = new CopyOnWriteArrayList<>();
+        LaneListenerContainer container = new LaneListenerContainer(connectionFactory, QUEUE, new LaneProperties(),
+                (message, session) -> received.add(((TextMessage) message).getText()), 1, null);
+        container.start();
+        try {
+            awaitSize(received, 26);
+        } finally {
+            container.stop();
+        }
+
+        // Two full cycles of one worker, while every lane still has a backlog
+        List<String> cycles = received.subList(0, 26);
+        assertThat(Collections.frequency(cycles, "high")).isEqualTo(16);
+        assertThat(Collections.frequency(cycles, "normal")).isEqualTo(8);
+        assertThat(Collections.frequency(cycles, "bulk")).isEqualTo(2);
+    }
+
+    @Test
+    void emptyLanesPassTheirTurn() throws Exception {
+        TestBroker.send(connectionFactory, QUEUE + ".bulk", Collections.nCopies(30, "bulk").toArray(String[]::new));
+        LaneProperties properties = new LaneProperties();
+        // Long enough that waiting on high for every empty turn would show
+        properties.setIdleWaitMs(1000);
+        List<String> received = new CopyOnWriteArrayList<>();
+        LaneListenerContainer container = new LaneListenerContainer(connectionFactory, QUEUE, properties,
+                (message, session) -> received.add(((TextMessage) message).getText()), 1, null);
+        long start = System.nanoTime();
+        container.start();
+        try {
+            awaitSize(received, 30);
+        } finally {
+            container.stop();
+        }
+
+        assertThat(received).hasSize(30);
+        assertThat(System.nanoTime() - start).isLessThan(5_000_000_000L);
+        assertThat(container.getProcessed()).isEqualTo(Map.of("high", 0L, "normal", 0L, "bulk", 30L));
+    }
+
+    @Test
+    void weightBelowOneIsRejected() {
+        LaneProperties properties = new LaneProperties();
+        properties.getLanes().get("bulk").setWeight(0);
+
+        assertThatThrownBy(() -> new LaneListenerContainer(connectionFactory, QUEUE, properties,
+                (message, session) -> { }, 1, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bulk");
+    }
+
+    @Test
+    void unknownDefaultLaneIsRejected() {
+        LaneProperties properties = new LaneProperties();
+        properties.setDefaultLane("medium");
+
+        assertThatThrownBy(() -> new LaneListenerContainer(connectionFactory, QUEUE, properties,
+                (message, session) -> { }, 1, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("medium");
+    }
+
+    @Test
+    void reconnectsAfterTheBrokerRestarts() throws Exception {
+        LaneProperties properties = new LaneProperties();
+        properties.setRecoveryIntervalMs(100);
+        List<String> received = new CopyOnWriteArrayList<>();
+        LaneListenerContainer container = new LaneListenerContainer(connectionFactory, QUEUE, properties,
+                (message, session) -> received.add(((TextMessage) message).getText()), 2, null);
+        container.start();
+        try {
+            TestBroker.send(connectionFactory, QUEUE, "before");
+            awaitSize(received, 1);
+
+            broker.restart();
+            TestBroker.send(connectionFactory, QUEUE + ".high", "after");
+            awaitSize(received, 2);
+        } finally {
+            container.stop();
+        }
+
+        assertThat(received).containsExactly("before", "after");
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.artemis.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LaneRouterTest {
+
+    private static final String QUEUE = "component4.queue";
+
+    private final LaneProperties properties = new LaneProperties();
+
+    @Test
+    void priorityPicksTheLaneWithTheHighestMinPriorityAtOrBelowIt() {
+        LaneRouter router = new LaneRouter(properties);
+
+        assertThat(router.lane(null, 9)).isEqualTo("high");
+        assertThat(router.lane(null, 7)).isEqualTo("high");
+        assertThat(router.lane(null, 6)).isEqualTo("normal");
+        assertThat(router.lane(null, 4)).isEqualTo("normal");
+        assertThat(router.lane(null, 3)).isEqualTo("bulk");
+        assertThat(router.lane(null, 0)).isEqualTo("bulk");
+    }
+
+    @Test
+    void namedLaneWinsOverPriority() {
+        LaneRouter router = new LaneRouter(properties);
+
+        assertThat(router.lane(" Bulk ", 9)).isEqualTo("bulk");
+        // An unknown lane name falls back to the priority, then to the default lane
+        assertThat(router.lane("express", 9)).isEqualTo("high");
+        assertThat(router.lane("express", null)).isEqualTo("normal");
+        assertThat(router.lane(null, null)).isEqualTo("normal");
+    }
+
+    @Test
+    void priorityBelowEveryMinPriorityGoesToTheDefaultLane() {
+        properties.getLanes().get("bulk").setMinPriority(2);
+        LaneRouter router = new LaneRouter(properties);
+
+        assertThat(router.lane(null, 1)).isEqualTo("normal");
+    }
+
+    @Test
+    void defaultLaneKeepsTheQueueName() {
+        LaneRouter router = new LaneRouter(properties);
+
+        assertThat(router.queue(QUEUE, "normal")).isEqualTo(QUEUE);
+        assertThat(router.queue(QUEUE, "high")).isEqualTo(QUEUE + ".high");
+        assertThat(router.queue(QUEUE, "bulk")).isEqualTo(QUEUE + ".bulk");
+    }
+
+    @Test
+    void onlyLaneQueuesAreRouted() {
+        LaneRouter router = new LaneRouter(properties);
+
+        assertThat(router.destinations(List.of(QUEUE, "component2.queue"), null, 9))
+                .containsExactly(QUEUE + ".high", "component2.queue");
+        assertThat(router.destination(QUEUE, "bulk", null)).isEqualTo(QUEUE + ".bulk");
+    }
+
+    @Test
+    void unknownDefaultLaneIsRejected() {
+        properties.setDefaultLane("medium");
+
+        assertThatThrownBy(() -> new LaneRouter(properties))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("medium");
+    }
+}
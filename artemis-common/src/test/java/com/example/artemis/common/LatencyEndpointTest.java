@@ -0,0 +1,35 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyEndpointTest {
+
+    @Test
+    void labelsEveryPercentile() {
+        assertThat(LatencyEndpoint.label(0.5)).isEqualTo("p50");
+        assertThat(LatencyEndpoint.label(0.9)).isEqualTo("p90");
+        assertThat(LatencyEndpoint.label(0.95)).isEqualTo("p95");
+        assertThat(LatencyEndpoint.label(0.99)).isEqualTo("p99");
+        assertThat(LatencyEndpoint.label(0.999)).isEqualTo("p99.9");
+        assertThat(LatencyEndpoint.label(0.9999)).isEqualTo("p99.99");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reportsRecordedPercentilesPerQueue() {
+        LatencyRecorder recorder = new LatencyRecorder(new SimpleMeterRegistry());
+        long now = LatencyTracing.now();
+        recorder.record("component4.queue", now - TimeUnit.MILLISECONDS.toNanos(5), now - TimeUnit.MILLISECONDS.toNanos(2));
+
+        Map<String, Object> queue = (Map<String, Object>) new LatencyEndpoint(recorder).latency().get("component4.queue");
+
+        assertThat((Map<String, Object>) queue.get("endToEnd")).containsKeys("count", "p50", "p99", "p99.9", "max");
+        assertThat((Map<String, Object>) queue.get("hop")).containsEntry("count", 1L);
+    }
+}
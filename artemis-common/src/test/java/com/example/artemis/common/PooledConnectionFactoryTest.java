@@ -0,0 +1,76 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PooledConnectionFactoryTest {
+
+    private static final String QUEUE = "pool.queue";
+
+    @Test
+    void acquireTimersCoverConnectingAndCreatingSessions() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ArtemisClientProperties.PoolConfig pool = new ArtemisClientProperties.PoolConfig();
+        pool.setConnections(1);
+        try (TestBroker broker = new TestBroker(0, 10);
+             ActiveMQConnectionFactory target = broker.connectionFactory()) {
+            PooledConnectionFactory pooled = new PooledConnectionFactory("test", target, pool, registry);
+            for (int i = 0; i < 2; i++) {
+                try (Connection connection = pooled.createConnection()) {
+                    connection.createSession(false, Session.AUTO_ACKNOWLEDGE).close();
+                }
+            }
+            pooled.destroy();
+        }
+
+        Timer connectionAcquire = registry.get("artemis.pool.connection.acquire").timer();
+        Timer sessionAcquire = registry.get("artemis.pool.session.acquire").timer();
+        assertThat(connectionAcquire.count()).isEqualTo(2);
+        assertThat(sessionAcquire.count()).isEqualTo(2);
+        assertThat(registry.get("artemis.pool.session.misses").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void closedConsumerKeepsItsBufferedMessagesOnlyWhenCached() throws Exception {
+        assertThat(messageLeftForOtherConsumers(true)).isNull();
+        assertThat(messageLeftForOtherConsumers(false)).isEqualTo("second");
+    }
+
+    /**
+     * Receive one of two messages through the pool and close the consumer; then what another
+     * consumer, outside the pool, gets of the rest.
+     */
+    private static String messageLeftForOtherConsumers(boolean cacheConsumers) throws Exception {
+        ArtemisClientProperties.PoolConfig pool = new ArtemisClientProperties.PoolConfig();
+        pool.setConnections(1);
+        try (TestBroker broker = new TestBroker(0, 10);
+             ActiveMQConnectionFactory target = broker.connectionFactory()) {
+            TestBroker.send(target, QUEUE, "first", "second");
+            PooledConnectionFactory pooled = new PooledConnectionFactory("test", target, pool, cacheConsumers, null);
+            try (Connection connection = pooled.createConnection()) {
+                connection.start();
+                Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE));
+                assertThat(((TextMessage) consumer.receive(1000)).getText()).isEqualTo("first");
+                session.commit();
+                consumer.close();
+                session.close();
+
+                List<String> rest = TestBroker.drain(target, QUEUE, 500);
+                return rest.isEmpty() ? null : rest.get(0);
+            } finally {
+                pooled.destroy();
+            }
+        }
+    }
+}
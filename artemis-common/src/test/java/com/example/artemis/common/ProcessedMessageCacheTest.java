@@ -0,0 +1,140 @@
+package com.example.artemis.common;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessedMessageCacheTest {
+
+    /** One 16-way set, so every ID competes for the same slots. */
+    private static final int ONE_SET = 16;
+
+    @TempDir
+    Path directory;
+
+    private final DeduplicationProperties properties = new DeduplicationProperties();
+    private final List<ProcessedMessageCache> caches = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        caches.forEach(ProcessedMessageCache::destroy);
+    }
+
+    @Test
+    void idIsDuplicateOnceMarkedProcessed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        properties.setMaxEntries(100);
+        ProcessedMessageCache cache = open(registry);
+
+        assertThat(cache.isDuplicate("id-1")).isFalse();
+        cache.markProcessed("id-1");
+        cache.markProcessed("id-1");
+
+        assertThat(cache.isDuplicate("id-1")).isTrue();
+        assertThat(cache.isDuplicate("id-2")).isFalse();
+        assertThat(cache.getCapacity()).isEqualTo(128);
+        assertThat(cache.getEntries()).isEqualTo(1);
+        assertThat(registry.get("artemis.dedup.lookups").tag("cache", "test").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("artemis.dedup.duplicates").tag("cache", "test").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fullSetEvictsItsOldestEntry() throws Exception {
+        properties.setMaxEntries(ONE_SET);
+        ProcessedMessageCache cache = open(null);
+        for (int i = 0; i < ONE_SET; i++) {
+            cache.markProcessed("id-" + i);
+        }
+        Thread.sleep(5);
+        cache.markProcessed("id-0");
+        Thread.sleep(5);
+
+        cache.markProcessed("id-" + ONE_SET);
+
+        assertThat(cache.isDuplicate("id-1")).isFalse();
+        assertThat(cache.isDuplicate("id-0")).isTrue();
+        for (int i = 2; i <= ONE_SET; i++) {
+            assertThat(cache.isDuplicate("id-" + i)).as("id-" + i).isTrue();
+        }
+        assertThat(cache.getEntries()).isEqualTo(ONE_SET);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesAreForgottenAndReusedWithoutEviction() throws Exception {
+        properties.setMaxEntries(ONE_SET);
+        properties.setWindowMs(200);
+        ProcessedMessageCache cache = open(null);
+        for (int i = 0; i < ONE_SET; i++) {
+            cache.markProcessed("id-" + i);
+        }
+        assertThat(cache.isDuplicate("id-0")).isTrue();
+
+        Thread.sleep(400);
+
+        assertThat(cache.isDuplicate("id-0")).isFalse();
+        cache.markProcessed("id-" + ONE_SET);
+        assertThat(cache.isDuplicate("id-" + ONE_SET)).isTrue();
+        assertThat(cache.getEvictions()).isZero();
+    }
+
+    @Test
+    void idWithTheFingerprintOfAProcessedIdLooksProcessed() {
+        // Two distinct IDs with the same 64-bit fingerprint: the documented false positive
+        String processed = "order-\u5783\u5141\u5d5a\u584dx";
+        String colliding = "order-\u52d8\u5b5a\u588a\u566c\u2f79";
+        ProcessedMessageCache cache = open(null);
+
+        cache.markProcessed(processed);
+
+        assertThat(colliding).isNotEqualTo(processed);
+        assertThat(cache.isDuplicate(colliding)).isTrue();
+        cache.markProcessed(colliding);
+        assertThat(cache.getEntries()).isEqualTo(1);
+    }
+
+    @Test
+    void mappedFileRestoresEntriesAfterRestart() {
+        properties.setFile(directory.resolve("dedup/test.cache").toString());
+        ProcessedMessageCache cache = open(null);
+        cache.markProcessed("id-1");
+        cache.markProcessed("id-2");
+        cache.destroy();
+        caches.remove(cache);
+
+        ProcessedMessageCache restarted = open(null);
+
+        assertThat(restarted.getEntries()).isEqualTo(2);
+        assertThat(restarted.isDuplicate("id-1")).isTrue();
+        assertThat(restarted.isDuplicate("id-2")).isTrue();
+        assertThat(restarted.isDuplicate("id-3")).isFalse();
+    }
+
+    @Test
+    void mappedFileOfAnotherSizeStartsEmpty() {
+        properties.setFile(directory.resolve("test.cache").toString());
+        ProcessedMessageCache cache = open(null);
+        cache.markProcessed("id-1");
+        cache.destroy();
+        caches.remove(cache);
+
+        properties.setMaxEntries(properties.getMaxEntries() / 2);
+        ProcessedMessageCache resized = open(null);
+
+        assertThat(resized.getEntries()).isZero();
+        assertThat(resized.isDuplicate("id-1")).isFalse();
+    }
+
+    private ProcessedMessageCache open(SimpleMeterRegistry registry) {
+        ProcessedMessageCache cache = new ProcessedMessageCache("test", properties, registry);
+        caches.add(cache);
+        return cache;
+    }
+}
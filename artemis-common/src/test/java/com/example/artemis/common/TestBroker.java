@@ -0,0 +1,100 @@
+package com.example.artemis.common;
+
+import org.apache.activemq.artemis.api.core.QueueConfiguration;
+import org.apache.activemq.artemis.api.core.RoutingType;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-persistent in-VM broker for container tests; every address dead-letters to {@link #DLQ}
+ * after {@code maxDeliveryAttempts}.
+ */
+final class TestBroker implements AutoCloseable {
+
+    static final String DLQ = "DLQ";
+
+    private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+    private final String url;
+
+    TestBroker(int serverId, int maxDeliveryAttempts) throws Exception {
+        this.url = "vm://" + serverId;
+        server.setConfiguration(new ConfigurationImpl()
+                .setName("test-broker-" + serverId)
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", url)
+                .addAddressSetting("#", new AddressSettings()
+                        .setDeadLetterAddress(SimpleString.toSimpleString(DLQ))
+                        .setAutoCreateDeadLetterResources(false)
+                        .setMaxDeliveryAttempts(maxDeliveryAttempts)));
+        start();
+    }
+
+    private void start() throws Exception {
+        server.start();
+        server.getActiveMQServer().createQueue(new QueueConfiguration(DLQ)
+                .setRoutingType(RoutingType.ANYCAST));
+    }
+
+    /**
+     * Stop and start the broker, failing every open connection; being non-persistent it comes back
+     * empty.
+     */
+    void restart() throws Exception {
+        server.stop();
+        start();
+    }
+
+    ActiveMQConnectionFactory connectionFactory() {
+        return new ActiveMQConnectionFactory(url);
+    }
+
+    /**
+     * Send {@code texts} to {@code queue} as text messages.
+     */
+    static void send(ConnectionFactory connectionFactory, String queue, String... texts) throws Exception {
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(queue));
+            for (String text : texts) {
+                producer.send(session.createTextMessage(text));
+            }
+        }
+    }
+
+    /**
+     * Receive the text bodies left on {@code queue}, waiting up to {@code timeoutMs} for each.
+     */
+    static List<String> drain(ConnectionFactory connectionFactory, String queue, long timeoutMs) throws Exception {
+        List<String> bodies = new ArrayList<>();
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(queue));
+            Message message;
+            while ((message = consumer.receive(timeoutMs)) != null) {
+                bodies.add(((TextMessage) message).getText());
+            }
+        }
+        return bodies;
+    }
+
+    @Override
+    public void close() throws Exception {
+        server.stop();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import jakarta.jms.Connection;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component-1 asynchronous send mode: persistent sends acknowledged through the confirmation
+ * window, compared against {@link ForwardingServiceBenchmark#sendToArtemis()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AsyncSendBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"100", "10000"})
+    public int maxInFlight;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private Connection drainer;
+    private AsyncMessageSender sender;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(true);
+        ActiveMQConnectionFactory factory = broker.connectionFactory();
+        factory.setConfirmationWindowSize(1024 * 1024);
+        sender = new AsyncMessageSender(factory, 4, maxInFlight, 60000, 3, 100, 1000);
+        drainer = BenchmarkSupport.startDrainer(broker.connectionFactory(), "component2.queue");
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        while (sender.getInFlight() > 0) {
+            Thread.sleep(10);
+        }
+        sender.destroy();
+        drainer.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    public String sendAsync() {
+        return sender.send("component2.queue", payload);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.BatchListenerContainer;
+import com.example.artemis.common.BatchListenerProperties;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.BatchMessageListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Component-2/4 batch consumer path: a {@link BatchListenerContainer} feeding the component's
+ * {@code receiveBatch}, one transaction per batch. {@code batchSize=1} is the per-message baseline.
+ * {@code batchCostMicros} simulates one downstream round trip (e.g. a multi-row insert) per
+ * listener call, which is the cost batching amortises beyond the broker commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BatchConsumerBenchmark {
+
+    private static final int BURST = 5000;
+
+    @Param({"component2", "component4"})
+    public String component;
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    @Param({"0", "500"})
+    public long batchCostMicros;
+
+    @Param({"1024"})
+    public int payloadSize;
+
+    @Param({"true"})
+    public boolean persistent;
+
+    @Param({"POOLED"})
+    public BenchmarkSupport.ConnectionFactoryType connectionFactory;
+
+    @Param({"5"})
+    public int concurrentConsumers;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private final AtomicLong consumed = new AtomicLong();
+    private ConnectionFactory wrappedFactory;
+    private BatchListenerContainer container;
+    private Connection producerConnection;
+    private MessageProducer producer;
+    private TextMessage message;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        wrappedFactory = BenchmarkSupport.wrap(broker.connectionFactory(), connectionFactory);
+        String queue = component + ".queue";
+
+        BatchMessageListener target;
+        if ("component2".equals(component)) {
+            com.example.component2.listener.ArtemisMessageListener listener = new com.example.component2.listener.ArtemisMessageListener(
+                    new LatencyRecorder(new SimpleMeterRegistry()),
+                    BenchmarkSupport.none(ProcessedMessageCache.class));
+            BenchmarkSupport.setField(listener, "queueName", queue);
+            target = listener;
+        } else {
+            com.example.component4.listener.ArtemisMessageListener listener = new com.example.component4.listener.ArtemisMessageListener(
+                    new LatencyRecorder(new SimpleMeterRegistry()),
+                    BenchmarkSupport.none(ProcessedMessageCache.class));
+            BenchmarkSupport.setField(listener, "queueName", queue);
+            target = listener;
+        }
+
+        BatchListenerProperties properties = new BatchListenerProperties();
+        properties.setBatchSize(batchSize);
+        properties.setLingerMs(10);
+        container = new BatchListenerContainer(wrappedFactory, queue, messages -> {
+            target.receiveBatch(messages);
+            if (batchCostMicros > 0) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(batchCostMicros));
+            }
+            consumed.addAndGet(messages.size());
+        }, properties, concurrentConsumers, null);
+        container.start();
+
+        // Fire-and-forget producer so the burst measures the consumer path, not the send round trips
+        ActiveMQConnectionFactory producerFactory = broker.connectionFactory();
+        producerFactory.setBlockOnDurableSend(false);
+        producerFactory.setBlockOnNonDurableSend(false);
+        producerConnection = producerFactory.createConnection();
+        Session producerSession = producerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createQueue(queue));
+        producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        message = producerSession.createTextMessage(BenchmarkSupport.payload(payloadSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        container.stop();
+        producerConnection.close();
+        BenchmarkSupport.destroy(wrappedFactory);
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void consumeBatches() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            producer.send(message);
+        }
+        sent += BURST;
+        while (consumed.get() < sent) {
+            Thread.onSpinWait();
+        }
+    }
+}
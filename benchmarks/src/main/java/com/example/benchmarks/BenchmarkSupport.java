@@ -0,0 +1,140 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.ArtemisClientProperties;
+import com.example.artemis.common.PooledConnectionFactory;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Shared wiring for the benchmarks: connection factory variants, templates configured the way the
+ * components configure them, payloads and a background drainer that keeps queues from growing.
+ */
+public final class BenchmarkSupport {
+
+    /**
+     * Connection factory wrapping used in front of the Artemis factory.
+     * POOLED is the artemis-common pool the components use; CACHING is the previous default.
+     */
+    public enum ConnectionFactoryType { POOLED, CACHING, SINGLE, NONE }
+
+    private static final Path PROC_IO = Path.of("/proc/self/io");
+
+    private BenchmarkSupport() {
+    }
+
+    public static ConnectionFactory wrap(ConnectionFactory target, ConnectionFactoryType type) {
+        return switch (type) {
+            case POOLED -> new PooledConnectionFactory("benchmark", target, new ArtemisClientProperties.PoolConfig(), null);
+            case CACHING -> new CachingConnectionFactory(target);
+            case SINGLE -> new SingleConnectionFactory(target);
+            case NONE -> target;
+        };
+    }
+
+    public static void destroy(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof SingleConnectionFactory single) {
+            single.destroy();
+        } else if (connectionFactory instanceof PooledConnectionFactory pooled) {
+            pooled.destroy();
+        }
+    }
+
+    public static JmsTemplate jmsTemplate(ConnectionFactory connectionFactory, boolean persistent, boolean transacted) {
+        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setDeliveryPersistent(persistent);
+        jmsTemplate.setSessionTransacted(transacted);
+        return jmsTemplate;
+    }
+
+    public static String payload(int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+
+    /**
+     * An XML order document of about {@code size} characters, with varying IDs and amounts so it
+     * compresses like real traffic rather than like one repeated string.
+     */
+    public static String xmlPayload(int size) {
+        Random random = new Random(size);
+        StringBuilder xml = new StringBuilder(size + 256).append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><orders>");
+        while (xml.length() < size - "</orders>".length()) {
+            xml.append("<order id=\"").append(random.nextInt(1_000_000))
+                    .append("\" status=\"").append(random.nextBoolean() ? "OPEN" : "SHIPPED").append("\">")
+                    .append("<customer><id>C").append(random.nextInt(100_000)).append("</id><country>")
+                    .append(Locale.getISOCountries()[random.nextInt(Locale.getISOCountries().length)])
+                    .append("</country></customer><line sku=\"SKU-").append(random.nextInt(50_000))
+                    .append("\" quantity=\"").append(1 + random.nextInt(20))
+                    .append("\" price=\"").append(random.nextInt(100_000) / 100.0).append("\"/></order>");
+        }
+        return xml.append("</orders>").toString();
+    }
+
+    public static <T> ObjectProvider<T> none(Class<T> type) {
+        return new StaticListableBeanFactory().getBeanProvider(type);
+    }
+
+    /**
+     * Set an {@code @Value}-injected field on a component that is built outside a Spring context.
+     */
+    public static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    /**
+     * Start auto-acknowledging no-op consumers on the given queues.
+     */
+    public static Connection startDrainer(ConnectionFactory connectionFactory, String... queues) throws JMSException {
+        Connection connection = connectionFactory.createConnection();
+        for (String queue : queues) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createConsumer(session.createQueue(queue)).setMessageListener(message -> { });
+        }
+        connection.start();
+        return connection;
+    }
+
+    /**
+     * CPU time of the whole process, embedded broker included.
+     */
+    public static long cpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /**
+     * Bytes the process has written so far (the broker journal and large-message files); read
+     * from {@code /proc/self/io}, so 0 on systems other than Linux.
+     */
+    public static long diskBytesWritten() throws IOException {
+        if (!Files.isReadable(PROC_IO)) {
+            return 0;
+        }
+        // wchar counts the bytes of every write call, so it is not hidden by the page cache
+        for (String line : Files.readAllLines(PROC_IO)) {
+            if (line.startsWith("wchar:")) {
+                return Long.parseLong(line.substring("wchar:".length()).trim());
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cost of payload compression per payload-size bucket. For each size and with compression off
+ * and on, sends persistent XML messages through {@link WireMessageConverter} to a fresh embedded
+ * broker and receives and decodes them, then reports per message the bytes the process wrote to
+ * disk (the broker journal, or the large-message files from 100 KB; read from
+ * {@code /proc/self/io}, so Linux only), the process CPU time (broker included), throughput and
+ * message body bytes per payload character (2 for a TextMessage, which Artemis stores as UTF-16):
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.CompressionLoadTest --sizes=1024,8192,65536,262144
+ * </pre>
+ * The consumer trails the producer by {@code window} messages, which keeps the broker from
+ * acknowledging a large message while its send is still completing.
+ */
+public class CompressionLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String[] sizes = options.getOrDefault("sizes", "1024,8192,65536,262144").split(",");
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "10"));
+        int window = Integer.parseInt(options.getOrDefault("window", "16"));
+        int level = Integer.parseInt(options.getOrDefault("level", "1"));
+
+        System.out.printf("%-8s %-8s %12s %12s %12s %10s%n",
+                "size", "mode", "msg/s", "disk B/msg", "CPU us/msg", "body B/char");
+        for (String size : sizes) {
+            String payload = BenchmarkSupport.xmlPayload(Integer.parseInt(size.trim()));
+            for (boolean compressed : new boolean[]{false, true}) {
+                WireFormatProperties properties = new WireFormatProperties();
+                properties.getCompression().setEnabled(compressed);
+                properties.getCompression().setThresholdBytes(0);
+                properties.getCompression().setLevel(level);
+                Result result = run(new WireMessageConverter(properties), payload, window, warmupSeconds, durationSeconds);
+                System.out.printf("%-8s %-8s %12.1f %12.0f %12.1f %10.2f%n", size.trim(), compressed ? "deflate" : "none",
+                        result.messages / result.seconds, result.diskBytes / (double) result.messages,
+                        result.cpuNanos / 1000.0 / result.messages, result.bodyBytes / (double) result.messages / payload.length());
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(WireMessageConverter converter, String payload, int window, int warmupSeconds,
+                              int durationSeconds) throws Exception {
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(true);
+        try (Connection connection = broker.connectionFactory().createConnection()) {
+            Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = producerSession.createProducer(producerSession.createQueue("compression.load"));
+            producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+            Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = consumerSession.createConsumer(consumerSession.createQueue("compression.load"));
+            connection.start();
+
+            Result result = new Result();
+            long measureAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds).toNanos();
+            long stopAt = measureAt + Duration.ofSeconds(durationSeconds).toNanos();
+            long start = 0;
+            long diskBytesAtStart = 0;
+            long cpuNanosAtStart = 0;
+            boolean measuring = false;
+            long inFlight = 0;
+            while (true) {
+                long now = System.nanoTime();
+                if (!measuring && now >= measureAt) {
+                    measuring = true;
+                    start = now;
+                    diskBytesAtStart = BenchmarkSupport.diskBytesWritten();
+                    cpuNanosAtStart = BenchmarkSupport.cpuNanos();
+                }
+                if (now >= stopAt) {
+                    break;
+                }
+                Message message = converter.toMessage(payload, producerSession);
+                producer.send(message);
+                if (measuring) {
+                    result.messages++;
+                    result.bodyBytes += message instanceof BytesMessage bytes ? bytes.getBodyLength() : payload.length() * 2L;
+                }
+                if (++inFlight > window) {
+                    WireMessageConverter.readText(consumer.receive(5000));
+                    inFlight--;
+                }
+            }
+            result.seconds = (System.nanoTime() - start) / 1e9;
+            result.diskBytes = BenchmarkSupport.diskBytesWritten() - diskBytesAtStart;
+            result.cpuNanos = BenchmarkSupport.cpuNanos() - cpuNanosAtStart;
+            while (inFlight-- > 0) {
+                WireMessageConverter.readText(consumer.receive(5000));
+            }
+            return result;
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Result {
+        long messages;
+        long bodyBytes;
+        long diskBytes;
+        long cpuNanos;
+        double seconds;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.ProcessedMessageCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component-2/4 consumer path: messages are delivered through a listener container built the way
+ * each component's {@code jmsListenerContainerFactory} builds it, into the component's listener.
+ * Each invocation publishes a burst and waits until the listener has consumed all of it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConsumerBenchmark {
+
+    private static final int BURST = 100;
+
+    @Param({"component2", "component4"})
+    public String component;
+
+    @Param({"256", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"true", "false"})
+    public boolean persistent;
+
+    @Param({"true", "false"})
+    public boolean transacted;
+
+    @Param({"POOLED", "CACHING", "SINGLE", "NONE"})
+    public BenchmarkSupport.ConnectionFactoryType connectionFactory;
+
+    @Param({"5"})
+    public int concurrentConsumers;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private final AtomicLong consumed = new AtomicLong();
+    private ConnectionFactory wrappedFactory;
+    private DefaultMessageListenerContainer container;
+    private Connection producerConnection;
+    private Session producerSession;
+    private MessageProducer producer;
+    private TextMessage message;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        wrappedFactory = BenchmarkSupport.wrap(broker.connectionFactory(), connectionFactory);
+        String queue = component + ".queue";
+
+        PayloadListener listener;
+        if ("component2".equals(component)) {
+            com.example.component2.listener.ArtemisMessageListener target = new com.example.component2.listener.ArtemisMessageListener(
+                    new LatencyRecorder(new SimpleMeterRegistry()),
+                    BenchmarkSupport.none(ProcessedMessageCache.class));
+            BenchmarkSupport.setField(target, "queueName", queue);
+            listener = payload -> target.receiveMessage(payload, null, null, null, null);
+        } else {
+            com.example.component4.listener.ArtemisMessageListener target = new com.example.component4.listener.ArtemisMessageListener(
+                    new LatencyRecorder(new SimpleMeterRegistry()),
+                    BenchmarkSupport.none(ProcessedMessageCache.class));
+            BenchmarkSupport.setField(target, "queueName", queue);
+            listener = payload -> target.receiveMessage(payload, null, null, null, null);
+        }
+
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        factory.setConnectionFactory(wrappedFactory);
+        factory.setConcurrency(String.valueOf(concurrentConsumers));
+        factory.setSessionTransacted(transacted);
+
+        SimpleJmsListenerEndpoint endpoint = new SimpleJmsListenerEndpoint();
+        endpoint.setId(component + "-benchmark");
+        endpoint.setDestination(queue);
+        endpoint.setMessageListener(received -> {
+            try {
+                listener.receive(((TextMessage) received).getText());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            consumed.incrementAndGet();
+        });
+        container = factory.createListenerContainer(endpoint);
+        container.afterPropertiesSet();
+        container.start();
+
+        // Fire-and-forget producer so the burst measures the consumer path, not the send round trips
+        ActiveMQConnectionFactory producerFactory = broker.connectionFactory();
+        producerFactory.setBlockOnDurableSend(false);
+        producerFactory.setBlockOnNonDurableSend(false);
+        producerConnection = producerFactory.createConnection();
+        producerSession = producerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createQueue(queue));
+        producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        message = producerSession.createTextMessage(BenchmarkSupport.payload(payloadSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        container.shutdown();
+        producerConnection.close();
+        BenchmarkSupport.destroy(wrappedFactory);
+        broker.stop();
+    }
+
+    private interface PayloadListener {
+        void receive(String payload) throws Exception;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void consume() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            producer.send(message);
+        }
+        sent += BURST;
+        while (consumed.get() < sent) {
+            Thread.onSpinWait();
+        }
+    }
+}
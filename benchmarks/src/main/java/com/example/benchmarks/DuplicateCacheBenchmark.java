@@ -0,0 +1,77 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.DeduplicationProperties;
+import com.example.artemis.common.ProcessedMessageCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-message cost of the idempotent-consumer check: one {@code isDuplicate} lookup followed by
+ * {@code markProcessed}, the way the listeners use {@link ProcessedMessageCache}, with message IDs
+ * shaped like Artemis JMS message IDs. {@code MAPPED} backs the table with a memory-mapped file;
+ * run with {@code -t N} to add contention from concurrent listener threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DuplicateCacheBenchmark {
+
+    public enum Storage { OFF_HEAP, MAPPED }
+
+    @Param({"OFF_HEAP", "MAPPED"})
+    public Storage storage;
+
+    @Param({"131072", "1048576"})
+    public int maxEntries;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path directory;
+    private ProcessedMessageCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DeduplicationProperties properties = new DeduplicationProperties();
+        properties.setMaxEntries(maxEntries);
+        if (storage == Storage.MAPPED) {
+            directory = Files.createTempDirectory("dedup-benchmark");
+            properties.setFile(directory.resolve("cache.bin").toString());
+        }
+        cache = new ProcessedMessageCache("benchmark", properties, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cache.destroy();
+        if (directory != null) {
+            Files.deleteIfExists(directory.resolve("cache.bin"));
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Benchmark
+    public boolean checkAndMark() {
+        String messageId = "ID:5a0c9e3e-ca7a-11f1-9ec7-" + sequence.incrementAndGet();
+        boolean duplicate = cache.isDuplicate(messageId);
+        cache.markProcessed(messageId);
+        return duplicate;
+    }
+}
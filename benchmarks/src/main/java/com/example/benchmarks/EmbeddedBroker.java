@@ -0,0 +1,78 @@
+package com.example.benchmarks;
+
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.JournalType;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * In-VM Artemis broker for benchmarks. Journal settings mirror {@code artemis-config/broker.xml}
+ * so persistent runs pay the same sync cost as the real broker; no external services are needed.
+ */
+public class EmbeddedBroker {
+
+    public static final String URL = "vm://0";
+
+    private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+    private Path dataDirectory;
+
+    public void start(boolean persistent) throws Exception {
+        start(persistent, null);
+    }
+
+    /**
+     * @param addressSettings settings for every address ({@code #}), e.g. a dead letter address and
+     *                        redelivery delay; {@code null} for the Artemis defaults
+     */
+    public void start(boolean persistent, AddressSettings addressSettings) throws Exception {
+        dataDirectory = Files.createTempDirectory("artemis-bench");
+
+        Configuration configuration = new ConfigurationImpl()
+                .setName("benchmark-broker")
+                .setPersistenceEnabled(persistent)
+                .setSecurityEnabled(false)
+                .setJournalType(JournalType.NIO)
+                .setJournalDatasync(true)
+                .setJournalBufferTimeout_NIO(0)
+                .setJournalMaxIO_NIO(1)
+                .setJournalFileSize(10 * 1024 * 1024)
+                .setJournalDirectory(dataDirectory.resolve("journal").toString())
+                .setBindingsDirectory(dataDirectory.resolve("bindings").toString())
+                .setPagingDirectory(dataDirectory.resolve("paging").toString())
+                .setLargeMessagesDirectory(dataDirectory.resolve("largemessages").toString())
+                .addAcceptorConfiguration("in-vm", URL);
+        if (addressSettings != null) {
+            configuration.addAddressSetting("#", addressSettings);
+        }
+
+        server.setConfiguration(configuration);
+        server.start();
+    }
+
+    public void stop() throws Exception {
+        server.stop();
+        if (dataDirectory != null) {
+            try (Stream<Path> paths = Files.walk(dataDirectory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException ignored) {
+                        // best effort cleanup of the temporary journal
+                    }
+                });
+            }
+        }
+    }
+
+    public ActiveMQConnectionFactory connectionFactory() {
+        return new ActiveMQConnectionFactory(URL);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * The component-1 to component-2 hop through {@link EmbeddedArtemisBroker}. One embedded broker
+ * with a TCP acceptor stands in for the remote cluster; {@code senders} threads forward messages
+ * the way the WebLogic listener does (persistent, transacted) while a listener consumes them the
+ * way component-2 does. Three topologies are compared:
+ * <ul>
+ *   <li>{@code tcp}: both components connect to the cluster over TCP, as today;</li>
+ *   <li>{@code in-vm}: both are co-located with the broker and connect through {@code vm://};</li>
+ *   <li>{@code bridged}: component-1 sends to its own embedded broker in-VM, whose core bridge
+ *       forwards to the cluster, where component-2 consumes over TCP.</li>
+ * </ul>
+ * Reports delivered messages per second, the hop latency (send to receipt) and the process CPU
+ * time per message (brokers included):
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.EmbeddedBrokerLoadTest --senders=4 --payload=1024
+ * </pre>
+ */
+public class EmbeddedBrokerLoadTest {
+
+    private static final String DESTINATION = "component2.queue";
+    private static final String CLUSTER_TCP_URL = "tcp://127.0.0.1:61699";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int senders = Integer.parseInt(options.getOrDefault("senders", "4"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "15"));
+        boolean persistent = Boolean.parseBoolean(options.getOrDefault("persistent", "true"));
+        String payload = BenchmarkSupport.xmlPayload(Integer.parseInt(options.getOrDefault("payload", "1024")));
+
+        System.out.printf("%-8s %10s %10s %10s %12s%n", "mode", "msg/s", "p50 us", "p99 us", "CPU us/msg");
+        for (String mode : List.of("tcp", "in-vm", "bridged")) {
+            Path directory = Files.createTempDirectory("embedded-broker");
+            EmbeddedArtemisBroker cluster = new EmbeddedArtemisBroker(properties(1, directory.resolve("cluster"),
+                    CLUSTER_TCP_URL, persistent, null));
+            EmbeddedArtemisBroker local = mode.equals("bridged")
+                    ? new EmbeddedArtemisBroker(properties(2, directory.resolve("local"), "", persistent, CLUSTER_TCP_URL))
+                    : null;
+            try {
+                String producerUrl = switch (mode) {
+                    case "tcp" -> CLUSTER_TCP_URL;
+                    case "in-vm" -> cluster.getUrl();
+                    default -> local.getUrl();
+                };
+                String consumerUrl = mode.equals("in-vm") ? cluster.getUrl() : CLUSTER_TCP_URL;
+                Result result = run(producerUrl, consumerUrl, persistent, payload, senders, warmupSeconds, durationSeconds);
+                System.out.printf("%-8s %10.1f %10.0f %10.0f %12.1f%n", mode, result.delivered / result.seconds,
+                        percentile(result.latencies, 0.50), percentile(result.latencies, 0.99),
+                        result.cpuNanos / 1000.0 / result.delivered);
+            } finally {
+                if (local != null) {
+                    local.destroy();
+                }
+                cluster.destroy();
+                delete(directory);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Result run(String producerUrl, String consumerUrl, boolean persistent, String payload, int senders,
+                              int warmupSeconds, int durationSeconds) throws Exception {
+        AtomicLong received = new AtomicLong();
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Connection consumer = new ActiveMQConnectionFactory(consumerUrl).createConnection();
+        ConnectionFactory connectionFactory = BenchmarkSupport.wrap(new ActiveMQConnectionFactory(producerUrl),
+                BenchmarkSupport.ConnectionFactoryType.CACHING);
+        try {
+            Session session = consumer.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createConsumer(session.createQueue(DESTINATION)).setMessageListener(message -> {
+                try {
+                    latencies.add(LatencyTracing.now() - message.getLongProperty(LatencyTracing.HOP_TIMESTAMP));
+                } catch (JMSException e) {
+                    throw new IllegalStateException(e);
+                }
+                received.incrementAndGet();
+            });
+            consumer.start();
+
+            MessageForwardingService service = new MessageForwardingService(
+                    BenchmarkSupport.jmsTemplate(connectionFactory, persistent, true),
+                    BenchmarkSupport.none(AsyncMessageSender.class),
+                    PinningGuard.unbounded(),
+                    BenchmarkSupport.none(BrokerFanout.class),
+                    BenchmarkSupport.none(StoreAndForwardJournal.class),
+                    BenchmarkSupport.none(BrokerShards.class));
+            long stopAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds + durationSeconds).toNanos();
+            Thread[] threads = new Thread[senders];
+            for (int i = 0; i < senders; i++) {
+                threads[i] = new Thread(() -> {
+                    while (System.nanoTime() < stopAt) {
+                        service.forwardToArtemis(DESTINATION, payload, LatencyTracing.now(), "ID:" + UUID.randomUUID());
+                    }
+                }, "embedded-sender-" + i);
+                threads[i].start();
+            }
+
+            Thread.sleep(Duration.ofSeconds(warmupSeconds).toMillis());
+            latencies.clear();
+            long start = System.nanoTime();
+            long receivedAtStart = received.get();
+            long cpuNanosAtStart = BenchmarkSupport.cpuNanos();
+            Thread.sleep(Duration.ofSeconds(durationSeconds).toMillis());
+            Result result = new Result();
+            result.seconds = (System.nanoTime() - start) / 1e9;
+            result.delivered = received.get() - receivedAtStart;
+            result.cpuNanos = BenchmarkSupport.cpuNanos() - cpuNanosAtStart;
+            result.latencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return result;
+        } finally {
+            consumer.close();
+            BenchmarkSupport.destroy(connectionFactory);
+        }
+    }
+
+    private static ArtemisProperties properties(int serverId, Path directory, String acceptorUrl, boolean persistent,
+                                                String remoteUrl) {
+        ArtemisProperties properties = new ArtemisProperties();
+        ArtemisProperties.BrokerConfig broker = new ArtemisProperties.BrokerConfig();
+        broker.setEmbedded(true);
+        broker.setUrl(remoteUrl);
+        properties.setBroker(broker);
+        ArtemisProperties.EmbeddedConfig embedded = properties.getEmbedded();
+        embedded.setServerId(serverId);
+        embedded.setDataDirectory(directory.toString());
+        embedded.setAcceptorUrl(acceptorUrl);
+        embedded.setPersistent(persistent);
+        if (remoteUrl != null) {
+            embedded.getBridgedQueues().add(DESTINATION);
+        }
+        return properties;
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e3;
+    }
+
+    private static void delete(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Result {
+        long delivered;
+        long cpuNanos;
+        long[] latencies;
+        double seconds;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end comparison of component-1's two fan-out modes: one persistent send per destination
+ * queue ({@code queues}) against one publish to the multicast address whose diverts copy it to both
+ * queues ({@code divert}, see {@link BrokerFanout}). {@code senders} threads forward messages the
+ * way the WebLogic listener does while consumers drain both queues; for each mode, on a fresh
+ * embedded broker, it reports messages delivered to both queues per second, and per source message
+ * the bytes the process wrote to disk (the broker journal; from {@code /proc/self/io}, so Linux
+ * only) and the process CPU time (broker included):
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.FanoutLoadTest --senders=4 --payload=1024
+ * </pre>
+ */
+public class FanoutLoadTest {
+
+    private static final List<String> DESTINATIONS = List.of("component2.queue", "component4.queue");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int senders = Integer.parseInt(options.getOrDefault("senders", "4"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "15"));
+        String payload = BenchmarkSupport.xmlPayload(Integer.parseInt(options.getOrDefault("payload", "1024")));
+
+        System.out.printf("%-8s %12s %12s %12s%n", "mode", "msg/s", "disk B/msg", "CPU us/msg");
+        for (boolean divert : new boolean[]{false, true}) {
+            Result result = run(divert, payload, senders, warmupSeconds, durationSeconds);
+            System.out.printf("%-8s %12.1f %12.0f %12.1f%n", divert ? "divert" : "queues",
+                    result.delivered / result.seconds, result.diskBytes / (double) result.delivered,
+                    result.cpuNanos / 1000.0 / result.delivered);
+        }
+        System.exit(0);
+    }
+
+    private static Result run(boolean divert, String payload, int senders, int warmupSeconds,
+                              int durationSeconds) throws Exception {
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(true);
+        ConnectionFactory connectionFactory = BenchmarkSupport.wrap(broker.connectionFactory(),
+                BenchmarkSupport.ConnectionFactoryType.POOLED);
+        AtomicLong[] received = {new AtomicLong(), new AtomicLong()};
+        Connection consumers = broker.connectionFactory().createConnection();
+        try {
+            for (int i = 0; i < DESTINATIONS.size(); i++) {
+                AtomicLong counter = received[i];
+                Session session = consumers.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                session.createConsumer(session.createQueue(DESTINATIONS.get(i))).setMessageListener(message -> counter.incrementAndGet());
+            }
+            consumers.start();
+
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            if (divert) {
+                ArtemisProperties properties = new ArtemisProperties();
+                properties.getFanout().setEnabled(true);
+                BrokerFanout fanout = new BrokerFanout(connectionFactory, properties);
+                if (!fanout.provision()) {
+                    throw new IllegalStateException("Fan-out address could not be provisioned");
+                }
+                beans.addBean("brokerFanout", fanout);
+            }
+            ObjectProvider<BrokerFanout> fanout = beans.getBeanProvider(BrokerFanout.class);
+            MessageForwardingService service = new MessageForwardingService(
+                    BenchmarkSupport.jmsTemplate(connectionFactory, true, true),
+                    BenchmarkSupport.none(AsyncMessageSender.class),
+                    PinningGuard.unbounded(),
+                    fanout,
+                    BenchmarkSupport.none(StoreAndForwardJournal.class),
+                    BenchmarkSupport.none(BrokerShards.class));
+
+            long stopAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds + durationSeconds).toNanos();
+            Thread[] threads = new Thread[senders];
+            for (int i = 0; i < senders; i++) {
+                threads[i] = new Thread(() -> {
+                    while (System.nanoTime() < stopAt) {
+                        String messageId = "ID:" + UUID.randomUUID();
+                        for (String destination : service.fanOutTargets(DESTINATIONS)) {
+                            service.forwardToArtemis(destination, payload, LatencyTracing.now(), messageId);
+                        }
+                    }
+                }, "fanout-sender-" + i);
+                threads[i].start();
+            }
+
+            Thread.sleep(Duration.ofSeconds(warmupSeconds).toMillis());
+            long start = System.nanoTime();
+            long deliveredAtStart = delivered(received);
+            long diskBytesAtStart = BenchmarkSupport.diskBytesWritten();
+            long cpuNanosAtStart = BenchmarkSupport.cpuNanos();
+            Thread.sleep(Duration.ofSeconds(durationSeconds).toMillis());
+            Result result = new Result();
+            result.seconds = (System.nanoTime() - start) / 1e9;
+            result.delivered = delivered(received) - deliveredAtStart;
+            result.diskBytes = BenchmarkSupport.diskBytesWritten() - diskBytesAtStart;
+            result.cpuNanos = BenchmarkSupport.cpuNanos() - cpuNanosAtStart;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            return result;
+        } finally {
+            consumers.close();
+            BenchmarkSupport.destroy(connectionFactory);
+            broker.stop();
+        }
+    }
+
+    /**
+     * Source messages that reached both queues.
+     */
+    private static long delivered(AtomicLong[] received) {
+        return Math.min(received[0].get(), received[1].get());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Result {
+        long delivered;
+        long diskBytes;
+        long cpuNanos;
+        double seconds;
+    }
+}
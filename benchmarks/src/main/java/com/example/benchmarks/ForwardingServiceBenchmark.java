@@ -0,0 +1,130 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component-1 producer paths: per-message {@code forwardToArtemis}/{@code sendToArtemis} and the
+ * batched variants used by the WebLogic bridge and the bulk endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ForwardingServiceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"256", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"true", "false"})
+    public boolean persistent;
+
+    @Param({"true", "false"})
+    public boolean transacted;
+
+    @Param({"POOLED", "CACHING", "SINGLE", "NONE"})
+    public BenchmarkSupport.ConnectionFactoryType connectionFactory;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private ConnectionFactory wrappedFactory;
+    private Connection drainer;
+    private MessageForwardingService service;
+    private String payload;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        wrappedFactory = BenchmarkSupport.wrap(broker.connectionFactory(), connectionFactory);
+        service = new MessageForwardingService(
+                BenchmarkSupport.jmsTemplate(wrappedFactory, persistent, transacted),
+                BenchmarkSupport.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(),
+                BenchmarkSupport.none(BrokerFanout.class),
+                BenchmarkSupport.none(StoreAndForwardJournal.class),
+                BenchmarkSupport.none(BrokerShards.class));
+        drainer = BenchmarkSupport.startDrainer(broker.connectionFactory(), "component2.queue", "component4.queue");
+        payload = BenchmarkSupport.payload(payloadSize);
+        batch = new ArrayList<>(Collections.nCopies(BATCH_SIZE, payload));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        drainer.close();
+        BenchmarkSupport.destroy(wrappedFactory);
+        broker.stop();
+    }
+
+    @Benchmark
+    public void forwardToArtemis() {
+        service.forwardToArtemis("component4.queue", payload);
+    }
+
+    @Benchmark
+    public void sendToArtemis() {
+        service.sendToArtemis("component2.queue", payload);
+    }
+
+    /**
+     * The WebLogic listener fan-out: one message to two queues, one transaction per send.
+     */
+    @Benchmark
+    public void forwardFanOut() {
+        service.forwardToArtemis("component2.queue", payload);
+        service.forwardToArtemis("component4.queue", payload);
+    }
+
+    /**
+     * Batched bridge fan-out: {@value #BATCH_SIZE} messages to two queues in one transaction.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void forwardBatchFanOut() {
+        Map<String, String> messagesById = new LinkedHashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            messagesById.put(UUID.randomUUID().toString(), payload);
+        }
+        service.forwardBatchToArtemis(List.of("component2.queue", "component4.queue"), messagesById);
+    }
+
+    /**
+     * Bulk endpoint path: {@value #BATCH_SIZE} messages to one queue in one transaction.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sendBatchToArtemis() {
+        service.sendBatchToArtemis("component2.queue", batch);
+    }
+}
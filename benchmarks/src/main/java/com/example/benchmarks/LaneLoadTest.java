@@ -0,0 +1,194 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.LaneListenerContainer;
+import com.example.artemis.common.LaneProperties;
+import com.example.artemis.common.LaneRouter;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Component-4 priority lanes under a backfill, against an embedded broker. {@code consumers}
+ * consumers each spend {@code work-us} per message (parked, like an I/O-bound listener):
+ * <ul>
+ *   <li>{@code backfill}: {@code backlog} bulk messages are queued, then high-priority messages
+ *       arrive at {@code high-rate} per second for {@code seconds}; reports how long they wait
+ *       from send to processing and how many bulk messages are processed meanwhile;</li>
+ *   <li>{@code flood}: {@code backlog} high and {@code backlog} bulk messages are queued and
+ *       consumed for {@code seconds}; reports the bulk share, i.e. whether bulk starves.</li>
+ * </ul>
+ * Modes: {@code fifo} (one queue, same priority), {@code priority} (one queue, JMS priority 9 for
+ * high and 0 for bulk, ordered by the broker) and {@code lanes} (one queue per lane, consumed by
+ * {@link LaneListenerContainer} with the default weights).
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.LaneLoadTest --backlog=50000
+ * </pre>
+ */
+public class LaneLoadTest {
+
+    private static final String QUEUE = "component4.queue";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int consumers = Integer.parseInt(options.getOrDefault("consumers", "4"));
+        long workNanos = TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.getOrDefault("work-us", "1000")));
+        int backlog = Integer.parseInt(options.getOrDefault("backlog", "50000"));
+        int highRate = Integer.parseInt(options.getOrDefault("high-rate", "100"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+
+        System.out.printf("%-10s %-9s %9s %9s %9s %9s %10s %10s%n", "scenario", "mode", "high", "p50 ms", "p99 ms",
+                "max ms", "bulk", "bulk/s");
+        for (String mode : new String[] {"fifo", "priority", "lanes"}) {
+            run("backfill", mode, consumers, workNanos, backlog, 0, highRate, seconds);
+        }
+        for (String mode : new String[] {"priority", "lanes"}) {
+            run("flood", mode, consumers, workNanos, backlog, backlog, 0, seconds);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String scenario, String mode, int consumers, long workNanos, int bulkBacklog,
+                            int highBacklog, int highRate, int seconds) throws Exception {
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(false);
+        ConnectionFactory connectionFactory = broker.connectionFactory();
+        ConnectionFactory cached = BenchmarkSupport.wrap(connectionFactory, BenchmarkSupport.ConnectionFactoryType.CACHING);
+        LaneProperties properties = new LaneProperties();
+        LaneRouter router = new LaneRouter(properties);
+        boolean lanes = mode.equals("lanes");
+        JmsTemplate high = template(cached, mode.equals("priority") ? 9 : 4);
+        JmsTemplate bulk = template(cached, mode.equals("priority") ? 0 : 4);
+        String highQueue = lanes ? router.queue(QUEUE, "high") : QUEUE;
+        String bulkQueue = lanes ? router.queue(QUEUE, "bulk") : QUEUE;
+
+        for (int i = 0; i < highBacklog; i++) {
+            send(high, highQueue, "high");
+        }
+        for (int i = 0; i < bulkBacklog; i++) {
+            send(bulk, bulkQueue, "bulk");
+        }
+
+        int maxHigh = highBacklog + highRate * seconds * 2;
+        AtomicLongArray waits = new AtomicLongArray(maxHigh);
+        AtomicInteger highProcessed = new AtomicInteger();
+        AtomicLong bulkProcessed = new AtomicLong();
+        SessionAwareMessageListener<Message> listener = (message, session) -> {
+            if ("high".equals(message.getStringProperty("lane"))) {
+                int index = highProcessed.getAndIncrement();
+                if (index < maxHigh) {
+                    waits.set(index, System.nanoTime() - message.getLongProperty("sentNanos"));
+                }
+            } else {
+                bulkProcessed.incrementAndGet();
+            }
+            LockSupport.parkNanos(workNanos);
+        };
+
+        DefaultMessageListenerContainer single = null;
+        LaneListenerContainer laneContainer = null;
+        if (lanes) {
+            laneContainer = new LaneListenerContainer(connectionFactory, QUEUE, properties, listener, consumers, null);
+            laneContainer.start();
+        } else {
+            single = new DefaultMessageListenerContainer();
+            single.setConnectionFactory(connectionFactory);
+            single.setDestinationName(QUEUE);
+            single.setSessionTransacted(true);
+            single.setConcurrency(String.valueOf(consumers));
+            single.setMessageListener(listener);
+            single.afterPropertiesSet();
+            single.start();
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        int sent = 0;
+        while (System.nanoTime() - end < 0) {
+            if (highRate > 0) {
+                long due = start + sent * 1_000_000_000L / highRate;
+                long delay = due - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                send(high, highQueue, "high");
+                sent++;
+            } else {
+                Thread.sleep(10);
+            }
+        }
+        long bulkDone = bulkProcessed.get();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        if (highRate > 0) {
+            // Let the last high messages through before reading their waits
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (highProcessed.get() < sent && System.nanoTime() - deadline < 0) {
+                Thread.sleep(10);
+            }
+        }
+        int highDone = Math.min(highProcessed.get(), maxHigh);
+
+        if (laneContainer != null) {
+            laneContainer.stop();
+        } else {
+            single.stop();
+            single.shutdown();
+        }
+
+        long[] sorted = new long[highDone];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = waits.get(i);
+        }
+        Arrays.sort(sorted);
+        System.out.printf("%-10s %-9s %9d %9.1f %9.1f %9.1f %10d %10.0f%n", scenario, mode, highDone,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0), bulkDone,
+                bulkDone / elapsed);
+
+        BenchmarkSupport.destroy(cached);
+        broker.stop();
+    }
+
+    private static JmsTemplate template(ConnectionFactory connectionFactory, int priority) {
+        JmsTemplate jmsTemplate = BenchmarkSupport.jmsTemplate(connectionFactory, false, false);
+        jmsTemplate.setExplicitQosEnabled(true);
+        jmsTemplate.setPriority(priority);
+        return jmsTemplate;
+    }
+
+    private static void send(JmsTemplate jmsTemplate, String queue, String lane) {
+        jmsTemplate.send(queue, session -> {
+            Message message = session.createTextMessage(lane);
+            message.setStringProperty("lane", lane);
+            message.setLongProperty("sentNanos", System.nanoTime());
+            return message;
+        });
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
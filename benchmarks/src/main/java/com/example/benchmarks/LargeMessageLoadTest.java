@@ -0,0 +1,180 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.component1.Component1Application;
+import com.example.component2.listener.ArtemisMessageListener;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.Session;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * End-to-end check that large bodies stream through without being buffered on the heap. Boots
+ * component-1 against the embedded broker, POSTs {@code messages} generated bodies of {@code size}
+ * MB to {@code /api/messages/stream} and consumes them with component-2's listener in
+ * {@code stream} or {@code disk} mode, reporting throughput and peak heap. Run with a heap smaller
+ * than the body to show it is never held in memory:
+ * <pre>
+ * java -Xmx128m -cp benchmarks/target/benchmarks.jar com.example.benchmarks.LargeMessageLoadTest --size=512 --mode=stream
+ * java -Xmx128m -cp benchmarks/target/benchmarks.jar com.example.benchmarks.LargeMessageLoadTest --size=512 --mode=disk
+ * </pre>
+ */
+public class LargeMessageLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        long size = Long.parseLong(options.getOrDefault("size", "256")) * 1024 * 1024;
+        int messages = Integer.parseInt(options.getOrDefault("messages", "3"));
+        String mode = options.getOrDefault("mode", "stream");
+        boolean persistent = Boolean.parseBoolean(options.getOrDefault("persistent", "true"));
+
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(persistent);
+
+        Path directory = Files.createTempDirectory("large-messages");
+        ArtemisMessageListener listener = new ArtemisMessageListener(
+                new LatencyRecorder(new SimpleMeterRegistry()), BenchmarkSupport.none(ProcessedMessageCache.class));
+        BenchmarkSupport.setField(listener, "queueName", "component2.queue");
+        BenchmarkSupport.setField(listener, "largeMessageMode", mode);
+        BenchmarkSupport.setField(listener, "largeMessageDirectory", directory.toString());
+
+        CountDownLatch received = new CountDownLatch(messages);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Connection connection = broker.connectionFactory().createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        session.createConsumer(session.createQueue("component2.queue")).setMessageListener(message -> {
+            try {
+                listener.receiveStream((BytesMessage) message);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+            received.countDown();
+        });
+        connection.start();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Component1Application.class)
+                .properties(
+                        "spring.config.name=large-message-load-test",
+                        "server.port=0",
+                        "artemis.broker.url=" + EmbeddedBroker.URL,
+                        "artemis.broker.user=",
+                        "artemis.broker.password=")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + port + "/api/messages/stream?queue=component2.queue");
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        AtomicReference<Long> peakHeap = new AtomicReference<>(baselineHeap);
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        long start = System.nanoTime();
+        int errors = 0;
+        for (int i = 0; i < messages; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/octet-stream")
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new GeneratedInputStream(size)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                errors++;
+                System.out.println("request failed: " + response.statusCode() + " " + response.body());
+            }
+        }
+        boolean complete = received.await(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.interrupt();
+
+        System.out.printf("mode=%s messages=%d size=%d MB persistent=%s maxHeap=%.0f MB%n", mode, messages,
+                size / (1024 * 1024), persistent, memory.getHeapMemoryUsage().getMax() / (1024.0 * 1024.0));
+        System.out.printf("throughput=%.1f MB/s errors=%d consumed=%s baselineHeap=%.1f MB peakHeap=%.1f MB%n",
+                messages * size / (1024.0 * 1024.0) / seconds, errors, complete && failure.get() == null,
+                baselineHeap / (1024.0 * 1024.0), peakHeap.get() / (1024.0 * 1024.0));
+        if (failure.get() != null) {
+            failure.get().printStackTrace();
+        }
+
+        context.close();
+        connection.close();
+        broker.stop();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        System.exit(0);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Body of {@code size} bytes generated on the fly, so the client does not hold it either.
+     */
+    private static final class GeneratedInputStream extends InputStream {
+
+        private final long size;
+        private long position;
+
+        GeneratedInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            return position < size ? 'a' + (int) (position++ % 26) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) ('a' + (position++ % 26));
+            }
+            return count;
+        }
+    }
+}
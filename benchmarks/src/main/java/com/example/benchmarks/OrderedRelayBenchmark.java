@@ -0,0 +1,135 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.component3.listener.ArtemisMessageListener;
+import com.example.component3.ordering.KeyOrderedConsumer;
+import com.example.component3.ordering.OrderingKeyExtractor;
+import com.example.component3.service.MessageForwardingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component-3 key-ordered relay: one {@link KeyOrderedConsumer} receiver feeding {@code lanes} key-ordered lanes, each
+ * forwarding to {@code component4.queue}. Payloads carry one of {@code keys} order IDs, so with
+ * many keys the throughput should grow with the lane count up to the available cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderedRelayBenchmark {
+
+    private static final int BURST = 1000;
+
+    @Param({"1", "2", "4", "8"})
+    public int lanes;
+
+    @Param({"1000"})
+    public int keys;
+
+    @Param({"1024"})
+    public int payloadSize;
+
+    @Param({"true"})
+    public boolean persistent;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private final AtomicLong relayed = new AtomicLong();
+    private ConnectionFactory relayFactory;
+    private KeyOrderedConsumer consumer;
+    private Connection connection;
+    private Connection producerConnection;
+    private MessageProducer producer;
+    private TextMessage[] messages;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        String input = "component3-to-component4";
+        String output = "component4.queue";
+
+        relayFactory = BenchmarkSupport.wrap(broker.connectionFactory(), BenchmarkSupport.ConnectionFactoryType.POOLED);
+        MessageForwardingService service = new MessageForwardingService(
+                BenchmarkSupport.jmsTemplate(relayFactory, persistent, true),
+                BenchmarkSupport.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(), BenchmarkSupport.none(LaneRouter.class));
+        BenchmarkSupport.setField(service, "outputQueue", output);
+        ArtemisMessageListener listener = new ArtemisMessageListener(service, new LatencyRecorder(new SimpleMeterRegistry()),
+                BenchmarkSupport.none(ProcessedMessageCache.class));
+        BenchmarkSupport.setField(listener, "inputQueue", input);
+        consumer = new KeyOrderedConsumer(relayFactory, input,
+                new OrderingKeyExtractor(OrderingKeyExtractor.Source.PAYLOAD, "orderId"),
+                listener::receiveOrdered, service::forwardToDeadLetter, lanes, 1000, 3, 100, null);
+        consumer.start();
+
+        connection = broker.connectionFactory().createConnection();
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        consumerSession.createConsumer(consumerSession.createQueue(output)).setMessageListener(m -> relayed.incrementAndGet());
+
+        // Fire-and-forget producer so the burst measures the relay, not the send round trips
+        ActiveMQConnectionFactory producerFactory = broker.connectionFactory();
+        producerFactory.setBlockOnDurableSend(false);
+        producerFactory.setBlockOnNonDurableSend(false);
+        producerConnection = producerFactory.createConnection();
+        Session producerSession = producerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createQueue(input));
+        producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        String padding = BenchmarkSupport.payload(payloadSize);
+        messages = new TextMessage[keys];
+        for (int i = 0; i < keys; i++) {
+            messages[i] = producerSession.createTextMessage("{\"orderId\":\"K" + i + "\",\"data\":\"" + padding + "\"}");
+        }
+        connection.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        consumer.stop();
+        producerConnection.close();
+        connection.close();
+        BenchmarkSupport.destroy(relayFactory);
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void relayOrdered() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            producer.send(messages[(int) ((sent + i) % keys)]);
+        }
+        sent += BURST;
+        while (relayed.get() < sent) {
+            Thread.onSpinWait();
+        }
+    }
+}
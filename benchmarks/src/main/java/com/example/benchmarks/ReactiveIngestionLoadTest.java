@@ -0,0 +1,175 @@
+package com.example.benchmarks;
+
+import com.example.component1.Component1Application;
+import com.example.component1.reactive.ReactiveIngestionServer;
+import jakarta.jms.Connection;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.adapter.JdkFlowAdapter;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many slow clients against component-1's blocking Spring MVC {@code /api/messages/send} and the
+ * reactive ingestion server's equivalent (see {@link ReactiveIngestionServer}). Each of
+ * {@code clients} connections uploads a {@code payload}-byte message in {@code chunks} pieces
+ * {@code chunk-delay-ms} apart, as a client on a slow link would, waits for the acknowledgement and
+ * starts over. Reports acknowledged messages per second, latency, and the server's peak thread
+ * count and heap. Run once per target:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ReactiveIngestionLoadTest --clients=5000 --target=mvc
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ReactiveIngestionLoadTest --clients=5000 --target=reactive
+ * </pre>
+ * Client and server share the JVM (and its file descriptor limit: two per connection), so thread
+ * and heap figures include the small, fixed client.
+ */
+public class ReactiveIngestionLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "5000"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int payloadSize = Integer.parseInt(options.getOrDefault("payload", "1024"));
+        int chunks = Integer.parseInt(options.getOrDefault("chunks", "10"));
+        long chunkDelayMs = Long.parseLong(options.getOrDefault("chunk-delay-ms", "100"));
+        boolean reactive = options.getOrDefault("target", "reactive").equals("reactive");
+
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(true);
+        Connection drainer = BenchmarkSupport.startDrainer(broker.connectionFactory(), "component2.queue");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Component1Application.class)
+                .properties(
+                        "spring.config.name=reactive-load-test",
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (clients + 1000),
+                        "server.tomcat.accept-count=" + clients,
+                        "artemis.async.enabled=" + reactive,
+                        "reactive-ingestion.enabled=" + reactive,
+                        "reactive-ingestion.port=0",
+                        "artemis.broker.url=" + EmbeddedBroker.URL,
+                        "artemis.broker.user=",
+                        "artemis.broker.password=")
+                .run();
+        int port = reactive ? context.getBean(ReactiveIngestionServer.class).getPort()
+                : ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(60))
+                .build();
+        URI uri = URI.create("http://localhost:" + port + "/api/messages/send?queue=component2.queue");
+        byte[] payload = BenchmarkSupport.payload(payloadSize).getBytes(StandardCharsets.UTF_8);
+
+        Counts counts = new Counts();
+        long stopAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds + durationSeconds).toNanos();
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            loops[i] = sendLoop(client, uri, payload, chunks, chunkDelayMs, stopAt, counts);
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        counts.latencies.clear();
+        long startCompleted = counts.completed.get();
+        long startFailed = counts.failed.get();
+        long peakHeap = 0;
+        long measureEnd = System.nanoTime() + Duration.ofSeconds(durationSeconds).toNanos();
+        while (System.nanoTime() < measureEnd) {
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            Thread.sleep(100);
+        }
+        long requests = counts.completed.get() - startCompleted;
+        long errors = counts.failed.get() - startFailed;
+        long[] latencies = counts.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        int peakThreads = threads.getPeakThreadCount();
+
+        CompletableFuture.allOf(loops).join();
+        System.out.printf("target=%s clients=%d payload=%dB upload=%d x %d ms%n",
+                reactive ? "reactive" : "mvc", clients, payloadSize, chunks, chunkDelayMs);
+        System.out.printf("throughput=%.1f msg/s errors=%d peakThreads=%d peakHeap=%.1f MB%n",
+                (double) requests / durationSeconds, errors, peakThreads, peakHeap / (1024.0 * 1024.0));
+        System.out.printf("latency p50=%.1f ms p99=%.1f ms%n", percentile(latencies, 0.50), percentile(latencies, 0.99));
+
+        context.close();
+        clientExecutor.shutdownNow();
+        drainer.close();
+        broker.stop();
+        System.exit(0);
+    }
+
+    private static CompletableFuture<Void> sendLoop(HttpClient client, URI uri, byte[] payload, int chunks,
+                                                    long chunkDelayMs, long stopAt, Counts counts) {
+        if (System.nanoTime() >= stopAt) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int chunkSize = (payload.length + chunks - 1) / chunks;
+        Flux<ByteBuffer> slowBody = Flux.range(0, chunks)
+                .delayElements(Duration.ofMillis(chunkDelayMs))
+                .map(i -> ByteBuffer.wrap(payload, (int) (i * chunkSize), (int) Math.min(chunkSize, payload.length - i * chunkSize)));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.fromPublisher(JdkFlowAdapter.publisherToFlowPublisher(slowBody), payload.length))
+                .build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error == null && response.statusCode() == 200) {
+                        counts.completed.incrementAndGet();
+                        counts.latencies.add(System.nanoTime() - start);
+                    } else {
+                        counts.failed.incrementAndGet();
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> sendLoop(client, uri, payload, chunks, chunkDelayMs, stopAt, counts));
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static final class Counts {
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.component3.listener.ArtemisMessageListener;
+import com.example.component3.service.MessageForwardingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component-3 relay: the listener's process-and-forward step, invoked the way the listener
+ * container invokes it, sending to {@code component4.queue}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RelayBenchmark {
+
+    @Param({"256", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"true", "false"})
+    public boolean persistent;
+
+    @Param({"true", "false"})
+    public boolean transacted;
+
+    @Param({"POOLED", "CACHING", "SINGLE", "NONE"})
+    public BenchmarkSupport.ConnectionFactoryType connectionFactory;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private ConnectionFactory wrappedFactory;
+    private Connection drainer;
+    private ArtemisMessageListener listener;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        wrappedFactory = BenchmarkSupport.wrap(broker.connectionFactory(), connectionFactory);
+        MessageForwardingService service = new MessageForwardingService(
+                BenchmarkSupport.jmsTemplate(wrappedFactory, persistent, transacted),
+                BenchmarkSupport.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(), BenchmarkSupport.none(LaneRouter.class));
+        BenchmarkSupport.setField(service, "outputQueue", "component4.queue");
+        listener = new ArtemisMessageListener(service, new LatencyRecorder(new SimpleMeterRegistry()),
+                BenchmarkSupport.none(ProcessedMessageCache.class));
+        BenchmarkSupport.setField(listener, "inputQueue", "component3-to-component4");
+        drainer = BenchmarkSupport.startDrainer(broker.connectionFactory(), "component4.queue");
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        drainer.close();
+        BenchmarkSupport.destroy(wrappedFactory);
+        broker.stop();
+    }
+
+    @Benchmark
+    public void processAndForwardMessage() throws Exception {
+        long now = LatencyTracing.now();
+        listener.receiveMessage(payload, now, now, 1, null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PayloadCompression;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.component3.listener.ArtemisMessageListener;
+import com.example.component3.relay.CoreRelay;
+import com.example.component3.service.MessageForwardingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component-3 relay end to end: a burst is published to the input queue and the invocation
+ * completes once all of it has arrived on {@code component4.queue}. {@code JMS} is the listener
+ * container + {@code JmsTemplate} path, {@code CORE} the core-client {@link CoreRelay}.
+ * Run with {@code -prof gc} to compare allocation rates ({@code gc.alloc.rate.norm} is bytes per message).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RelayPathBenchmark {
+
+    private static final int BURST = 100;
+
+    public enum RelayMode { JMS, CORE }
+
+    @Param({"JMS", "CORE"})
+    public RelayMode relayMode;
+
+    @Param({"4096", "65536", "524288"})
+    public int payloadSize;
+
+    @Param({"true"})
+    public boolean persistent;
+
+    @Param({"5"})
+    public int concurrentConsumers;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private final AtomicLong relayed = new AtomicLong();
+    private ConnectionFactory relayFactory;
+    private DefaultMessageListenerContainer container;
+    private CoreRelay coreRelay;
+    private Connection connection;
+    private MessageProducer producer;
+    private TextMessage message;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(persistent);
+        String input = "component3-to-component4";
+        String output = "component4.queue";
+        LatencyRecorder latencyRecorder = new LatencyRecorder(new SimpleMeterRegistry());
+
+        if (relayMode == RelayMode.JMS) {
+            relayFactory = BenchmarkSupport.wrap(broker.connectionFactory(), BenchmarkSupport.ConnectionFactoryType.POOLED);
+            MessageForwardingService service = new MessageForwardingService(
+                    BenchmarkSupport.jmsTemplate(relayFactory, persistent, true),
+                    BenchmarkSupport.none(AsyncMessageSender.class),
+                    PinningGuard.unbounded(), BenchmarkSupport.none(LaneRouter.class));
+            BenchmarkSupport.setField(service, "outputQueue", output);
+            ArtemisMessageListener listener = new ArtemisMessageListener(service, latencyRecorder,
+                    BenchmarkSupport.none(ProcessedMessageCache.class));
+            BenchmarkSupport.setField(listener, "inputQueue", input);
+
+            DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+            factory.setConnectionFactory(relayFactory);
+            factory.setConcurrency(String.valueOf(concurrentConsumers));
+            factory.setSessionTransacted(true);
+            SimpleJmsListenerEndpoint endpoint = new SimpleJmsListenerEndpoint();
+            endpoint.setId("relay-benchmark");
+            endpoint.setDestination(input);
+            endpoint.setMessageListener(received -> {
+                try {
+                    listener.receiveMessage(((TextMessage) received).getText(),
+                            received.getLongProperty(LatencyTracing.ORIGIN_TIMESTAMP),
+                            received.getLongProperty(LatencyTracing.HOP_TIMESTAMP),
+                            received.getIntProperty(LatencyTracing.HOP_COUNT),
+                            received);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            container = factory.createListenerContainer(endpoint);
+            container.afterPropertiesSet();
+            container.start();
+        } else {
+            ActiveMQConnectionFactory factory = broker.connectionFactory();
+            coreRelay = new CoreRelay(factory.getServerLocator(), null, null, input, output,
+                    ArtemisMessageListener.PROCESSED_PREFIX,
+                    new PayloadCompression(new WireFormatProperties.CompressionConfig()), concurrentConsumers, 1000, latencyRecorder,
+                    new SimpleAsyncTaskExecutor("core-relay-"));
+            coreRelay.start();
+        }
+
+        connection = broker.connectionFactory().createConnection();
+        Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        consumerSession.createConsumer(consumerSession.createQueue(output)).setMessageListener(m -> relayed.incrementAndGet());
+        Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = producerSession.createProducer(producerSession.createQueue(input));
+        producer.setDeliveryMode(persistent ? DeliveryMode.PERSISTENT : DeliveryMode.NON_PERSISTENT);
+        message = producerSession.createTextMessage(BenchmarkSupport.payload(payloadSize));
+        long now = LatencyTracing.now();
+        message.setLongProperty(LatencyTracing.ORIGIN_TIMESTAMP, now);
+        message.setLongProperty(LatencyTracing.HOP_TIMESTAMP, now);
+        message.setIntProperty(LatencyTracing.HOP_COUNT, 1);
+        connection.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (container != null) {
+            container.shutdown();
+            BenchmarkSupport.destroy(relayFactory);
+        }
+        if (coreRelay != null) {
+            coreRelay.stop();
+        }
+        connection.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void relay() throws Exception {
+        for (int i = 0; i < BURST; i++) {
+            producer.send(message);
+        }
+        sent += BURST;
+        while (relayed.get() < sent) {
+            Thread.onSpinWait();
+        }
+    }
+}
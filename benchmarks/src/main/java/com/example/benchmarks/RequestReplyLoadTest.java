@@ -0,0 +1,232 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.Replies;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import com.example.component3.reply.ReplyCorrelator;
+import com.example.component3.reply.RequestReplyClient;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import jakarta.jms.TextMessage;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Component-3 request/reply. First the correlation map alone: with {@code outstanding} requests
+ * waiting, the time to register one more and complete the oldest (what a request adds on top of
+ * its send and its reply), then whether {@code outstanding} requests that are never answered are
+ * all evicted by their timeout. Then end to end against an embedded broker, with a replier of
+ * {@code consumers} transacted consumers answering through {@link Replies}:
+ * <ul>
+ *   <li>{@code temp-queue}: {@code threads} threads each calling {@link JmsTemplate#sendAndReceive},
+ *       which creates and deletes a temporary reply queue per request;</li>
+ *   <li>{@code shared-queue}: {@link RequestReplyClient} with up to {@code outstanding} requests
+ *       in flight from one thread, replies correlated on the instance's reply queue;</li>
+ *   <li>{@code burst}: {@code burst} requests sent through {@link RequestReplyClient} before the
+ *       replier starts, so that all of them are outstanding at once.</li>
+ * </ul>
+ * "peak" is the highest number of requests actually waiting for a reply at the same time.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.RequestReplyLoadTest --requests=20000
+ * </pre>
+ */
+public class RequestReplyLoadTest {
+
+    private static final String QUEUE = "component4.queue";
+    private static final String REPLY_QUEUE = "component3.replies.load-test";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int requests = Integer.parseInt(options.getOrDefault("requests", "20000"));
+        int consumers = Integer.parseInt(options.getOrDefault("consumers", "4"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "100"));
+        int payloadSize = Integer.parseInt(options.getOrDefault("payload", "1024"));
+        int burst = Integer.parseInt(options.getOrDefault("burst", "5000"));
+
+        System.out.printf("%-14s %11s %12s %12s %12s %9s%n", "correlation", "outstanding", "ns/request", "p99 ns",
+                "evicted", "timeouts");
+        for (int outstanding : new int[] {1000, 10000}) {
+            correlation(outstanding, 1_000_000);
+        }
+
+        System.out.printf("%n%-14s %11s %7s %9s %10s %9s %9s %12s%n", "end to end", "in flight", "peak", "requests",
+                "req/s", "p50 ms", "p99 ms", "CPU us/req");
+        String payload = BenchmarkSupport.xmlPayload(payloadSize);
+        endToEnd("temp-queue", threads, requests, consumers, payload);
+        for (int outstanding : new int[] {threads, 1000, 5000}) {
+            endToEnd("shared-queue", outstanding, requests, consumers, payload);
+        }
+        endToEnd("burst", burst, burst, consumers, payload);
+        System.exit(0);
+    }
+
+    /**
+     * Keeps {@code outstanding} requests registered while timing {@code operations} register /
+     * complete pairs, then registers {@code outstanding} requests with a 200 ms timeout that are never
+     * answered and checks that they all left the map.
+     */
+    private static void correlation(int outstanding, int operations) throws Exception {
+        ReplyCorrelator correlator = new ReplyCorrelator("load-test", 60000, outstanding + 1, null);
+        ArrayDeque<String> waiting = new ArrayDeque<>(outstanding + 1);
+        for (int i = 0; i < outstanding; i++) {
+            String id = correlator.nextCorrelationId();
+            correlator.register(id);
+            waiting.add(id);
+        }
+        long[] samples = new long[operations / 100];
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            long opStart = i % 100 == 0 ? System.nanoTime() : 0;
+            String id = correlator.nextCorrelationId();
+            correlator.register(id);
+            waiting.add(id);
+            correlator.complete(waiting.poll(), "reply");
+            if (opStart != 0) {
+                samples[i / 100] = System.nanoTime() - opStart;
+            }
+        }
+        double nsPerRequest = (System.nanoTime() - start) / (double) operations;
+        Arrays.sort(samples);
+        waiting.forEach(id -> correlator.complete(id, "reply"));
+
+        ReplyCorrelator expiring = new ReplyCorrelator("load-test", 200, outstanding, null);
+        for (int i = 0; i < outstanding; i++) {
+            expiring.register(expiring.nextCorrelationId());
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (expiring.getOutstanding() > 0 && System.nanoTime() - deadline < 0) {
+            Thread.sleep(10);
+        }
+        System.out.printf("%-14s %11d %12.0f %12d %12s %9d%n", "register+reply", outstanding, nsPerRequest,
+                samples[(int) (samples.length * 0.99)], (outstanding - expiring.getOutstanding()) + "/" + outstanding,
+                expiring.getTimeouts());
+    }
+
+    private static void endToEnd(String mode, int inFlight, int requests, int consumers, String payload) throws Exception {
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(false);
+        ConnectionFactory connectionFactory = broker.connectionFactory();
+        ConnectionFactory cached = BenchmarkSupport.wrap(connectionFactory, BenchmarkSupport.ConnectionFactoryType.CACHING);
+
+        DefaultMessageListenerContainer replier = new DefaultMessageListenerContainer();
+        replier.setConnectionFactory(connectionFactory);
+        replier.setDestinationName(QUEUE);
+        replier.setSessionTransacted(true);
+        replier.setConcurrency(String.valueOf(consumers));
+        replier.setMessageListener((SessionAwareMessageListener<Message>) (message, session) ->
+                Replies.send(session, message, "Processed " + ((TextMessage) message).getText().length() + " chars"));
+        replier.afterPropertiesSet();
+        if (!mode.equals("burst")) {
+            replier.start();
+        }
+
+        AtomicLongArray latencies = new AtomicLongArray(requests);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong failed = new AtomicLong();
+        AtomicInteger waiting = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        long cpuStart = BenchmarkSupport.cpuNanos();
+        long start = System.nanoTime();
+        if (mode.equals("temp-queue")) {
+            JmsTemplate jmsTemplate = BenchmarkSupport.jmsTemplate(cached, false, false);
+            jmsTemplate.setReceiveTimeout(10000);
+            AtomicInteger next = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(inFlight);
+            CountDownLatch done = new CountDownLatch(inFlight);
+            for (int t = 0; t < inFlight; t++) {
+                executor.execute(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        long sent = System.nanoTime();
+                        peak.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+                        Message reply = jmsTemplate.sendAndReceive(QUEUE, session -> session.createTextMessage(payload));
+                        waiting.decrementAndGet();
+                        if (reply == null) {
+                            failed.incrementAndGet();
+                            continue;
+                        }
+                        latencies.set(completed.getAndIncrement(), System.nanoTime() - sent);
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            executor.shutdown();
+        } else {
+            ReplyCorrelator correlator = new ReplyCorrelator(REPLY_QUEUE, 10000, inFlight, null);
+            RequestReplyClient client = new RequestReplyClient(cached, new WireMessageConverter(new WireFormatProperties()),
+                    REPLY_QUEUE, correlator, false, PinningGuard.unbounded());
+            client.start();
+            Semaphore window = new Semaphore(inFlight);
+            CountDownLatch done = new CountDownLatch(requests);
+            for (int i = 0; i < requests; i++) {
+                window.acquire();
+                long sent = System.nanoTime();
+                CompletableFuture<String> reply = client.request(QUEUE, payload);
+                peak.accumulateAndGet(correlator.getOutstanding(), Math::max);
+                reply.whenComplete((body, failure) -> {
+                    if (failure != null) {
+                        failed.incrementAndGet();
+                    } else {
+                        latencies.set(completed.getAndIncrement(), System.nanoTime() - sent);
+                    }
+                    window.release();
+                    done.countDown();
+                });
+            }
+            if (mode.equals("burst")) {
+                replier.start();
+            }
+            done.await();
+            client.stop();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long cpu = BenchmarkSupport.cpuNanos() - cpuStart;
+
+        long[] sorted = new long[completed.get()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        System.out.printf("%-14s %11d %7d %9d %10.0f %9.2f %9.2f %12.0f%s%n", mode, inFlight, peak.get(), sorted.length,
+                sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99), cpu / 1e3 / requests,
+                failed.get() > 0 ? "  (" + failed.get() + " failed)" : "");
+
+        replier.stop();
+        replier.shutdown();
+        BenchmarkSupport.destroy(cached);
+        broker.stop();
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
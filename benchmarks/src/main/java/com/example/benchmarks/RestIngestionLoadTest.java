@@ -0,0 +1,176 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AdmissionLimiter;
+import com.example.component1.Component1Application;
+import jakarta.jms.Connection;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sustained-load comparison of component-1's REST ingestion with platform vs virtual threads, and
+ * with or without admission control. Boots component-1 against the embedded broker, keeps
+ * {@code senders} requests permanently in flight against {@code /api/messages/send} and reports
+ * throughput, latency of the accepted requests, peak thread count and peak heap. Rejected requests
+ * (429) are retried after their {@code Retry-After}, as a well-behaved client would.
+ * Run once per mode (virtual threads need a Java 21+ runtime):
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.RestIngestionLoadTest --senders=10000 --virtual=false
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.RestIngestionLoadTest --senders=10000 --virtual=true
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.RestIngestionLoadTest --senders=2000 --admission=true
+ * </pre>
+ * Client and server share the JVM, so thread and heap figures include the (small, fixed) client.
+ */
+public class RestIngestionLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int senders = Integer.parseInt(options.getOrDefault("senders", "10000"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int payloadSize = Integer.parseInt(options.getOrDefault("payload", "1024"));
+        boolean virtual = Boolean.parseBoolean(options.getOrDefault("virtual", "false"));
+        boolean persistent = Boolean.parseBoolean(options.getOrDefault("persistent", "true"));
+        boolean admission = Boolean.parseBoolean(options.getOrDefault("admission", "false"));
+
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(persistent);
+        Connection drainer = BenchmarkSupport.startDrainer(broker.connectionFactory(), "component2.queue");
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Component1Application.class)
+                .properties(
+                        "spring.config.name=rest-load-test",
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (senders + 1000),
+                        "server.tomcat.accept-count=" + senders,
+                        "spring.threads.virtual.enabled=" + virtual,
+                        "artemis.admission.enabled=" + admission,
+                        "artemis.broker.url=" + EmbeddedBroker.URL,
+                        "artemis.broker.user=",
+                        "artemis.broker.password=")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/messages/send?queue=component2.queue"))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(BenchmarkSupport.payload(payloadSize)))
+                .build();
+
+        Counts counts = new Counts();
+        long stopAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds + durationSeconds).toNanos();
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[senders];
+        for (int i = 0; i < senders; i++) {
+            loops[i] = sendLoop(client, request, stopAt, counts);
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        counts.latencies.clear();
+        long startCompleted = counts.completed.get();
+        long startFailed = counts.failed.get();
+        long startRejected = counts.rejected.get();
+        long peakHeap = 0;
+        long measureEnd = System.nanoTime() + Duration.ofSeconds(durationSeconds).toNanos();
+        while (System.nanoTime() < measureEnd) {
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            Thread.sleep(100);
+        }
+        long requests = counts.completed.get() - startCompleted;
+        long errors = counts.failed.get() - startFailed;
+        long rejected = counts.rejected.get() - startRejected;
+        long[] latencies = counts.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        int peakThreads = threads.getPeakThreadCount();
+
+        CompletableFuture.allOf(loops).join();
+        System.out.printf("mode=%s senders=%d payload=%dB persistent=%s admission=%s%n",
+                virtual ? "virtual" : "platform", senders, payloadSize, persistent, admission);
+        System.out.printf("throughput=%.1f req/s errors=%d rejected=%d peakThreads=%d peakHeap=%.1f MB%n",
+                (double) requests / durationSeconds, errors, rejected, peakThreads, peakHeap / (1024.0 * 1024.0));
+        System.out.printf("accepted latency p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0));
+        if (admission) {
+            System.out.printf("admission limit=%d%n", context.getBean(AdmissionLimiter.class).getLimit("component2.queue"));
+        }
+
+        context.close();
+        clientExecutor.shutdownNow();
+        drainer.close();
+        broker.stop();
+        System.exit(0);
+    }
+
+    private static CompletableFuture<Void> sendLoop(HttpClient client, HttpRequest request, long stopAt, Counts counts) {
+        if (System.nanoTime() >= stopAt) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error == null && response.statusCode() == 200) {
+                        counts.completed.incrementAndGet();
+                        counts.latencies.add(System.nanoTime() - start);
+                    } else if (error == null && response.statusCode() == 429) {
+                        counts.rejected.incrementAndGet();
+                        return response.headers().firstValueAsLong("Retry-After").orElse(1);
+                    } else {
+                        counts.failed.incrementAndGet();
+                    }
+                    return 0L;
+                })
+                .thenCompose(retryAfterSeconds -> retryAfterSeconds == 0
+                        ? sendLoop(client, request, stopAt, counts)
+                        : CompletableFuture.supplyAsync(() -> null, CompletableFuture.delayedExecutor(retryAfterSeconds, TimeUnit.SECONDS))
+                                .thenCompose(ignored -> sendLoop(client, request, stopAt, counts)));
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static final class Counts {
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.RetryProperties;
+import com.example.artemis.common.RetryScheduler;
+import com.example.artemis.common.RetryingMessageListenerContainer;
+import ch.qos.logback.classic.Level;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageListener;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumer behaviour through a downstream outage. A producer sends {@code rate} persistent messages
+ * per second for {@code duration} seconds, {@code poison-percent} of them malformed; from
+ * {@code outage-start} for {@code outage} seconds the listener fails every message, as when a
+ * database it writes to is down. Three setups of {@code consumers} transacted consumers compare:
+ * <ul>
+ *   <li>{@code rollback}: failures roll back, and the broker redelivers at once
+ *       ({@code redelivery-delay} 0, the former {@code broker.xml});</li>
+ *   <li>{@code backoff}: failures roll back, and the broker redelivers after 1 s, doubling up to
+ *       60 s (the current {@code broker.xml});</li>
+ *   <li>{@code scheduled}: {@link RetryingMessageListenerContainer} reschedules failures through
+ *       {@link RetryScheduler} (500 ms doubling, 8 attempts) and dead-letters poison at once.</li>
+ * </ul>
+ * All use the Artemis default of 10 delivery attempts before the dead letter address. Reports
+ * listener invocations per message sent and during the outage, the CPU time used during the outage, how many healthy and
+ * poison messages ended in the DLQ or were still pending {@code drain} seconds after the last send,
+ * and the send-to-success latency of healthy messages:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.RetryLoadTest --rate=100 --outage=10
+ * </pre>
+ */
+public class RetryLoadTest {
+
+    private static final String QUEUE = "component2.queue";
+    private static final String DLQ = "DLQ";
+    private static final String POISON = "poison";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int rate = Integer.parseInt(options.getOrDefault("rate", "100"));
+        int consumers = Integer.parseInt(options.getOrDefault("consumers", "4"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int outageStartSeconds = Integer.parseInt(options.getOrDefault("outage-start", "5"));
+        int outageSeconds = Integer.parseInt(options.getOrDefault("outage", "10"));
+        int drainSeconds = Integer.parseInt(options.getOrDefault("drain", "60"));
+        double poisonPercent = Double.parseDouble(options.getOrDefault("poison-percent", "1"));
+        // Every failure is logged with its stack trace in all three setups; keep that out of the comparison
+        for (String logger : List.of("org.springframework.jms.listener", "com.example.artemis.common.RetryScheduler")) {
+            ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(logger)).setLevel(Level.OFF);
+        }
+
+        System.out.printf("%-10s %8s %10s %12s %12s %9s %9s %9s %9s %9s %9s%n", "mode", "sent", "calls/msg",
+                "outage calls", "outage CPU", "ok", "dlq-good", "dlq-bad", "pending", "p50 ms", "p99 ms");
+        for (String mode : List.of("rollback", "backoff", "scheduled")) {
+            run(mode, rate, consumers, durationSeconds, outageStartSeconds, outageSeconds, drainSeconds, poisonPercent);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String mode, int rate, int consumers, int durationSeconds, int outageStartSeconds,
+                            int outageSeconds, int drainSeconds, double poisonPercent) throws Exception {
+        AddressSettings addressSettings = new AddressSettings()
+                .setDeadLetterAddress(SimpleString.toSimpleString(DLQ))
+                .setMaxDeliveryAttempts(10);
+        if (!mode.equals("rollback")) {
+            addressSettings.setRedeliveryDelay(1000).setRedeliveryMultiplier(2.0).setMaxRedeliveryDelay(60000);
+        }
+        EmbeddedBroker broker = new EmbeddedBroker();
+        broker.start(true, addressSettings);
+        ConnectionFactory connectionFactory = broker.connectionFactory();
+
+        AtomicLong calls = new AtomicLong();
+        AtomicLong outageCalls = new AtomicLong();
+        AtomicLong processed = new AtomicLong();
+        AtomicLong deadLettered = new AtomicLong();
+        AtomicLong poisonDeadLettered = new AtomicLong();
+        Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        long outageFrom = start + Duration.ofSeconds(outageStartSeconds).toNanos();
+        long outageUntil = outageFrom + Duration.ofSeconds(outageSeconds).toNanos();
+
+        Connection dlqConsumer = connectionFactory.createConnection();
+        Session dlqSession = dlqConsumer.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        dlqSession.createConsumer(dlqSession.createQueue(DLQ)).setMessageListener(message -> {
+            try {
+                if (((TextMessage) message).getText().startsWith(POISON)) {
+                    poisonDeadLettered.incrementAndGet();
+                } else {
+                    deadLettered.incrementAndGet();
+                }
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        dlqConsumer.start();
+
+        DefaultMessageListenerContainer container;
+        if (mode.equals("scheduled")) {
+            RetryProperties retryProperties = new RetryProperties();
+            retryProperties.setInitialDelayMs(500);
+            retryProperties.setMaxAttempts(8);
+            container = new RetryingMessageListenerContainer(new RetryScheduler(QUEUE, retryProperties, null));
+        } else {
+            container = new DefaultMessageListenerContainer();
+        }
+        container.setConnectionFactory(connectionFactory);
+        container.setDestinationName(QUEUE);
+        container.setSessionTransacted(true);
+        container.setConcurrency(String.valueOf(consumers));
+        container.setMessageListener((MessageListener) message -> {
+            calls.incrementAndGet();
+            try {
+                if (((TextMessage) message).getText().startsWith(POISON)) {
+                    throw new IllegalArgumentException("Malformed order");
+                }
+                long now = System.nanoTime();
+                if (now - outageFrom >= 0 && now - outageUntil < 0) {
+                    outageCalls.incrementAndGet();
+                    throw new IllegalStateException("Downstream unavailable");
+                }
+                latencies.add(now - message.getLongProperty("sentAt"));
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+            processed.incrementAndGet();
+        });
+        container.afterPropertiesSet();
+        container.start();
+
+        JmsTemplate jmsTemplate = BenchmarkSupport.jmsTemplate(
+                BenchmarkSupport.wrap(connectionFactory, BenchmarkSupport.ConnectionFactoryType.CACHING), true, false);
+        String payload = BenchmarkSupport.xmlPayload(1024);
+        long sent = 0;
+        long poisonSent = 0;
+        long cpuAtOutageStart = 0;
+        long cpuAtOutageEnd = 0;
+        long intervalNanos = 1_000_000_000L / rate;
+        long end = start + Duration.ofSeconds(durationSeconds).toNanos();
+        for (long next = start; next - end < 0; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (cpuAtOutageStart == 0 && next - outageFrom >= 0) {
+                cpuAtOutageStart = BenchmarkSupport.cpuNanos();
+            }
+            if (cpuAtOutageEnd == 0 && next - outageUntil >= 0) {
+                cpuAtOutageEnd = BenchmarkSupport.cpuNanos();
+            }
+            boolean poison = sent * poisonPercent / 100 >= poisonSent + 1;
+            String body = (poison ? POISON : "order") + ":" + sent + ":" + payload;
+            jmsTemplate.convertAndSend(QUEUE, body, message -> {
+                message.setLongProperty("sentAt", System.nanoTime());
+                return message;
+            });
+            sent++;
+            if (poison) {
+                poisonSent++;
+            }
+        }
+
+        long healthy = sent - poisonSent;
+        long drainUntil = System.nanoTime() + Duration.ofSeconds(drainSeconds).toNanos();
+        while (System.nanoTime() - drainUntil < 0
+                && (processed.get() + deadLettered.get() < healthy || poisonDeadLettered.get() < poisonSent)) {
+            Thread.sleep(100);
+        }
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        long pending = sent - processed.get() - deadLettered.get() - poisonDeadLettered.get();
+        System.out.printf("%-10s %8d %10.2f %12d %10.1f s %9d %9d %9d %9d %9.0f %9.0f%n", mode, sent,
+                calls.get() / (double) sent, outageCalls.get(), (cpuAtOutageEnd - cpuAtOutageStart) / 1e9, processed.get(),
+                deadLettered.get(), poisonDeadLettered.get(), pending, percentile(sorted, 0.50), percentile(sorted, 0.99));
+
+        container.stop();
+        container.shutdown();
+        dlqConsumer.close();
+        BenchmarkSupport.destroy(jmsTemplate.getConnectionFactory());
+        broker.stop();
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
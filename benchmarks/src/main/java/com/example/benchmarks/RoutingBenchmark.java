@@ -0,0 +1,135 @@
+package com.example.benchmarks;
+
+import com.example.component1.config.RoutingProperties;
+import com.example.component1.routing.ContentRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one content-based routing decision in component-1 ({@link ContentRouter#route}) for a
+ * 1 KB XML or JSON order document against {@code rules} generated rules, which test element text,
+ * attributes, numeric ranges, regular expressions and JMS headers the way an operator's rules file
+ * would. Few rules match, so the whole payload is scanned; meters go to a {@link SimpleMeterRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+    public enum Format { XML, JSON }
+
+    private static final List<String> FALLBACK = List.of("component2.queue", "component4.queue");
+    private static final Map<String, Object> HEADERS = Map.of("jms_type", "order", "region", "EMEA");
+
+    @Param({"100", "200"})
+    public int rules;
+
+    @Param({"XML", "JSON"})
+    public Format format;
+
+    private Path rulesFile;
+    private ContentRouter router;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String prefix = format == Format.XML ? "orders/order/" : "orders/";
+        rulesFile = Files.createTempFile("routing-benchmark", ".yml");
+        Files.writeString(rulesFile, rulesYaml(rules, prefix));
+        payload = format == Format.XML ? BenchmarkSupport.xmlPayload(1024) : jsonPayload(1024);
+
+        RoutingProperties properties = new RoutingProperties();
+        properties.setEnabled(true);
+        properties.setRulesFile(rulesFile.toString());
+        properties.setReloadIntervalMs(0);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", new SimpleMeterRegistry());
+        router = new ContentRouter(properties, beans.getBeanProvider(MeterRegistry.class));
+        if (router.getRuleCount() != rules) {
+            throw new IllegalStateException("Loaded " + router.getRuleCount() + " of " + rules + " rules");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(rulesFile);
+    }
+
+    @Benchmark
+    public List<String> route() {
+        return router.route(payload, HEADERS::get, FALLBACK);
+    }
+
+    /**
+     * Rules cycling through the kinds of condition; XML attributes are JSON fields of the same name.
+     */
+    private static String rulesYaml(int count, String prefix) {
+        String attribute = prefix.startsWith("orders/order/") ? "@" : "";
+        String[] countries = Locale.getISOCountries();
+        StringBuilder yaml = new StringBuilder("rules:\n");
+        for (int i = 0; i < count; i++) {
+            yaml.append("  - name: rule-").append(i).append("\n    destinations: [queue.").append(i % 10).append("]\n    when:\n");
+            switch (i % 5) {
+                case 0 -> yaml.append("      - field: ").append(prefix).append("customer/country\n        equals: ")
+                        .append(countries[i % countries.length]).append('\n')
+                        .append("      - field: ").append(prefix).append(attribute).append("status\n        equals: OPEN\n");
+                case 1 -> yaml.append("      - field: ").append(prefix).append("line/").append(attribute)
+                        .append("price\n        greater-than: ").append(900 + i).append('\n');
+                case 2 -> yaml.append("      - field: ").append(prefix).append("line/").append(attribute)
+                        .append("sku\n        matches: \"SKU-").append(i).append("\\\\d{2}\"\n");
+                case 3 -> yaml.append("      - header: region\n        equals: EMEA\n")
+                        .append("      - field: ").append(prefix).append("customer/id\n        one-of: [C").append(i)
+                        .append(", C").append(i * 7).append(", C").append(i * 13).append("]\n");
+                default -> yaml.append("      - header: jms_type\n        one-of: [invoice, shipment-").append(i).append("]\n");
+            }
+        }
+        return yaml.toString();
+    }
+
+    /**
+     * The JSON counterpart of {@link BenchmarkSupport#xmlPayload}: an {@code orders} array of
+     * order objects of about {@code size} characters in all.
+     */
+    private static String jsonPayload(int size) {
+        Random random = new Random(size);
+        StringBuilder json = new StringBuilder(size + 256).append("{\"orders\":[");
+        while (json.length() < size - 2) {
+            if (json.charAt(json.length() - 1) == '}') {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(random.nextInt(1_000_000))
+                    .append(",\"status\":\"").append(random.nextBoolean() ? "OPEN" : "SHIPPED")
+                    .append("\",\"customer\":{\"id\":\"C").append(random.nextInt(100_000)).append("\",\"country\":\"")
+                    .append(Locale.getISOCountries()[random.nextInt(Locale.getISOCountries().length)])
+                    .append("\"},\"line\":{\"sku\":\"SKU-").append(random.nextInt(50_000))
+                    .append("\",\"quantity\":").append(1 + random.nextInt(20))
+                    .append(",\"price\":").append(random.nextInt(100_000) / 100.0).append("}}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ShardingProperties;
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Component-1 sends sharded across 1 to {@code max-brokers} embedded brokers, each with its own
+ * persistent journal and TCP acceptor, through {@link BrokerShards}. {@code senders} threads
+ * forward keyed messages the way the WebLogic listener does (persistent, transacted) while one
+ * consumer per broker receives them the way the sharded component-2 containers do. Reports
+ * delivered messages per second as brokers are added, and the messages each broker took.
+ * <p>
+ * A final {@code failover} run stops one of three brokers half-way through the measurement and
+ * reports the sends that failed over, the sends that failed altogether and the keys whose messages
+ * arrived out of order:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ShardingLoadTest --senders=8 --max-brokers=4
+ * </pre>
+ */
+public class ShardingLoadTest {
+
+    private static final String DESTINATION = "component2.queue";
+    private static final int BASE_PORT = 61710;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int senders = Integer.parseInt(options.getOrDefault("senders", "8"));
+        int maxBrokers = Integer.parseInt(options.getOrDefault("max-brokers", "4"));
+        int keys = Integer.parseInt(options.getOrDefault("keys", "1000"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "15"));
+        String payload = BenchmarkSupport.xmlPayload(Integer.parseInt(options.getOrDefault("payload", "1024")));
+
+        System.out.printf("%-8s %7s %10s %10s %10s %10s  %s%n", "mode", "brokers", "msg/s", "failovers", "failed",
+                "reordered", "per broker");
+        for (int brokers = 1; brokers <= maxBrokers; brokers++) {
+            run("scale", brokers, false, senders, keys, payload, warmupSeconds, durationSeconds);
+        }
+        run("failover", 3, true, senders, keys, payload, warmupSeconds, durationSeconds);
+        System.exit(0);
+    }
+
+    private static void run(String mode, int brokerCount, boolean stopOne, int senders, int keys, String payload,
+                            int warmupSeconds, int durationSeconds) throws Exception {
+        Path directory = Files.createTempDirectory("sharding");
+        List<EmbeddedArtemisBroker> brokers = new ArrayList<>();
+        List<Connection> consumers = new ArrayList<>();
+        List<AtomicLong> receivedPerBroker = new ArrayList<>();
+        Map<String, Long> lastSequence = new ConcurrentHashMap<>();
+        AtomicLong reordered = new AtomicLong();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BrokerShards shards = null;
+        try {
+            ShardingProperties properties = new ShardingProperties();
+            properties.setEnabled(true);
+            List<BrokerShards.Shard> shardList = new ArrayList<>();
+            for (int i = 0; i < brokerCount; i++) {
+                String url = "tcp://127.0.0.1:" + (BASE_PORT + i);
+                brokers.add(new EmbeddedArtemisBroker(brokerProperties(i + 1, directory.resolve("broker-" + i), url)));
+                shardList.add(new BrokerShards.Shard("broker-" + i, 1, BenchmarkSupport.jmsTemplate(
+                        BenchmarkSupport.wrap(new ActiveMQConnectionFactory(url), BenchmarkSupport.ConnectionFactoryType.CACHING),
+                        true, true)));
+
+                AtomicLong received = new AtomicLong();
+                receivedPerBroker.add(received);
+                Connection consumer = new ActiveMQConnectionFactory(url).createConnection();
+                consumer.setExceptionListener(e -> { });
+                Session session = consumer.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                session.createConsumer(session.createQueue(DESTINATION)).setMessageListener(message -> {
+                    try {
+                        String text = ((TextMessage) message).getText();
+                        String key = message.getStringProperty("JMSXGroupID");
+                        long sequence = Long.parseLong(text.substring(0, text.indexOf(':')));
+                        Long previous = lastSequence.put(key, sequence);
+                        if (previous != null && previous > sequence) {
+                            reordered.incrementAndGet();
+                        }
+                    } catch (JMSException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    received.incrementAndGet();
+                });
+                consumer.start();
+                consumers.add(consumer);
+            }
+            shards = new BrokerShards(shardList, properties, meterRegistry);
+            StaticListableBeanFactory beans = new StaticListableBeanFactory();
+            beans.addBean("brokerShards", shards);
+            MessageForwardingService service = new MessageForwardingService(
+                    BenchmarkSupport.jmsTemplate(shardList.get(0).getJmsTemplate().getConnectionFactory(), true, true),
+                    BenchmarkSupport.none(AsyncMessageSender.class),
+                    PinningGuard.unbounded(),
+                    BenchmarkSupport.none(BrokerFanout.class),
+                    BenchmarkSupport.none(StoreAndForwardJournal.class),
+                    beans.getBeanProvider(BrokerShards.class));
+
+            AtomicLong failed = new AtomicLong();
+            long stopAt = System.nanoTime() + Duration.ofSeconds(warmupSeconds + durationSeconds).toNanos();
+            Thread[] threads = new Thread[senders];
+            for (int t = 0; t < senders; t++) {
+                int sender = t;
+                threads[t] = new Thread(() -> {
+                    // Each sender owns its keys, so a key's sequence numbers are sent in order
+                    long sequence = 0;
+                    while (System.nanoTime() < stopAt) {
+                        String key = "key-" + sender + "-" + (sequence % Math.max(1, keys / senders));
+                        try {
+                            service.forwardToArtemis(DESTINATION, sequence + ":" + payload, System.nanoTime(),
+                                    "ID:" + sender + "-" + sequence, key);
+                        } catch (RuntimeException e) {
+                            failed.incrementAndGet();
+                        }
+                        sequence++;
+                    }
+                }, "sharding-sender-" + t);
+                threads[t].start();
+            }
+
+            Thread.sleep(Duration.ofSeconds(warmupSeconds).toMillis());
+            long start = System.nanoTime();
+            long[] receivedAtStart = receivedPerBroker.stream().mapToLong(AtomicLong::get).toArray();
+            long failedAtStart = failed.get();
+            long reorderedAtStart = reordered.get();
+            if (stopOne) {
+                Thread.sleep(Duration.ofSeconds(durationSeconds).toMillis() / 2);
+                brokers.get(brokerCount - 1).destroy();
+                Thread.sleep(Duration.ofSeconds(durationSeconds).toMillis() / 2);
+            } else {
+                Thread.sleep(Duration.ofSeconds(durationSeconds).toMillis());
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long delivered = 0;
+            List<String> perBroker = new ArrayList<>();
+            for (int i = 0; i < brokerCount; i++) {
+                long count = receivedPerBroker.get(i).get() - receivedAtStart[i];
+                delivered += count;
+                perBroker.add(String.valueOf(count));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long failovers = (long) meterRegistry.find("artemis.shard.failovers").counters().stream()
+                    .mapToDouble(Counter::count).sum();
+            System.out.printf("%-8s %7d %10.1f %10d %10d %10d  %s%n", mode, brokerCount, delivered / seconds, failovers,
+                    failed.get() - failedAtStart, reordered.get() - reorderedAtStart, String.join("/", perBroker));
+        } finally {
+            for (Connection consumer : consumers) {
+                try {
+                    consumer.close();
+                } catch (JMSException e) {
+                    // broker already stopped
+                }
+            }
+            if (shards != null) {
+                shards.destroy();
+            }
+            for (EmbeddedArtemisBroker broker : brokers) {
+                broker.destroy();
+            }
+            delete(directory);
+        }
+    }
+
+    private static ArtemisProperties brokerProperties(int serverId, Path directory, String acceptorUrl) {
+        ArtemisProperties properties = new ArtemisProperties();
+        ArtemisProperties.BrokerConfig broker = new ArtemisProperties.BrokerConfig();
+        broker.setEmbedded(true);
+        properties.setBroker(broker);
+        ArtemisProperties.EmbeddedConfig embedded = properties.getEmbedded();
+        embedded.setServerId(serverId);
+        embedded.setDataDirectory(directory.toString());
+        embedded.setAcceptorUrl(acceptorUrl);
+        embedded.setPersistent(true);
+        return properties;
+    }
+
+    private static void delete(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
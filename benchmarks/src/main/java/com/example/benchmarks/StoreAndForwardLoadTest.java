@@ -0,0 +1,182 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.JournalForwarder;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Exercises component-1's store-and-forward journal through a broker outage. {@code senders}
+ * threads forward {@code messages} messages the way the WebLogic listener does while no broker is
+ * running, so every one is appended to the journal; the journal is then closed and reopened, as
+ * after a restart, and finally an embedded broker is started and {@link JournalForwarder} replays
+ * the backlog. Reports the append rate, the recovery time and the replay rate, and checks that
+ * every message arrived exactly once and in each sender's order:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.StoreAndForwardLoadTest --senders=4 --messages=100000 --payload=1024 --fsync=false
+ * </pre>
+ */
+public class StoreAndForwardLoadTest {
+
+    private static final String DESTINATION = "component2.queue";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int senders = Integer.parseInt(options.getOrDefault("senders", "4"));
+        int messages = Integer.parseInt(options.getOrDefault("messages", "100000"));
+        String payload = BenchmarkSupport.xmlPayload(Integer.parseInt(options.getOrDefault("payload", "1024")));
+
+        Path directory = Files.createTempDirectory("store-and-forward");
+        ArtemisProperties properties = new ArtemisProperties();
+        ArtemisProperties.StoreAndForwardConfig config = properties.getStoreAndForward();
+        config.setEnabled(true);
+        config.setDirectory(directory.toString());
+        config.setFsync(Boolean.parseBoolean(options.getOrDefault("fsync", "false")));
+        config.setReplayBatchSize(Integer.parseInt(options.getOrDefault("batch", "100")));
+        config.setRetryBackoffMs(100);
+
+        EmbeddedBroker broker = new EmbeddedBroker();
+        ConnectionFactory connectionFactory = BenchmarkSupport.wrap(broker.connectionFactory(),
+                BenchmarkSupport.ConnectionFactoryType.CACHING);
+        StoreAndForwardJournal journal = new StoreAndForwardJournal(properties, BenchmarkSupport.none(MeterRegistry.class));
+        try {
+            // Outage: the first send fails, the rest go straight to the journal
+            MessageForwardingService service = service(connectionFactory, journal);
+            long start = System.nanoTime();
+            Thread[] threads = new Thread[senders];
+            for (int i = 0; i < senders; i++) {
+                int sender = i;
+                threads[i] = new Thread(() -> {
+                    for (int sequence = sender; sequence < messages; sequence += senders) {
+                        service.forwardToArtemis(DESTINATION, payload, LatencyTracing.now(), sender + "-" + sequence);
+                    }
+                }, "saf-sender-" + i);
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            double storeSeconds = (System.nanoTime() - start) / 1e9;
+            long backlogBytes = journal.getBacklogBytes();
+
+            // Restart: reopen the journal from disk
+            journal.destroy();
+            start = System.nanoTime();
+            journal = new StoreAndForwardJournal(properties, BenchmarkSupport.none(MeterRegistry.class));
+            double recoverMillis = (System.nanoTime() - start) / 1e6;
+            if (journal.getBacklog() != messages) {
+                throw new IllegalStateException("Recovered " + journal.getBacklog() + " of " + messages + " message(s)");
+            }
+
+            // Recovery: the broker comes back and the backlog is replayed
+            broker.start(true);
+            Receiver receiver = new Receiver(senders);
+            Connection consumer = broker.connectionFactory().createConnection();
+            Session session = consumer.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            session.createConsumer(session.createQueue(DESTINATION)).setMessageListener(receiver::onMessage);
+            consumer.start();
+
+            JournalForwarder forwarder = new JournalForwarder(journal, service(connectionFactory, journal), properties);
+            start = System.nanoTime();
+            forwarder.start();
+            while (receiver.received.get() < messages) {
+                Thread.sleep(10);
+            }
+            double replaySeconds = (System.nanoTime() - start) / 1e9;
+            forwarder.stop();
+            Thread.sleep(500);
+            consumer.close();
+
+            System.out.printf("stored     %10d msg  %10.1f msg/s  %8.1f us/msg  %,d B%n", messages, messages / storeSeconds,
+                    storeSeconds * 1e6 / messages, backlogBytes);
+            System.out.printf("recovered  %10d msg  %10.1f ms%n", messages, recoverMillis);
+            System.out.printf("replayed   %10d msg  %10.1f msg/s%n", receiver.received.get(), messages / replaySeconds);
+            System.out.printf("duplicates %10d      out of order %d      backlog left %d%n",
+                    receiver.received.get() - messages, receiver.outOfOrder.get(), journal.getBacklog());
+        } finally {
+            journal.destroy();
+            BenchmarkSupport.destroy(connectionFactory);
+            broker.stop();
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    private static MessageForwardingService service(ConnectionFactory connectionFactory, StoreAndForwardJournal journal) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("storeAndForwardJournal", journal);
+        return new MessageForwardingService(
+                BenchmarkSupport.jmsTemplate(connectionFactory, true, true),
+                BenchmarkSupport.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(),
+                BenchmarkSupport.none(BrokerFanout.class),
+                beans.getBeanProvider(StoreAndForwardJournal.class),
+                BenchmarkSupport.none(BrokerShards.class));
+    }
+
+    /**
+     * Counts deliveries and checks that each sender's sequence numbers arrive in increasing order.
+     */
+    private static final class Receiver {
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong outOfOrder = new AtomicLong();
+        final long[] lastSequence;
+
+        Receiver(int senders) {
+            lastSequence = new long[senders];
+            Arrays.fill(lastSequence, -1);
+        }
+
+        synchronized void onMessage(Message message) {
+            try {
+                // Duplicate ID is "<sender>-<sequence>:<destination>"
+                String key = DuplicateIds.key(message);
+                String source = key.substring(0, key.indexOf(':'));
+                int sender = Integer.parseInt(source.substring(0, source.indexOf('-')));
+                long sequence = Long.parseLong(source.substring(source.indexOf('-') + 1));
+                if (sequence <= lastSequence[sender]) {
+                    outOfOrder.incrementAndGet();
+                }
+                lastSequence[sender] = sequence;
+                received.incrementAndGet();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+}
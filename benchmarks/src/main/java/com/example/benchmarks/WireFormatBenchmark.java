@@ -0,0 +1,95 @@
+package com.example.benchmarks;
+
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One message through the broker per operation in each wire format: {@link WireMessageConverter}
+ * encodes and stamps it the way component-1 does, and the consumer side decodes the payload and
+ * reads the tracing headers the way components 2-4 do. Run with {@code -prof gc} for the
+ * allocation per message ({@code gc.alloc.rate.norm}) and GC counts; client and in-VM broker share
+ * the JVM, so the figures include the broker's (format-independent) share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    public enum Format { TEXT, BYTES, BYTES_ENVELOPE }
+
+    @Param({"TEXT", "BYTES", "BYTES_ENVELOPE"})
+    public Format format;
+
+    @Param({"1024", "16384"})
+    public int payloadSize;
+
+    private final EmbeddedBroker broker = new EmbeddedBroker();
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private MessageConsumer consumer;
+    private WireMessageConverter converter;
+    private String payload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        broker.start(false);
+        WireFormatProperties properties = new WireFormatProperties();
+        properties.setFormat(format == Format.TEXT ? WireFormatProperties.Format.TEXT : WireFormatProperties.Format.BYTES);
+        properties.setEnvelope(format == Format.BYTES_ENVELOPE);
+        converter = new WireMessageConverter(properties);
+        payload = BenchmarkSupport.payload(payloadSize);
+
+        connection = broker.connectionFactory().createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(session.createQueue("wire.benchmark"));
+        producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+        consumer = session.createConsumer(session.createQueue("wire.benchmark"));
+        connection.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    public long roundTrip() throws Exception {
+        Message message = converter.toMessage(payload, session);
+        LatencyTracing.stampOrigin(message, LatencyTracing.now());
+        producer.send(message);
+
+        Message received = consumer.receive(5000);
+        String text = WireMessageConverter.readText(received);
+        return text.length()
+                + LatencyTracing.originTimestamp(received)
+                + LatencyTracing.hopTimestamp(received)
+                + LatencyTracing.hopCount(received);
+    }
+}
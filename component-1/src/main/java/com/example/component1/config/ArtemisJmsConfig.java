@@ -1,51 +1,138 @@
 package com.example.component1.config;
 
+import com.example.artemis.common.AdmissionLimiter;
+import com.example.artemis.common.AdmissionProperties;
+import com.example.artemis.common.ArtemisClientProperties;
+import com.example.artemis.common.ArtemisConnectionFactories;
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.LaneProperties;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.RetryProperties;
+import com.example.artemis.common.RetryScheduler;
+import com.example.artemis.common.ShardingProperties;
+import com.example.artemis.common.VirtualThreads;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
-import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.core.JmsTemplate;
 
 import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
+@EnableConfigurationProperties({AdmissionProperties.class, ArtemisClientProperties.class, LaneProperties.class,
+        RetryProperties.class, ShardingProperties.class, WireFormatProperties.class})
 public class ArtemisJmsConfig {
 
     private final ArtemisProperties artemisProperties;
+    private final ArtemisClientProperties clientProperties;
+    private final Environment environment;
 
-    public ArtemisJmsConfig(ArtemisProperties artemisProperties) {
+    public ArtemisJmsConfig(ArtemisProperties artemisProperties, ArtemisClientProperties clientProperties,
+                            Environment environment) {
         this.artemisProperties = artemisProperties;
+        this.clientProperties = clientProperties;
+        this.environment = environment;
     }
 
     @Primary
     @Bean(name = "artemisConnectionFactory")
-    public ConnectionFactory artemisConnectionFactory() {
+    public ConnectionFactory artemisConnectionFactory(ObjectProvider<MeterRegistry> meterRegistry,
+                                                      ObjectProvider<EmbeddedArtemisBroker> embeddedBroker) {
+        ArtemisProperties.BrokerConfig broker = artemisProperties.getBroker();
+        return ArtemisConnectionFactories.createPooled(
+                "artemis",
+                brokerUrl(embeddedBroker),
+                broker.getUser(),
+                broker.getPassword(),
+                clientProperties,
+                meterRegistry.getIfAvailable()
+        );
+    }
+
+    /**
+     * Pool for {@code artemisListenerContainerFactory}, without the consumer caching of
+     * {@code artemisConnectionFactory}; it only connects once a container starts.
+     */
+    @Bean(name = "artemisListenerConnectionFactory")
+    public ConnectionFactory artemisListenerConnectionFactory(ObjectProvider<MeterRegistry> meterRegistry,
+                                                              ObjectProvider<EmbeddedArtemisBroker> embeddedBroker) {
         ArtemisProperties.BrokerConfig broker = artemisProperties.getBroker();
-        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(
-                broker.getUrl(),
+        return ArtemisConnectionFactories.createListenerPool(
+                "artemis-listener",
+                brokerUrl(embeddedBroker),
                 broker.getUser(),
-                broker.getPassword()
+                broker.getPassword(),
+                clientProperties,
+                meterRegistry.getIfAvailable()
         );
-        return new CachingConnectionFactory(factory);
+    }
+
+    @Bean(name = "artemisMessageConverter")
+    public WireMessageConverter artemisMessageConverter(WireFormatProperties wireFormatProperties) {
+        return new WireMessageConverter(wireFormatProperties);
     }
 
     @Primary
     @Bean(name = "artemisJmsTemplate")
-    public JmsTemplate artemisJmsTemplate(@Qualifier("artemisConnectionFactory") ConnectionFactory connectionFactory) {
-        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
-        jmsTemplate.setDeliveryPersistent(true);
-        jmsTemplate.setSessionTransacted(true);
-        return jmsTemplate;
+    public JmsTemplate artemisJmsTemplate(@Qualifier("artemisConnectionFactory") ConnectionFactory connectionFactory,
+                                          @Qualifier("artemisMessageConverter") WireMessageConverter messageConverter) {
+        return jmsTemplate(connectionFactory, messageConverter);
+    }
+
+    /**
+     * Sends sharded across the {@code artemis.listener} brokers, each through its own pool and a
+     * template set up like {@code artemisJmsTemplate}.
+     */
+    @Bean(name = "brokerShards")
+    @ConditionalOnProperty(prefix = "artemis.sharding", name = "enabled", havingValue = "true")
+    public BrokerShards brokerShards(ShardingProperties shardingProperties,
+                                     @Qualifier("artemisMessageConverter") WireMessageConverter messageConverter,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        List<ArtemisProperties.ListenerConfig> brokers = artemisProperties.getListener();
+        if (brokers == null || brokers.isEmpty()) {
+            throw new IllegalStateException("artemis.sharding.enabled needs one artemis.listener entry per broker");
+        }
+        List<BrokerShards.Shard> shards = new ArrayList<>();
+        for (ArtemisProperties.ListenerConfig broker : brokers) {
+            ConnectionFactory connectionFactory = ArtemisConnectionFactories.createPooled(
+                    "artemis-" + broker.getName(),
+                    broker.getBrokerUrl(),
+                    broker.getUsername(),
+                    broker.getPassword(),
+                    clientProperties,
+                    meterRegistry.getIfAvailable()
+            );
+            shards.add(new BrokerShards.Shard(broker.getName(), broker.getWeight(),
+                    jmsTemplate(connectionFactory, messageConverter)));
+        }
+        return new BrokerShards(shards, shardingProperties, meterRegistry.getIfAvailable());
     }
 
     @Bean(name = "artemisListenerContainerFactory")
     public DefaultJmsListenerContainerFactory artemisListenerContainerFactory(
-            @Qualifier("artemisConnectionFactory") ConnectionFactory connectionFactory) {
+            @Qualifier("artemisListenerConnectionFactory") ConnectionFactory connectionFactory,
+            @Qualifier("artemisMessageConverter") WireMessageConverter messageConverter) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
         
         if (artemisProperties.getListener() != null && !artemisProperties.getListener().isEmpty()) {
             ArtemisProperties.ListenerConfig listenerConfig = artemisProperties.getListener().get(0);
@@ -53,6 +140,75 @@ public class ArtemisJmsConfig {
         }
         
         factory.setSessionTransacted(true);
+        VirtualThreads.apply(factory, environment, "artemis-listener-");
         return factory;
     }
+
+    /**
+     * Dead-letters WebLogic messages that fail with a non-retryable error or on their last delivery.
+     * WebLogic has no scheduled delivery, so the retries in between are its own redeliveries.
+     */
+    @Bean(name = "retryScheduler")
+    @ConditionalOnProperty(prefix = "artemis.retry", name = "enabled", havingValue = "true")
+    public RetryScheduler retryScheduler(RetryProperties retryProperties, ObjectProvider<MeterRegistry> meterRegistry,
+                                         @Value("${weblogic.queue.input:weblogic.input.queue}") String inputQueue) {
+        return new RetryScheduler(inputQueue, retryProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean(name = "pinningGuard")
+    public PinningGuard pinningGuard(@Value("${artemis.virtual-threads.max-pinned-sends:0}") int maxPinnedSends) {
+        return PinningGuard.forEnvironment(environment, maxPinnedSends);
+    }
+
+    @Bean(name = "laneRouter")
+    @ConditionalOnProperty(prefix = "artemis.lanes", name = "enabled", havingValue = "true")
+    public LaneRouter laneRouter(LaneProperties laneProperties) {
+        return new LaneRouter(laneProperties);
+    }
+
+    @Bean(name = "admissionLimiter")
+    @ConditionalOnProperty(prefix = "artemis.admission", name = "enabled", havingValue = "true")
+    public AdmissionLimiter admissionLimiter(AdmissionProperties admissionProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new AdmissionLimiter(admissionProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean(name = "asyncMessageSender")
+    @ConditionalOnProperty(prefix = "artemis.async", name = "enabled", havingValue = "true")
+    public AsyncMessageSender asyncMessageSender(@Qualifier("artemisMessageConverter") WireMessageConverter messageConverter,
+                                                 ObjectProvider<EmbeddedArtemisBroker> embeddedBroker)
+            throws JMSException {
+        ArtemisProperties.BrokerConfig broker = artemisProperties.getBroker();
+        ArtemisProperties.AsyncConfig async = artemisProperties.getAsync();
+        ActiveMQConnectionFactory factory = ArtemisConnectionFactories.create(
+                brokerUrl(embeddedBroker),
+                broker.getUser(),
+                broker.getPassword(),
+                clientProperties
+        );
+        // A positive confirmation window is what lets Artemis complete CompletionListener sends
+        factory.setConfirmationWindowSize(async.getConfirmationWindowSize());
+        AsyncMessageSender sender = new AsyncMessageSender(factory, async.getSessions(), async.getMaxInFlight(),
+                async.getWindowTimeoutMs(), async.getMaxRetries(), async.getRetryBackoffMs(),
+                async.getTrackingRetentionMs());
+        sender.setMessageConverter(messageConverter);
+        return sender;
+    }
+
+    private static JmsTemplate jmsTemplate(ConnectionFactory connectionFactory, WireMessageConverter messageConverter) {
+        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setDeliveryPersistent(true);
+        jmsTemplate.setSessionTransacted(true);
+        jmsTemplate.setMessageConverter(messageConverter);
+        return jmsTemplate;
+    }
+
+    /**
+     * The embedded broker's in-VM URL when {@code artemis.broker.embedded} is set (starting it on
+     * first use), otherwise {@code artemis.broker.url}.
+     */
+    private String brokerUrl(ObjectProvider<EmbeddedArtemisBroker> embeddedBroker) {
+        EmbeddedArtemisBroker broker = embeddedBroker.getIfAvailable();
+        return broker != null ? broker.getUrl() : artemisProperties.getBroker().getUrl();
+    }
 }
@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -13,15 +14,24 @@ public class ArtemisProperties {
     
     private BrokerConfig broker;
     private List<ListenerConfig> listener;
+    private BulkConfig bulk = new BulkConfig();
+    private AsyncConfig async = new AsyncConfig();
+    private FanoutConfig fanout = new FanoutConfig();
+    private StoreAndForwardConfig storeAndForward = new StoreAndForwardConfig();
+    private EmbeddedConfig embedded = new EmbeddedConfig();
     
     @Data
     public static class BrokerConfig {
         private String url;
         private String user;
         private String password;
+        /** Run an Artemis server in this JVM (see {@link EmbeddedConfig}) and connect to it in-VM. */
         private boolean embedded;
     }
     
+    /**
+     * A broker; with {@code artemis.sharding.enabled} sends are sharded across all of them.
+     */
     @Data
     public static class ListenerConfig {
         private String name;
@@ -29,5 +39,86 @@ public class ArtemisProperties {
         private String username;
         private String password;
         private int concurrentConsumers;
+        /** Relative share of the keys and of unkeyed traffic when sharded. */
+        private int weight = 1;
+    }
+
+    @Data
+    public static class BulkConfig {
+        private int transactionBatchSize = 100;
+    }
+
+    /**
+     * Asynchronous sends acknowledged through the Artemis confirmation window.
+     */
+    @Data
+    public static class AsyncConfig {
+        private boolean enabled = false;
+        private int confirmationWindowSize = 1024 * 1024;
+        private int sessions = 4;
+        private int maxInFlight = 10000;
+        private long windowTimeoutMs = 5000;
+        private int maxRetries = 3;
+        private long retryBackoffMs = 100;
+        private long trackingRetentionMs = 300000;
+    }
+
+    /**
+     * Broker-side fan-out: one publish to a multicast address whose diverts copy the message to
+     * each destination queue.
+     */
+    @Data
+    public static class FanoutConfig {
+        private boolean enabled = false;
+        private String address = "component1.fanout";
+        private List<String> destinations = new ArrayList<>(List.of("component2.queue", "component4.queue"));
+        /** Create the address and diverts through the management API when the broker lacks them. */
+        private boolean provision = true;
+        private long managementTimeoutMs = 5000;
+        /** Wait before checking the broker again after the address or its diverts were missing. */
+        private long retryIntervalMs = 30000;
+    }
+
+    /**
+     * Local journal that takes sends while the broker is down or slow, replayed in order once it
+     * recovers.
+     */
+    @Data
+    public static class StoreAndForwardConfig {
+        private boolean enabled = false;
+        private String directory = "data/store-and-forward";
+        /** Size of each memory-mapped segment file; a message must fit in one. */
+        private int segmentSizeBytes = 64 * 1024 * 1024;
+        /** Sends fail as before once this many bytes await replay. */
+        private long maxBacklogBytes = 1024L * 1024 * 1024;
+        /** Also store while a broker send takes longer than this; 0 = only when sends fail. */
+        private long slowSendMs = 2000;
+        /** Force every append to disk: survives power loss, not only process crashes, at a cost. */
+        private boolean fsync = false;
+        private int replayBatchSize = 100;
+        private long retryBackoffMs = 1000;
+    }
+
+    /**
+     * In-JVM broker started when {@code artemis.broker.embedded} is set. Components in the same JVM
+     * reach it through {@code vm://<server-id>}; {@code artemis.broker.url} is then the remote
+     * cluster that core bridges forward the {@code bridged-queues} to.
+     */
+    @Data
+    public static class EmbeddedConfig {
+        private int serverId = 0;
+        /** Extra acceptor for clients outside the JVM, e.g. tcp://127.0.0.1:61617; empty = in-VM only. */
+        private String acceptorUrl = "";
+        private boolean persistent = true;
+        private String dataDirectory = "data/embedded-broker";
+        /** NIO or ASYNCIO (needs libaio); the rest mirrors artemis-config/broker.xml. */
+        private String journalType = "NIO";
+        private boolean journalDatasync = true;
+        private int journalFileSize = 10 * 1024 * 1024;
+        private int journalMinFiles = 2;
+        private int journalBufferTimeoutNs = 0;
+        /** Local queues drained to the same-named queues of the remote cluster. */
+        private List<String> bridgedQueues = new ArrayList<>();
+        private long bridgeRetryIntervalMs = 1000;
     }
 }
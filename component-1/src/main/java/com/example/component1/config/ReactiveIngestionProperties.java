@@ -0,0 +1,25 @@
+package com.example.component1.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Non-blocking ingestion server ({@code reactive-ingestion.*}): WebFlux on Reactor Netty, on its own
+ * port next to the Spring MVC endpoints, publishing through the asynchronous Artemis sender.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "reactive-ingestion")
+public class ReactiveIngestionProperties {
+
+    private boolean enabled = false;
+    private String host = "0.0.0.0";
+    private int port = 8091;
+    /** Netty event loop threads; 0 = one per core. */
+    private int eventLoopThreads = 0;
+    /** Largest single message accepted, and longest NDJSON line. */
+    private int maxMessageBytes = 1024 * 1024;
+    /** Unacknowledged sends per bulk request; reading the request body pauses at this many. */
+    private int bulkConcurrency = 256;
+}
@@ -0,0 +1,19 @@
+package com.example.component1.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-based routing of incoming messages ({@code routing.*}); the rules themselves live in
+ * {@code rulesFile} so they can be changed without a restart.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "routing")
+public class RoutingProperties {
+
+    private boolean enabled = false;
+    private String rulesFile = "routing-rules.yml";
+    private long reloadIntervalMs = 5000;
+}
@@ -1,9 +1,11 @@
 package com.example.component1.config;
 
+import com.example.artemis.common.VirtualThreads;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.core.JmsTemplate;
@@ -19,9 +21,11 @@ import java.util.Properties;
 public class WebLogicJmsConfig {
 
     private final WebLogicProperties webLogicProperties;
+    private final Environment environment;
 
-    public WebLogicJmsConfig(WebLogicProperties webLogicProperties) {
+    public WebLogicJmsConfig(WebLogicProperties webLogicProperties, Environment environment) {
         this.webLogicProperties = webLogicProperties;
+        this.environment = environment;
     }
 
     @Bean(name = "weblogicConnectionFactory")
@@ -53,8 +57,11 @@ public class WebLogicJmsConfig {
             @Qualifier("weblogicConnectionFactory") ConnectionFactory connectionFactory) {
         DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setConcurrency("3-10");
+        factory.setConcurrency(webLogicProperties.getJms().getConcurrency());
         factory.setSessionTransacted(true);
+        // The batched bridge drains the input queue itself; keep the per-message listener idle
+        factory.setAutoStartup(!webLogicProperties.getBridge().isEnabled());
+        VirtualThreads.apply(factory, environment, "weblogic-listener-");
         return factory;
     }
 }
@@ -4,12 +4,17 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Component
 @ConfigurationProperties(prefix = "weblogic")
 public class WebLogicProperties {
     
     private JmsConfig jms;
+    private QueueConfig queue = new QueueConfig();
+    private BridgeConfig bridge = new BridgeConfig();
     
     @Data
     public static class JmsConfig {
@@ -18,5 +23,28 @@ public class WebLogicProperties {
         private String password;
         private String initialContextFactory;
         private String connectionFactory;
+        private String concurrency = "3-10";
+    }
+
+    @Data
+    public static class QueueConfig {
+        private String input = "weblogic.input.queue";
+    }
+
+    /**
+     * Batched bridge mode: drains up to {@code batchSize} WebLogic messages (or waits at most
+     * {@code lingerMs}) per transaction and forwards the whole fan-out in one Artemis commit.
+     */
+    @Data
+    public static class BridgeConfig {
+        private boolean enabled = false;
+        private int batchSize = 100;
+        private long lingerMs = 50;
+        private long receiveTimeoutMs = 1000;
+        private int consumers = 3;
+        private List<String> destinations = new ArrayList<>(List.of("component2.queue", "component4.queue"));
+        /** WebLogic queue that takes messages the bridge cannot forward (not text), in the batch's transaction. */
+        private String errorQueue = "weblogic.error.queue";
+        private long statsIntervalMs = 10000;
     }
 }
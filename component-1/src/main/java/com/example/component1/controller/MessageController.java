@@ -1,14 +1,27 @@
 package com.example.component1.controller;
 
+import com.example.artemis.common.AdmissionLimiter;
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyTracing;
+import com.example.component1.routing.ContentRouter;
+import com.example.component1.service.BulkIngestionResult;
+import com.example.component1.service.BulkIngestionService;
 import com.example.component1.service.MessageForwardingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,24 +30,103 @@ public class MessageController {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String DEFAULT_QUEUE = "component2.queue";
+    /** Optional ordering key: sent as JMSXGroupID and, when sends are sharded, picks the broker. */
+    private static final String MESSAGE_KEY_HEADER = "X-Message-Key";
+
     private final MessageForwardingService forwardingService;
+    private final BulkIngestionService bulkIngestionService;
+    private final ContentRouter contentRouter;
+    private final AdmissionLimiter admissionLimiter;
+    private final LaneRouter laneRouter;
 
-    public MessageController(MessageForwardingService forwardingService) {
+    public MessageController(MessageForwardingService forwardingService, BulkIngestionService bulkIngestionService,
+                             ObjectProvider<ContentRouter> contentRouter, ObjectProvider<AdmissionLimiter> admissionLimiter,
+                             ObjectProvider<LaneRouter> laneRouter) {
         this.forwardingService = forwardingService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.contentRouter = contentRouter.getIfAvailable();
+        this.admissionLimiter = admissionLimiter.getIfAvailable();
+        this.laneRouter = laneRouter.getIfAvailable();
     }
 
+    /**
+     * Send one message. Without a {@code queue} parameter the destinations are chosen by the
+     * content-based routing rules (which see the request headers), or default to component2.queue.
+     * Messages with the same {@code X-Message-Key} header stay in order on one broker. With priority
+     * lanes enabled, an {@code X-Lane} header picks the lane queue of destinations split into lanes.
+     */
     @PostMapping(value = "/send", consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE, MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
     public ResponseEntity<Map<String, Object>> sendMessage(
-            @RequestParam(name = "queue", defaultValue = "component2.queue") String queueName,
+            @RequestParam(name = "queue", required = false) String queue,
+            @RequestParam(name = "async", defaultValue = "false") boolean async,
+            @RequestHeader HttpHeaders headers,
             @RequestBody String message) {
-        
+        long receivedAt = LatencyTracing.now();
+
+        List<String> destinations = queue != null ? List.of(queue)
+                : contentRouter != null ? contentRouter.route(message, headers::getFirst, List.of(DEFAULT_QUEUE))
+                : List.of(DEFAULT_QUEUE);
+        if (laneRouter != null) {
+            destinations = laneRouter.destinations(destinations, headers.getFirst(LaneRouter.REQUEST_HEADER), null);
+        }
+        String queueName = String.join(",", destinations);
+
         logger.info("Received REST request to send message to queue: {}", queueName);
         logger.info("Message payload: {}", message);
         
         Map<String, Object> response = new HashMap<>();
-        
+
+        if (async && !forwardingService.isAsyncEnabled()) {
+            response.put("status", "error");
+            response.put("message", "Async send mode is not enabled");
+            response.put("queue", queueName);
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<AdmissionLimiter.Permit> permits = admit(destinations, headers, null);
+        if (permits == null) {
+            return tooManyRequests(response, queueName);
+        }
+        boolean measured = false;
         try {
-            forwardingService.sendToArtemis(queueName, message);
+            if (async) {
+                List<String> trackingIds = new ArrayList<>();
+                for (String destination : destinations) {
+                    trackingIds.add(forwardingService.sendToArtemisAsync(destination, message));
+                }
+
+                response.put("status", "accepted");
+                response.put("message", "Message accepted for asynchronous delivery");
+                response.put("queue", queueName);
+                if (trackingIds.size() == 1) {
+                    response.put("trackingId", trackingIds.get(0));
+                } else {
+                    response.put("trackingIds", trackingIds);
+                }
+                response.put("timestamp", System.currentTimeMillis());
+
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/messages/status/" + String.join(",", trackingIds)))
+                        .body(response);
+            }
+
+            boolean delivered = true;
+            for (String destination : destinations) {
+                delivered &= forwardingService.sendToArtemis(destination, message, receivedAt,
+                        headers.getFirst(MESSAGE_KEY_HEADER));
+            }
+            measured = true;
+
+            if (!delivered) {
+                response.put("status", "stored");
+                response.put("message", "Artemis is unavailable; message stored locally and will be delivered when it recovers");
+                response.put("queue", queueName);
+                response.put("timestamp", System.currentTimeMillis());
+                return ResponseEntity.accepted().body(response);
+            }
             
             response.put("status", "success");
             response.put("message", "Message sent successfully");
@@ -51,9 +143,210 @@ public class MessageController {
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            release(permits, measured);
+        }
+    }
+
+    /**
+     * Streaming send for large payloads: the request body is piped into an Artemis large message
+     * without being buffered, so heap use does not grow with the payload size. Any content type is
+     * accepted and delivered as a BytesMessage.
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<Map<String, Object>> streamMessage(
+            @RequestParam(name = "queue", defaultValue = "component2.queue") String queueName,
+            @RequestHeader HttpHeaders headers,
+            InputStream body) {
+        long receivedAt = LatencyTracing.now();
+
+        logger.info("Received streaming REST request for queue: {}", queueName);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("queue", queueName);
+
+        // Counted against the limit but not sampled: a streamed body takes as long as the upload
+        List<AdmissionLimiter.Permit> permits = admit(List.of(queueName), headers, null);
+        if (permits == null) {
+            return tooManyRequests(response, queueName);
+        }
+        try {
+            long bytes = forwardingService.streamToArtemis(queueName, body, receivedAt);
+
+            response.put("status", "success");
+            response.put("message", "Message streamed successfully");
+            response.put("bytes", bytes);
+            response.put("timestamp", System.currentTimeMillis());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error streaming message: {}", e.getMessage(), e);
+
+            response.put("status", "error");
+            response.put("message", "Failed to stream message: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            release(permits, false);
+        }
+    }
+
+    /**
+     * Status of an async send, or of several given as comma-separated tracking IDs (the
+     * {@code Location} of a multi-destination send): pending while any is pending, failed when any
+     * failed, with each send's own status under {@code sends}.
+     */
+    @GetMapping("/status/{trackingIds}")
+    public ResponseEntity<Map<String, Object>> sendStatus(@PathVariable String trackingIds) {
+        String[] ids = trackingIds.split(",");
+        if (ids.length == 1) {
+            Map<String, Object> response = trackingStatus(ids[0]);
+            return response.get("status").equals("unknown")
+                    ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(response)
+                    : ResponseEntity.ok(response);
+        }
+
+        List<Map<String, Object>> sends = new ArrayList<>();
+        for (String id : ids) {
+            sends.add(trackingStatus(id));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("trackingIds", List.of(ids));
+        response.put("status", overallStatus(sends));
+        response.put("sends", sends);
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> trackingStatus(String trackingId) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("trackingId", trackingId);
+
+        AsyncMessageSender.SendTracking tracking = forwardingService.getAsyncSendStatus(trackingId);
+        if (tracking == null) {
+            response.put("status", "unknown");
+            response.put("message", "No pending or recently completed async send with this tracking ID");
+            return response;
+        }
+
+        response.put("status", tracking.getStatus().name().toLowerCase());
+        response.put("queue", tracking.getDestination());
+        response.put("attempts", tracking.getAttempts());
+        response.put("submittedAt", tracking.getSubmittedAt());
+        if (tracking.getCompletedAt() > 0) {
+            response.put("completedAt", tracking.getCompletedAt());
+        }
+        if (tracking.getError() != null) {
+            response.put("error", tracking.getError());
+        }
+        return response;
+    }
+
+    private static String overallStatus(List<Map<String, Object>> sends) {
+        for (String status : List.of("failed", "unknown", "pending")) {
+            if (sends.stream().anyMatch(send -> send.get("status").equals(status))) {
+                return status;
+            }
+        }
+        return "acknowledged";
+    }
+
+    /**
+     * Bulk ingestion: accepts an NDJSON stream (one document per line) or a multi-document XML
+     * stream (children of a wrapper root element), parsed incrementally and published in
+     * transaction batches. The response lists the index and error of every failed item.
+     */
+    @PostMapping(value = "/bulk", consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE})
+    public ResponseEntity<Map<String, Object>> sendBulk(
+            @RequestParam(name = "queue", defaultValue = "component2.queue") String queueName,
+            @RequestParam(name = "batchSize", required = false) Integer batchSize,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader HttpHeaders headers,
+            InputStream body) {
+
+        logger.info("Received bulk REST request for queue: {} ({})", queueName, contentType);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("queue", queueName);
+
+        // Bulk requests default to the bulk priority class and, like streams, are not sampled
+        List<AdmissionLimiter.Permit> permits = admit(List.of(queueName), headers, "bulk");
+        if (permits == null) {
+            return tooManyRequests(response, queueName);
+        }
+        try {
+            BulkIngestionResult result = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                    ? bulkIngestionService.ingestNdjson(queueName, body, batchSize)
+                    : bulkIngestionService.ingestXml(queueName, body, batchSize);
+
+            response.put("status", result.getFailed() == 0 ? "success" : "partial");
+            response.put("total", result.getTotal());
+            response.put("succeeded", result.getSucceeded());
+            response.put("failed", result.getFailed());
+            response.put("batches", result.getBatches());
+            response.put("failures", result.getFailures());
+            response.put("timestamp", System.currentTimeMillis());
+
+            return result.getFailed() == 0
+                    ? ResponseEntity.ok(response)
+                    : ResponseEntity.status(HttpStatus.MULTI_STATUS).body(response);
+        } catch (Exception e) {
+            logger.error("Error processing bulk request: {}", e.getMessage(), e);
+
+            response.put("status", "error");
+            response.put("message", "Failed to process bulk request: " + e.getMessage());
+            response.put("timestamp", System.currentTimeMillis());
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            release(permits, false);
         }
     }
 
+    /**
+     * Admit a request sending to {@code destinations}, one permit per destination, with the
+     * priority class from the priority header (or {@code defaultPriority}).
+     *
+     * @return the permits to release when done (empty without admission control), or {@code null}
+     * when a destination is at its limit
+     */
+    private List<AdmissionLimiter.Permit> admit(List<String> destinations, HttpHeaders headers, String defaultPriority) {
+        if (admissionLimiter == null) {
+            return List.of();
+        }
+        String priority = headers.getFirst(admissionLimiter.getPriorityHeader());
+        if (priority == null) {
+            priority = defaultPriority;
+        }
+        List<AdmissionLimiter.Permit> permits = new ArrayList<>(destinations.size());
+        for (String destination : destinations) {
+            AdmissionLimiter.Permit permit = admissionLimiter.tryAcquire(destination, priority);
+            if (permit == null) {
+                release(permits, false);
+                return null;
+            }
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    private static void release(List<AdmissionLimiter.Permit> permits, boolean measured) {
+        for (AdmissionLimiter.Permit permit : permits) {
+            permit.release(measured);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> tooManyRequests(Map<String, Object> response, String queueName) {
+        logger.warn("Rejecting request for queue {}: concurrent send limit reached", queueName);
+        response.put("status", "rejected");
+        response.put("message", "Too many concurrent requests for " + queueName + ", retry later");
+        response.put("queue", queueName);
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionLimiter.getRetryAfterSeconds()))
+                .body(response);
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         Map<String, String> response = new HashMap<>();
@@ -0,0 +1,288 @@
+package com.example.component1.listener;
+
+import com.example.component1.config.WebLogicProperties;
+import com.example.component1.routing.ContentRouter;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LaneRouter;
+import com.example.component1.service.MessageForwardingService;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.SimpleJmsHeaderMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batched WebLogic to Artemis bridge. Each worker drains up to {@code weblogic.bridge.batch-size}
+ * messages (or waits at most {@code weblogic.bridge.linger-ms}) from a transacted WebLogic session,
+ * forwards the whole fan-out batch in one Artemis transaction and commits WebLogic only after
+ * Artemis has committed. Replays after a crash between the two commits are dropped by the broker's
+ * duplicate detection, and the batch is committed in WebLogic once the rest of it is through.
+ * <p>
+ * A message the bridge cannot forward (anything but a text message) is moved to
+ * {@code weblogic.bridge.error-queue} in the same WebLogic transaction instead of rolling the
+ * batch back, so it cannot block the queue.
+ * <p>
+ * With content-based routing enabled ({@link ContentRouter}) each message goes to the destinations
+ * its rules select instead of {@code weblogic.bridge.destinations}, still in one transaction per batch.
+ * With priority lanes enabled ({@link LaneRouter}) each message goes to the lane queue picked by its
+ * lane property or JMS priority, as in {@link WebLogicMessageListener}.
+ */
+@Component
+// The WebLogic connection factory only exists with weblogic.jms.url (WebLogicJmsConfig)
+@ConditionalOnExpression("${weblogic.bridge.enabled:false} and '${weblogic.jms.url:}' != ''")
+public class WebLogicBatchBridge implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebLogicBatchBridge.class);
+
+    private final ConnectionFactory weblogicConnectionFactory;
+    private final MessageForwardingService forwardingService;
+    private final WebLogicProperties webLogicProperties;
+    private final ContentRouter contentRouter;
+    private final LaneRouter laneRouter;
+    private final SimpleJmsHeaderMapper headerMapper = new SimpleJmsHeaderMapper();
+
+    private final AtomicLong messagesBridged = new AtomicLong();
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong batchesFailed = new AtomicLong();
+    private final AtomicLong messagesRejected = new AtomicLong();
+
+    private volatile boolean running;
+    private Connection connection;
+    private Thread[] workers;
+
+    public WebLogicBatchBridge(@Qualifier("weblogicConnectionFactory") ConnectionFactory weblogicConnectionFactory,
+                               MessageForwardingService forwardingService,
+                               WebLogicProperties webLogicProperties,
+                               ObjectProvider<ContentRouter> contentRouter,
+                               ObjectProvider<LaneRouter> laneRouter) {
+        this.weblogicConnectionFactory = weblogicConnectionFactory;
+        this.forwardingService = forwardingService;
+        this.webLogicProperties = webLogicProperties;
+        this.contentRouter = contentRouter.getIfAvailable();
+        this.laneRouter = laneRouter.getIfAvailable();
+    }
+
+    @Override
+    public synchronized void start() {
+        WebLogicProperties.BridgeConfig bridge = webLogicProperties.getBridge();
+        logger.info("Starting WebLogic batch bridge: queue={}, batchSize={}, lingerMs={}, consumers={}, destinations={}",
+                webLogicProperties.getQueue().getInput(), bridge.getBatchSize(), bridge.getLingerMs(),
+                bridge.getConsumers(), bridge.getDestinations());
+        try {
+            connection = weblogicConnectionFactory.createConnection();
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to open WebLogic connection for batch bridge", e);
+        }
+
+        running = true;
+        workers = new Thread[bridge.getConsumers()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::drainLoop, "weblogic-bridge-" + i);
+            workers[i].start();
+        }
+        Thread stats = new Thread(this::statsLoop, "weblogic-bridge-stats");
+        stats.setDaemon(true);
+        stats.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (workers != null) {
+            for (Thread worker : workers) {
+                try {
+                    worker.join(webLogicProperties.getBridge().getReceiveTimeoutMs() * 2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        JmsUtils.closeConnection(connection, true);
+        logger.info("WebLogic batch bridge stopped: {} message(s) in {} batch(es), {} failed batch(es), {} rejected message(s)",
+                messagesBridged.get(), batchesCommitted.get(), batchesFailed.get(), messagesRejected.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getMessagesBridged() {
+        return messagesBridged.get();
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public long getBatchesFailed() {
+        return batchesFailed.get();
+    }
+
+    public long getMessagesRejected() {
+        return messagesRejected.get();
+    }
+
+    private void drainLoop() {
+        WebLogicProperties.BridgeConfig bridge = webLogicProperties.getBridge();
+        Session session = null;
+        MessageConsumer consumer = null;
+        while (running) {
+            try {
+                if (session == null) {
+                    session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                    consumer = session.createConsumer(session.createQueue(webLogicProperties.getQueue().getInput()));
+                }
+                drainBatch(session, consumer, bridge);
+            } catch (Exception e) {
+                logger.error("Error in WebLogic batch bridge: {}", e.getMessage(), e);
+                JmsUtils.closeMessageConsumer(consumer);
+                JmsUtils.closeSession(session);
+                consumer = null;
+                session = null;
+                sleepQuietly(bridge.getReceiveTimeoutMs());
+            }
+        }
+        JmsUtils.closeMessageConsumer(consumer);
+        JmsUtils.closeSession(session);
+    }
+
+    private void drainBatch(Session session, MessageConsumer consumer, WebLogicProperties.BridgeConfig bridge)
+            throws JMSException {
+        Message first = consumer.receive(bridge.getReceiveTimeoutMs());
+        if (first == null) {
+            return;
+        }
+
+        Map<String, String> batch = new LinkedHashMap<>();
+        // Routed per message when its destinations depend on its content or lane
+        Map<String, Map<String, String>> routedBatch = contentRouter != null || laneRouter != null
+                ? new LinkedHashMap<>() : null;
+        List<Message> rejected = new ArrayList<>();
+        addToBatch(batch, routedBatch, rejected, first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(bridge.getLingerMs());
+        while (batch.size() + rejected.size() < bridge.getBatchSize()) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            Message next = remainingMs > 0 ? consumer.receive(remainingMs) : consumer.receiveNoWait();
+            if (next == null) {
+                break;
+            }
+            addToBatch(batch, routedBatch, rejected, next);
+        }
+
+        try {
+            moveToErrorQueue(session, rejected);
+            if (!batch.isEmpty()) {
+                if (routedBatch != null) {
+                    forwardingService.forwardRoutedBatchToArtemis(routedBatch);
+                } else {
+                    forwardingService.forwardBatchToArtemis(bridge.getDestinations(), batch);
+                }
+            }
+        } catch (Exception e) {
+            if (!DuplicateIds.isDuplicateRejection(e)) {
+                batchesFailed.incrementAndGet();
+                logger.error("Rolling back WebLogic batch of {} message(s): {}", batch.size(), e.getMessage());
+                session.rollback();
+                return;
+            }
+            // Artemis already has these copies: redelivering the batch would be rejected the same way
+            logger.info("WebLogic batch of {} message(s) is already on Artemis, committing", batch.size());
+        }
+
+        session.commit();
+        messagesBridged.addAndGet(batch.size());
+        messagesRejected.addAndGet(rejected.size());
+        batchesCommitted.incrementAndGet();
+        logger.debug("Bridged WebLogic batch of {} message(s)", batch.size());
+    }
+
+    private void addToBatch(Map<String, String> batch, Map<String, Map<String, String>> routedBatch, List<Message> rejected,
+                            Message message) throws JMSException {
+        if (!(message instanceof TextMessage textMessage)) {
+            logger.warn("Unsupported WebLogic message type {} for message {}, moving it to {}", message.getClass().getName(),
+                    message.getJMSMessageID(), webLogicProperties.getBridge().getErrorQueue());
+            rejected.add(message);
+            return;
+        }
+        String messageId = message.getJMSMessageID();
+        String text = textMessage.getText();
+        batch.put(messageId, text);
+        if (routedBatch != null) {
+            Map<String, Object> headers = headerMapper.toHeaders(message);
+            List<String> destinations = webLogicProperties.getBridge().getDestinations();
+            if (contentRouter != null) {
+                destinations = contentRouter.route(text, headers::get, destinations);
+            }
+            if (laneRouter != null) {
+                // Lane from the WebLogic message's lane property, else its JMS priority
+                Object lane = headers.get(laneRouter.getHeader());
+                destinations = laneRouter.destinations(destinations, lane != null ? lane.toString() : null,
+                        message.getJMSPriority());
+            }
+            for (String destination : forwardingService.fanOutTargets(destinations)) {
+                routedBatch.computeIfAbsent(destination, name -> new LinkedHashMap<>()).put(messageId, text);
+            }
+        }
+    }
+
+    /**
+     * Send messages the bridge cannot forward to the error queue, committed or rolled back with the batch.
+     */
+    private void moveToErrorQueue(Session session, List<Message> rejected) throws JMSException {
+        if (rejected.isEmpty()) {
+            return;
+        }
+        MessageProducer producer = session.createProducer(session.createQueue(webLogicProperties.getBridge().getErrorQueue()));
+        try {
+            for (Message message : rejected) {
+                producer.send(message);
+            }
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+    }
+
+    private void statsLoop() {
+        long intervalMs = webLogicProperties.getBridge().getStatsIntervalMs();
+        if (intervalMs <= 0) {
+            return;
+        }
+        long lastMessages = 0;
+        while (running) {
+            sleepQuietly(intervalMs);
+            long messages = messagesBridged.get();
+            logger.info("WebLogic bridge throughput: {} msg/s ({} total, {} batches, {} failed)",
+                    (messages - lastMessages) * 1000 / intervalMs, messages, batchesCommitted.get(), batchesFailed.get());
+            lastMessages = messages;
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
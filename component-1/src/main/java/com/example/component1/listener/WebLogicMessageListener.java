@@ -1,45 +1,113 @@
 package com.example.component1.listener;
 
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.RetryScheduler;
+import com.example.component1.routing.ContentRouter;
 import com.example.component1.service.MessageForwardingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.jms.Message;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsHeaders;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 @ConditionalOnProperty(prefix = "weblogic.jms", name = "url", matchIfMissing = false)
 public class WebLogicMessageListener {
 
     private static final Logger logger = LoggerFactory.getLogger(WebLogicMessageListener.class);
 
+    /** Fan-out when content-based routing is disabled. */
+    static final List<String> DEFAULT_DESTINATIONS = List.of("component2.queue", "component4.queue");
+
     private final MessageForwardingService forwardingService;
+    private final ContentRouter contentRouter;
+    private final RetryScheduler retryScheduler;
+    private final JmsTemplate artemisJmsTemplate;
+    private final LaneRouter laneRouter;
 
-    public WebLogicMessageListener(MessageForwardingService forwardingService) {
+    public WebLogicMessageListener(MessageForwardingService forwardingService, ObjectProvider<ContentRouter> contentRouter,
+                                   ObjectProvider<RetryScheduler> retryScheduler,
+                                   @Qualifier("artemisJmsTemplate") JmsTemplate artemisJmsTemplate,
+                                   ObjectProvider<LaneRouter> laneRouter) {
         this.forwardingService = forwardingService;
+        this.contentRouter = contentRouter.getIfAvailable();
+        this.retryScheduler = retryScheduler.getIfAvailable();
+        this.artemisJmsTemplate = artemisJmsTemplate;
+        this.laneRouter = laneRouter.getIfAvailable();
     }
 
     @JmsListener(destination = "${weblogic.queue.input:weblogic.input.queue}", 
                  containerFactory = "weblogicListenerContainerFactory")
-    public void receiveMessage(String message) {
+    public void receiveMessage(String message, @Header(name = JmsHeaders.MESSAGE_ID, required = false) String messageId,
+                               @Headers Map<String, Object> headers, Message jmsMessage) {
+        long receivedAt = LatencyTracing.now();
         logger.info("============================================");
         logger.info("Received message from WebLogic queue");
         logger.info("Message: {}", message);
         logger.info("============================================");
         
         try {
-            // Forward to Artemis
-            String artemisQueue = "component2.queue";
-            forwardingService.forwardToArtemis(artemisQueue, message);
-            
-            // Also forward to Component 4 queue
-            String component4Queue = "component4.queue";
-            forwardingService.forwardToArtemis(component4Queue, message);
+            List<String> destinations = contentRouter != null ? contentRouter.route(message, headers::get, DEFAULT_DESTINATIONS)
+                    : DEFAULT_DESTINATIONS;
+            if (laneRouter != null) {
+                // Lane from the WebLogic message's lane property, else its JMS priority
+                Object lane = headers.get(laneRouter.getHeader());
+                destinations = laneRouter.destinations(destinations, lane != null ? lane.toString() : null,
+                        (Integer) headers.get(JmsHeaders.PRIORITY));
+            }
+            logger.debug("Routing message {} to {}", messageId, destinations);
+
+            // Forward to Artemis (once, when the broker fans out to these destinations); copies carry
+            // duplicate IDs derived from the WebLogic message ID, so a redelivery after one of the
+            // sends failed does not duplicate the others
+            // The WebLogic message group, if any, keeps its messages in order on one (sharded) broker
+            Object groupId = headers.get("JMSXGroupID");
+            String key = groupId != null ? groupId.toString() : null;
+            for (String destination : forwardingService.fanOutTargets(destinations)) {
+                forwardingService.forwardToArtemis(destination, message, receivedAt, messageId, key);
+            }
             
             logger.info("Message successfully processed and forwarded");
         } catch (Exception e) {
+            if (deadLetterIfExhausted(jmsMessage, e)) {
+                return;
+            }
             logger.error("Error processing message from WebLogic: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to process WebLogic message", e);
         }
     }
+
+    /**
+     * With retries enabled, move a message that failed with a non-retryable error or on its last
+     * delivery to the Artemis dead letter queue, so that WebLogic stops redelivering it. A failure to
+     * do so leaves the message to WebLogic's redelivery.
+     */
+    private boolean deadLetterIfExhausted(Message jmsMessage, Exception failure) {
+        if (retryScheduler == null) {
+            return false;
+        }
+        try {
+            Boolean deadLettered = artemisJmsTemplate.execute(session -> {
+                boolean moved = retryScheduler.deadLetterIfExhausted(jmsMessage, session, failure);
+                JmsUtils.commitIfNecessary(session);
+                return moved;
+            }, true);
+            return Boolean.TRUE.equals(deadLettered);
+        } catch (RuntimeException e) {
+            logger.warn("Could not move failed WebLogic message to the dead letter queue: {}", e.getMessage());
+            return false;
+        }
+    }
 }
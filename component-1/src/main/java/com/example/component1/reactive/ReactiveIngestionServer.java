@@ -0,0 +1,223 @@
+package com.example.component1.reactive;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.component1.config.ReactiveIngestionProperties;
+import com.example.component1.service.BulkIngestionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.channel.AbortedException;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+
+/**
+ * Non-blocking ingestion endpoints for component-1 ({@code reactive-ingestion.*}), served by
+ * WebFlux on Reactor Netty on their own port. No thread waits on a client or on the broker: the
+ * request body is consumed as a {@code Flux<DataBuffer>}, each message is published through
+ * {@link AsyncMessageSender#submit} and the response is written when the broker acknowledges it.
+ * Idle slow clients therefore cost a connection, not a thread, and the server runs on the Netty
+ * event loops plus one thread per async sender session.
+ * <ul>
+ *   <li>{@code POST /api/messages/send?queue=} sends the body as one message and answers once it
+ *   is acknowledged (the MVC endpoint's synchronous contract, without the blocked thread).</li>
+ *   <li>{@code POST /api/messages/bulk?queue=} sends every NDJSON line as a message with at most
+ *   {@code bulk-concurrency} unacknowledged. Demand flows back from the send window to the socket,
+ *   so a client that outpaces the broker is slowed by TCP flow control instead of being buffered.</li>
+ * </ul>
+ * Requires the asynchronous sender ({@code artemis.async.enabled=true}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "reactive-ingestion", name = "enabled", havingValue = "true")
+public class ReactiveIngestionServer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveIngestionServer.class);
+
+    private static final String DEFAULT_QUEUE = "component2.queue";
+    private static final long WINDOW_POLL_MS = 10;
+
+    private final ReactiveIngestionProperties properties;
+    private final AsyncMessageSender asyncMessageSender;
+    private final StringDecoder lineDecoder = StringDecoder.textPlainOnly(List.of("\n"), true);
+
+    private Scheduler sendScheduler;
+    private LoopResources loops;
+    private DisposableServer server;
+
+    public ReactiveIngestionServer(ReactiveIngestionProperties properties, ObjectProvider<AsyncMessageSender> asyncMessageSender) {
+        this.properties = properties;
+        this.asyncMessageSender = asyncMessageSender.getIfAvailable();
+        if (this.asyncMessageSender == null) {
+            throw new IllegalStateException("Reactive ingestion needs the async sender (artemis.async.enabled=true)");
+        }
+        lineDecoder.setMaxInMemorySize(properties.getMaxMessageBytes());
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route(POST("/api/messages/send"), this::send)
+                .andRoute(POST("/api/messages/bulk"), this::bulk);
+    }
+
+    private Mono<ServerResponse> send(ServerRequest request) {
+        String queue = request.queryParam("queue").orElse(DEFAULT_QUEUE);
+        return DataBufferUtils.join(request.body(BodyExtractors.toDataBuffers()), properties.getMaxMessageBytes())
+                .map(ReactiveIngestionServer::text)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Empty message body")))
+                .flatMap(message -> publish(queue, message))
+                .flatMap(tracking -> respond(HttpStatus.OK, Map.of(
+                        "status", "success",
+                        "message", "Message sent successfully",
+                        "queue", queue,
+                        "trackingId", tracking.getTrackingId(),
+                        "timestamp", System.currentTimeMillis())))
+                .onErrorResume(e -> failure(queue, e));
+    }
+
+    private Mono<ServerResponse> bulk(ServerRequest request) {
+        String queue = request.queryParam("queue").orElse(DEFAULT_QUEUE);
+        Flux<String> lines = lineDecoder.decode(request.body(BodyExtractors.toDataBuffers()),
+                ResolvableType.forClass(String.class), null, Map.of());
+        return lines
+                .filter(line -> !line.isBlank())
+                .index()
+                .flatMap(item -> publish(queue, item.getT2())
+                        .map(tracking -> Optional.<BulkIngestionResult.ItemFailure>empty())
+                        .onErrorResume(e -> Mono.just(Optional.of(
+                                new BulkIngestionResult.ItemFailure(item.getT1().intValue(), e.getMessage())))),
+                        properties.getBulkConcurrency())
+                .collect(BulkIngestionResult::new, (result, failure) -> {
+                    result.setTotal(result.getTotal() + 1);
+                    failure.ifPresentOrElse(result.getFailures()::add,
+                            () -> result.setSucceeded(result.getSucceeded() + 1));
+                })
+                .flatMap(result -> {
+                    Map<String, Object> body = new HashMap<>();
+                    body.put("status", result.getFailed() == 0 ? "success" : "partial");
+                    body.put("queue", queue);
+                    body.put("total", result.getTotal());
+                    body.put("succeeded", result.getSucceeded());
+                    body.put("failed", result.getFailed());
+                    body.put("failures", result.getFailures());
+                    body.put("timestamp", System.currentTimeMillis());
+                    return respond(result.getFailed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS, body);
+                })
+                .onErrorResume(e -> failure(queue, e));
+    }
+
+    /**
+     * Completes when the broker has acknowledged the message. While the in-flight window is full the
+     * submit is retried every {@value #WINDOW_POLL_MS} ms, without holding a thread, for up to the
+     * sender's window timeout.
+     */
+    private Mono<AsyncMessageSender.SendTracking> publish(String queue, String message) {
+        long polls = Math.max(1, asyncMessageSender.getWindowTimeoutMs() / WINDOW_POLL_MS);
+        return Mono.fromFuture(() -> asyncMessageSender.submit(queue, message))
+                .subscribeOn(sendScheduler)
+                .retryWhen(Retry.fixedDelay(polls, Duration.ofMillis(WINDOW_POLL_MS))
+                        .filter(RejectedExecutionException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private Mono<ServerResponse> failure(String queue, Throwable e) {
+        HttpStatus status = e instanceof DataBufferLimitException ? HttpStatus.PAYLOAD_TOO_LARGE
+                : e instanceof IllegalArgumentException ? HttpStatus.BAD_REQUEST
+                : e instanceof RejectedExecutionException ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        if (e instanceof AbortedException) {
+            // The client went away mid-upload; there is nobody to answer
+            logger.debug("Client aborted upload to {}: {}", queue, e.getMessage());
+        } else if (status == HttpStatus.INTERNAL_SERVER_ERROR) {
+            logger.error("Error sending message to {}: {}", queue, e.getMessage(), e);
+        }
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", "error");
+        body.put("message", "Failed to send message: " + e.getMessage());
+        body.put("queue", queue);
+        body.put("timestamp", System.currentTimeMillis());
+        return respond(status, body);
+    }
+
+    private static Mono<ServerResponse> respond(HttpStatus status, Map<String, ?> body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+
+    private static String text(DataBuffer buffer) {
+        try {
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    public int getPort() {
+        return server != null ? server.port() : properties.getPort();
+    }
+
+    @Override
+    public synchronized void start() {
+        int threads = properties.getEventLoopThreads() > 0 ? properties.getEventLoopThreads()
+                : Runtime.getRuntime().availableProcessors();
+        // Sends take a session lock and may wait briefly for producer credits: keep them off the event loops
+        sendScheduler = Schedulers.newParallel("reactive-send", Math.max(1, Runtime.getRuntime().availableProcessors()));
+        loops = LoopResources.create("reactive-ingestion", threads, true);
+        server = HttpServer.create()
+                .host(properties.getHost())
+                .port(properties.getPort())
+                .runOn(loops)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes())))
+                .bindNow();
+        logger.info("Reactive ingestion server listening on port {} ({} event loop thread(s))", server.port(), threads);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (server != null) {
+            server.disposeNow();
+            server = null;
+        }
+        if (loops != null) {
+            loops.dispose();
+            loops = null;
+        }
+        if (sendScheduler != null) {
+            sendScheduler.dispose();
+            sendScheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
@@ -0,0 +1,580 @@
+package com.example.component1.routing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, precompiled form of a {@link RoutingRulesDefinition}. Identical conditions are
+ * compiled once and shared between rules, and every field a condition refers to is a node in a
+ * path trie, so a message is evaluated in one streaming pass over its payload (StAX for XML,
+ * Jackson for JSON) without building a tree: each field value is tested only against the
+ * conditions on its path, and parsing stops as soon as every field condition holds. Equality
+ * conditions on a field are merged into one hash lookup per value, so their number does not add to
+ * the cost of a message. {@code exists: false} is compiled as the presence test of its field or
+ * header, which the rule then requires not to hold.
+ */
+final class CompiledRules {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String REUSE_READER = "reuse-instance";
+    /** JDK stream readers are costly to create; a pooled factory reuses its last closed reader. */
+    private static final BlockingQueue<XMLInputFactory> XML_INPUT_FACTORIES =
+            new ArrayBlockingQueue<>(Math.max(8, Runtime.getRuntime().availableProcessors() * 4));
+
+    private final List<String> defaultDestinations;
+    private final Set<String> ruleNames;
+    private final Rule[] rules;
+    private final Condition[] conditions;
+    private final Condition[] headerConditions;
+    private final int fieldConditionCount;
+    private final PathNode root = new PathNode();
+
+    private CompiledRules(List<String> defaultDestinations, Set<String> ruleNames, Rule[] rules, Condition[] conditions) {
+        this.defaultDestinations = List.copyOf(defaultDestinations);
+        this.ruleNames = ruleNames;
+        this.rules = rules;
+        this.conditions = conditions;
+        this.headerConditions = Arrays.stream(conditions).filter(c -> c.header != null).toArray(Condition[]::new);
+        this.fieldConditionCount = conditions.length - headerConditions.length;
+        for (Condition condition : conditions) {
+            if (condition.path != null) {
+                root.resolve(condition.path).add(condition);
+            }
+        }
+    }
+
+    static CompiledRules empty(List<String> defaultDestinations) {
+        return new CompiledRules(defaultDestinations, Set.of(), new Rule[0], new Condition[0]);
+    }
+
+    /**
+     * Compile {@code definition}, failing on the first invalid rule so a broken file never
+     * replaces working rules. Match counters are registered on {@code meterRegistry} when given.
+     */
+    static CompiledRules compile(RoutingRulesDefinition definition, MeterRegistry meterRegistry) {
+        Map<String, Condition> conditions = new LinkedHashMap<>();
+        List<Rule> rules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < definition.getRules().size(); i++) {
+            RoutingRulesDefinition.RuleDefinition rule = definition.getRules().get(i);
+            String name = rule.getName() != null ? rule.getName() : "rule-" + (i + 1);
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("Duplicate routing rule name: " + name);
+            }
+            if (rule.getDestinations().isEmpty()) {
+                throw new IllegalArgumentException("Routing rule " + name + " has no destinations");
+            }
+            int[] indexes = new int[rule.getWhen().size()];
+            for (int j = 0; j < indexes.length; j++) {
+                RoutingRulesDefinition.ConditionDefinition conditionDefinition = rule.getWhen().get(j);
+                boolean absent = Boolean.FALSE.equals(conditionDefinition.getExists());
+                if (absent) {
+                    conditionDefinition = Condition.presence(name, conditionDefinition);
+                }
+                Condition condition = conditions.get(key(conditionDefinition));
+                if (condition == null) {
+                    condition = Condition.compile(name, conditionDefinition, conditions.size());
+                    conditions.put(key(conditionDefinition), condition);
+                }
+                indexes[j] = absent ? ~condition.index : condition.index;
+            }
+            Counter matches = meterRegistry != null
+                    ? Counter.builder("routing.rule.matches").tag("rule", name).register(meterRegistry) : null;
+            rules.add(new Rule(List.copyOf(rule.getDestinations()), rule.isStop(), indexes, matches));
+        }
+        return new CompiledRules(definition.getDefaultDestinations(), names, rules.toArray(new Rule[0]),
+                conditions.values().toArray(new Condition[0]));
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    boolean hasRule(String name) {
+        return ruleNames.contains(name);
+    }
+
+    List<String> getDefaultDestinations() {
+        return defaultDestinations;
+    }
+
+    /**
+     * Destinations for a message, or an empty list when no rule matches it.
+     */
+    List<String> evaluate(String payload, Function<String, ?> headers) {
+        boolean[] satisfied = new boolean[conditions.length];
+        for (Condition condition : headerConditions) {
+            Object value = headers != null ? headers.apply(condition.header) : null;
+            if (value != null && condition.test(value.toString(), Double.NaN, null)) {
+                satisfied[condition.index] = true;
+            }
+        }
+        if (fieldConditionCount > 0 && payload != null) {
+            new Scan(satisfied).run(payload);
+        }
+
+        List<String> destinations = new ArrayList<>(2);
+        for (Rule rule : rules) {
+            if (rule.matches(satisfied)) {
+                if (rule.matchCounter != null) {
+                    rule.matchCounter.increment();
+                }
+                for (String destination : rule.destinations) {
+                    if (!destinations.contains(destination)) {
+                        destinations.add(destination);
+                    }
+                }
+                if (rule.stop) {
+                    break;
+                }
+            }
+        }
+        return destinations;
+    }
+
+    private static String key(RoutingRulesDefinition.ConditionDefinition condition) {
+        return condition.getHeader() + '\u0000' + condition.getField() + '\u0000' + condition.getEquals() + '\u0000'
+                + condition.getOneOf() + '\u0000' + condition.getMatches() + '\u0000' + condition.getExists() + '\u0000'
+                + condition.getGreaterThan() + '\u0000' + condition.getLessThan();
+    }
+
+    private static XMLInputFactory acquireXmlInputFactory() {
+        XMLInputFactory factory = XML_INPUT_FACTORIES.poll();
+        if (factory == null) {
+            factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            if (factory.isPropertySupported(REUSE_READER)) {
+                factory.setProperty(REUSE_READER, true);
+            }
+        }
+        return factory;
+    }
+
+    private static final class Rule {
+
+        final List<String> destinations;
+        final boolean stop;
+        /** Indexes of the conditions that must hold, complemented ({@code ~index}) for those that must not. */
+        final int[] conditions;
+        final Counter matchCounter;
+
+        Rule(List<String> destinations, boolean stop, int[] conditions, Counter matchCounter) {
+            this.destinations = destinations;
+            this.stop = stop;
+            this.conditions = conditions;
+            this.matchCounter = matchCounter;
+        }
+
+        boolean matches(boolean[] satisfied) {
+            for (int condition : conditions) {
+                if (condition >= 0 ? !satisfied[condition] : satisfied[~condition]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Condition {
+
+        final int index;
+        final String header;
+        final String[] path;
+        /** Accepted values of equals and one-of, or {@code null}. */
+        final Set<String> values;
+        final Pattern pattern;
+        final double greaterThan;
+        final double lessThan;
+
+        private Condition(int index, String header, String[] path, Set<String> values, Pattern pattern,
+                          double greaterThan, double lessThan) {
+            this.index = index;
+            this.header = header;
+            this.path = path;
+            this.values = values;
+            this.pattern = pattern;
+            this.greaterThan = greaterThan;
+            this.lessThan = lessThan;
+        }
+
+        static Condition compile(String rule, RoutingRulesDefinition.ConditionDefinition definition, int index) {
+            if ((definition.getHeader() == null) == (definition.getField() == null)) {
+                throw new IllegalArgumentException("Routing rule " + rule + ": a condition needs either header or field");
+            }
+            Set<String> values = null;
+            if (definition.getEquals() != null && definition.getOneOf() != null) {
+                values = definition.getOneOf().contains(definition.getEquals()) ? Set.of(definition.getEquals()) : Set.of();
+            } else if (definition.getEquals() != null) {
+                values = Set.of(definition.getEquals());
+            } else if (definition.getOneOf() != null) {
+                values = Set.copyOf(definition.getOneOf());
+            }
+            Pattern pattern = definition.getMatches() != null ? Pattern.compile(definition.getMatches()) : null;
+            double greaterThan = definition.getGreaterThan() != null ? definition.getGreaterThan() : Double.NaN;
+            double lessThan = definition.getLessThan() != null ? definition.getLessThan() : Double.NaN;
+            if (values == null && pattern == null && Double.isNaN(greaterThan) && Double.isNaN(lessThan)
+                    && !Boolean.TRUE.equals(definition.getExists())) {
+                throw new IllegalArgumentException("Routing rule " + rule + ": condition on "
+                        + (definition.getHeader() != null ? definition.getHeader() : definition.getField())
+                        + " has no test (equals, one-of, matches, greater-than, less-than or exists)");
+            }
+            String[] path = null;
+            if (definition.getField() != null) {
+                String field = definition.getField().startsWith("/") ? definition.getField().substring(1) : definition.getField();
+                path = field.split("/");
+                for (int i = 0; i < path.length; i++) {
+                    if (path[i].isEmpty() || path[i].startsWith("@") && i < path.length - 1) {
+                        throw new IllegalArgumentException("Routing rule " + rule + ": invalid field path " + definition.getField());
+                    }
+                }
+            }
+            return new Condition(index, definition.getHeader(), path, values, pattern, greaterThan, lessThan);
+        }
+
+        /**
+         * The presence test that an {@code exists: false} condition negates. Other tests would make
+         * the negation ambiguous (absent, or present with another value?), so they are rejected.
+         */
+        static RoutingRulesDefinition.ConditionDefinition presence(String rule,
+                                                                   RoutingRulesDefinition.ConditionDefinition definition) {
+            if (definition.getEquals() != null || definition.getOneOf() != null || definition.getMatches() != null
+                    || definition.getGreaterThan() != null || definition.getLessThan() != null) {
+                throw new IllegalArgumentException("Routing rule " + rule + ": condition on "
+                        + (definition.getHeader() != null ? definition.getHeader() : definition.getField())
+                        + " combines exists: false with another test");
+            }
+            RoutingRulesDefinition.ConditionDefinition presence = new RoutingRulesDefinition.ConditionDefinition();
+            presence.setHeader(definition.getHeader());
+            presence.setField(definition.getField());
+            presence.setExists(true);
+            return presence;
+        }
+
+        /**
+         * Whether the condition only asks for the field to be there, whatever its value.
+         */
+        boolean isPresence() {
+            return values == null && pattern == null && !isNumeric();
+        }
+
+        /**
+         * Whether only the value set is tested, so the condition can be answered by a lookup.
+         */
+        boolean isLookup() {
+            return values != null && pattern == null && !isNumeric();
+        }
+
+        boolean isNumeric() {
+            return !Double.isNaN(greaterThan) || !Double.isNaN(lessThan);
+        }
+
+        /**
+         * @param number  {@code value} as a number if already parsed, else {@code NaN}
+         * @param matcher a matcher of {@link #pattern} to reuse, or {@code null}
+         */
+        boolean test(String value, double number, Matcher matcher) {
+            if (values != null && !values.contains(value)) {
+                return false;
+            }
+            if (pattern != null && !(matcher != null ? matcher.reset(value) : pattern.matcher(value)).matches()) {
+                return false;
+            }
+            if (isNumeric()) {
+                if (Double.isNaN(number)) {
+                    number = parseNumber(value);
+                }
+                return (Double.isNaN(greaterThan) || number > greaterThan) && (Double.isNaN(lessThan) || number < lessThan);
+            }
+            return true;
+        }
+
+        static double parseNumber(String value) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * One level of the field path trie. XML attributes are kept apart from child elements; the
+     * conditions on the node are split into presence tests, which hold as soon as the field opens
+     * (an XML element or a JSON object, array or value), value lookups and other tests.
+     */
+    private static final class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<>();
+        private final Map<String, PathNode> attributes = new HashMap<>();
+        private int[] presence;
+        private Map<String, int[]> lookups;
+        private int[] conditions;
+        private boolean numeric;
+
+        PathNode resolve(String[] path) {
+            PathNode node = this;
+            for (String segment : path) {
+                node = segment.startsWith("@")
+                        ? node.attributes.computeIfAbsent(segment.substring(1), s -> new PathNode())
+                        : node.children.computeIfAbsent(segment, s -> new PathNode());
+            }
+            return node;
+        }
+
+        void add(Condition condition) {
+            if (condition.isPresence()) {
+                presence = presence == null ? new int[]{condition.index} : append(presence, condition.index);
+            } else if (condition.isLookup()) {
+                if (lookups == null) {
+                    lookups = new HashMap<>();
+                }
+                for (String value : condition.values) {
+                    int[] indexes = lookups.get(value);
+                    lookups.put(value, indexes == null ? new int[]{condition.index} : append(indexes, condition.index));
+                }
+            } else {
+                conditions = conditions == null ? new int[]{condition.index} : append(conditions, condition.index);
+                numeric |= condition.isNumeric();
+            }
+        }
+
+        boolean hasConditions() {
+            return lookups != null || conditions != null;
+        }
+
+        PathNode child(String name) {
+            return children.get(name);
+        }
+
+        private static int[] append(int[] array, int value) {
+            int[] copy = Arrays.copyOf(array, array.length + 1);
+            copy[array.length] = value;
+            return copy;
+        }
+    }
+
+    /**
+     * State of one streaming pass over a payload: the trie node of each open element, object or
+     * array ({@code null} for untracked subtrees) and the field conditions still to satisfy.
+     */
+    private final class Scan {
+
+        private final boolean[] satisfied;
+        private int remaining;
+        private PathNode[] nodes = new PathNode[16];
+        private boolean[] arrays = new boolean[16];
+        private int[] textStarts = new int[16];
+        private int depth;
+        private Matcher[] matchers;
+
+        Scan(boolean[] satisfied) {
+            this.satisfied = satisfied;
+            this.remaining = fieldConditionCount;
+        }
+
+        void run(String payload) {
+            int start = 0;
+            while (start < payload.length() && Character.isWhitespace(payload.charAt(start))) {
+                start++;
+            }
+            if (start == payload.length()) {
+                return;
+            }
+            char first = payload.charAt(start);
+            try {
+                if (first == '<') {
+                    scanXml(payload);
+                } else if (first == '{' || first == '[') {
+                    scanJson(payload);
+                }
+            } catch (XMLStreamException | IOException e) {
+                // Malformed payload: only the conditions seen before the error count
+            }
+        }
+
+        private void scanXml(String payload) throws XMLStreamException {
+            XMLInputFactory factory = acquireXmlInputFactory();
+            XMLStreamReader reader = null;
+            StringBuilder text = new StringBuilder();
+            try {
+                reader = factory.createXMLStreamReader(new StringReader(payload));
+                while (reader.hasNext() && remaining > 0) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT -> {
+                            PathNode parent = depth == 0 ? root : nodes[depth - 1];
+                            PathNode node = parent != null ? parent.child(reader.getLocalName()) : null;
+                            push(node, false);
+                            if (node != null) {
+                                present(node);
+                                textStarts[depth - 1] = text.length();
+                                for (int i = 0; i < reader.getAttributeCount() && !node.attributes.isEmpty(); i++) {
+                                    PathNode attribute = node.attributes.get(reader.getAttributeLocalName(i));
+                                    if (attribute != null) {
+                                        present(attribute);
+                                        if (attribute.hasConditions()) {
+                                            test(attribute, reader.getAttributeValue(i));
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                        case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> {
+                            PathNode node = depth > 0 ? nodes[depth - 1] : null;
+                            if (node != null && node.hasConditions()) {
+                                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                            }
+                        }
+                        case XMLStreamConstants.END_ELEMENT -> {
+                            PathNode node = nodes[depth - 1];
+                            if (node != null && node.hasConditions()) {
+                                int textStart = textStarts[depth - 1];
+                                test(node, text.substring(textStart).trim());
+                                text.setLength(textStart);
+                            }
+                            depth--;
+                        }
+                        default -> {
+                            // comments, processing instructions and whitespace outside elements
+                        }
+                    }
+                }
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+                XML_INPUT_FACTORIES.offer(factory);
+            }
+        }
+
+        private void scanJson(String payload) throws IOException {
+            try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+                PathNode field = null;
+                JsonToken token;
+                while (remaining > 0 && (token = parser.nextToken()) != null) {
+                    switch (token) {
+                        case FIELD_NAME -> {
+                            PathNode container = nodes[depth - 1];
+                            field = container != null ? container.child(parser.getCurrentName()) : null;
+                        }
+                        case START_OBJECT, START_ARRAY -> {
+                            PathNode node = valueNode(field);
+                            if (node != null) {
+                                present(node);
+                            }
+                            push(node, token == JsonToken.START_ARRAY);
+                        }
+                        case END_OBJECT, END_ARRAY -> depth--;
+                        default -> {
+                            PathNode node = valueNode(field);
+                            if (node != null) {
+                                present(node);
+                                if (node.hasConditions()) {
+                                    test(node, parser.getText());
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Trie node of the value being read: the top-level value is the root, array elements take
+         * the node of their array and object members that of their field.
+         */
+        private PathNode valueNode(PathNode field) {
+            if (depth == 0) {
+                return root;
+            }
+            return arrays[depth - 1] ? nodes[depth - 1] : field;
+        }
+
+        private void push(PathNode node, boolean array) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                arrays = Arrays.copyOf(arrays, depth * 2);
+                textStarts = Arrays.copyOf(textStarts, depth * 2);
+            }
+            nodes[depth] = node;
+            arrays[depth] = array;
+            depth++;
+        }
+
+        private void present(PathNode node) {
+            if (node.presence != null) {
+                for (int index : node.presence) {
+                    satisfy(index);
+                }
+            }
+        }
+
+        private void test(PathNode node, String value) {
+            if (node.lookups != null) {
+                int[] indexes = node.lookups.get(value);
+                if (indexes != null) {
+                    for (int index : indexes) {
+                        satisfy(index);
+                    }
+                }
+            }
+            if (node.conditions != null) {
+                // Parsed once for all the range conditions on the node
+                double number = node.numeric ? Condition.parseNumber(value) : Double.NaN;
+                for (int index : node.conditions) {
+                    if (!satisfied[index] && conditions[index].test(value, number, matcher(index))) {
+                        satisfy(index);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Matcher of a condition's pattern, created once per scan rather than once per value.
+         */
+        private Matcher matcher(int index) {
+            Pattern pattern = conditions[index].pattern;
+            if (pattern == null) {
+                return null;
+            }
+            if (matchers == null) {
+                matchers = new Matcher[conditions.length];
+            }
+            if (matchers[index] == null) {
+                matchers[index] = pattern.matcher("");
+            }
+            return matchers[index];
+        }
+
+        private void satisfy(int index) {
+            if (!satisfied[index]) {
+                satisfied[index] = true;
+                remaining--;
+            }
+        }
+    }
+}
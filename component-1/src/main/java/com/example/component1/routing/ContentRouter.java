@@ -0,0 +1,193 @@
+package com.example.component1.routing;
+
+import com.example.component1.config.RoutingProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Content-based router for messages entering component-1. Rules are read from
+ * {@code routing.rules-file}, compiled once into {@link CompiledRules} and swapped atomically when
+ * the file changes (checked every {@code routing.reload-interval-ms}), so they can be edited
+ * without a restart; a file that fails to load or compile leaves the previous rules in place.
+ * <p>
+ * Publishes {@code routing.rule.matches} per rule, {@code routing.unmatched} for messages sent to
+ * the default destinations and {@code routing.evaluation} for the time spent deciding.
+ */
+@Component
+@ConditionalOnProperty(prefix = "routing", name = "enabled", havingValue = "true")
+public class ContentRouter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContentRouter.class);
+
+    private final Path rulesFile;
+    private final long reloadIntervalMs;
+    private final MeterRegistry meterRegistry;
+    private final Counter unmatched;
+    private final Timer evaluationTimer;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE)
+            .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY);
+
+    private volatile CompiledRules rules = CompiledRules.empty(List.of());
+    private volatile boolean running;
+    private FileTime loadedModifiedTime;
+    private Thread reloader;
+
+    public ContentRouter(RoutingProperties routingProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.rulesFile = Path.of(routingProperties.getRulesFile());
+        this.reloadIntervalMs = routingProperties.getReloadIntervalMs();
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        if (this.meterRegistry != null) {
+            unmatched = Counter.builder("routing.unmatched").register(this.meterRegistry);
+            evaluationTimer = Timer.builder("routing.evaluation").register(this.meterRegistry);
+        } else {
+            unmatched = null;
+            evaluationTimer = null;
+        }
+        reload();
+    }
+
+    /**
+     * Destinations for a message: those of the matching rules, else the {@code default-destinations}
+     * of the rules file, else {@code fallback} (the entry point's destinations without routing).
+     *
+     * @param payload message body (XML, JSON or anything else, which only header conditions see)
+     * @param headers header lookup by name: JMS headers and properties, or HTTP request headers
+     */
+    public List<String> route(String payload, Function<String, ?> headers, List<String> fallback) {
+        long start = System.nanoTime();
+        CompiledRules current = rules;
+        List<String> destinations = current.evaluate(payload, headers);
+        if (destinations.isEmpty()) {
+            destinations = current.getDefaultDestinations().isEmpty() ? fallback : current.getDefaultDestinations();
+            if (unmatched != null) {
+                unmatched.increment();
+            }
+        }
+        if (evaluationTimer != null) {
+            evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return destinations;
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    /**
+     * Load the rules file if it changed since it was last loaded.
+     *
+     * @return whether new rules were installed
+     */
+    public synchronized boolean reload() {
+        FileTime modifiedTime;
+        try {
+            modifiedTime = Files.getLastModifiedTime(rulesFile);
+        } catch (NoSuchFileException e) {
+            if (loadedModifiedTime == null) {
+                logger.warn("Routing rules file {} not found; every message goes to the default destinations", rulesFile);
+                loadedModifiedTime = FileTime.fromMillis(0);
+            }
+            return false;
+        } catch (IOException e) {
+            logger.error("Cannot read routing rules file {}: {}", rulesFile, e.getMessage());
+            return false;
+        }
+        if (modifiedTime.equals(loadedModifiedTime)) {
+            return false;
+        }
+        loadedModifiedTime = modifiedTime;
+        try {
+            CompiledRules previous = rules;
+            rules = CompiledRules.compile(load(), meterRegistry);
+            removeStaleCounters(previous);
+            logger.info("Loaded {} routing rule(s) from {}, default destinations {}",
+                    rules.size(), rulesFile, rules.getDefaultDestinations());
+            return true;
+        } catch (Exception e) {
+            logger.error("Invalid routing rules in {}, keeping the {} previous rule(s): {}",
+                    rulesFile, rules.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private RoutingRulesDefinition load() throws IOException {
+        try (Reader reader = Files.newBufferedReader(rulesFile)) {
+            Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(reader);
+            return document != null
+                    ? objectMapper.convertValue(document, RoutingRulesDefinition.class) : new RoutingRulesDefinition();
+        }
+    }
+
+    private void removeStaleCounters(CompiledRules previous) {
+        if (meterRegistry == null || previous.size() == 0) {
+            return;
+        }
+        for (Meter meter : meterRegistry.find("routing.rule.matches").meters()) {
+            String rule = meter.getId().getTag("rule");
+            if (!rules.hasRule(Objects.requireNonNull(rule))) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        if (reloadIntervalMs > 0) {
+            reloader = new Thread(this::reloadLoop, "routing-rules-reload");
+            reloader.setDaemon(true);
+            reloader.start();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (reloader != null) {
+            reloader.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void reloadLoop() {
+        while (running) {
+            try {
+                Thread.sleep(reloadIntervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            reload();
+        }
+    }
+}
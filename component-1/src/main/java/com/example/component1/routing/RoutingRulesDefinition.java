@@ -0,0 +1,45 @@
+package com.example.component1.routing;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routing rules file as written by operators. Every rule whose conditions all hold adds its
+ * destinations, in file order, until a matching rule with {@code stop} is reached; a message no
+ * rule matches goes to {@code default-destinations}.
+ */
+@Data
+public class RoutingRulesDefinition {
+
+    private List<String> defaultDestinations = new ArrayList<>();
+    private List<RuleDefinition> rules = new ArrayList<>();
+
+    @Data
+    public static class RuleDefinition {
+        private String name;
+        private List<String> destinations = new ArrayList<>();
+        private boolean stop = false;
+        /** All must hold; a rule without conditions matches every message. */
+        private List<ConditionDefinition> when = new ArrayList<>();
+    }
+
+    /**
+     * One test on a message header (JMS header or property, or HTTP header) or on a payload field.
+     * A field is a slash-separated path: for XML it starts at the root element and may end in an
+     * {@code @attribute}, for JSON it starts at a top-level field and array elements are reached
+     * through the array's field. A field condition holds when any occurrence of the field passes.
+     */
+    @Data
+    public static class ConditionDefinition {
+        private String header;
+        private String field;
+        private String equals;
+        private List<String> oneOf;
+        private String matches;
+        private Boolean exists;
+        private Double greaterThan;
+        private Double lessThan;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TemporaryQueue;
+import org.apache.activemq.artemis.api.core.management.ResourceNames;
+import org.apache.activemq.artemis.api.jms.management.JMSManagementHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Broker-side fan-out ({@code artemis.fanout.*}). Instead of one send per destination queue,
+ * component-1 publishes once to a multicast address whose non-exclusive diverts copy the message to
+ * every queue in {@code destinations}, so the broker replicates it: one producer round trip and one
+ * journal sync per message instead of one per queue.
+ * <p>
+ * At startup the address and its diverts (named {@code <address>-<destination>}, as in
+ * {@code artemis-config/broker.xml}) are checked through the Artemis management API and created when
+ * missing. Until that has succeeded, {@link #targets} returns the destinations unchanged, so messages
+ * are never published to an address that would drop them; the check is repeated every
+ * {@code retry-interval-ms}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "artemis.fanout", name = "enabled", havingValue = "true")
+public class BrokerFanout implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerFanout.class);
+
+    private static final String MANAGEMENT_ADDRESS = "activemq.management";
+
+    private final ConnectionFactory connectionFactory;
+    private final ArtemisProperties.FanoutConfig fanout;
+    private final Set<String> destinations;
+    private final List<String> addressTarget;
+
+    private volatile boolean provisioned;
+    private volatile long nextAttemptMillis;
+    private volatile boolean running;
+
+    public BrokerFanout(@Qualifier("artemisConnectionFactory") ConnectionFactory connectionFactory,
+                        ArtemisProperties artemisProperties) {
+        this.connectionFactory = connectionFactory;
+        this.fanout = artemisProperties.getFanout();
+        this.destinations = Set.copyOf(fanout.getDestinations());
+        this.addressTarget = List.of(fanout.getAddress());
+    }
+
+    /**
+     * Where to send a message meant for {@code destinations}: the fan-out address when they are
+     * exactly the fan-out destinations and the broker is provisioned, otherwise the destinations.
+     */
+    public List<String> targets(List<String> destinations) {
+        if (destinations.size() != this.destinations.size() || !this.destinations.containsAll(destinations)) {
+            return destinations;
+        }
+        if (!provisioned && System.currentTimeMillis() >= nextAttemptMillis) {
+            provision();
+        }
+        return provisioned ? addressTarget : destinations;
+    }
+
+    /**
+     * Whether {@code name} is the fan-out address, which is published to as a topic.
+     */
+    public boolean isAddress(String name) {
+        return fanout.getAddress().equals(name);
+    }
+
+    public boolean isProvisioned() {
+        return provisioned;
+    }
+
+    /**
+     * Check the fan-out address and its diverts on the broker, creating what is missing when
+     * {@code provision} is set.
+     *
+     * @return whether publishing to the address now reaches every destination
+     */
+    public synchronized boolean provision() {
+        if (provisioned) {
+            return true;
+        }
+        nextAttemptMillis = System.currentTimeMillis() + fanout.getRetryIntervalMs();
+        try {
+            Set<String> addresses = names(query(null, "addressNames"));
+            Set<String> diverts = names(query(null, "divertNames"));
+            for (String destination : destinations) {
+                if (!addresses.contains(destination)) {
+                    logger.error("Fan-out destination {} does not exist on the broker; sending to each queue", destination);
+                    return false;
+                }
+            }
+            if (!addresses.contains(fanout.getAddress())) {
+                if (!fanout.isProvision()) {
+                    logger.error("Fan-out address {} does not exist on the broker; sending to each queue", fanout.getAddress());
+                    return false;
+                }
+                query("createAddress", fanout.getAddress(), "MULTICAST");
+                logger.info("Created fan-out address {}", fanout.getAddress());
+            }
+            for (String destination : destinations) {
+                String divert = fanout.getAddress() + "-" + destination;
+                if (diverts.contains(divert)) {
+                    continue;
+                }
+                if (!fanout.isProvision()) {
+                    logger.error("Fan-out divert {} does not exist on the broker; sending to each queue", divert);
+                    return false;
+                }
+                query("createDivert", divert, divert, fanout.getAddress(), destination, false, null, null);
+                logger.info("Created fan-out divert {} from {} to {}", divert, fanout.getAddress(), destination);
+            }
+            provisioned = true;
+            logger.info("Broker-side fan-out enabled: {} -> {}", fanout.getAddress(), destinations);
+            return true;
+        } catch (JMSException e) {
+            logger.error("Cannot provision fan-out address {}, sending to each queue: {}", fanout.getAddress(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Invoke a broker management operation, or read a broker attribute when {@code operation} is
+     * {@code null} (the attribute name is then the only argument).
+     */
+    private Object query(String operation, Object... arguments) throws JMSException {
+        Connection connection = connectionFactory.createConnection();
+        Session session = null;
+        try {
+            connection.start();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            TemporaryQueue replyQueue = session.createTemporaryQueue();
+            MessageProducer producer = session.createProducer(session.createQueue(MANAGEMENT_ADDRESS));
+            MessageConsumer consumer = session.createConsumer(replyQueue);
+            try {
+                Message request = session.createMessage();
+                if (operation == null) {
+                    JMSManagementHelper.putAttribute(request, ResourceNames.BROKER, (String) arguments[0]);
+                } else {
+                    JMSManagementHelper.putOperationInvocation(request, ResourceNames.BROKER, operation, arguments);
+                }
+                request.setJMSReplyTo(replyQueue);
+                producer.send(request);
+
+                Message reply = consumer.receive(fanout.getManagementTimeoutMs());
+                String name = operation != null ? operation : (String) arguments[0];
+                if (reply == null) {
+                    throw new JMSException("No reply to management request " + name);
+                }
+                if (!JMSManagementHelper.hasOperationSucceeded(reply)) {
+                    throw new JMSException("Management request " + name + " failed: " + JMSManagementHelper.getResult(reply));
+                }
+                return JMSManagementHelper.getResult(reply);
+            } finally {
+                JmsUtils.closeMessageConsumer(consumer);
+                JmsUtils.closeMessageProducer(producer);
+                replyQueue.delete();
+            }
+        } catch (JMSException e) {
+            throw e;
+        } catch (Exception e) {
+            JMSException jmsException = new JMSException("Management request failed: " + e.getMessage());
+            jmsException.setLinkedException(e);
+            throw jmsException;
+        } finally {
+            JmsUtils.closeSession(session);
+            JmsUtils.closeConnection(connection);
+        }
+    }
+
+    private static Set<String> names(Object result) {
+        Set<String> names = new HashSet<>();
+        if (result instanceof Object[] array) {
+            Arrays.stream(array).map(String::valueOf).forEach(names::add);
+        }
+        return names;
+    }
+
+    /**
+     * Provision before the listeners and the bridge start consuming.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        provision();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
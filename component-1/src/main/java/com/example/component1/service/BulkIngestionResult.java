@@ -0,0 +1,27 @@
+package com.example.component1.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkIngestionResult {
+
+    private int total;
+    private int succeeded;
+    private int batches;
+    private List<ItemFailure> failures = new ArrayList<>();
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class ItemFailure {
+        private int index;
+        private String error;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a bulk request body item by item and publishes the items to Artemis in
+ * transaction batches, so neither the whole body nor the whole item list is held in memory.
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestionService.class);
+
+    private final MessageForwardingService forwardingService;
+    private final ArtemisProperties artemisProperties;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final XMLInputFactory xmlInputFactory;
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+    private final XMLEventFactory xmlEventFactory = XMLEventFactory.newInstance();
+
+    public BulkIngestionService(MessageForwardingService forwardingService, ArtemisProperties artemisProperties) {
+        this.forwardingService = forwardingService;
+        this.artemisProperties = artemisProperties;
+        this.xmlInputFactory = XMLInputFactory.newInstance();
+        this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Ingest newline-delimited JSON: one JSON document per line, blank lines ignored.
+     */
+    public BulkIngestionResult ingestNdjson(String destination, InputStream body, Integer batchSize) throws IOException {
+        BatchPublisher publisher = new BatchPublisher(destination, resolveBatchSize(batchSize));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String error = validateJson(line);
+            if (error == null) {
+                publisher.add(line);
+            } else {
+                publisher.reject(error);
+            }
+        }
+        return publisher.finish();
+    }
+
+    /**
+     * Ingest a multi-document XML stream: every child element of the root wrapper element
+     * (e.g. {@code <messages><order/><order/></messages>}) is published as its own message.
+     * Namespaces declared on the wrapper element are declared again on each item, so that every
+     * message is a well-formed document on its own.
+     */
+    public BulkIngestionResult ingestXml(String destination, InputStream body, Integer batchSize) throws XMLStreamException {
+        BatchPublisher publisher = new BatchPublisher(destination, resolveBatchSize(batchSize));
+        XMLEventReader reader = xmlInputFactory.createXMLEventReader(body);
+        try {
+            int depth = 0;
+            StringWriter document = null;
+            XMLEventWriter writer = null;
+            List<Namespace> rootNamespaces = List.of();
+            while (reader.hasNext()) {
+                XMLEvent event;
+                try {
+                    event = reader.nextEvent();
+                } catch (XMLStreamException e) {
+                    // A malformed document ends the stream; report it against the item being read
+                    publisher.reject("Malformed XML: " + e.getMessage());
+                    break;
+                }
+                if (event.isStartElement()) {
+                    depth++;
+                    if (depth == 1) {
+                        rootNamespaces = namespaces(event.asStartElement());
+                    } else if (depth == 2) {
+                        document = new StringWriter();
+                        writer = xmlOutputFactory.createXMLEventWriter(document);
+                        event = withNamespaces(event.asStartElement(), rootNamespaces);
+                    }
+                }
+                if (writer != null) {
+                    writer.add(event);
+                }
+                if (event.isEndElement()) {
+                    if (depth == 2 && writer != null) {
+                        writer.close();
+                        publisher.add(document.toString());
+                        writer = null;
+                        document = null;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return publisher.finish();
+    }
+
+    /**
+     * {@code item} with the wrapper element's namespace declarations added, except for prefixes the
+     * item declares itself.
+     */
+    private StartElement withNamespaces(StartElement item, List<Namespace> inherited) {
+        if (inherited.isEmpty()) {
+            return item;
+        }
+        Map<String, Namespace> namespaces = new LinkedHashMap<>();
+        for (Namespace namespace : inherited) {
+            namespaces.put(namespace.getPrefix(), namespace);
+        }
+        for (Namespace namespace : namespaces(item)) {
+            namespaces.put(namespace.getPrefix(), namespace);
+        }
+        return xmlEventFactory.createStartElement(item.getName(), item.getAttributes(), namespaces.values().iterator());
+    }
+
+    private static List<Namespace> namespaces(StartElement element) {
+        List<Namespace> namespaces = new ArrayList<>();
+        for (Iterator<Namespace> it = element.getNamespaces(); it.hasNext(); ) {
+            namespaces.add(it.next());
+        }
+        return namespaces;
+    }
+
+    private int resolveBatchSize(Integer batchSize) {
+        int size = batchSize != null ? batchSize : artemisProperties.getBulk().getTransactionBatchSize();
+        return Math.max(1, size);
+    }
+
+    private String validateJson(String line) {
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() == null) {
+                return "Empty JSON document";
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                return "Trailing content after JSON document";
+            }
+            return null;
+        } catch (IOException e) {
+            return "Malformed JSON: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Accumulates items into transaction batches and records the outcome of every item index.
+     */
+    private class BatchPublisher {
+
+        private final String destination;
+        private final int batchSize;
+        private final BulkIngestionResult result = new BulkIngestionResult();
+        private final List<String> pending = new ArrayList<>();
+        private final List<Integer> pendingIndexes = new ArrayList<>();
+        private int nextIndex;
+
+        BatchPublisher(String destination, int batchSize) {
+            this.destination = destination;
+            this.batchSize = batchSize;
+        }
+
+        void add(String payload) {
+            pending.add(payload);
+            pendingIndexes.add(nextIndex++);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(String error) {
+            result.getFailures().add(new BulkIngestionResult.ItemFailure(nextIndex, error));
+            nextIndex++;
+        }
+
+        BulkIngestionResult finish() {
+            flush();
+            result.setTotal(nextIndex);
+            result.getFailures().sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+            logger.info("Bulk ingestion to {} finished: {} item(s), {} succeeded, {} failed, {} batch(es)",
+                    destination, result.getTotal(), result.getSucceeded(), result.getFailed(), result.getBatches());
+            return result;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                forwardingService.sendBatchToArtemis(destination, pending);
+                result.setSucceeded(result.getSucceeded() + pending.size());
+            } catch (Exception e) {
+                for (Integer index : pendingIndexes) {
+                    result.getFailures().add(new BulkIngestionResult.ItemFailure(index, e.getMessage()));
+                }
+            }
+            result.setBatches(result.getBatches() + 1);
+            pending.clear();
+            pendingIndexes.clear();
+        }
+    }
+}
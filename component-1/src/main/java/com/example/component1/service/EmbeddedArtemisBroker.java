@@ -0,0 +1,126 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import org.apache.activemq.artemis.api.core.QueueConfiguration;
+import org.apache.activemq.artemis.api.core.RoutingType;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.core.config.BridgeConfiguration;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.JournalType;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-JVM Artemis server for {@code artemis.broker.embedded=true}, configured by
+ * {@code artemis.embedded.*}. Component-1's connection factories connect to it through the in-VM
+ * acceptor ({@link #getUrl()}) instead of {@code artemis.broker.url}, and so can any other
+ * component running in the same JVM: their sends and receives skip the network stack and wire
+ * encoding entirely.
+ * <p>
+ * Queues listed in {@code bridged-queues} are drained by core bridges to the same-named queues of
+ * the remote cluster at {@code artemis.broker.url}. The bridges reconnect forever and forward with
+ * duplicate detection, so a broken link neither loses nor duplicates messages; until it is back
+ * they accumulate in the local journal. With no bridged queues the broker is self-contained, which
+ * also makes it a test harness that needs no external services.
+ */
+@Component
+@ConditionalOnProperty(prefix = "artemis.broker", name = "embedded", havingValue = "true")
+public class EmbeddedArtemisBroker implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedArtemisBroker.class);
+
+    private static final String REMOTE_CONNECTOR = "remote-cluster";
+
+    private final EmbeddedActiveMQ server = new EmbeddedActiveMQ();
+    private final String url;
+
+    public EmbeddedArtemisBroker(ArtemisProperties properties) throws Exception {
+        ArtemisProperties.EmbeddedConfig embedded = properties.getEmbedded();
+        ArtemisProperties.BrokerConfig broker = properties.getBroker();
+        this.url = "vm://" + embedded.getServerId();
+
+        Path dataDirectory = Path.of(embedded.getDataDirectory());
+        Configuration configuration = new ConfigurationImpl()
+                .setName("component-1-embedded")
+                .setPersistenceEnabled(embedded.isPersistent())
+                .setSecurityEnabled(false)
+                .setJournalType(JournalType.valueOf(embedded.getJournalType()))
+                .setJournalDatasync(embedded.isJournalDatasync())
+                .setJournalFileSize(embedded.getJournalFileSize())
+                .setJournalMinFiles(embedded.getJournalMinFiles())
+                .setJournalBufferTimeout_NIO(embedded.getJournalBufferTimeoutNs())
+                .setJournalBufferTimeout_AIO(embedded.getJournalBufferTimeoutNs())
+                .setJournalDirectory(dataDirectory.resolve("journal").toString())
+                .setBindingsDirectory(dataDirectory.resolve("bindings").toString())
+                .setPagingDirectory(dataDirectory.resolve("paging").toString())
+                .setLargeMessagesDirectory(dataDirectory.resolve("largemessages").toString())
+                .addAcceptorConfiguration("in-vm", url)
+                // Dead letter address and redelivery backoff as in artemis-config/broker.xml
+                .addAddressSetting("#", new AddressSettings()
+                        .setDeadLetterAddress(SimpleString.toSimpleString("DLQ"))
+                        .setRedeliveryDelay(1000)
+                        .setRedeliveryMultiplier(2.0)
+                        .setMaxRedeliveryDelay(60000));
+        if (StringUtils.hasText(embedded.getAcceptorUrl())) {
+            configuration.addAcceptorConfiguration("external", embedded.getAcceptorUrl());
+        }
+
+        List<String> bridgedQueues = embedded.getBridgedQueues();
+        if (!bridgedQueues.isEmpty()) {
+            String remoteUrl = broker.getUrl();
+            if (!StringUtils.hasText(remoteUrl) || remoteUrl.startsWith("vm:")) {
+                throw new IllegalStateException(
+                        "artemis.embedded.bridged-queues need artemis.broker.url to point at the remote cluster");
+            }
+            configuration.addConnectorConfiguration(REMOTE_CONNECTOR, remoteUrl);
+            List<BridgeConfiguration> bridges = new ArrayList<>();
+            for (String queue : bridgedQueues) {
+                configuration.addQueueConfiguration(new QueueConfiguration(queue)
+                        .setAddress(queue)
+                        .setRoutingType(RoutingType.ANYCAST));
+                bridges.add(new BridgeConfiguration()
+                        .setName("bridge-" + queue)
+                        .setQueueName(queue)
+                        .setForwardingAddress(queue)
+                        .setStaticConnectors(List.of(REMOTE_CONNECTOR))
+                        .setUser(broker.getUser())
+                        .setPassword(broker.getPassword())
+                        .setRetryInterval(embedded.getBridgeRetryIntervalMs())
+                        .setReconnectAttempts(-1)
+                        .setUseDuplicateDetection(true));
+            }
+            configuration.setBridgeConfigurations(bridges);
+        }
+
+        server.setConfiguration(configuration);
+        server.start();
+        logger.info("Embedded Artemis broker started on {}{} ({}){}", url,
+                StringUtils.hasText(embedded.getAcceptorUrl()) ? " and " + embedded.getAcceptorUrl() : "",
+                embedded.isPersistent() ? "persistent" : "non-persistent",
+                bridgedQueues.isEmpty() ? "" : ", bridging " + bridgedQueues + " to " + broker.getUrl());
+    }
+
+    /**
+     * In-VM URL of this broker, usable by any connection factory in the JVM.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        server.stop();
+        logger.info("Embedded Artemis broker stopped");
+    }
+}
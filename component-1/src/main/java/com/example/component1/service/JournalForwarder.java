@@ -0,0 +1,94 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Replays the {@link StoreAndForwardJournal} to Artemis on a background thread, oldest first, in
+ * transactions of {@code replay-batch-size} messages. A batch is acknowledged in the journal only
+ * after it is committed; while the broker stays unreachable the same batch is retried every
+ * {@code retry-backoff-ms}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "artemis.store-and-forward", name = "enabled", havingValue = "true")
+public class JournalForwarder implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalForwarder.class);
+
+    private static final long IDLE_POLL_MS = 50;
+
+    private final StoreAndForwardJournal journal;
+    private final MessageForwardingService forwardingService;
+    private final int batchSize;
+    private final long retryBackoffMs;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public JournalForwarder(StoreAndForwardJournal journal, MessageForwardingService forwardingService,
+                            ArtemisProperties artemisProperties) {
+        this.journal = journal;
+        this.forwardingService = forwardingService;
+        this.batchSize = artemisProperties.getStoreAndForward().getReplayBatchSize();
+        this.retryBackoffMs = artemisProperties.getStoreAndForward().getRetryBackoffMs();
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        worker = new Thread(this::replayLoop, "store-and-forward-replay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void replayLoop() {
+        boolean failing = false;
+        while (running) {
+            try {
+                List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(batchSize);
+                if (batch.isEmpty()) {
+                    journal.stopSpoolingIfDrained();
+                    Thread.sleep(IDLE_POLL_MS);
+                    continue;
+                }
+                try {
+                    forwardingService.replayToArtemis(batch);
+                } catch (Exception e) {
+                    if (!failing) {
+                        logger.warn("Cannot replay {} stored message(s) to Artemis, retrying every {} ms: {}",
+                                journal.getBacklog(), retryBackoffMs, e.getMessage());
+                        failing = true;
+                    }
+                    Thread.sleep(retryBackoffMs);
+                    continue;
+                }
+                journal.acknowledge(batch);
+                if (failing) {
+                    logger.info("Replaying stored messages to Artemis, {} left", journal.getBacklog());
+                    failing = false;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -1,33 +1,137 @@
 package com.example.component1.service;
 
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LargeMessages;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import org.apache.activemq.artemis.jms.client.ActiveMQTopic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jms.JmsException;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessagePostProcessor;
+import org.springframework.jms.support.JmsUtils;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
 @Service
 public class MessageForwardingService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageForwardingService.class);
 
+    private static final String GROUP_ID = "JMSXGroupID";
+
     private final JmsTemplate artemisJmsTemplate;
+    private final AsyncMessageSender asyncMessageSender;
+    private final PinningGuard pinningGuard;
+    private final BrokerFanout brokerFanout;
+    private final StoreAndForwardJournal journal;
+    private final BrokerShards shards;
 
-    public MessageForwardingService(@Qualifier("artemisJmsTemplate") JmsTemplate artemisJmsTemplate) {
+    public MessageForwardingService(@Qualifier("artemisJmsTemplate") JmsTemplate artemisJmsTemplate,
+                                    ObjectProvider<AsyncMessageSender> asyncMessageSender,
+                                    PinningGuard pinningGuard,
+                                    ObjectProvider<BrokerFanout> brokerFanout,
+                                    ObjectProvider<StoreAndForwardJournal> journal,
+                                    ObjectProvider<BrokerShards> shards) {
         this.artemisJmsTemplate = artemisJmsTemplate;
+        this.asyncMessageSender = asyncMessageSender.getIfAvailable();
+        this.pinningGuard = pinningGuard;
+        this.brokerFanout = brokerFanout.getIfAvailable();
+        this.journal = journal.getIfAvailable();
+        this.shards = shards.getIfAvailable();
+    }
+
+    /**
+     * Where to forward a message meant for {@code destinations}: the broker-side fan-out address
+     * when {@link BrokerFanout} covers exactly these destinations, otherwise the destinations.
+     */
+    public List<String> fanOutTargets(List<String> destinations) {
+        return brokerFanout != null ? brokerFanout.targets(destinations) : destinations;
     }
 
     /**
      * Forward message from WebLogic to Artemis
      */
     public void forwardToArtemis(String destination, String message) {
+        forwardToArtemis(destination, message, LatencyTracing.now());
+    }
+
+    /**
+     * Forward message from WebLogic to Artemis, stamping the time it entered the pipeline
+     */
+    public void forwardToArtemis(String destination, String message, long originTimestampNanos) {
+        forwardToArtemis(destination, message, originTimestampNanos, null);
+    }
+
+    /**
+     * Forward message from WebLogic to Artemis. With a {@code sourceMessageId} (the WebLogic message
+     * ID) the copy gets a duplicate-detection ID derived from it, so forwarding a redelivered source
+     * message again is dropped by the broker and by the consumers. With the store-and-forward
+     * journal enabled, a message the broker cannot take now is stored locally and replayed later.
+     */
+    public void forwardToArtemis(String destination, String message, long originTimestampNanos, String sourceMessageId) {
+        forwardToArtemis(destination, message, originTimestampNanos, sourceMessageId, null);
+    }
+
+    /**
+     * Forward message from WebLogic to Artemis as above. A {@code key} (e.g. the source message's
+     * {@code JMSXGroupID}) is sent as the copy's {@code JMSXGroupID} and, when sends are sharded,
+     * picks the broker, so messages with the same key stay in order on one broker.
+     */
+    public void forwardToArtemis(String destination, String message, long originTimestampNanos, String sourceMessageId,
+                                 String key) {
         logger.info("Forwarding message to Artemis queue: {}", destination);
         logger.info("Message content: {}", message);
-        
+
+        String duplicateId = sourceMessageId != null ? DuplicateIds.derive(sourceMessageId, destination) : null;
+        if (journal != null && journal.appendIfSpooling(destination, key, message, duplicateId, originTimestampNanos)) {
+            logger.info("Message stored locally for Artemis queue: {}", destination);
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            artemisJmsTemplate.convertAndSend(destination, message);
+            send(key, destination, message, jmsMessage -> {
+                LatencyTracing.stampOrigin(jmsMessage, originTimestampNanos);
+                if (duplicateId != null) {
+                    jmsMessage.setStringProperty(DuplicateIds.PROPERTY, duplicateId);
+                }
+                if (key != null) {
+                    jmsMessage.setStringProperty(GROUP_ID, key);
+                }
+                return jmsMessage;
+            });
+            sendCompleted(start);
             logger.info("Message successfully forwarded to Artemis queue: {}", destination);
         } catch (Exception e) {
+            if (DuplicateIds.isDuplicateRejection(e)) {
+                // Each copy is committed on its own, so the rejected one is exactly the one already delivered
+                logger.info("Message {} was already forwarded to Artemis queue {}, skipping", sourceMessageId, destination);
+                return;
+            }
+            if (storeAfterFailure(e, destination, key, message, duplicateId, originTimestampNanos)) {
+                logger.warn("Artemis unavailable ({}), message stored locally for queue: {}", e.getMessage(), destination);
+                return;
+            }
             logger.error("Error forwarding message to Artemis: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to forward message to Artemis", e);
         }
@@ -37,15 +141,398 @@ public class MessageForwardingService {
      * Send message directly to Artemis (for REST API)
      */
     public void sendToArtemis(String destination, String message) {
+        sendToArtemis(destination, message, LatencyTracing.now());
+    }
+
+    /**
+     * Send message directly to Artemis (for REST API), stamping the time the request was received
+     *
+     * @return {@code false} when the message was stored in the store-and-forward journal instead,
+     * to be delivered once the broker is back
+     */
+    public boolean sendToArtemis(String destination, String message, long originTimestampNanos) {
+        return sendToArtemis(destination, message, originTimestampNanos, null);
+    }
+
+    /**
+     * Send message directly to Artemis (for REST API) with an optional {@code key}, sent as the
+     * message's {@code JMSXGroupID} and, when sends are sharded, used to pick the broker. The
+     * message gets a duplicate-detection ID of its own, so that when a send whose outcome was
+     * unknown is retried on another shard, consumers drop whichever copy arrives second.
+     *
+     * @return {@code false} when the message was stored in the store-and-forward journal instead
+     */
+    public boolean sendToArtemis(String destination, String message, long originTimestampNanos, String key) {
         logger.info("Sending message to Artemis queue: {}", destination);
         logger.info("Message content: {}", message);
-        
+
+        String duplicateId = UUID.randomUUID().toString();
+        if (journal != null && journal.appendIfSpooling(destination, key, message, duplicateId, originTimestampNanos)) {
+            logger.info("Message stored locally for Artemis queue: {}", destination);
+            return false;
+        }
+        long start = System.nanoTime();
         try {
-            artemisJmsTemplate.convertAndSend(destination, message);
+            onShard(key, template -> template.convertAndSend(destination, message, jmsMessage -> {
+                LatencyTracing.stampOrigin(jmsMessage, originTimestampNanos);
+                jmsMessage.setStringProperty(DuplicateIds.PROPERTY, duplicateId);
+                if (key != null) {
+                    jmsMessage.setStringProperty(GROUP_ID, key);
+                }
+                return jmsMessage;
+            }));
+            sendCompleted(start);
             logger.info("Message successfully sent to Artemis queue: {}", destination);
+            return true;
         } catch (Exception e) {
+            if (storeAfterFailure(e, destination, key, message, duplicateId, originTimestampNanos)) {
+                logger.warn("Artemis unavailable ({}), message stored locally for queue: {}", e.getMessage(), destination);
+                return false;
+            }
             logger.error("Error sending message to Artemis: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to send message to Artemis", e);
         }
     }
+
+    /**
+     * Stream a request body of any size to Artemis (for REST API). The body is piped into an Artemis
+     * large message chunk by chunk and never held in memory as a whole.
+     *
+     * @return the number of body bytes sent
+     */
+    public long streamToArtemis(String destination, InputStream body, long originTimestampNanos) {
+        logger.info("Streaming message to Artemis queue: {}", destination);
+
+        LargeMessages.CountingInputStream countingBody = new LargeMessages.CountingInputStream(body);
+        try {
+            // The body can only be read once: no failover to another shard
+            Consumer<JmsTemplate> send = template -> template.send(destination, session -> {
+                BytesMessage bytesMessage = session.createBytesMessage();
+                LargeMessages.setBodyStream(bytesMessage, countingBody);
+                LatencyTracing.stampOrigin(bytesMessage, originTimestampNanos);
+                return bytesMessage;
+            });
+            pinningGuard.run(() -> {
+                if (shards != null) {
+                    shards.executeOnce(null, template -> {
+                        send.accept(template);
+                        return null;
+                    });
+                } else {
+                    send.accept(artemisJmsTemplate);
+                }
+            });
+            logger.info("Streamed {} byte(s) to Artemis queue: {}", countingBody.getCount(), destination);
+            return countingBody.getCount();
+        } catch (Exception e) {
+            logger.error("Error streaming message to Artemis: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to stream message to Artemis", e);
+        }
+    }
+
+    /**
+     * Send message asynchronously (for REST API); returns a tracking ID that can be polled
+     */
+    public String sendToArtemisAsync(String destination, String message) {
+        if (asyncMessageSender == null) {
+            throw new IllegalStateException("Async send mode is not enabled (artemis.async.enabled)");
+        }
+        logger.info("Submitting async message to Artemis queue: {}", destination);
+        return asyncMessageSender.send(destination, message);
+    }
+
+    public AsyncMessageSender.SendTracking getAsyncSendStatus(String trackingId) {
+        return asyncMessageSender != null ? asyncMessageSender.getTracking(trackingId) : null;
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncMessageSender != null;
+    }
+
+    /**
+     * Forward a batch of messages to every destination inside a single Artemis transaction.
+     * Keys of {@code messagesById} are stable source message IDs; each copy is stamped with a
+     * duplicate-detection ID derived from it so a replayed batch is dropped by the broker. If the
+     * broker already has some of them (the batch was redelivered after Artemis committed it), the
+     * transaction is rejected as a whole, so the batch is resent message by message and the copies
+     * the broker already has are skipped.
+     */
+    public void forwardBatchToArtemis(Collection<String> destinations, Map<String, String> messagesById) {
+        logger.debug("Forwarding batch of {} message(s) to Artemis queues: {}", messagesById.size(), destinations);
+
+        Map<String, Map<String, String>> messagesByDestination = new LinkedHashMap<>();
+        for (String destination : fanOutTargets(List.copyOf(destinations))) {
+            messagesByDestination.put(destination, messagesById);
+        }
+        if (journal != null && journal.isSpooling()) {
+            storeBatch(messagesByDestination);
+            return;
+        }
+        try {
+            sendInTransaction(messagesByDestination);
+            logger.debug("Batch of {} message(s) committed to Artemis", messagesById.size());
+        } catch (Exception e) {
+            if (journal != null && e instanceof JmsException && !DuplicateIds.isDuplicateRejection(e)) {
+                logger.warn("Artemis unavailable ({}), storing batch locally", e.getMessage());
+                storeBatch(messagesByDestination);
+                return;
+            }
+            logger.error("Error forwarding batch to Artemis: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to forward batch to Artemis", e);
+        }
+    }
+
+    /**
+     * Forward a batch in which each message has its own destinations (content-based routing)
+     * inside a single Artemis transaction. Values of {@code messagesByDestination} are keyed by
+     * source message ID, and a redelivered batch is resent one by one, as for
+     * {@link #forwardBatchToArtemis}.
+     */
+    public void forwardRoutedBatchToArtemis(Map<String, Map<String, String>> messagesByDestination) {
+        logger.debug("Forwarding routed batch to Artemis queues: {}", messagesByDestination.keySet());
+
+        if (journal != null && journal.isSpooling()) {
+            storeBatch(messagesByDestination);
+            return;
+        }
+        try {
+            sendInTransaction(messagesByDestination);
+            logger.debug("Routed batch committed to Artemis");
+        } catch (Exception e) {
+            if (journal != null && e instanceof JmsException && !DuplicateIds.isDuplicateRejection(e)) {
+                logger.warn("Artemis unavailable ({}), storing routed batch locally", e.getMessage());
+                storeBatch(messagesByDestination);
+                return;
+            }
+            logger.error("Error forwarding routed batch to Artemis: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to forward batch to Artemis", e);
+        }
+    }
+
+    /**
+     * Send a batch of messages to one Artemis queue in a single transaction (for bulk REST ingestion).
+     * Each message gets a duplicate-detection ID, as in {@link #sendToArtemis(String, String, long, String)}.
+     */
+    public void sendBatchToArtemis(String destination, List<String> messages) {
+        logger.debug("Sending batch of {} message(s) to Artemis queue: {}", messages.size(), destination);
+
+        try {
+            sendInTransaction(destination, messages);
+            logger.debug("Batch of {} message(s) committed to Artemis queue: {}", messages.size(), destination);
+        } catch (Exception e) {
+            logger.error("Error sending batch to Artemis: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to send batch to Artemis", e);
+        }
+    }
+
+    /**
+     * Send a batch read back from the {@link StoreAndForwardJournal} in one Artemis transaction,
+     * each copy with its original origin timestamp, duplicate-detection ID and key. If the broker
+     * already has some of them (the batch was committed but not acknowledged in the journal before a
+     * crash), the transaction is rejected as a whole, so the batch is resent message by message and
+     * the copies the broker already has are skipped. When sends are sharded, the messages of each key
+     * are sent in their own transaction to the key's broker, as they would have been without the
+     * journal; unkeyed ones together to any broker.
+     */
+    public void replayToArtemis(List<StoreAndForwardJournal.StoredMessage> batch) {
+        if (shards == null) {
+            replayToArtemis(null, batch);
+            return;
+        }
+        Map<String, List<StoreAndForwardJournal.StoredMessage>> batchesByKey = new LinkedHashMap<>();
+        for (StoreAndForwardJournal.StoredMessage stored : batch) {
+            batchesByKey.computeIfAbsent(stored.getKey(), key -> new ArrayList<>()).add(stored);
+        }
+        // A failure part way leaves the batch unacknowledged; the keys already sent are dropped as duplicates next time
+        batchesByKey.forEach(this::replayToArtemis);
+    }
+
+    private void replayToArtemis(String key, List<StoreAndForwardJournal.StoredMessage> batch) {
+        try {
+            onShard(key, template -> template.execute(session -> {
+                Map<String, MessageProducer> producers = new HashMap<>();
+                try {
+                    for (StoreAndForwardJournal.StoredMessage stored : batch) {
+                        MessageProducer producer = producers.get(stored.getDestination());
+                        if (producer == null) {
+                            producer = createProducer(session, stored.getDestination());
+                            producers.put(stored.getDestination(), producer);
+                        }
+                        Message message = artemisJmsTemplate.getMessageConverter().toMessage(stored.getPayload(), session);
+                        LatencyTracing.stampOrigin(message, stored.getOriginTimestampNanos());
+                        message.setStringProperty(DuplicateIds.PROPERTY, stored.getDuplicateId());
+                        if (stored.getKey() != null) {
+                            message.setStringProperty(GROUP_ID, stored.getKey());
+                        }
+                        send(producer, message);
+                    }
+                } finally {
+                    producers.values().forEach(JmsUtils::closeMessageProducer);
+                }
+                JmsUtils.commitIfNecessary(session);
+                return null;
+            }, true));
+        } catch (RuntimeException e) {
+            if (!DuplicateIds.isDuplicateRejection(e)) {
+                throw e;
+            }
+            logger.info("Part of a replayed batch of {} message(s) is already on the broker, resending one by one", batch.size());
+            for (StoreAndForwardJournal.StoredMessage stored : batch) {
+                sendUnlessDuplicate(stored.getKey(), stored.getDestination(), stored.getPayload(), stored.getDuplicateId(),
+                        stored.getOriginTimestampNanos());
+            }
+        }
+    }
+
+    /**
+     * Send one copy with a duplicate-detection ID on its own, skipping it if the broker already has it.
+     */
+    private void sendUnlessDuplicate(String key, String destination, String payload, String duplicateId,
+                                     long originTimestampNanos) {
+        try {
+            send(key, destination, payload, jmsMessage -> {
+                LatencyTracing.stampOrigin(jmsMessage, originTimestampNanos);
+                jmsMessage.setStringProperty(DuplicateIds.PROPERTY, duplicateId);
+                if (key != null) {
+                    jmsMessage.setStringProperty(GROUP_ID, key);
+                }
+                return jmsMessage;
+            });
+        } catch (RuntimeException sendFailure) {
+            if (!DuplicateIds.isDuplicateRejection(sendFailure)) {
+                throw sendFailure;
+            }
+            logger.debug("Message {} is already on Artemis queue {}, skipping", duplicateId, destination);
+        }
+    }
+
+    private void sendCompleted(long startNanos) {
+        if (journal != null) {
+            journal.sendCompleted(startNanos);
+        }
+    }
+
+    /**
+     * Store a message whose send failed because of the broker (not, say, a conversion error).
+     */
+    private boolean storeAfterFailure(Exception failure, String destination, String key, String message,
+                                      String duplicateId, long originTimestampNanos) {
+        return journal != null && failure instanceof JmsException
+                && journal.store(destination, key, message, duplicateId, originTimestampNanos);
+    }
+
+    private void storeBatch(Map<String, Map<String, String>> messagesByDestination) {
+        long originTimestampNanos = LatencyTracing.now();
+        for (Map.Entry<String, Map<String, String>> batch : messagesByDestination.entrySet()) {
+            for (Map.Entry<String, String> entry : batch.getValue().entrySet()) {
+                if (!journal.store(batch.getKey(), null, entry.getValue(), DuplicateIds.derive(entry.getKey(), batch.getKey()), originTimestampNanos)) {
+                    // Copies stored so far carry duplicate-detection IDs, so the redelivered batch cannot duplicate them
+                    throw new IllegalStateException("Store-and-forward journal cannot take the batch");
+                }
+            }
+        }
+        logger.debug("Batch stored locally for Artemis queues: {}", messagesByDestination.keySet());
+    }
+
+    private void sendInTransaction(Map<String, Map<String, String>> messagesByDestination) {
+        long originTimestampNanos = LatencyTracing.now();
+        try {
+            sendInTransaction(messagesByDestination, originTimestampNanos);
+        } catch (RuntimeException e) {
+            if (!DuplicateIds.isDuplicateRejection(e)) {
+                throw e;
+            }
+            // Artemis rejects the whole transaction when any one copy is a duplicate
+            logger.info("Part of a batch for {} is already on the broker, resending one by one", messagesByDestination.keySet());
+            for (Map.Entry<String, Map<String, String>> batch : messagesByDestination.entrySet()) {
+                for (Map.Entry<String, String> entry : batch.getValue().entrySet()) {
+                    sendUnlessDuplicate(null, batch.getKey(), entry.getValue(), DuplicateIds.derive(entry.getKey(), batch.getKey()),
+                            originTimestampNanos);
+                }
+            }
+        }
+    }
+
+    private void sendInTransaction(Map<String, Map<String, String>> messagesByDestination, long originTimestampNanos) {
+        onShard(null, template -> template.execute(session -> {
+            for (Map.Entry<String, Map<String, String>> batch : messagesByDestination.entrySet()) {
+                String destinationName = batch.getKey();
+                MessageProducer producer = createProducer(session, destinationName);
+                try {
+                    for (Map.Entry<String, String> entry : batch.getValue().entrySet()) {
+                        Message message = artemisJmsTemplate.getMessageConverter().toMessage(entry.getValue(), session);
+                        LatencyTracing.stampOrigin(message, originTimestampNanos);
+                        message.setStringProperty(DuplicateIds.PROPERTY, DuplicateIds.derive(entry.getKey(), destinationName));
+                        send(producer, message);
+                    }
+                } finally {
+                    JmsUtils.closeMessageProducer(producer);
+                }
+            }
+            JmsUtils.commitIfNecessary(session);
+            return null;
+        }, true));
+    }
+
+    private void sendInTransaction(String destinationName, List<String> messages) {
+        long originTimestampNanos = LatencyTracing.now();
+        String batchId = UUID.randomUUID().toString();
+        onShard(null, template -> template.execute(session -> {
+            MessageProducer producer = createProducer(session, destinationName);
+            try {
+                for (int i = 0; i < messages.size(); i++) {
+                    Message message = artemisJmsTemplate.getMessageConverter().toMessage(messages.get(i), session);
+                    LatencyTracing.stampOrigin(message, originTimestampNanos);
+                    message.setStringProperty(DuplicateIds.PROPERTY, batchId + ":" + i);
+                    send(producer, message);
+                }
+            } finally {
+                JmsUtils.closeMessageProducer(producer);
+            }
+            JmsUtils.commitIfNecessary(session);
+            return null;
+        }, true));
+    }
+
+    private MessageProducer createProducer(Session session, String destinationName) throws JMSException {
+        // The fan-out address is multicast: sent to as a queue, the broker would auto-create a queue on it
+        Destination destination = isFanOutAddress(destinationName) ? session.createTopic(destinationName)
+                : artemisJmsTemplate.getDestinationResolver().resolveDestinationName(session, destinationName, false);
+        return session.createProducer(destination);
+    }
+
+    private void send(String key, String destination, String message, MessagePostProcessor postProcessor) {
+        if (isFanOutAddress(destination)) {
+            onShard(key, template -> template.convertAndSend(new ActiveMQTopic(destination), message, postProcessor));
+        } else {
+            onShard(key, template -> template.convertAndSend(destination, message, postProcessor));
+        }
+    }
+
+    /**
+     * Run a send on {@code artemisJmsTemplate}, or, when sends are sharded, on the template of the
+     * shard for {@code key} ({@code null}: unkeyed), failing over to the others while it fails.
+     * Batches are unkeyed and go to one shard as a whole, in one transaction.
+     */
+    private void onShard(String key, Consumer<JmsTemplate> send) {
+        pinningGuard.run(() -> {
+            if (shards != null) {
+                shards.execute(key, template -> {
+                    send.accept(template);
+                    return null;
+                });
+            } else {
+                send.accept(artemisJmsTemplate);
+            }
+        });
+    }
+
+    private boolean isFanOutAddress(String destination) {
+        return brokerFanout != null && brokerFanout.isAddress(destination);
+    }
+
+    private void send(MessageProducer producer, Message message) throws JMSException {
+        producer.send(message, artemisJmsTemplate.getDeliveryMode(),
+                artemisJmsTemplate.getPriority(), artemisJmsTemplate.getTimeToLive());
+    }
 }
@@ -0,0 +1,539 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local store-and-forward journal ({@code artemis.store-and-forward.*}). While the broker is
+ * unreachable, or sends take longer than {@code slow-send-ms}, {@link MessageForwardingService}
+ * appends messages here instead of failing them; {@link JournalForwarder} replays them in order once
+ * the broker accepts sends again, and new sends keep going to the journal until it has drained so
+ * that they do not overtake the backlog.
+ * <p>
+ * The journal is a sequence of memory-mapped segment files ({@code segment-<sequence>.saf}), each
+ * a 32-byte header followed by records {@code [int length][int crc32c][body]}. The length is written
+ * last, so a zero length marks the end of what was appended and {@code -1} that the writer moved on
+ * to the next segment. The replay position is kept in a mapped {@code checkpoint} file; segments
+ * wholly behind it are deleted, which is all the compaction an append-only journal needs. Records
+ * survive a process crash as soon as they are appended (the mapping is in the page cache) and a
+ * power failure only with {@code fsync}; a torn record found on recovery is cut off by its CRC.
+ * <p>
+ * Replayed copies carry the duplicate-detection ID they were stored with, or one derived from the
+ * record's position, so a batch replayed again after a crash between send and checkpoint is dropped
+ * by the broker, and the key they were sent with, so that sharded replays go to the key's broker.
+ * Segments written before keys were stored (version 1) are still replayed, without keys.
+ * <p>
+ * Publishes {@code artemis.saf.backlog} (messages), {@code artemis.saf.backlog.bytes},
+ * {@code artemis.saf.segments}, {@code artemis.saf.spooling} and the counters
+ * {@code artemis.saf.stored} and {@code artemis.saf.replayed}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "artemis.store-and-forward", name = "enabled", havingValue = "true")
+public class StoreAndForwardJournal implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreAndForwardJournal.class);
+
+    private static final int MAGIC = 0x53414631; // "SAF1"
+    private static final int VERSION = 2;
+    private static final int UNKEYED_VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".saf";
+
+    /**
+     * A journaled message, with the position just past it for {@link #acknowledge}.
+     */
+    @Data
+    public static class StoredMessage {
+        private final String destination;
+        private final String key;
+        private final String payload;
+        private final String duplicateId;
+        private final long originTimestampNanos;
+        private final long nextPosition;
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBacklogBytes;
+    private final long slowSendNanos;
+    private final boolean fsync;
+    private final Counter stored;
+    private final Counter replayed;
+
+    // Locks rather than synchronized so virtual-thread callers are not pinned while appending
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final MappedByteBuffer checkpoint;
+    private final FileChannel checkpointChannel;
+    private Segment writeSegment;
+    private long ackPosition;
+    private volatile long backlog;
+    private volatile long backlogBytes;
+    private volatile boolean spooling;
+
+    public StoreAndForwardJournal(ArtemisProperties artemisProperties, ObjectProvider<MeterRegistry> meterRegistry) throws IOException {
+        ArtemisProperties.StoreAndForwardConfig config = artemisProperties.getStoreAndForward();
+        this.directory = Path.of(config.getDirectory());
+        this.segmentSize = config.getSegmentSizeBytes();
+        this.maxBacklogBytes = config.getMaxBacklogBytes();
+        this.slowSendNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowSendMs());
+        this.fsync = config.isFsync();
+
+        Files.createDirectories(directory);
+        checkpointChannel = FileChannel.open(directory.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        recover();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("artemis.saf.backlog", this, StoreAndForwardJournal::getBacklog).register(registry);
+            Gauge.builder("artemis.saf.backlog.bytes", this, StoreAndForwardJournal::getBacklogBytes).register(registry);
+            Gauge.builder("artemis.saf.segments", segments, Map::size).register(registry);
+            Gauge.builder("artemis.saf.spooling", this, journal -> journal.isSpooling() ? 1 : 0).register(registry);
+            stored = Counter.builder("artemis.saf.stored").register(registry);
+            replayed = Counter.builder("artemis.saf.replayed").register(registry);
+        } else {
+            stored = null;
+            replayed = null;
+        }
+        logger.info("Store-and-forward journal in {}: {} segment(s), {} message(s) awaiting replay",
+                directory, segments.size(), backlog);
+    }
+
+    /**
+     * Whether sends currently go to the journal: the broker failed or was slow and the backlog
+     * has not drained since.
+     */
+    public boolean isSpooling() {
+        return spooling;
+    }
+
+    public long getBacklog() {
+        return backlog;
+    }
+
+    public long getBacklogBytes() {
+        return backlogBytes;
+    }
+
+    /**
+     * Note a direct send that took from {@code startNanos} until now; one slower than
+     * {@code slow-send-ms} means the broker is applying backpressure, so later sends are journaled.
+     */
+    public void sendCompleted(long startNanos) {
+        if (slowSendNanos > 0 && !spooling && System.nanoTime() - startNanos > slowSendNanos) {
+            logger.warn("Artemis send took {} ms, storing messages locally until the broker catches up",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            spooling = true;
+        }
+    }
+
+    /**
+     * Append a message if sends are being journaled. The {@code key} ({@code null}: unkeyed) is the
+     * one the message would have been sent with.
+     *
+     * @return whether the message was stored; if not, the caller sends it to the broker
+     */
+    public boolean appendIfSpooling(String destination, String key, String payload, String duplicateId,
+                                    long originTimestampNanos) {
+        lock.lock();
+        try {
+            return spooling && append(destination, key, payload, duplicateId, originTimestampNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a message whose send to the broker failed, and journal later sends until the backlog
+     * has been replayed.
+     *
+     * @return whether the message was stored; not when the backlog is full or the message is larger
+     * than a segment
+     */
+    public boolean store(String destination, String key, String payload, String duplicateId, long originTimestampNanos) {
+        lock.lock();
+        try {
+            if (!spooling) {
+                logger.warn("Artemis send failed, storing messages locally until the broker is back");
+                spooling = true;
+            }
+            return append(destination, key, payload, duplicateId, originTimestampNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean append(String destination, String key, String payload, String duplicateId, long originTimestampNanos) {
+        byte[] destinationBytes = destination.getBytes(StandardCharsets.UTF_8);
+        byte[] keyBytes = key != null ? key.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] duplicateIdBytes = duplicateId != null ? duplicateId.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        int bodySize = Long.BYTES + Short.BYTES + destinationBytes.length + Short.BYTES
+                + (duplicateIdBytes != null ? duplicateIdBytes.length : 0) + Short.BYTES
+                + (keyBytes != null ? keyBytes.length : 0) + Integer.BYTES + payloadBytes.length;
+        int recordSize = RECORD_HEADER_SIZE + bodySize;
+        // Room for the end-of-segment marker must always remain
+        if (recordSize > segmentSize - HEADER_SIZE - Integer.BYTES) {
+            logger.error("Message of {} bytes does not fit in a store-and-forward segment", payloadBytes.length);
+            return false;
+        }
+        if (backlogBytes + recordSize > maxBacklogBytes) {
+            logger.error("Store-and-forward backlog is full ({} bytes), rejecting message for {}", backlogBytes, destination);
+            return false;
+        }
+        try {
+            if (writeSegment.writeOffset + recordSize > segmentSize - Integer.BYTES) {
+                writeSegment.buffer.putInt(writeSegment.writeOffset, END_OF_SEGMENT);
+                force(writeSegment, writeSegment.writeOffset, Integer.BYTES);
+                writeSegment = createSegment(writeSegment.sequence + 1);
+            }
+        } catch (IOException e) {
+            logger.error("Cannot create store-and-forward segment in {}: {}", directory, e.getMessage());
+            return false;
+        }
+
+        MappedByteBuffer buffer = writeSegment.buffer;
+        int offset = writeSegment.writeOffset;
+        ByteBuffer body = buffer.duplicate().position(offset + RECORD_HEADER_SIZE).limit(offset + recordSize);
+        body.putLong(originTimestampNanos);
+        putShortString(body, destinationBytes);
+        putShortString(body, duplicateIdBytes);
+        putShortString(body, keyBytes);
+        body.putInt(payloadBytes.length).put(payloadBytes);
+        buffer.putInt(offset + Integer.BYTES, crc(buffer, offset + RECORD_HEADER_SIZE, bodySize));
+        buffer.putInt(offset, bodySize);
+        force(writeSegment, offset, recordSize);
+
+        writeSegment.writeOffset += recordSize;
+        backlog++;
+        backlogBytes += recordSize;
+        if (stored != null) {
+            stored.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Up to {@code max} of the oldest messages not yet acknowledged, in append order. The same
+     * messages are returned again until they are acknowledged.
+     */
+    public List<StoredMessage> peek(int max) {
+        lock.lock();
+        try {
+            List<StoredMessage> batch = new ArrayList<>(Math.min(max, (int) Math.min(backlog, Integer.MAX_VALUE)));
+            long position = ackPosition;
+            while (batch.size() < max) {
+                position = skipEndOfSegment(position);
+                Segment segment = segments.get(sequence(position));
+                int offset = offset(position);
+                int bodySize = segment.buffer.getInt(offset);
+                if (bodySize == 0) {
+                    break;
+                }
+                ByteBuffer body = segment.buffer.duplicate().position(offset + RECORD_HEADER_SIZE).limit(offset + RECORD_HEADER_SIZE + bodySize);
+                long originTimestampNanos = body.getLong();
+                String destination = getShortString(body);
+                String duplicateId = getShortString(body);
+                String key = segment.version > UNKEYED_VERSION ? getShortString(body) : null;
+                byte[] payload = new byte[body.getInt()];
+                body.get(payload);
+                if (duplicateId == null) {
+                    duplicateId = segment.id + ":" + offset;
+                }
+                position = position(segment.sequence, offset + RECORD_HEADER_SIZE + bodySize);
+                batch.add(new StoredMessage(destination, key, new String(payload, StandardCharsets.UTF_8),
+                        duplicateId, originTimestampNanos, position));
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark a batch returned by {@link #peek} as delivered: move the checkpoint past it, delete
+     * segments that are now wholly replayed, and stop journaling new sends once nothing is left.
+     */
+    public void acknowledge(List<StoredMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            long position = skipEndOfSegment(batch.get(batch.size() - 1).getNextPosition());
+            checkpoint.putLong(0, position);
+            if (fsync) {
+                checkpoint.force();
+            }
+            long released = bytesBetween(ackPosition, position);
+            ackPosition = position;
+            backlog -= batch.size();
+            backlogBytes -= released;
+            deleteSegmentsBefore(sequence(position));
+            if (replayed != null) {
+                replayed.increment(batch.size());
+            }
+            stopSpoolingIfDrained();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send to the broker directly again if nothing awaits replay, e.g. after a slow send that
+     * started journaling was not followed by any message.
+     */
+    public void stopSpoolingIfDrained() {
+        lock.lock();
+        try {
+            if (backlog == 0 && spooling) {
+                spooling = false;
+                logger.info("Store-and-forward backlog replayed, sending to Artemis directly again");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    Segment segment = openSegment(file);
+                    if (segment != null) {
+                        segments.put(segment.sequence, segment);
+                    }
+                }
+            }
+        }
+        long position = checkpoint.getLong(0);
+        if (segments.isEmpty()) {
+            writeSegment = createSegment(Math.max(1, sequence(position)));
+            ackPosition = position(writeSegment.sequence, HEADER_SIZE);
+            checkpoint.putLong(0, ackPosition);
+            return;
+        }
+        if (!segments.containsKey(sequence(position)) || offset(position) < HEADER_SIZE) {
+            position = position(segments.firstKey(), HEADER_SIZE);
+        }
+        ackPosition = position;
+        deleteSegmentsBefore(sequence(position));
+
+        // Count what awaits replay and find where appends continue
+        for (Segment segment : segments.tailMap(sequence(position)).values()) {
+            int offset = segment.sequence == sequence(position) ? offset(position) : HEADER_SIZE;
+            while (true) {
+                int bodySize = segment.buffer.getInt(offset);
+                if (bodySize == 0 || bodySize == END_OF_SEGMENT) {
+                    break;
+                }
+                if (bodySize < 0 || offset + RECORD_HEADER_SIZE + bodySize > segmentSize - Integer.BYTES
+                        || segment.buffer.getInt(offset + Integer.BYTES) != crc(segment.buffer, offset + RECORD_HEADER_SIZE, bodySize)) {
+                    logger.warn("Discarding torn store-and-forward record at {}:{}", segment.file.getFileName(), offset);
+                    if (segment == segments.lastEntry().getValue()) {
+                        segment.buffer.put(offset, new byte[segmentSize - offset]);
+                    } else {
+                        segment.buffer.putInt(offset, END_OF_SEGMENT);
+                    }
+                    break;
+                }
+                offset += RECORD_HEADER_SIZE + bodySize;
+                backlog++;
+                backlogBytes += RECORD_HEADER_SIZE + bodySize;
+            }
+            segment.writeOffset = offset;
+        }
+        writeSegment = segments.lastEntry().getValue();
+        if (writeSegment.version != VERSION) {
+            // Records of one segment share a layout: append new ones to a segment of the current version
+            writeSegment.buffer.putInt(writeSegment.writeOffset, END_OF_SEGMENT);
+            writeSegment = createSegment(writeSegment.sequence + 1);
+        }
+        spooling = backlog > 0;
+    }
+
+    /**
+     * The position itself, or the start of the next segment when it is at an end-of-segment marker.
+     */
+    private long skipEndOfSegment(long position) {
+        Segment segment = segments.get(sequence(position));
+        int offset = offset(position);
+        if (segment.buffer.getInt(offset) == END_OF_SEGMENT) {
+            Map.Entry<Long, Segment> next = segments.higherEntry(segment.sequence);
+            if (next != null) {
+                return position(next.getKey(), HEADER_SIZE);
+            }
+        }
+        return position;
+    }
+
+    private long bytesBetween(long from, long to) {
+        if (sequence(from) == sequence(to)) {
+            return offset(to) - offset(from);
+        }
+        long bytes = segments.get(sequence(from)).writeOffset - offset(from);
+        for (Segment segment : segments.subMap(sequence(from), false, sequence(to), false).values()) {
+            bytes += segment.writeOffset - HEADER_SIZE;
+        }
+        return bytes + offset(to) - HEADER_SIZE;
+    }
+
+    private void deleteSegmentsBefore(long sequence) {
+        while (!segments.isEmpty() && segments.firstKey() < sequence) {
+            Segment segment = segments.pollFirstEntry().getValue();
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.file);
+                logger.debug("Deleted replayed store-and-forward segment {}", segment.file.getFileName());
+            } catch (IOException e) {
+                logger.warn("Cannot delete store-and-forward segment {}: {}", segment.file, e.getMessage());
+            }
+        }
+    }
+
+    private Segment createSegment(long sequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            UUID id = UUID.randomUUID();
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, sequence)
+                    .putLong(16, id.getMostSignificantBits()).putLong(24, id.getLeastSignificantBits());
+            buffer.force(0, HEADER_SIZE);
+            Segment segment = new Segment(file, channel, buffer, VERSION, sequence, id);
+            segment.writeOffset = HEADER_SIZE;
+            segments.put(sequence, segment);
+            return segment;
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private Segment openSegment(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() != segmentSize) {
+            channel.close();
+            throw new IllegalStateException("Store-and-forward segment " + file + " is " + channel.size()
+                    + " bytes, not segment-size-bytes (" + segmentSize + "); replay or remove it before changing the size");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        int version = buffer.getInt(4);
+        if (buffer.getInt(0) != MAGIC || version < UNKEYED_VERSION || version > VERSION) {
+            channel.close();
+            logger.warn("Ignoring {}: not a store-and-forward segment", file);
+            return null;
+        }
+        return new Segment(file, channel, buffer, version, buffer.getLong(8), new UUID(buffer.getLong(16), buffer.getLong(24)));
+    }
+
+    private void force(Segment segment, int offset, int length) {
+        if (fsync) {
+            segment.buffer.force(offset, length);
+        }
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+
+    private static void putShortString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
+
+    private static String getShortString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long position(long sequence, int offset) {
+        return sequence << 32 | offset;
+    }
+
+    private static long sequence(long position) {
+        return position >>> 32;
+    }
+
+    private static int offset(long position) {
+        return (int) position;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+            checkpoint.force();
+            checkpointChannel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final int version;
+        final long sequence;
+        final UUID id;
+        int writeOffset;
+
+        Segment(Path file, FileChannel channel, MappedByteBuffer buffer, int version, long sequence, UUID id) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.version = version;
+            this.sequence = sequence;
+            this.id = id;
+        }
+    }
+}
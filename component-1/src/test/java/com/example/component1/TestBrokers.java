@@ -0,0 +1,87 @@
+package com.example.component1;
+
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-persistent in-VM brokers and helpers for tests that need a real Artemis server.
+ */
+public final class TestBrokers {
+
+    private TestBrokers() {
+    }
+
+    /**
+     * Start an {@link EmbeddedArtemisBroker} on {@code vm://<serverId>}.
+     */
+    public static EmbeddedArtemisBroker start(int serverId, Path dataDirectory) throws Exception {
+        ArtemisProperties properties = new ArtemisProperties();
+        properties.setBroker(new ArtemisProperties.BrokerConfig());
+        properties.getEmbedded().setServerId(serverId);
+        properties.getEmbedded().setPersistent(false);
+        properties.getEmbedded().setDataDirectory(dataDirectory.toString());
+        return new EmbeddedArtemisBroker(properties);
+    }
+
+    public static ActiveMQConnectionFactory connectionFactory(EmbeddedArtemisBroker broker) {
+        return new ActiveMQConnectionFactory(broker.getUrl());
+    }
+
+    /**
+     * A template set up like component-1's {@code artemisJmsTemplate}: transacted, persistent sends.
+     */
+    public static JmsTemplate jmsTemplate(ConnectionFactory connectionFactory) {
+        JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setDeliveryPersistent(true);
+        jmsTemplate.setSessionTransacted(true);
+        return jmsTemplate;
+    }
+
+    /**
+     * Receive the text of every message on {@code queue} until it stays empty for {@code timeoutMs}.
+     */
+    public static List<String> drain(ConnectionFactory connectionFactory, String queue, long timeoutMs) throws JMSException {
+        List<String> texts = new ArrayList<>();
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(queue));
+            for (Message message = consumer.receive(timeoutMs); message != null; message = consumer.receive(timeoutMs)) {
+                texts.add(message instanceof TextMessage text ? text.getText() : message.getClass().getSimpleName());
+            }
+        }
+        return texts;
+    }
+
+    /**
+     * A provider of {@code bean}, for optional collaborators.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ObjectProvider<T> of(T bean) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("bean", bean);
+        return beanFactory.getBeanProvider((Class<T>) bean.getClass());
+    }
+
+    /**
+     * A provider with no bean, for optional collaborators.
+     */
+    public static <T> ObjectProvider<T> none(Class<T> type) {
+        return new StaticListableBeanFactory().getBeanProvider(type);
+    }
+}
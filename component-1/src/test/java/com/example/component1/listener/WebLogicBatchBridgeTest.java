@@ -0,0 +1,201 @@
+package com.example.component1.listener;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.LaneProperties;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.TestBrokers;
+import com.example.component1.config.ArtemisProperties;
+import com.example.component1.config.WebLogicProperties;
+import com.example.component1.routing.ContentRouter;
+import com.example.component1.service.BrokerFanout;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import com.example.component1.service.MessageForwardingService;
+import com.example.component1.service.StoreAndForwardJournal;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The bridge against an Artemis broker standing in for WebLogic: the input and error queues live on
+ * the same broker as the destinations.
+ */
+class WebLogicBatchBridgeTest {
+
+    private static final String INPUT_QUEUE = "weblogic.input.queue";
+    private static final String ERROR_QUEUE = "weblogic.error.queue";
+    private static final String DESTINATION = "component2.queue";
+
+    @TempDir
+    Path dataDirectory;
+
+    private EmbeddedArtemisBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private WebLogicProperties properties;
+    private MessageForwardingService forwardingService;
+    private WebLogicBatchBridge bridge;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = TestBrokers.start(0, dataDirectory);
+        connectionFactory = TestBrokers.connectionFactory(broker);
+
+        properties = new WebLogicProperties();
+        properties.getBridge().setConsumers(1);
+        properties.getBridge().setBatchSize(10);
+        properties.getBridge().setLingerMs(200);
+        properties.getBridge().setReceiveTimeoutMs(100);
+        properties.getBridge().setStatsIntervalMs(0);
+        properties.getBridge().setDestinations(List.of(DESTINATION));
+        forwardingService = new MessageForwardingService(TestBrokers.jmsTemplate(connectionFactory),
+                TestBrokers.none(AsyncMessageSender.class), PinningGuard.unbounded(), TestBrokers.none(BrokerFanout.class),
+                TestBrokers.none(StoreAndForwardJournal.class), TestBrokers.none(BrokerShards.class));
+        bridge = new WebLogicBatchBridge(connectionFactory, forwardingService, properties, TestBrokers.none(ContentRouter.class),
+                TestBrokers.none(LaneRouter.class));
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        if (bridge.isRunning()) {
+            bridge.stop();
+        }
+        connectionFactory.close();
+        broker.destroy();
+    }
+
+    @Test
+    void unsupportedMessageMovesToErrorQueueWithoutBlockingTheBatch() throws Exception {
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(INPUT_QUEUE));
+            producer.send(session.createTextMessage("first"));
+            BytesMessage poison = session.createBytesMessage();
+            poison.writeBytes(new byte[] {1, 2, 3});
+            producer.send(poison);
+            producer.send(session.createTextMessage("second"));
+        }
+
+        runUntilHandled(bridge, 3);
+
+        assertThat(bridge.getBatchesFailed()).isZero();
+        assertThat(TestBrokers.drain(connectionFactory, DESTINATION, 200)).containsExactly("first", "second");
+        assertThat(TestBrokers.drain(connectionFactory, ERROR_QUEUE, 200)).containsExactly("ActiveMQBytesMessage");
+        assertThat(TestBrokers.drain(connectionFactory, INPUT_QUEUE, 200)).isEmpty();
+    }
+
+    @Test
+    void batchRedeliveredAfterPartialCommitIsForwardedOnce() throws Exception {
+        List<String> messageIds = sendInput("first", "second", "third");
+        // Artemis committed the first copy before the bridge stopped, but WebLogic did not
+        forwardingService.forwardToArtemis(DESTINATION, "first", LatencyTracing.now(), messageIds.get(0));
+
+        runUntilHandled(bridge, 3);
+
+        assertThat(bridge.getBatchesFailed()).isZero();
+        assertThat(TestBrokers.drain(connectionFactory, DESTINATION, 200)).containsExactly("first", "second", "third");
+        assertThat(TestBrokers.drain(connectionFactory, INPUT_QUEUE, 200)).isEmpty();
+    }
+
+    @Test
+    void batchIsJournaledWhileSpoolingAndReplayed() throws Exception {
+        ArtemisProperties artemisProperties = new ArtemisProperties();
+        artemisProperties.getStoreAndForward().setDirectory(dataDirectory.resolve("journal").toString());
+        StoreAndForwardJournal journal = new StoreAndForwardJournal(artemisProperties, TestBrokers.none(MeterRegistry.class));
+        try {
+            MessageForwardingService journaling = new MessageForwardingService(TestBrokers.jmsTemplate(connectionFactory),
+                    TestBrokers.none(AsyncMessageSender.class), PinningGuard.unbounded(), TestBrokers.none(BrokerFanout.class),
+                    TestBrokers.of(journal), TestBrokers.none(BrokerShards.class));
+            WebLogicBatchBridge journalingBridge = new WebLogicBatchBridge(connectionFactory, journaling, properties,
+                    TestBrokers.none(ContentRouter.class), TestBrokers.none(LaneRouter.class));
+            // A message already waits in the journal, so the batch must queue up behind it
+            journal.store(DESTINATION, null, "stored", null, LatencyTracing.now());
+            sendInput("first", "second");
+
+            runUntilHandled(journalingBridge, 2);
+
+            assertThat(TestBrokers.drain(connectionFactory, DESTINATION, 200)).isEmpty();
+            assertThat(TestBrokers.drain(connectionFactory, INPUT_QUEUE, 200)).isEmpty();
+            List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(10);
+            journaling.replayToArtemis(batch);
+            journal.acknowledge(batch);
+            assertThat(TestBrokers.drain(connectionFactory, DESTINATION, 200)).containsExactly("stored", "first", "second");
+        } finally {
+            journal.destroy();
+        }
+    }
+
+    @Test
+    void eachMessageGoesToItsLaneQueue() throws Exception {
+        LaneProperties laneProperties = new LaneProperties();
+        laneProperties.setQueues(List.of(DESTINATION));
+        WebLogicBatchBridge laneBridge = new WebLogicBatchBridge(connectionFactory, forwardingService, properties,
+                TestBrokers.none(ContentRouter.class), TestBrokers.of(new LaneRouter(laneProperties)));
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(INPUT_QUEUE));
+            producer.send(session.createTextMessage("urgent"), DeliveryMode.PERSISTENT, 9, 0);
+            producer.send(session.createTextMessage("normal"));
+            TextMessage named = session.createTextMessage("backfill");
+            named.setStringProperty(laneProperties.getHeader(), "bulk");
+            producer.send(named, DeliveryMode.PERSISTENT, 9, 0);
+        }
+
+        runUntilHandled(laneBridge, 3);
+
+        assertThat(TestBrokers.drain(connectionFactory, DESTINATION + ".high", 200)).containsExactly("urgent");
+        assertThat(TestBrokers.drain(connectionFactory, DESTINATION, 200)).containsExactly("normal");
+        assertThat(TestBrokers.drain(connectionFactory, DESTINATION + ".bulk", 200)).containsExactly("backfill");
+    }
+
+    private List<String> sendInput(String... texts) throws Exception {
+        List<String> messageIds = new ArrayList<>();
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(INPUT_QUEUE));
+            for (String text : texts) {
+                TextMessage message = session.createTextMessage(text);
+                producer.send(message);
+                messageIds.add(message.getJMSMessageID());
+            }
+        }
+        return messageIds;
+    }
+
+    private static void runUntilHandled(WebLogicBatchBridge bridge, int messages) throws InterruptedException {
+        bridge.start();
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (bridge.getMessagesBridged() + bridge.getMessagesRejected() < messages && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        bridge.stop();
+    }
+
+    @Test
+    void notCreatedWithoutWebLogicUrl() {
+        new ApplicationContextRunner()
+                .withPropertyValues("weblogic.bridge.enabled=true")
+                .withUserConfiguration(WebLogicBatchBridge.class)
+                .run(context -> {
+                    assertThat(context).hasNotFailed();
+                    assertThat(context).doesNotHaveBean(WebLogicBatchBridge.class);
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.component1.reactive;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.component1.TestBrokers;
+import com.example.component1.config.ReactiveIngestionProperties;
+import com.example.component1.service.EmbeddedArtemisBroker;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveIngestionServerTest {
+
+    private static final String QUEUE = "component2.queue";
+
+    @TempDir
+    Path dataDirectory;
+
+    private EmbeddedArtemisBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private AsyncMessageSender sender;
+    private ReactiveIngestionServer server;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = TestBrokers.start(0, dataDirectory);
+        connectionFactory = TestBrokers.connectionFactory(broker);
+        sender = new AsyncMessageSender(connectionFactory, 1, 16, 1000, 0, 100, 60000);
+        ReactiveIngestionProperties properties = new ReactiveIngestionProperties();
+        properties.setHost("127.0.0.1");
+        properties.setPort(0);
+        properties.setEventLoopThreads(1);
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("asyncMessageSender", sender);
+        server = new ReactiveIngestionServer(properties, beanFactory.getBeanProvider(AsyncMessageSender.class));
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        if (server.isRunning()) {
+            server.stop();
+        }
+        sender.destroy();
+        connectionFactory.close();
+        broker.destroy();
+    }
+
+    @Test
+    void sendsAfterRestart() throws Exception {
+        server.start();
+        assertThat(send("first")).isEqualTo(200);
+        server.stop();
+
+        server.start();
+        assertThat(send("second")).isEqualTo(200);
+
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE, 200)).containsExactly("first", "second");
+    }
+
+    private int send(String message) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/api/messages/send"))
+                .POST(HttpRequest.BodyPublishers.ofString(message))
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.component1.routing;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompiledRulesTest {
+
+    private static final String ORDER_XML = """
+            <order region="EU"><customer><tier>gold</tier></customer><total>250.5</total>\
+            <item>book</item><item>lamp</item></order>""";
+    private static final String ORDER_JSON = """
+            {"order": {"region": "EU", "customer": {"tier": "gold"}, "total": 250.5, "item": ["book", "lamp"]}}""";
+
+    @Test
+    void fieldConditionsMatchXmlAndJson() {
+        CompiledRules rules = compile("""
+                rules:
+                  - name: gold
+                    destinations: gold.queue
+                    when:
+                      - field: order/customer/tier
+                        equals: gold
+                  - name: large
+                    destinations: large.queue
+                    when:
+                      - field: order/total
+                        greater-than: 100
+                  - name: lamps
+                    destinations: lamp.queue
+                    when:
+                      - field: order/item
+                        one-of: [lamp, desk]
+                  - name: small
+                    destinations: small.queue
+                    when:
+                      - field: order/total
+                        less-than: 100
+                """);
+
+        assertThat(rules.evaluate(ORDER_XML, null)).containsExactly("gold.queue", "large.queue", "lamp.queue");
+        assertThat(rules.evaluate(ORDER_JSON, null)).containsExactly("gold.queue", "large.queue", "lamp.queue");
+    }
+
+    @Test
+    void attributePathsMatchOnlyXmlAttributes() {
+        CompiledRules rules = compile("""
+                rules:
+                  - destinations: eu.queue
+                    when:
+                      - field: order/@region
+                        matches: "E[UE]"
+                """);
+
+        assertThat(rules.evaluate(ORDER_XML, null)).containsExactly("eu.queue");
+        assertThat(rules.evaluate(ORDER_JSON, null)).isEmpty();
+    }
+
+    @Test
+    void headerAndFieldConditionsMustAllHold() {
+        CompiledRules rules = compile("""
+                rules:
+                  - destinations: priority.queue
+                    when:
+                      - header: source
+                        equals: web
+                      - field: order/customer/tier
+                        equals: gold
+                """);
+
+        assertThat(rules.evaluate(ORDER_XML, Map.of("source", "web")::get)).containsExactly("priority.queue");
+        assertThat(rules.evaluate(ORDER_XML, Map.of("source", "batch")::get)).isEmpty();
+        assertThat(rules.evaluate("<order/>", Map.of("source", "web")::get)).isEmpty();
+    }
+
+    @Test
+    void matchingRulesAddDestinationsInFileOrderUntilStop() {
+        CompiledRules rules = compile("""
+                rules:
+                  - destinations: [audit.queue, gold.queue]
+                  - name: gold
+                    destinations: [gold.queue, vip.queue]
+                    stop: true
+                    when:
+                      - field: order/customer/tier
+                        equals: gold
+                  - destinations: late.queue
+                """);
+
+        assertThat(rules.evaluate(ORDER_XML, null)).containsExactly("audit.queue", "gold.queue", "vip.queue");
+        assertThat(rules.evaluate("<order/>", null)).containsExactly("audit.queue", "gold.queue", "late.queue");
+    }
+
+    @Test
+    void existsFalseHoldsOnlyWhenTheFieldOrHeaderIsMissing() {
+        CompiledRules rules = compile("""
+                rules:
+                  - name: anonymous
+                    destinations: anonymous.queue
+                    when:
+                      - field: order/customer
+                        exists: false
+                  - name: untraced
+                    destinations: untraced.queue
+                    when:
+                      - header: trace-id
+                        exists: false
+                  - name: known
+                    destinations: known.queue
+                    when:
+                      - field: order/customer
+                        exists: true
+                """);
+
+        assertThat(rules.evaluate(ORDER_XML, Map.of("trace-id", "t-1")::get)).containsExactly("known.queue");
+        assertThat(rules.evaluate(ORDER_JSON, null)).containsExactly("untraced.queue", "known.queue");
+        assertThat(rules.evaluate("<order><total>1</total></order>", Map.of("trace-id", "t-1")::get))
+                .containsExactly("anonymous.queue");
+        assertThat(rules.evaluate("{\"order\": {}}", null)).containsExactly("anonymous.queue", "untraced.queue");
+    }
+
+    @Test
+    void existsFalseWithAnotherTestIsRejected() {
+        assertThatThrownBy(() -> compile("""
+                rules:
+                  - destinations: queue
+                    when:
+                      - field: order/customer/tier
+                        exists: false
+                        equals: gold
+                """))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("order/customer/tier combines exists: false with another test");
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThatThrownBy(() -> compile("""
+                rules:
+                  - name: twice
+                    destinations: a
+                  - name: twice
+                    destinations: b
+                """)).hasMessageContaining("Duplicate routing rule name: twice");
+        assertThatThrownBy(() -> compile("""
+                rules:
+                  - name: nowhere
+                """)).hasMessageContaining("nowhere has no destinations");
+        assertThatThrownBy(() -> compile("""
+                rules:
+                  - destinations: a
+                    when:
+                      - field: order/tier
+                """)).hasMessageContaining("has no test");
+    }
+
+    @Test
+    void matchesAreCountedPerRule() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CompiledRules rules = CompiledRules.compile(definition("""
+                rules:
+                  - name: gold
+                    destinations: gold.queue
+                    when:
+                      - field: order/customer/tier
+                        equals: gold
+                """), registry);
+
+        rules.evaluate(ORDER_XML, null);
+        rules.evaluate(ORDER_JSON, null);
+        rules.evaluate("<order/>", null);
+
+        assertThat(registry.get("routing.rule.matches").tag("rule", "gold").counter().count()).isEqualTo(2);
+    }
+
+    private static RoutingRulesDefinition definition(String yaml) {
+        Object document = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+        return new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategies.KEBAB_CASE)
+                .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+                .convertValue(document, RoutingRulesDefinition.class);
+    }
+
+    private static CompiledRules compile(String yaml) {
+        return CompiledRules.compile(definition(yaml), null);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.component1.routing;
+
+import com.example.component1.TestBrokers;
+import com.example.component1.config.RoutingProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentRouterTest {
+
+    private static final List<String> FALLBACK = List.of("component2.queue");
+    private static final String GOLD = "<order><tier>gold</tier></order>";
+
+    @TempDir
+    Path directory;
+
+    private final RoutingProperties properties = new RoutingProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private Path rulesFile;
+    private long modifiedMillis = 1_000_000;
+
+    @BeforeEach
+    void configure() {
+        rulesFile = directory.resolve("routing-rules.yml");
+        properties.setRulesFile(rulesFile.toString());
+        properties.setReloadIntervalMs(0);
+    }
+
+    @Test
+    void unmatchedMessagesGoToTheDefaultDestinationsElseTheFallback() throws Exception {
+        ContentRouter router = new ContentRouter(properties, TestBrokers.none(MeterRegistry.class));
+        assertThat(router.route(GOLD, null, FALLBACK)).isEqualTo(FALLBACK);
+
+        write("""
+                default-destinations: unrouted.queue
+                rules:
+                  - destinations: gold.queue
+                    when:
+                      - field: order/tier
+                        equals: gold
+                """);
+        assertThat(router.reload()).isTrue();
+
+        assertThat(router.route(GOLD, null, FALLBACK)).containsExactly("gold.queue");
+        assertThat(router.route("<order/>", null, FALLBACK)).containsExactly("unrouted.queue");
+    }
+
+    @Test
+    void changedFileReplacesTheRules() throws Exception {
+        write("""
+                rules:
+                  - destinations: gold.queue
+                    when:
+                      - field: order/tier
+                        equals: gold
+                """);
+        ContentRouter router = new ContentRouter(properties, TestBrokers.none(MeterRegistry.class));
+        assertThat(router.reload()).isFalse();
+
+        write("""
+                rules:
+                  - destinations: silver.queue
+                    when:
+                      - field: order/tier
+                        one-of: [gold, silver]
+                  - destinations: audit.queue
+                """);
+        assertThat(router.reload()).isTrue();
+
+        assertThat(router.getRuleCount()).isEqualTo(2);
+        assertThat(router.route(GOLD, null, FALLBACK)).containsExactly("silver.queue", "audit.queue");
+    }
+
+    @Test
+    void invalidFileKeepsThePreviousRules() throws Exception {
+        write("""
+                rules:
+                  - destinations: gold.queue
+                    when:
+                      - field: order/tier
+                        equals: gold
+                """);
+        ContentRouter router = new ContentRouter(properties, TestBrokers.none(MeterRegistry.class));
+
+        write("""
+                rules:
+                  - destinations: other.queue
+                    when:
+                      - field: order/tier
+                        exists: false
+                        equals: gold
+                """);
+        assertThat(router.reload()).isFalse();
+
+        assertThat(router.getRuleCount()).isEqualTo(1);
+        assertThat(router.route(GOLD, null, FALLBACK)).containsExactly("gold.queue");
+    }
+
+    @Test
+    void reloadRemovesTheCountersOfDroppedRules() throws Exception {
+        write("""
+                rules:
+                  - name: gold
+                    destinations: gold.queue
+                  - name: silver
+                    destinations: silver.queue
+                """);
+        ContentRouter router = new ContentRouter(properties, TestBrokers.of(registry));
+        router.route(GOLD, null, FALLBACK);
+
+        write("""
+                rules:
+                  - name: gold
+                    destinations: gold.queue
+                  - name: bronze
+                    destinations: bronze.queue
+                """);
+        assertThat(router.reload()).isTrue();
+        router.route(GOLD, null, FALLBACK);
+
+        assertThat(registry.find("routing.rule.matches").counters())
+                .extracting(counter -> counter.getId().getTag("rule"))
+                .containsExactlyInAnyOrder("gold", "bronze");
+        assertThat(registry.get("routing.rule.matches").tag("rule", "gold").counter().count()).isEqualTo(2);
+        assertThat(registry.get("routing.rule.matches").tag("rule", "bronze").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Write the rules file with a later modification time, as reload only compares timestamps.
+     */
+    private void write(String yaml) throws IOException {
+        Files.writeString(rulesFile, yaml);
+        modifiedMillis += 1000;
+        Files.setLastModifiedTime(rulesFile, FileTime.fromMillis(modifiedMillis));
+    }
+}
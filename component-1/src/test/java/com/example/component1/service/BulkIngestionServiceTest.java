@@ -0,0 +1,69 @@
+package com.example.component1.service;
+
+import com.example.component1.config.ArtemisProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class BulkIngestionServiceTest {
+
+    private final List<String> sent = new ArrayList<>();
+    private BulkIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        MessageForwardingService forwardingService = mock(MessageForwardingService.class);
+        doAnswer(invocation -> sent.addAll(invocation.getArgument(1)))
+                .when(forwardingService).sendBatchToArtemis(anyString(), anyList());
+        service = new BulkIngestionService(forwardingService, new ArtemisProperties());
+    }
+
+    @Test
+    void splitItemsKeepTheWrapperNamespaces() throws Exception {
+        String body = """
+                <messages xmlns="urn:orders" xmlns:p="urn:parties" xmlns:x="urn:unused">\
+                <order id="1"><p:buyer>a</p:buyer></order>\
+                <order id="2" xmlns:p="urn:people"><p:buyer>b</p:buyer></order>\
+                </messages>""";
+
+        service.ingestXml("component2.queue", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 10);
+
+        assertThat(sent).hasSize(2);
+        Element first = parse(sent.get(0));
+        assertThat(first.getNamespaceURI()).isEqualTo("urn:orders");
+        assertThat(((Element) first.getFirstChild()).getNamespaceURI()).isEqualTo("urn:parties");
+        Element second = parse(sent.get(1));
+        assertThat(second.getNamespaceURI()).isEqualTo("urn:orders");
+        // The item's own declaration of a prefix wins over the wrapper's
+        assertThat(((Element) second.getFirstChild()).getNamespaceURI()).isEqualTo("urn:people");
+    }
+
+    @Test
+    void itemsWithoutNamespacesAreUnchanged() throws Exception {
+        String body = "<messages><order id=\"1\">a</order></messages>";
+
+        service.ingestXml("component2.queue", new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 10);
+
+        assertThat(sent).containsExactly("<order id=\"1\">a</order>");
+    }
+
+    private static Element parse(String xml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml))).getDocumentElement();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.component1.service;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.component1.TestBrokers;
+import com.example.component1.config.ArtemisProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replaying the store-and-forward journal to an embedded broker.
+ */
+class JournalForwarderTest {
+
+    private static final String QUEUE = "component2.queue";
+
+    @TempDir
+    Path dataDirectory;
+
+    private final ArtemisProperties properties = new ArtemisProperties();
+    private EmbeddedArtemisBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private StoreAndForwardJournal journal;
+    private MessageForwardingService service;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = TestBrokers.start(0, dataDirectory.resolve("broker"));
+        connectionFactory = TestBrokers.connectionFactory(broker);
+        properties.getStoreAndForward().setDirectory(dataDirectory.resolve("journal").toString());
+        properties.getStoreAndForward().setReplayBatchSize(2);
+        properties.getStoreAndForward().setRetryBackoffMs(50);
+        openJournal();
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        journal.destroy();
+        connectionFactory.close();
+        broker.destroy();
+    }
+
+    @Test
+    void backlogIsReplayedInOrder() throws Exception {
+        journal.store(QUEUE, null, "first", null, LatencyTracing.now());
+        // Sent while the backlog waits, so it must not overtake it
+        service.forwardToArtemis(QUEUE, "second", LatencyTracing.now(), "id-2");
+        journal.store(QUEUE, null, "third", null, LatencyTracing.now());
+        assertThat(journal.getBacklog()).isEqualTo(3);
+
+        JournalForwarder forwarder = new JournalForwarder(journal, service, properties);
+        forwarder.start();
+        try {
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (journal.isSpooling() && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            forwarder.stop();
+        }
+
+        assertThat(journal.getBacklog()).isZero();
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE, 200)).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void batchReplayedAgainAfterCrashIsNotDuplicated() throws Exception {
+        journal.store(QUEUE, null, "first", null, LatencyTracing.now());
+        journal.store(QUEUE, null, "second", null, LatencyTracing.now());
+        // Committed on the broker, but the process stops before the journal checkpoint
+        service.replayToArtemis(journal.peek(10));
+        journal.destroy();
+
+        openJournal();
+        journal.store(QUEUE, null, "third", null, LatencyTracing.now());
+        List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(10);
+        assertThat(batch).hasSize(3);
+        service.replayToArtemis(batch);
+        journal.acknowledge(batch);
+
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE, 200)).containsExactly("first", "second", "third");
+        assertThat(journal.isSpooling()).isFalse();
+    }
+
+    private void openJournal() throws IOException {
+        journal = new StoreAndForwardJournal(properties, TestBrokers.none(MeterRegistry.class));
+        service = new MessageForwardingService(TestBrokers.jmsTemplate(connectionFactory), TestBrokers.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(), TestBrokers.none(BrokerFanout.class), TestBrokers.of(journal),
+                TestBrokers.none(BrokerShards.class));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.component1.service;
+
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.BrokerShards;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ShardingProperties;
+import com.example.component1.TestBrokers;
+import com.example.component1.config.ArtemisProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.jms.Connection;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageForwardingServiceTest {
+
+    private static final String QUEUE_2 = "component2.queue";
+    private static final String QUEUE_4 = "component4.queue";
+
+    @TempDir
+    Path dataDirectory;
+
+    private EmbeddedArtemisBroker broker;
+    private ActiveMQConnectionFactory connectionFactory;
+    private MessageForwardingService service;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker = TestBrokers.start(0, dataDirectory);
+        connectionFactory = TestBrokers.connectionFactory(broker);
+        service = new MessageForwardingService(TestBrokers.jmsTemplate(connectionFactory), TestBrokers.none(AsyncMessageSender.class),
+                PinningGuard.unbounded(), TestBrokers.none(BrokerFanout.class),
+                TestBrokers.none(StoreAndForwardJournal.class), TestBrokers.none(BrokerShards.class));
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        connectionFactory.close();
+        broker.destroy();
+    }
+
+    @Test
+    void redeliveredBatchDrainsAfterPartialCommit() throws Exception {
+        service.forwardBatchToArtemis(List.of(QUEUE_2, QUEUE_4), batch("id-1", "id-2"));
+
+        // Redelivered by WebLogic together with a message Artemis has not seen yet
+        service.forwardBatchToArtemis(List.of(QUEUE_2, QUEUE_4), batch("id-1", "id-2", "id-3"));
+
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE_2, 200)).containsExactly("id-1", "id-2", "id-3");
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE_4, 200)).containsExactly("id-1", "id-2", "id-3");
+    }
+
+    @Test
+    void redeliveredRoutedBatchDrains() throws Exception {
+        Map<String, Map<String, String>> routed = new LinkedHashMap<>();
+        routed.put(QUEUE_2, batch("id-1"));
+        routed.put(QUEUE_4, batch("id-2"));
+        service.forwardRoutedBatchToArtemis(routed);
+
+        routed.put(QUEUE_2, batch("id-1", "id-3"));
+        service.forwardRoutedBatchToArtemis(routed);
+
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE_2, 200)).containsExactly("id-1", "id-3");
+        assertThat(TestBrokers.drain(connectionFactory, QUEUE_4, 200)).containsExactly("id-2");
+    }
+
+    @Test
+    void restSendCarriesDuplicateId() throws Exception {
+        service.sendToArtemis(QUEUE_2, "rest", LatencyTracing.now(), "key-1");
+
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Message message = session.createConsumer(session.createQueue(QUEUE_2)).receive(1000);
+            assertThat(message.getStringProperty(DuplicateIds.PROPERTY)).isNotBlank();
+            assertThat(message.getStringProperty("JMSXGroupID")).isEqualTo("key-1");
+        }
+    }
+
+    @Test
+    void replayRoutesEachKeyToItsBroker() throws Exception {
+        EmbeddedArtemisBroker otherBroker = TestBrokers.start(1, dataDirectory.resolve("other"));
+        ActiveMQConnectionFactory otherConnectionFactory = TestBrokers.connectionFactory(otherBroker);
+        ArtemisProperties properties = new ArtemisProperties();
+        properties.getStoreAndForward().setDirectory(dataDirectory.resolve("journal").toString());
+        StoreAndForwardJournal journal = new StoreAndForwardJournal(properties, TestBrokers.none(MeterRegistry.class));
+        try {
+            BrokerShards shards = new BrokerShards(List.of(
+                    new BrokerShards.Shard("a", 1, TestBrokers.jmsTemplate(connectionFactory)),
+                    new BrokerShards.Shard("b", 1, TestBrokers.jmsTemplate(otherConnectionFactory))),
+                    new ShardingProperties(), null);
+            MessageForwardingService sharded = new MessageForwardingService(TestBrokers.jmsTemplate(connectionFactory),
+                    TestBrokers.none(AsyncMessageSender.class), PinningGuard.unbounded(), TestBrokers.none(BrokerFanout.class),
+                    TestBrokers.of(journal), TestBrokers.of(shards));
+            // Keys owned by each broker, stored in alternation
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; keys.size() < 4; i++) {
+                String key = "key-" + i;
+                if (shards.candidates(key).get(0).getName().equals(keys.size() % 2 == 0 ? "a" : "b")) {
+                    keys.add(key);
+                }
+            }
+            for (String key : keys) {
+                journal.store(QUEUE_2, key, key, null, LatencyTracing.now());
+            }
+
+            List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(10);
+            sharded.replayToArtemis(batch);
+            journal.acknowledge(batch);
+
+            assertThat(TestBrokers.drain(connectionFactory, QUEUE_2, 200)).containsExactly(keys.get(0), keys.get(2));
+            assertThat(TestBrokers.drain(otherConnectionFactory, QUEUE_2, 200)).containsExactly(keys.get(1), keys.get(3));
+            assertThat(journal.getBacklog()).isZero();
+        } finally {
+            journal.destroy();
+            otherConnectionFactory.close();
+            otherBroker.destroy();
+        }
+    }
+
+    /**
+     * A batch keyed by source message ID whose payloads are the IDs themselves.
+     */
+    private static Map<String, String> batch(String... ids) {
+        Map<String, String> batch = new LinkedHashMap<>();
+        for (String id : ids) {
+            batch.put(id, id);
+        }
+        return batch;
+    }
+}
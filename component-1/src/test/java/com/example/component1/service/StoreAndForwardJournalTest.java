@@ -0,0 +1,216 @@
+package com.example.component1.service;
+
+import com.example.component1.TestBrokers;
+import com.example.component1.config.ArtemisProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StoreAndForwardJournalTest {
+
+    private static final String QUEUE = "component2.queue";
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private final ArtemisProperties properties = new ArtemisProperties();
+    private StoreAndForwardJournal journal;
+
+    @AfterEach
+    void close() throws IOException {
+        if (journal != null) {
+            journal.destroy();
+        }
+    }
+
+    @Test
+    void backlogSurvivesRestart() throws Exception {
+        open();
+        journal.store(QUEUE, "key-1", "first", "id-1", 11);
+        journal.store(QUEUE, null, "second", null, 12);
+
+        reopen();
+
+        assertThat(journal.isSpooling()).isTrue();
+        assertThat(journal.getBacklog()).isEqualTo(2);
+        List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(10);
+        assertThat(batch).extracting(StoreAndForwardJournal.StoredMessage::getPayload).containsExactly("first", "second");
+        assertThat(batch.get(0).getKey()).isEqualTo("key-1");
+        assertThat(batch.get(0).getDuplicateId()).isEqualTo("id-1");
+        assertThat(batch.get(0).getOriginTimestampNanos()).isEqualTo(11);
+        assertThat(batch.get(1).getKey()).isNull();
+    }
+
+    @Test
+    void acknowledgedMessagesAreNotReplayedAfterRestart() throws Exception {
+        open();
+        journal.store(QUEUE, null, "first", null, 0);
+        journal.store(QUEUE, null, "second", null, 0);
+        journal.store(QUEUE, null, "third", null, 0);
+        journal.acknowledge(journal.peek(2));
+
+        reopen();
+
+        assertThat(journal.getBacklog()).isEqualTo(1);
+        assertThat(journal.peek(10)).extracting(StoreAndForwardJournal.StoredMessage::getPayload).containsExactly("third");
+    }
+
+    @Test
+    void unacknowledgedBatchKeepsItsDuplicateIds() throws Exception {
+        open();
+        journal.store(QUEUE, null, "first", null, 0);
+        journal.store(QUEUE, null, "second", "id-2", 0);
+        List<String> before = duplicateIds(journal.peek(10));
+
+        // A crash between the broker commit and the checkpoint: the batch is replayed again
+        reopen();
+
+        assertThat(duplicateIds(journal.peek(10))).isEqualTo(before).doesNotContainNull().contains("id-2").doesNotHaveDuplicates();
+    }
+
+    @Test
+    void tornRecordIsCutOffOnRecovery() throws Exception {
+        open();
+        journal.store(QUEUE, null, "first", null, 0);
+        journal.store(QUEUE, null, "second", null, 0);
+        journal.destroy();
+        journal = null;
+        // Damage the last byte of the second record's payload, as a write cut short by a power failure would
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        int end = lastRecordEnd(bytes);
+        bytes[end - 1] ^= 0x7f;
+        Files.write(segment, bytes);
+
+        open();
+        assertThat(journal.getBacklog()).isEqualTo(1);
+        journal.store(QUEUE, null, "third", null, 0);
+
+        reopen();
+        assertThat(journal.peek(10)).extracting(StoreAndForwardJournal.StoredMessage::getPayload).containsExactly("first", "third");
+    }
+
+    @Test
+    void replayedSegmentsAreDeleted() throws Exception {
+        open();
+        String payload = "x".repeat(1000);
+        for (int i = 0; i < 10; i++) {
+            assertThat(journal.store(QUEUE, null, payload, null, 0)).isTrue();
+        }
+        assertThat(segments()).hasSizeGreaterThan(2);
+
+        List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(100);
+        assertThat(batch).hasSize(10);
+        journal.acknowledge(batch);
+
+        assertThat(segments()).hasSize(1);
+        assertThat(journal.getBacklog()).isZero();
+        assertThat(journal.getBacklogBytes()).isZero();
+        assertThat(journal.isSpooling()).isFalse();
+    }
+
+    @Test
+    void oversizedMessageIsRejectedWithoutBlockingTheJournal() throws Exception {
+        open();
+        assertThat(journal.store(QUEUE, null, "x".repeat(SEGMENT_SIZE), null, 0)).isFalse();
+        assertThat(journal.store(QUEUE, null, "next", null, 0)).isTrue();
+
+        assertThat(journal.peek(10)).extracting(StoreAndForwardJournal.StoredMessage::getPayload).containsExactly("next");
+    }
+
+    @Test
+    void fullBacklogRejectsMessages() throws Exception {
+        properties.getStoreAndForward().setMaxBacklogBytes(100);
+        open();
+
+        assertThat(journal.store(QUEUE, null, "x".repeat(40), null, 0)).isTrue();
+        assertThat(journal.store(QUEUE, null, "x".repeat(40), null, 0)).isFalse();
+        assertThat(journal.getBacklog()).isEqualTo(1);
+    }
+
+    @Test
+    void segmentsWithoutKeysAreStillReplayed() throws Exception {
+        writeUnkeyedSegment(directory.resolve("segment-0000000000000001.saf"), "old");
+
+        open();
+        journal.store(QUEUE, "key-1", "new", null, 0);
+
+        assertThat(journal.getBacklog()).isEqualTo(2);
+        List<StoreAndForwardJournal.StoredMessage> batch = journal.peek(10);
+        assertThat(batch).extracting(StoreAndForwardJournal.StoredMessage::getPayload).containsExactly("old", "new");
+        assertThat(batch).extracting(StoreAndForwardJournal.StoredMessage::getKey).containsExactly(null, "key-1");
+        journal.acknowledge(batch);
+        assertThat(segments()).hasSize(1);
+    }
+
+    private void open() throws IOException {
+        properties.getStoreAndForward().setDirectory(directory.toString());
+        properties.getStoreAndForward().setSegmentSizeBytes(SEGMENT_SIZE);
+        journal = new StoreAndForwardJournal(properties, TestBrokers.none(MeterRegistry.class));
+    }
+
+    private void reopen() throws IOException {
+        journal.destroy();
+        open();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".saf")).sorted().toList();
+        }
+    }
+
+    private static List<String> duplicateIds(List<StoreAndForwardJournal.StoredMessage> batch) {
+        return batch.stream().map(StoreAndForwardJournal.StoredMessage::getDuplicateId).toList();
+    }
+
+    /**
+     * Offset just past the last record of a segment: records are {@code [int length][int crc][body]}
+     * after a 32-byte header.
+     */
+    private static int lastRecordEnd(byte[] segment) {
+        ByteBuffer buffer = ByteBuffer.wrap(segment);
+        int offset = 32;
+        while (buffer.getInt(offset) > 0) {
+            offset += 8 + buffer.getInt(offset);
+        }
+        return offset;
+    }
+
+    /**
+     * A version 1 segment, as written before records carried a key, holding one message.
+     */
+    private static void writeUnkeyedSegment(Path file, String payload) throws IOException {
+        byte[] destination = QUEUE.getBytes(StandardCharsets.UTF_8);
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(Long.BYTES + Short.BYTES + destination.length + Short.BYTES
+                + Integer.BYTES + payloadBytes.length).order(ByteOrder.BIG_ENDIAN);
+        body.putLong(0).putShort((short) destination.length).put(destination).putShort((short) -1)
+                .putInt(payloadBytes.length).put(payloadBytes).flip();
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_SIZE);
+        segment.putInt(0x53414631).putInt(1).putLong(1).putLong(7).putLong(9);
+        segment.putInt(body.remaining()).putInt((int) crc.getValue()).put(body);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(segment.clear());
+        }
+    }
+}
@@ -1,17 +1,56 @@
 package com.example.component2.config;
 
-import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import com.example.artemis.common.ArtemisClientProperties;
+import com.example.artemis.common.ArtemisConnectionFactories;
+import com.example.artemis.common.AutoscalerProperties;
+import com.example.artemis.common.BatchListenerContainer;
+import com.example.artemis.common.BatchListenerProperties;
+import com.example.artemis.common.DeduplicationProperties;
+import com.example.artemis.common.LatencyEndpoint;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.ListenerConcurrencyAutoscaler;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.RetryProperties;
+import com.example.artemis.common.RetryScheduler;
+import com.example.artemis.common.RetryingMessageListenerContainer;
+import com.example.artemis.common.ShardListenerContainers;
+import com.example.artemis.common.ShardingProperties;
+import com.example.artemis.common.VirtualThreads;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import com.example.component2.listener.ArtemisMessageListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
-import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
 
 import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @Configuration
+@EnableConfigurationProperties({ArtemisClientProperties.class, AutoscalerProperties.class, BatchListenerProperties.class,
+        DeduplicationProperties.class, RetryProperties.class, ShardingProperties.class, WireFormatProperties.class})
 public class ArtemisJmsConfig {
 
+    private final ArtemisClientProperties clientProperties;
+    private final BatchListenerProperties batchProperties;
+    private final Environment environment;
+
     @Value("${artemis.broker.url}")
     private String brokerUrl;
 
@@ -24,18 +63,144 @@ public class ArtemisJmsConfig {
     @Value("${artemis.listener.concurrent-consumers:5}")
     private int concurrentConsumers;
 
+    @Value("${artemis.queue.name:component2.queue}")
+    private String queueName;
+
+    @Value("${artemis.sharding.enabled:false}")
+    private boolean sharded;
+
+    public ArtemisJmsConfig(ArtemisClientProperties clientProperties, BatchListenerProperties batchProperties,
+                            Environment environment) {
+        this.clientProperties = clientProperties;
+        this.batchProperties = batchProperties;
+        this.environment = environment;
+    }
+
+    @Primary
+    @Bean
+    public ConnectionFactory connectionFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        return ArtemisConnectionFactories.createPooled("artemis", brokerUrl, user, password,
+                clientProperties, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Pool for the listener containers, without the consumer caching of {@link #connectionFactory};
+     * it only connects once a container starts.
+     */
     @Bean
-    public ConnectionFactory connectionFactory() {
-        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(brokerUrl, user, password);
-        return new CachingConnectionFactory(factory);
+    public ConnectionFactory listenerConnectionFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        return ArtemisConnectionFactories.createListenerPool("artemis-listener", brokerUrl, user, password,
+                clientProperties, meterRegistry.getIfAvailable());
     }
 
     @Bean
-    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(ConnectionFactory connectionFactory) {
-        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+    public WireMessageConverter messageConverter(WireFormatProperties wireFormatProperties) {
+        return new WireMessageConverter(wireFormatProperties);
+    }
+
+    @Bean
+    public LatencyRecorder latencyRecorder(MeterRegistry meterRegistry) {
+        return new LatencyRecorder(meterRegistry);
+    }
+
+    @Bean
+    public LatencyEndpoint latencyEndpoint(LatencyRecorder latencyRecorder) {
+        return new LatencyEndpoint(latencyRecorder);
+    }
+
+    @Bean
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            WireMessageConverter messageConverter,
+            ObjectProvider<RetryScheduler> retryScheduler) {
+        RetryScheduler scheduler = retryScheduler.getIfAvailable();
+        DefaultJmsListenerContainerFactory factory = scheduler != null
+                ? RetryingMessageListenerContainer.factory(scheduler) : new DefaultJmsListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
         factory.setConcurrency(String.valueOf(concurrentConsumers));
         factory.setSessionTransacted(true);
+        // The batch container, or one container per shard, consumes the queue instead of the per-message @JmsListener
+        factory.setAutoStartup(!batchProperties.isEnabled() && !sharded);
+        VirtualThreads.apply(factory, environment, "artemis-listener-");
         return factory;
     }
+
+    @Bean
+    @ConditionalOnExpression("${artemis.listener.batch.enabled:false} and !${artemis.sharding.enabled:false}")
+    public BatchListenerContainer batchListenerContainer(
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            ArtemisMessageListener listener,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<RetryScheduler> retryScheduler) {
+        BatchListenerContainer container = new BatchListenerContainer(connectionFactory, queueName, listener,
+                batchProperties, concurrentConsumers, meterRegistry.getIfAvailable());
+        container.setTaskExecutor(VirtualThreads.taskExecutor(environment, "artemis-batch-listener-"));
+        container.setRetryScheduler(retryScheduler.getIfAvailable());
+        return container;
+    }
+
+    /**
+     * One container per broker in {@code artemis.sharding.brokers}: batch containers when batch
+     * consumption is enabled, per-message ones otherwise.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.sharding", name = "enabled", havingValue = "true")
+    public ShardListenerContainers shardListenerContainers(ShardingProperties shardingProperties,
+                                                           ArtemisMessageListener listener,
+                                                           ObjectProvider<MeterRegistry> meterRegistry,
+                                                           ObjectProvider<RetryScheduler> retryScheduler) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        RetryScheduler scheduler = retryScheduler.getIfAvailable();
+        return new ShardListenerContainers(shardingProperties, clientProperties, registry, (shard, connectionFactory) -> {
+            if (batchProperties.isEnabled()) {
+                BatchListenerContainer container = new BatchListenerContainer(connectionFactory, queueName, listener,
+                        batchProperties, concurrentConsumers, registry, Tags.of("shard", shard));
+                container.setTaskExecutor(VirtualThreads.taskExecutor(environment, "artemis-batch-listener-" + shard + "-"));
+                container.setRetryScheduler(scheduler);
+                return container;
+            }
+            DefaultMessageListenerContainer container = scheduler != null
+                    ? new RetryingMessageListenerContainer(scheduler) : new DefaultMessageListenerContainer();
+            container.setConnectionFactory(connectionFactory);
+            container.setDestinationName(queueName);
+            container.setSessionTransacted(true);
+            container.setConcurrency(String.valueOf(concurrentConsumers));
+            container.setMessageListener((SessionAwareMessageListener<Message>) (message, session) -> {
+                try {
+                    listener.onMessage(message, session);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (VirtualThreads.isEnabled(environment)) {
+                container.setTaskExecutor(VirtualThreads.taskExecutor(environment, "artemis-listener-" + shard + "-"));
+            }
+            container.afterPropertiesSet();
+            return container;
+        });
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.retry", name = "enabled", havingValue = "true")
+    public RetryScheduler retryScheduler(RetryProperties retryProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RetryScheduler(queueName, retryProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.dedup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ProcessedMessageCache processedMessageCache(DeduplicationProperties deduplicationProperties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ProcessedMessageCache(queueName, deduplicationProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.autoscaler", name = "enabled", havingValue = "true")
+    public ListenerConcurrencyAutoscaler listenerConcurrencyAutoscaler(
+            JmsListenerEndpointRegistry registry,
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            AutoscalerProperties autoscalerProperties,
+            MeterRegistry meterRegistry) {
+        return new ListenerConcurrencyAutoscaler(registry, connectionFactory, autoscalerProperties, meterRegistry);
+    }
 }
@@ -1,34 +1,221 @@
 package com.example.component2.listener;
 
+import com.example.artemis.common.BatchMessageListener;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LargeMessages;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.Replies;
+import com.example.artemis.common.WireMessageConverter;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
-public class ArtemisMessageListener {
+public class ArtemisMessageListener implements BatchMessageListener {
 
     private static final Logger logger = LoggerFactory.getLogger(ArtemisMessageListener.class);
 
+    /** Reply body for requests (messages with a {@code JMSReplyTo}); replace with the business result. */
+    private static final String PROCESSED_REPLY = "Processed by Component 2";
+
+    private final LatencyRecorder latencyRecorder;
+    private final ProcessedMessageCache processedMessages;
+
+    @Value("${artemis.queue.name:component2.queue}")
+    private String queueName;
+
+    @Value("${artemis.large-message.mode:stream}")
+    private String largeMessageMode;
+
+    @Value("${artemis.large-message.directory:large-messages}")
+    private String largeMessageDirectory;
+
+    public ArtemisMessageListener(LatencyRecorder latencyRecorder, ObjectProvider<ProcessedMessageCache> processedMessages) {
+        this.latencyRecorder = latencyRecorder;
+        this.processedMessages = processedMessages.getIfAvailable();
+    }
+
+    /**
+     * Takes the raw message so that streamed bodies are never converted to a {@code String} or
+     * {@code byte[]}: text payloads (TextMessages and UTF-8 BytesMessages, see {@link WireMessageConverter})
+     * go to {@link #receiveMessage}, other bytes messages (the REST {@code /stream} endpoint's large
+     * messages) to {@link #receiveStream}. Text requests are answered with the processing result on
+     * the consuming session (see {@link Replies}), so the reply commits with the receive.
+     */
     @JmsListener(destination = "${artemis.queue.name:component2.queue}")
-    public void receiveMessage(String message) {
+    public void onMessage(Message jmsMessage, Session session) throws JMSException, IOException {
+        if (WireMessageConverter.isText(jmsMessage)) {
+            String result = receiveMessage(WireMessageConverter.readText(jmsMessage), LatencyTracing.originTimestamp(jmsMessage),
+                    LatencyTracing.hopTimestamp(jmsMessage), LatencyTracing.hopCount(jmsMessage), jmsMessage);
+            Replies.send(session, jmsMessage, result);
+        } else if (jmsMessage instanceof BytesMessage bytesMessage) {
+            receiveStream(bytesMessage);
+        } else {
+            throw new IllegalArgumentException("Unsupported message type: " + jmsMessage.getClass().getName());
+        }
+    }
+
+    /**
+     * Processes a text message and returns the result, which {@link #onMessage} sends back to requesters.
+     * A duplicate is not processed again but still answered: the reply to the earlier delivery may
+     * have rolled back with it.
+     */
+    public String receiveMessage(String message, Long originTimestampNanos, Long hopTimestampNanos, Integer hopCount,
+                                 Message jmsMessage) throws JMSException {
+        latencyRecorder.record(queueName, originTimestampNanos, hopTimestampNanos);
+
+        String messageKey = DuplicateIds.key(jmsMessage);
+        if (isDuplicate(messageKey)) {
+            logger.info("Skipping already processed message {}", messageKey);
+            return PROCESSED_REPLY;
+        }
+
         logger.info("============================================");
         logger.info("COMPONENT 2: Received message from Artemis");
         logger.info("Queue: component2.queue");
         logger.info("Message: {}", message);
         logger.info("Timestamp: {}", System.currentTimeMillis());
+        logger.info("Hop count: {}", hopCount);
         logger.info("============================================");
         
         // Process the message
-        processMessage(message);
+        String result = processMessage(message);
+        markProcessed(messageKey);
+        return result;
+    }
+
+    /**
+     * Streamed (large) message entry point. The body is read as a stream, or written straight to
+     * {@code artemis.large-message.directory} when {@code artemis.large-message.mode} is {@code disk};
+     * it is never held in memory as a whole.
+     */
+    public void receiveStream(BytesMessage message) throws JMSException, IOException {
+        latencyRecorder.record(queueName, LatencyTracing.originTimestamp(message), LatencyTracing.hopTimestamp(message));
+
+        String messageKey = DuplicateIds.key(message);
+        if (isDuplicate(messageKey)) {
+            logger.info("Skipping already processed message {}", messageKey);
+            return;
+        }
+
+        logger.info("COMPONENT 2: Received streamed message {} from Artemis", message.getJMSMessageID());
+        processStream(message);
+        markProcessed(messageKey);
+    }
+
+    /**
+     * Batch entry point, used instead of {@link #receiveMessage} when {@code artemis.listener.batch.enabled}
+     * is set. The whole batch is processed and committed in one transaction.
+     */
+    @Override
+    public void receiveBatch(List<Message> messages) throws JMSException, IOException {
+        receiveBatch(messages, null);
+    }
+
+    /**
+     * Batch entry point of the container; text requests in the batch are answered on {@code session}
+     * once the batch has been processed, duplicates included.
+     */
+    @Override
+    public void receiveBatch(List<Message> messages, Session session) throws JMSException, IOException {
+        List<String> payloads = new ArrayList<>(messages.size());
+        Set<String> messageKeys = new HashSet<>();
+        List<Message> requests = new ArrayList<>();
+        for (Message message : messages) {
+            if (!WireMessageConverter.isText(message)) {
+                if (!(message instanceof BytesMessage bytesMessage)) {
+                    throw new IllegalArgumentException("Unsupported message type: " + message.getClass().getName());
+                }
+                // Streamed bodies are processed as they come rather than collected with the batch
+                receiveStream(bytesMessage);
+                continue;
+            }
+            latencyRecorder.record(queueName, LatencyTracing.originTimestamp(message), LatencyTracing.hopTimestamp(message));
+            if (Replies.isRequest(message)) {
+                requests.add(message);
+            }
+            String messageKey = DuplicateIds.key(message);
+            // Also drops a duplicate that arrives in the same batch as its original
+            if (isDuplicate(messageKey) || !messageKeys.add(messageKey)) {
+                logger.info("Skipping already processed message {}", messageKey);
+                continue;
+            }
+            payloads.add(WireMessageConverter.readText(message));
+        }
+
+        logger.info("COMPONENT 2: Received batch of {} message(s) from Artemis", payloads.size());
+        processBatch(payloads);
+        messageKeys.forEach(this::markProcessed);
+        for (Message request : requests) {
+            Replies.send(session, request, PROCESSED_REPLY);
+        }
+    }
+
+    private boolean isDuplicate(String messageKey) {
+        return processedMessages != null && messageKey != null && processedMessages.isDuplicate(messageKey);
+    }
+
+    /**
+     * Recorded once processing succeeded: if the commit then fails, the redelivery is skipped
+     * instead of being processed a second time.
+     */
+    private void markProcessed(String messageKey) {
+        if (processedMessages != null && messageKey != null) {
+            processedMessages.markProcessed(messageKey);
+        }
+    }
+
+    private void processBatch(List<String> messages) {
+        logger.debug("Processing batch of {} message(s) in Component 2...", messages.size());
+
+        // Add your bulk business logic here (e.g. one multi-row insert per batch)
+        // For POC, we just log the messages
+        messages.forEach(message -> logger.debug("Message: {}", message));
+    }
+
+    private void processStream(BytesMessage message) throws JMSException, IOException {
+        if ("disk".equalsIgnoreCase(largeMessageMode)) {
+            Path file = Path.of(largeMessageDirectory, message.getJMSMessageID().replaceAll("[^A-Za-z0-9._-]", "_") + ".bin");
+            long bytes = LargeMessages.saveBody(message, file);
+            logger.info("Streamed message body saved to {} ({} bytes)", file, bytes);
+
+            // Add your business logic here, reading the body from the file
+            return;
+        }
+
+        try (InputStream body = LargeMessages.bodyStream(message)) {
+            // Add your business logic here, consuming the body incrementally (e.g. with a StAX reader)
+            // For POC, we just count the bytes
+            long bytes = body.transferTo(OutputStream.nullOutputStream());
+            logger.info("Streamed message body processed ({} bytes)", bytes);
+        }
     }
 
-    private void processMessage(String message) {
+    private String processMessage(String message) {
         logger.info("Processing message in Component 2...");
         
         // Add your business logic here
         // For POC, we just log the message
         
         logger.info("Message processed successfully");
+        return PROCESSED_REPLY;
     }
 }
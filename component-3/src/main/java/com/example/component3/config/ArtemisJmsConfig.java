@@ -1,18 +1,61 @@
 package com.example.component3.config;
 
+import com.example.artemis.common.AdmissionLimiter;
+import com.example.artemis.common.AdmissionProperties;
+import com.example.artemis.common.ArtemisClientProperties;
+import com.example.artemis.common.ArtemisConnectionFactories;
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.AutoscalerProperties;
+import com.example.artemis.common.DeduplicationProperties;
+import com.example.artemis.common.LaneProperties;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LatencyEndpoint;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.ListenerConcurrencyAutoscaler;
+import com.example.artemis.common.PayloadCompression;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.RetryProperties;
+import com.example.artemis.common.RetryScheduler;
+import com.example.artemis.common.RetryingMessageListenerContainer;
+import com.example.artemis.common.VirtualThreads;
+import com.example.artemis.common.WireFormatProperties;
+import com.example.artemis.common.WireMessageConverter;
+import com.example.component3.listener.ArtemisMessageListener;
+import com.example.component3.ordering.KeyOrderedConsumer;
+import com.example.component3.ordering.OrderingKeyExtractor;
+import com.example.component3.relay.CoreRelay;
+import com.example.component3.reply.ReplyCorrelator;
+import com.example.component3.reply.RequestReplyClient;
+import com.example.component3.service.MessageForwardingService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
-import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
 import org.springframework.jms.core.JmsTemplate;
 
 import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+
+import java.util.UUID;
 
 @Configuration
+@EnableConfigurationProperties({AdmissionProperties.class, ArtemisClientProperties.class, AutoscalerProperties.class, DeduplicationProperties.class,
+        LaneProperties.class, RetryProperties.class, WireFormatProperties.class})
 public class ArtemisJmsConfig {
 
+    private final ArtemisClientProperties clientProperties;
+    private final Environment environment;
+
     @Value("${artemis.broker.url}")
     private String brokerUrl;
 
@@ -25,26 +68,212 @@ public class ArtemisJmsConfig {
     @Value("${artemis.listener.concurrent-consumers:5}")
     private int concurrentConsumers;
 
+    @Value("${artemis.queue.input:component3-to-component4}")
+    private String inputQueue;
+
+    @Value("${artemis.queue.output:component4.queue}")
+    private String outputQueue;
+
+    @Value("${artemis.relay.mode:jms}")
+    private String relayMode;
+
+    @Value("${artemis.ordered.enabled:false}")
+    private boolean orderedEnabled;
+
+    @Value("${artemis.async.confirmation-window-size:1048576}")
+    private int asyncConfirmationWindowSize;
+
+    @Value("${artemis.async.sessions:4}")
+    private int asyncSessions;
+
+    @Value("${artemis.async.max-in-flight:10000}")
+    private int asyncMaxInFlight;
+
+    @Value("${artemis.async.window-timeout-ms:5000}")
+    private long asyncWindowTimeoutMs;
+
+    @Value("${artemis.async.max-retries:3}")
+    private int asyncMaxRetries;
+
+    @Value("${artemis.async.retry-backoff-ms:100}")
+    private long asyncRetryBackoffMs;
+
+    @Value("${artemis.async.tracking-retention-ms:300000}")
+    private long asyncTrackingRetentionMs;
+
+    public ArtemisJmsConfig(ArtemisClientProperties clientProperties, Environment environment) {
+        // Every producer and consumer here uses artemis.broker.url; refuse to run as if sharded
+        if (environment.getProperty("artemis.sharding.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("Component 3 does not support artemis.sharding: it relays, sends and "
+                    + "consumes on artemis.broker.url only. Disable artemis.sharding.enabled for Component 3");
+        }
+        this.clientProperties = clientProperties;
+        this.environment = environment;
+    }
+
+    @Primary
     @Bean
-    public ConnectionFactory connectionFactory() {
-        ActiveMQConnectionFactory factory = new ActiveMQConnectionFactory(brokerUrl, user, password);
-        return new CachingConnectionFactory(factory);
+    public ConnectionFactory connectionFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        return ArtemisConnectionFactories.createPooled("artemis", brokerUrl, user, password,
+                clientProperties, meterRegistry.getIfAvailable());
     }
 
+    /**
+     * Pool for the listener containers, without the consumer caching of {@link #connectionFactory};
+     * it only connects once a container starts.
+     */
     @Bean
-    public JmsTemplate jmsTemplate(ConnectionFactory connectionFactory) {
+    public ConnectionFactory listenerConnectionFactory(ObjectProvider<MeterRegistry> meterRegistry) {
+        return ArtemisConnectionFactories.createListenerPool("artemis-listener", brokerUrl, user, password,
+                clientProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public WireMessageConverter messageConverter(WireFormatProperties wireFormatProperties) {
+        return new WireMessageConverter(wireFormatProperties);
+    }
+
+    @Bean
+    public LatencyRecorder latencyRecorder(MeterRegistry meterRegistry) {
+        return new LatencyRecorder(meterRegistry);
+    }
+
+    @Bean
+    public LatencyEndpoint latencyEndpoint(LatencyRecorder latencyRecorder) {
+        return new LatencyEndpoint(latencyRecorder);
+    }
+
+    @Bean
+    public JmsTemplate jmsTemplate(ConnectionFactory connectionFactory, WireMessageConverter messageConverter) {
         JmsTemplate jmsTemplate = new JmsTemplate(connectionFactory);
         jmsTemplate.setDeliveryPersistent(true);
         jmsTemplate.setSessionTransacted(true);
+        jmsTemplate.setMessageConverter(messageConverter);
         return jmsTemplate;
     }
 
     @Bean
-    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(ConnectionFactory connectionFactory) {
-        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            WireMessageConverter messageConverter,
+            ObjectProvider<RetryScheduler> retryScheduler) {
+        RetryScheduler scheduler = retryScheduler.getIfAvailable();
+        DefaultJmsListenerContainerFactory factory = scheduler != null
+                ? RetryingMessageListenerContainer.factory(scheduler) : new DefaultJmsListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
         factory.setConcurrency(String.valueOf(concurrentConsumers));
         factory.setSessionTransacted(true);
+        // The core relay or the key-ordered consumer, when enabled, consume the input queue instead
+        factory.setAutoStartup(!"core".equals(relayMode) && !orderedEnabled);
+        VirtualThreads.apply(factory, environment, "artemis-listener-");
         return factory;
     }
+
+    @Bean
+    public PinningGuard pinningGuard(@Value("${artemis.virtual-threads.max-pinned-sends:0}") int maxPinnedSends) {
+        return PinningGuard.forEnvironment(environment, maxPinnedSends);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.admission", name = "enabled", havingValue = "true")
+    public AdmissionLimiter admissionLimiter(AdmissionProperties admissionProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new AdmissionLimiter(admissionProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.lanes", name = "enabled", havingValue = "true")
+    public LaneRouter laneRouter(LaneProperties laneProperties) {
+        return new LaneRouter(laneProperties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.async", name = "enabled", havingValue = "true")
+    public AsyncMessageSender asyncMessageSender(WireMessageConverter messageConverter) throws JMSException {
+        ActiveMQConnectionFactory factory = ArtemisConnectionFactories.create(brokerUrl, user, password, clientProperties);
+        // A positive confirmation window is what lets Artemis complete CompletionListener sends
+        factory.setConfirmationWindowSize(asyncConfirmationWindowSize);
+        AsyncMessageSender sender = new AsyncMessageSender(factory, asyncSessions, asyncMaxInFlight, asyncWindowTimeoutMs,
+                asyncMaxRetries, asyncRetryBackoffMs, asyncTrackingRetentionMs);
+        sender.setMessageConverter(messageConverter);
+        return sender;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.relay", name = "mode", havingValue = "core")
+    public CoreRelay coreRelay(LatencyRecorder latencyRecorder, WireFormatProperties wireFormatProperties,
+                               @Value("${artemis.relay.prefix:" + ArtemisMessageListener.PROCESSED_PREFIX + "}") String prefix,
+                               @Value("${artemis.relay.receive-timeout-ms:1000}") long receiveTimeoutMs) {
+        ActiveMQConnectionFactory factory = ArtemisConnectionFactories.create(brokerUrl, user, password, clientProperties);
+        return new CoreRelay(factory.getServerLocator(), user, password, inputQueue, outputQueue, prefix,
+                new PayloadCompression(wireFormatProperties.getCompression()), concurrentConsumers, receiveTimeoutMs, latencyRecorder,
+                VirtualThreads.taskExecutor(environment, "artemis-core-relay-"));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.ordered", name = "enabled", havingValue = "true")
+    public KeyOrderedConsumer keyOrderedConsumer(
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            ArtemisMessageListener listener,
+            MessageForwardingService forwardingService,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${artemis.ordered.key-source:group-id}") String keySource,
+            @Value("${artemis.ordered.key-field:orderId}") String keyField,
+            @Value("${artemis.ordered.lanes:0}") int lanes,
+            @Value("${artemis.ordered.lane-capacity:1000}") int laneCapacity,
+            @Value("${artemis.ordered.max-attempts:3}") int maxAttempts,
+            @Value("${artemis.ordered.retry-backoff-ms:100}") long retryBackoffMs) {
+        OrderingKeyExtractor keyExtractor = new OrderingKeyExtractor(
+                OrderingKeyExtractor.Source.valueOf(keySource.trim().toUpperCase().replace('-', '_')), keyField);
+        return new KeyOrderedConsumer(connectionFactory, inputQueue, keyExtractor, listener::receiveOrdered,
+                forwardingService::forwardToDeadLetter, lanes, laneCapacity, maxAttempts, retryBackoffMs,
+                meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Request/reply client for {@code POST /api/messages/request}. Without a configured
+     * {@code reply-queue} each instance gets its own {@code component3.replies.<random id>}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.request-reply", name = "enabled", havingValue = "true")
+    public RequestReplyClient requestReplyClient(ConnectionFactory connectionFactory,
+                                                 WireMessageConverter messageConverter,
+                                                 PinningGuard pinningGuard,
+                                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                                 @Value("${artemis.request-reply.reply-queue:}") String replyQueue,
+                                                 @Value("${artemis.request-reply.timeout-ms:10000}") long timeoutMs,
+                                                 @Value("${artemis.request-reply.max-outstanding:10000}") int maxOutstanding,
+                                                 @Value("${artemis.request-reply.persistent:false}") boolean persistent) {
+        String queue = replyQueue.isBlank() ? "component3.replies." + UUID.randomUUID().toString().substring(0, 8) : replyQueue;
+        ReplyCorrelator correlator = new ReplyCorrelator(queue, timeoutMs, maxOutstanding, meterRegistry.getIfAvailable());
+        return new RequestReplyClient(connectionFactory, messageConverter, queue, correlator, persistent, pinningGuard);
+    }
+
+    /**
+     * Retries for the {@code @JmsListener} relay; the core relay and the key-ordered consumer keep
+     * their own failure handling.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.retry", name = "enabled", havingValue = "true")
+    public RetryScheduler retryScheduler(RetryProperties retryProperties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RetryScheduler(inputQueue, retryProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.dedup", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ProcessedMessageCache processedMessageCache(DeduplicationProperties deduplicationProperties,
+                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ProcessedMessageCache(inputQueue, deduplicationProperties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "artemis.autoscaler", name = "enabled", havingValue = "true")
+    public ListenerConcurrencyAutoscaler listenerConcurrencyAutoscaler(
+            JmsListenerEndpointRegistry registry,
+            @Qualifier("listenerConnectionFactory") ConnectionFactory connectionFactory,
+            AutoscalerProperties autoscalerProperties,
+            MeterRegistry meterRegistry) {
+        return new ListenerConcurrencyAutoscaler(registry, connectionFactory, autoscalerProperties, meterRegistry);
+    }
 }
@@ -1,13 +1,26 @@
 package com.example.component3.controller;
 
+import com.example.artemis.common.AdmissionLimiter;
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.LaneRouter;
+import com.example.component3.reply.RequestReplyClient;
 import com.example.component3.service.MessageForwardingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -15,16 +28,65 @@ public class MessageController {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
     private final MessageForwardingService messageForwardingService;
+    private final AdmissionLimiter admissionLimiter;
+    private final RequestReplyClient requestReplyClient;
 
-    public MessageController(MessageForwardingService messageForwardingService) {
+    @Value("${artemis.queue.output:component4.queue}")
+    private String outputQueue;
+
+    public MessageController(MessageForwardingService messageForwardingService,
+                             ObjectProvider<AdmissionLimiter> admissionLimiter,
+                             ObjectProvider<RequestReplyClient> requestReplyClient) {
         this.messageForwardingService = messageForwardingService;
+        this.admissionLimiter = admissionLimiter.getIfAvailable();
+        this.requestReplyClient = requestReplyClient.getIfAvailable();
     }
 
     @PostMapping("/send")
-    public ResponseEntity<Map<String, String>> sendMessage(@RequestBody String message) {
+    public ResponseEntity<Map<String, String>> sendMessage(
+            @RequestParam(name = "async", defaultValue = "false") boolean async,
+            @RequestHeader HttpHeaders headers,
+            @RequestBody String message) {
+        if (async && !messageForwardingService.isAsyncEnabled()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("status", "error");
+            response.put("message", "Async send mode is not enabled");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        AdmissionLimiter.Permit permit = null;
+        if (admissionLimiter != null) {
+            permit = admissionLimiter.tryAcquire(outputQueue, headers.getFirst(admissionLimiter.getPriorityHeader()));
+            if (permit == null) {
+                logger.warn("Rejecting request for queue {}: concurrent send limit reached", outputQueue);
+                Map<String, String> response = new HashMap<>();
+                response.put("status", "rejected");
+                response.put("message", "Too many concurrent requests for " + outputQueue + ", retry later");
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionLimiter.getRetryAfterSeconds()))
+                        .body(response);
+            }
+        }
+        boolean measured = false;
         try {
             logger.info("Received request to send message: {}", message);
-            messageForwardingService.forwardToComponent4(message);
+
+            if (async) {
+                String trackingId = messageForwardingService.forwardToComponent4Async(message);
+
+                Map<String, String> response = new HashMap<>();
+                response.put("status", "accepted");
+                response.put("message", "Message accepted for asynchronous delivery to Component 4 queue");
+                response.put("trackingId", trackingId);
+
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/messages/status/" + trackingId))
+                        .body(response);
+            }
+
+            messageForwardingService.forwardToComponent4(message, null, null, null,
+                    headers.getFirst(LaneRouter.REQUEST_HEADER));
+            measured = true;
 
             Map<String, String> response = new HashMap<>();
             response.put("status", "success");
@@ -39,7 +101,76 @@ public class MessageController {
             response.put("message", e.getMessage());
             
             return ResponseEntity.internalServerError().body(response);
+        } finally {
+            if (permit != null) {
+                permit.release(measured);
+            }
+        }
+    }
+
+    /**
+     * Send to Component 4 and answer with its reply. The request thread is released while waiting
+     * (Spring MVC async): 504 when no reply arrives within {@code artemis.request-reply.timeout-ms},
+     * 429 when {@code max-outstanding} requests are already waiting.
+     */
+    @PostMapping("/request")
+    public CompletableFuture<ResponseEntity<Map<String, String>>> requestReply(
+            @RequestHeader(name = LaneRouter.REQUEST_HEADER, required = false) String lane,
+            @RequestBody String message) {
+        Map<String, String> response = new HashMap<>();
+        if (requestReplyClient == null) {
+            response.put("status", "error");
+            response.put("message", "Request-reply is not enabled");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
         }
+
+        CompletableFuture<String> reply;
+        try {
+            reply = requestReplyClient.request(messageForwardingService.component4Queue(lane), message);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejecting request for queue {}: {}", outputQueue, e.getMessage());
+            response.put("status", "rejected");
+            response.put("message", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1").body(response));
+        }
+        return reply.handle((body, failure) -> {
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (cause == null) {
+                response.put("status", "success");
+                response.put("reply", body);
+                return ResponseEntity.ok(response);
+            }
+            if (cause instanceof TimeoutException) {
+                response.put("status", "timeout");
+                response.put("message", "No reply from Component 4 within "
+                        + requestReplyClient.getCorrelator().getTimeoutMs() + " ms");
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+            }
+            logger.error("Error in request to Component 4: {}", cause.getMessage(), cause);
+            response.put("status", "error");
+            response.put("message", cause.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        });
+    }
+
+    @GetMapping("/status/{trackingId}")
+    public ResponseEntity<Map<String, String>> sendStatus(@PathVariable String trackingId) {
+        Map<String, String> response = new HashMap<>();
+        response.put("trackingId", trackingId);
+
+        AsyncMessageSender.SendTracking tracking = messageForwardingService.getAsyncSendStatus(trackingId);
+        if (tracking == null) {
+            response.put("status", "unknown");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+
+        response.put("status", tracking.getStatus().name().toLowerCase());
+        response.put("attempts", String.valueOf(tracking.getAttempts()));
+        if (tracking.getError() != null) {
+            response.put("error", tracking.getError());
+        }
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/health")
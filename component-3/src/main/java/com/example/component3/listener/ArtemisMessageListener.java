@@ -1,47 +1,181 @@
 package com.example.component3.listener;
 
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LargeMessages;
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.ProcessedMessageCache;
+import com.example.artemis.common.WireMessageConverter;
 import com.example.component3.service.MessageForwardingService;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 @Component
 public class ArtemisMessageListener {
 
     private static final Logger logger = LoggerFactory.getLogger(ArtemisMessageListener.class);
+
+    /** Prefix applied to every relayed message; the core relay applies the same one by default. */
+    public static final String PROCESSED_PREFIX = "Processed by Component 3: ";
+
     private final MessageForwardingService messageForwardingService;
+    private final LatencyRecorder latencyRecorder;
+    private final ProcessedMessageCache processedMessages;
 
     @Value("${artemis.queue.input:component3-to-component4}")
     private String inputQueue;
 
-    public ArtemisMessageListener(MessageForwardingService messageForwardingService) {
+    @Value("${artemis.large-message.directory:large-messages}")
+    private String largeMessageDirectory;
+
+    public ArtemisMessageListener(MessageForwardingService messageForwardingService, LatencyRecorder latencyRecorder,
+                                  ObjectProvider<ProcessedMessageCache> processedMessages) {
         this.messageForwardingService = messageForwardingService;
+        this.latencyRecorder = latencyRecorder;
+        this.processedMessages = processedMessages.getIfAvailable();
     }
 
+    /**
+     * Takes the raw message so that streamed bodies are never converted to a {@code String} or
+     * {@code byte[]}: text payloads (TextMessages and UTF-8 BytesMessages, see {@link WireMessageConverter})
+     * go to {@link #receiveMessage}, other bytes messages (large messages from a REST {@code /stream}
+     * endpoint) are relayed as a stream.
+     */
     @JmsListener(destination = "${artemis.queue.input:component3-to-component4}")
-    public void receiveMessage(String message) {
+    public void onMessage(Message jmsMessage) throws JMSException {
+        if (WireMessageConverter.isText(jmsMessage)) {
+            receiveMessage(WireMessageConverter.readText(jmsMessage), LatencyTracing.originTimestamp(jmsMessage),
+                    LatencyTracing.hopTimestamp(jmsMessage), LatencyTracing.hopCount(jmsMessage), jmsMessage);
+            return;
+        }
+        if (!(jmsMessage instanceof BytesMessage bytesMessage)) {
+            throw new IllegalArgumentException("Unsupported message type: " + jmsMessage.getClass().getName());
+        }
+        String messageKey = DuplicateIds.key(jmsMessage);
+        if (!jmsMessage.getJMSRedelivered() && isDuplicate(messageKey)) {
+            logger.info("Skipping already relayed message {}", messageKey);
+            return;
+        }
+        relayStream(bytesMessage, messageKey);
+    }
+
+    public void receiveMessage(String message, Long originTimestampNanos, Long hopTimestampNanos, Integer hopCount,
+                               Message jmsMessage) throws JMSException {
+        // The forward shares this delivery's transaction, so a redelivery means it was rolled back
+        // even if the key was recorded: only first deliveries are skipped as duplicates
+        String messageKey = DuplicateIds.key(jmsMessage);
+        if (messageKey != null && !jmsMessage.getJMSRedelivered() && isDuplicate(messageKey)) {
+            logger.info("Skipping already relayed message {}", messageKey);
+            return;
+        }
+        relay(message, originTimestampNanos, hopTimestampNanos, hopCount, messageKey,
+                messageForwardingService.laneOf(jmsMessage));
+    }
+
+    /**
+     * Entry point for the key-ordered consumer ({@code artemis.ordered.enabled}), called on the
+     * message's lane; the consumer acknowledges the message once this returns.
+     */
+    public void receiveOrdered(Message jmsMessage) throws JMSException {
+        // Forwards commit on their own here, so a redelivered message may already have been relayed
+        String messageKey = DuplicateIds.key(jmsMessage);
+        if (isDuplicate(messageKey)) {
+            logger.info("Skipping already relayed message {}", messageKey);
+            return;
+        }
+        if (WireMessageConverter.isText(jmsMessage)) {
+            relay(WireMessageConverter.readText(jmsMessage), LatencyTracing.originTimestamp(jmsMessage),
+                    LatencyTracing.hopTimestamp(jmsMessage), LatencyTracing.hopCount(jmsMessage), messageKey,
+                    messageForwardingService.laneOf(jmsMessage));
+        } else if (jmsMessage instanceof BytesMessage bytesMessage) {
+            relayStream(bytesMessage, messageKey);
+        } else {
+            throw new IllegalArgumentException("Unsupported message type: " + jmsMessage.getClass().getName());
+        }
+    }
+
+    private void relay(String message, Long originTimestampNanos, Long hopTimestampNanos, Integer hopCount, String messageKey,
+                       String lane) {
+        latencyRecorder.record(inputQueue, originTimestampNanos, hopTimestampNanos);
+
         logger.info("============================================");
         logger.info("COMPONENT 3: Received message from Artemis");
         logger.info("Queue: {}", inputQueue);
         logger.info("Message: {}", message);
         logger.info("Timestamp: {}", System.currentTimeMillis());
+        logger.info("Hop count: {}", hopCount);
         logger.info("============================================");
         
         // Process and forward the message to Component 4
-        processAndForwardMessage(message);
+        processAndForwardMessage(message, originTimestampNanos, hopCount, messageKey, lane);
+        if (processedMessages != null && messageKey != null) {
+            processedMessages.markProcessed(messageKey);
+        }
+    }
+
+    /**
+     * Relay a streamed body to Component 4 as a stream, prefixed like a relayed text message. The
+     * body is spooled to {@code artemis.large-message.directory} first: reading it straight from the
+     * incoming message while sending on the same connection would stall the client, and neither
+     * copy of the body is held in memory either way.
+     */
+    private void relayStream(BytesMessage message, String messageKey) throws JMSException {
+        Long originTimestampNanos = LatencyTracing.originTimestamp(message);
+        latencyRecorder.record(inputQueue, originTimestampNanos, LatencyTracing.hopTimestamp(message));
+        logger.info("COMPONENT 3: Relaying streamed message {} to Component 4", message.getJMSMessageID());
+
+        Path spool = Path.of(largeMessageDirectory, message.getJMSMessageID().replaceAll("[^A-Za-z0-9._-]", "_") + ".bin");
+        try {
+            LargeMessages.saveBody(message, spool);
+            try (InputStream body = new SequenceInputStream(
+                    new ByteArrayInputStream(PROCESSED_PREFIX.getBytes(StandardCharsets.UTF_8)), Files.newInputStream(spool))) {
+                messageForwardingService.streamToComponent4(body, originTimestampNanos,
+                        LatencyTracing.hopCount(message), messageKey);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spool message body to " + spool, e);
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                logger.warn("Failed to delete spooled message body {}: {}", spool, e.getMessage());
+            }
+        }
+        if (processedMessages != null && messageKey != null) {
+            processedMessages.markProcessed(messageKey);
+        }
+    }
+
+    private boolean isDuplicate(String messageKey) {
+        return processedMessages != null && messageKey != null && processedMessages.isDuplicate(messageKey);
     }
 
-    private void processAndForwardMessage(String message) {
+    private void processAndForwardMessage(String message, Long originTimestampNanos, Integer hopCount, String messageKey,
+                                          String lane) {
         logger.info("Processing message in Component 3...");
         
         // Add any business logic here
-        String processedMessage = "Processed by Component 3: " + message;
+        String processedMessage = PROCESSED_PREFIX + message;
         
         // Forward to Component 4
         logger.info("Forwarding message to Component 4 queue...");
-        messageForwardingService.forwardToComponent4(processedMessage);
+        messageForwardingService.forwardToComponent4(processedMessage, originTimestampNanos, hopCount, messageKey, lane);
         
         logger.info("Message processed and forwarded successfully");
     }
@@ -0,0 +1,403 @@
+package com.example.component3.ordering;
+
+import com.example.artemis.common.SharedConnection;
+import com.example.artemis.common.WireMessageConverter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.api.jms.ActiveMQJMSConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.JmsUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Key-ordered parallel consumer. A single receive thread reads the queue in order and hashes
+ * each message by its ordering key onto one of a fixed set of lanes; a lane is one thread
+ * working through a bounded queue, so messages with the same key are processed strictly in
+ * receive order while different lanes run in parallel. A full lane holds the receive loop back
+ * instead of buffering without limit.
+ * <p>
+ * The session uses Artemis' individual acknowledge mode. Lanes hand processed messages back to
+ * the receive thread, which owns the session and acknowledges them in completion order (and so
+ * in order per lane); messages still queued or in progress are redelivered after a crash. A
+ * message that keeps failing is retried in its lane, holding back the messages behind it, and
+ * then handed to the dead-letter handler, after which the lane moves on.
+ * <p>
+ * When a message can be neither processed nor dead-lettered, or the session fails, nothing behind
+ * it may be processed first: the lanes drop what they hold, finish what is in progress, and the
+ * session is recovered (or replaced), so the broker redelivers every unacknowledged message in
+ * its original order. A replacement session comes from the {@link SharedConnection}, which
+ * connects again if the connection itself has failed.
+ */
+public class KeyOrderedConsumer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyOrderedConsumer.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long ACK_INTERVAL_MS = 10;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30000;
+
+    /**
+     * Processes one message on its lane.
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void onMessage(Message message) throws Exception;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final String destination;
+    private final OrderingKeyExtractor keyExtractor;
+    private final MessageHandler handler;
+    private final BiConsumer<Message, Exception> deadLetterHandler;
+    private final Lane[] lanes;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final Queue<Message> completed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Timer dispatchWait;
+
+    private volatile boolean running;
+    private volatile boolean lanesRunning;
+    // Bumped when unacknowledged messages are to be redelivered: lanes drop messages of an older one
+    private volatile long generation;
+    private volatile boolean redeliverRequested;
+    private SharedConnection connection;
+    private Thread receiver;
+
+    /**
+     * @param lanes         number of lanes, {@code 0} for one per available core
+     * @param meterRegistry registry for lane metrics, may be {@code null}
+     */
+    public KeyOrderedConsumer(ConnectionFactory connectionFactory, String destination, OrderingKeyExtractor keyExtractor,
+                              MessageHandler handler, BiConsumer<Message, Exception> deadLetterHandler,
+                              int lanes, int laneCapacity, int maxAttempts, long retryBackoffMs,
+                              MeterRegistry meterRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.destination = destination;
+        this.keyExtractor = keyExtractor;
+        this.handler = handler;
+        this.deadLetterHandler = deadLetterHandler;
+        this.lanes = new Lane[lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors()];
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        for (int i = 0; i < this.lanes.length; i++) {
+            this.lanes[i] = new Lane(i, laneCapacity);
+        }
+
+        if (meterRegistry != null) {
+            for (Lane lane : this.lanes) {
+                Gauge.builder("artemis.ordered.lane.depth", lane.queue, BlockingQueue::size)
+                        .tag("destination", destination).tag("lane", String.valueOf(lane.index)).register(meterRegistry);
+            }
+            Gauge.builder("artemis.ordered.in-flight", inFlight, AtomicInteger::get)
+                    .tag("destination", destination).register(meterRegistry);
+            dispatchWait = Timer.builder("artemis.ordered.dispatch.wait")
+                    .description("Time the receive loop waited for lane capacity")
+                    .tag("destination", destination).register(meterRegistry);
+        } else {
+            dispatchWait = null;
+        }
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.info("Starting key-ordered consumer: destination={}, lanes={}", destination, lanes.length);
+        connection = new SharedConnection(connectionFactory, "key-ordered consumer on " + destination);
+        try {
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to open connection for key-ordered consumer on " + destination, e);
+        }
+
+        // Threads are per start so the consumer can be stopped and started again. Whatever a previous
+        // run left behind belonged to its closed session and is redelivered by the broker
+        completed.clear();
+        inFlight.set(0);
+        redeliverRequested = false;
+        running = true;
+        lanesRunning = true;
+        for (Lane lane : lanes) {
+            lane.queue.clear();
+            lane.parked = false;
+            lane.thread = new Thread(lane, "ordered-lane-" + lane.index);
+            lane.thread.start();
+        }
+        receiver = new Thread(this::receiveLoop, "ordered-receiver");
+        receiver.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        try {
+            // The receiver lets the lanes finish and acknowledges their work before it exits
+            receiver.join(SHUTDOWN_TIMEOUT_MS + POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lanesRunning = false;
+        for (Lane lane : lanes) {
+            try {
+                lane.thread.join(POLL_INTERVAL_MS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        connection.close();
+        logger.info("Key-ordered consumer on {} stopped", destination);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void receiveLoop() {
+        Session session = null;
+        MessageConsumer consumer = null;
+        while (running) {
+            try {
+                if (session == null) {
+                    session = connection.createSession(false, ActiveMQJMSConstants.INDIVIDUAL_ACKNOWLEDGE);
+                    consumer = session.createConsumer(session.createQueue(destination));
+                }
+                if (redeliverRequested) {
+                    quiesceLanes();
+                    logger.warn("Redelivering unacknowledged messages on {} in order", destination);
+                    // Back off as after a session failure: a dead-letter destination that is down stays so for a while
+                    sleepQuietly(POLL_INTERVAL_MS * 10);
+                    session.recover();
+                    resumeLanes();
+                    continue;
+                }
+                acknowledgeCompleted();
+                Message message = consumer.receive(POLL_INTERVAL_MS);
+                if (message != null) {
+                    dispatch(message);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Error in key-ordered consumer on {}: {}", destination, e.getMessage(), e);
+                // Nothing received on this session may be processed once it is closed: the broker
+                // redelivers its unacknowledged messages in order to the next one
+                quiesceLanes();
+                resumeLanes();
+                JmsUtils.closeMessageConsumer(consumer);
+                JmsUtils.closeSession(session);
+                consumer = null;
+                session = null;
+                sleepQuietly(POLL_INTERVAL_MS * 10);
+            }
+        }
+
+        // Stop receiving, but let the lanes finish what they hold and acknowledge it; the consumer
+        // stays open until then since Artemis rejects acknowledgements for a closed consumer
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            acknowledgeCompleted();
+            sleepQuietly(ACK_INTERVAL_MS);
+        }
+        acknowledgeCompleted();
+        if (inFlight.get() > 0) {
+            logger.warn("{} message(s) on {} still in progress at shutdown; they will be redelivered",
+                    inFlight.get(), destination);
+        }
+        JmsUtils.closeMessageConsumer(consumer);
+        JmsUtils.closeSession(session);
+    }
+
+    private void dispatch(Message message) throws JMSException, InterruptedException {
+        String payload = keyExtractor.usesPayload() && WireMessageConverter.isText(message)
+                ? WireMessageConverter.readText(message) : null;
+        Lane lane = lanes[laneIndex(keyExtractor.extract(message, payload))];
+        Dispatched dispatched = new Dispatched(message, generation);
+        inFlight.incrementAndGet();
+        if (lane.queue.offer(dispatched)) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Keep acknowledging while waiting so the lanes' completed work is not held back
+        while (!lane.queue.offer(dispatched, ACK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            acknowledgeCompleted();
+            if (redeliverRequested) {
+                // A parked lane takes nothing more; the message is redelivered with the others
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+        if (dispatchWait != null) {
+            dispatchWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int laneIndex(String key) {
+        if (key == null) {
+            return ThreadLocalRandom.current().nextInt(lanes.length);
+        }
+        int hash = key.hashCode();
+        // Spread the hash so keys differing only in their high bits still land on different lanes
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    /**
+     * Stop the lanes from processing what they were handed so far: drop the queued messages, wait
+     * for those in progress and acknowledge what was processed. Only called on the receive thread.
+     */
+    private void quiesceLanes() {
+        generation++;
+        List<Dispatched> dropped = new ArrayList<>();
+        for (Lane lane : lanes) {
+            lane.queue.drainTo(dropped);
+        }
+        inFlight.addAndGet(-dropped.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT_MS);
+        while (anyLaneBusy() && System.nanoTime() < deadline) {
+            acknowledgeCompleted();
+            sleepQuietly(ACK_INTERVAL_MS);
+        }
+        acknowledgeCompleted();
+    }
+
+    private void resumeLanes() {
+        redeliverRequested = false;
+        for (Lane lane : lanes) {
+            lane.parked = false;
+        }
+    }
+
+    private boolean anyLaneBusy() {
+        for (Lane lane : lanes) {
+            if (lane.busy) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Acknowledge processed messages; only called on the receive thread, which owns the session.
+     */
+    private void acknowledgeCompleted() {
+        Message message;
+        while ((message = completed.poll()) != null) {
+            try {
+                message.acknowledge();
+            } catch (JMSException e) {
+                // e.g. received on a session that has since been replaced: the broker redelivers it
+                logger.warn("Failed to acknowledge processed message on {}: {}", destination, e.getMessage());
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private record Dispatched(Message message, long generation) {
+    }
+
+    private final class Lane implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<Dispatched> queue;
+        private Thread thread;
+        private volatile boolean busy;
+        // Set when a message could not be settled: nothing behind it is processed until redelivery
+        private volatile boolean parked;
+
+        Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            while (lanesRunning) {
+                Dispatched dispatched;
+                try {
+                    dispatched = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (dispatched == null) {
+                    continue;
+                }
+                // Busy before the generation check, so that quiesceLanes either waits for this
+                // message or the lane sees the new generation and drops it
+                busy = true;
+                try {
+                    if (parked || dispatched.generation() != generation) {
+                        // Left unacknowledged: redelivered in order with the message it was queued behind
+                        inFlight.decrementAndGet();
+                    } else if (process(dispatched.message())) {
+                        completed.add(dispatched.message());
+                    } else {
+                        inFlight.decrementAndGet();
+                        parked = true;
+                        redeliverRequested = true;
+                    }
+                } finally {
+                    busy = false;
+                }
+            }
+        }
+
+        private boolean process(Message message) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    handler.onMessage(message);
+                    return true;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts) {
+                        logger.error("Lane {} giving up on message after {} attempt(s), dead-lettering: {}",
+                                index, attempt, e.getMessage(), e);
+                        try {
+                            deadLetterHandler.accept(message, e);
+                            return true;
+                        } catch (Exception deadLetterFailure) {
+                            // Not acknowledged: redelivered, with the messages behind it, in order
+                            logger.error("Lane {} could not dead-letter message: {}", index, deadLetterFailure.getMessage());
+                            return false;
+                        }
+                    }
+                    logger.warn("Lane {} attempt {} failed, retrying: {}", index, attempt, e.getMessage());
+                    if (!sleepQuietly(retryBackoffMs * attempt)) {
+                        return false;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.component3.ordering;
+
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the ordering key of a message: either its {@code JMSXGroupID} or the value of a named
+ * field in the payload. Payload fields are found with a single scan for a JSON member
+ * ({@code "orderId": "A-1"}) or an XML element ({@code <orderId>A-1</orderId>}) rather than by
+ * parsing the document. Messages without a key return {@code null} and have no ordering constraint.
+ */
+public class OrderingKeyExtractor {
+
+    public static final String GROUP_ID = "JMSXGroupID";
+
+    public enum Source { GROUP_ID, PAYLOAD }
+
+    private final Source source;
+    private final Pattern fieldPattern;
+
+    public OrderingKeyExtractor(Source source, String field) {
+        this.source = source;
+        if (source == Source.PAYLOAD) {
+            String name = Pattern.quote(field);
+            this.fieldPattern = Pattern.compile("\"" + name + "\"\\s*:\\s*\"?([^\",}\\s]+)|<" + name + ">\\s*([^<\\s]+)\\s*</" + name + ">");
+        } else {
+            this.fieldPattern = null;
+        }
+    }
+
+    /**
+     * Whether {@link #extract} looks at the payload, so callers can skip decoding it otherwise.
+     */
+    public boolean usesPayload() {
+        return source == Source.PAYLOAD;
+    }
+
+    public String extract(Message message, String payload) throws JMSException {
+        if (source == Source.GROUP_ID) {
+            return message.getStringProperty(GROUP_ID);
+        }
+        if (payload == null) {
+            return null;
+        }
+        Matcher matcher = fieldPattern.matcher(payload);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.component3.relay;
+
+import com.example.artemis.common.LatencyRecorder;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PayloadCompression;
+import com.example.artemis.common.TraceEnvelope;
+import com.example.artemis.common.WireMessageConverter;
+import org.apache.activemq.artemis.api.core.ActiveMQBuffer;
+import org.apache.activemq.artemis.api.core.Message;
+import org.apache.activemq.artemis.api.core.RoutingType;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.api.core.client.ClientConsumer;
+import org.apache.activemq.artemis.api.core.client.ClientMessage;
+import org.apache.activemq.artemis.api.core.client.ClientProducer;
+import org.apache.activemq.artemis.api.core.client.ClientSession;
+import org.apache.activemq.artemis.api.core.client.ClientSessionFactory;
+import org.apache.activemq.artemis.api.core.client.ServerLocator;
+import org.apache.activemq.artemis.utils.AutoCreateUtil;
+import org.apache.activemq.artemis.utils.DataConstants;
+import org.apache.activemq.artemis.utils.UUIDGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.task.TaskExecutor;
+
+import jakarta.jms.JMSException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Component-3 relay on the Artemis core client, used instead of the JMS listener when
+ * {@code artemis.relay.mode=core}. Message bodies are never decoded: a text body keeps its wire
+ * encoding (a nullable {@link SimpleString}), so the prefix is written as pre-encoded bytes
+ * followed by one buffer-to-buffer copy of the received body. A UTF-8 bytes body (see
+ * {@link WireMessageConverter}) gets the prefix as UTF-8 the same way; a compressed one
+ * ({@link PayloadCompression}) is the exception, as it is inflated and deflated again around the
+ * prefix. Other body types are copied as-is. Tracing headers sent as a {@link TraceEnvelope} are relayed as one.
+ * <p>
+ * Application properties (including JMS correlation ID, type and reply-to) are carried over, and
+ * so are the message group ID and sequence ({@code JMSXGroupID}/{@code JMSXGroupSeq}, stored as
+ * {@code _AMQ_GROUP_ID}/{@code _AMQ_GROUP_SEQ}) and the last-value key, so component-4 still sees
+ * per-key ordering. The broker's own bookkeeping ({@code _AMQ_*} properties such as the
+ * duplicate-detection ID, routing, original address and large-message size) is not, as the
+ * relayed message is a new message. Each message is acknowledged and forwarded in one
+ * transaction. Large messages are relayed correctly but loaded into memory on receive.
+ */
+public class CoreRelay implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoreRelay.class);
+
+    private static final SimpleString ORIGIN_TIMESTAMP = SimpleString.toSimpleString(LatencyTracing.ORIGIN_TIMESTAMP);
+    private static final SimpleString HOP_TIMESTAMP = SimpleString.toSimpleString(LatencyTracing.HOP_TIMESTAMP);
+    private static final SimpleString HOP_COUNT = SimpleString.toSimpleString(LatencyTracing.HOP_COUNT);
+    private static final SimpleString TRACE_ENVELOPE = SimpleString.toSimpleString(TraceEnvelope.PROPERTY);
+    private static final SimpleString WIRE_FORMAT = SimpleString.toSimpleString(WireMessageConverter.FORMAT_PROPERTY);
+    private static final SimpleString WIRE_COMPRESSION = SimpleString.toSimpleString(PayloadCompression.PROPERTY);
+    private static final SimpleString INTERNAL_PROPERTY_PREFIX = SimpleString.toSimpleString("_AMQ");
+    // _AMQ_* properties that carry application semantics rather than broker bookkeeping
+    private static final Set<SimpleString> RELAYED_INTERNAL_PROPERTIES =
+            Set.of(Message.HDR_GROUP_ID, Message.HDR_GROUP_SEQUENCE, Message.HDR_LAST_VALUE_NAME);
+
+    private final ServerLocator serverLocator;
+    private final String user;
+    private final String password;
+    private final SimpleString inputQueue;
+    private final SimpleString outputAddress;
+    private final byte[] prefix;
+    private final byte[] utf8Prefix;
+    private final PayloadCompression compression;
+    private final int consumers;
+    private final long receiveTimeoutMs;
+    private final LatencyRecorder latencyRecorder;
+    private final TaskExecutor taskExecutor;
+
+    private final AtomicLong messagesRelayed = new AtomicLong();
+    private final AtomicLong messagesFailed = new AtomicLong();
+
+    private volatile boolean running;
+    private ClientSessionFactory sessionFactory;
+    private CountDownLatch stopped;
+
+    public CoreRelay(ServerLocator serverLocator, String user, String password, String inputQueue, String outputAddress,
+                     String prefix, PayloadCompression compression, int consumers, long receiveTimeoutMs,
+                     LatencyRecorder latencyRecorder, TaskExecutor taskExecutor) {
+        this.serverLocator = serverLocator;
+        this.user = user;
+        this.password = password;
+        this.inputQueue = SimpleString.toSimpleString(inputQueue);
+        this.outputAddress = SimpleString.toSimpleString(outputAddress);
+        // SimpleString data is the text body's wire encoding, so the prefix is encoded once here
+        this.prefix = SimpleString.toSimpleString(prefix != null ? prefix : "").getData();
+        this.utf8Prefix = (prefix != null ? prefix : "").getBytes(StandardCharsets.UTF_8);
+        this.compression = compression;
+        this.consumers = consumers;
+        this.receiveTimeoutMs = receiveTimeoutMs;
+        this.latencyRecorder = latencyRecorder;
+        this.taskExecutor = taskExecutor;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.info("Starting core relay: {} -> {}, consumers={}", inputQueue, outputAddress, consumers);
+        try {
+            sessionFactory = serverLocator.createSessionFactory();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to connect core relay to Artemis", e);
+        }
+
+        running = true;
+        stopped = new CountDownLatch(consumers);
+        for (int i = 0; i < consumers; i++) {
+            taskExecutor.execute(new Worker());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (stopped != null) {
+            try {
+                stopped.await(receiveTimeoutMs * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (sessionFactory != null) {
+            sessionFactory.close();
+        }
+        serverLocator.close();
+        logger.info("Core relay stopped: {} message(s) relayed, {} failed", messagesRelayed.get(), messagesFailed.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getMessagesRelayed() {
+        return messagesRelayed.get();
+    }
+
+    public long getMessagesFailed() {
+        return messagesFailed.get();
+    }
+
+    /**
+     * Build the message for component-4 from a received message without decoding its body.
+     */
+    ClientMessage relay(ClientSession session, ClientMessage in) throws JMSException {
+        ClientMessage out = session.createMessage(in.getType(), in.isDurable(), in.getExpiration(),
+                in.getTimestamp(), in.getPriority());
+        for (SimpleString name : in.getPropertyNames()) {
+            if (!name.startsWith(INTERNAL_PROPERTY_PREFIX) || RELAYED_INTERNAL_PROPERTIES.contains(name)) {
+                out.putObjectProperty(name, in.getObjectProperty(name));
+            }
+        }
+        // JMS consumers read the user ID as JMSMessageID
+        out.setUserID(UUIDGenerator.getInstance().generateUUID());
+        out.setRoutingType(RoutingType.ANYCAST);
+
+        TraceEnvelope envelope = in.containsProperty(TRACE_ENVELOPE) ? TraceEnvelope.decode(in.getBytesProperty(TRACE_ENVELOPE)) : null;
+        Long originTimestampNanos;
+        Long hopTimestampNanos;
+        Integer hopCount;
+        if (envelope != null) {
+            originTimestampNanos = envelope.getOriginTimestampNanos();
+            hopTimestampNanos = envelope.getHopTimestampNanos();
+            hopCount = envelope.getHopCount();
+        } else {
+            originTimestampNanos = in.containsProperty(ORIGIN_TIMESTAMP) ? in.getLongProperty(ORIGIN_TIMESTAMP) : null;
+            hopTimestampNanos = in.containsProperty(HOP_TIMESTAMP) ? in.getLongProperty(HOP_TIMESTAMP) : null;
+            hopCount = in.containsProperty(HOP_COUNT) ? in.getIntProperty(HOP_COUNT) : null;
+        }
+        latencyRecorder.record(inputQueue.toString(), originTimestampNanos, hopTimestampNanos);
+        long now = LatencyTracing.now();
+        if (envelope != null) {
+            out.putBytesProperty(TRACE_ENVELOPE, TraceEnvelope.encode(originTimestampNanos, now, hopCount + 1));
+        } else {
+            out.putLongProperty(ORIGIN_TIMESTAMP, originTimestampNanos != null ? originTimestampNanos : now);
+            out.putLongProperty(HOP_TIMESTAMP, now);
+            out.putIntProperty(HOP_COUNT, hopCount != null ? hopCount + 1 : 1);
+        }
+
+        // A large message only has its body in memory once getBodyBuffer() has downloaded it
+        ActiveMQBuffer body = in.isLargeMessage() ? in.getBodyBuffer() : in.getReadOnlyBodyBuffer();
+        ActiveMQBuffer target = out.getBodyBuffer();
+        int start = body.readerIndex();
+        if (in.getType() == Message.TEXT_TYPE && prefix.length > 0
+                && body.readableBytes() > DataConstants.SIZE_INT && body.getByte(start) == DataConstants.NOT_NULL) {
+            int length = body.getInt(start + 1);
+            target.writeByte(DataConstants.NOT_NULL);
+            target.writeInt(prefix.length + length);
+            target.writeBytes(prefix);
+            target.writeBytes(body, start + 1 + DataConstants.SIZE_INT, length);
+        } else if (in.getType() == Message.BYTES_TYPE && utf8Prefix.length > 0 && in.containsProperty(WIRE_COMPRESSION)) {
+            int length = body.getInt(start);
+            byte[] text = new byte[utf8Prefix.length + length];
+            System.arraycopy(utf8Prefix, 0, text, 0, utf8Prefix.length);
+            PayloadCompression.inflate(body.toByteBuffer(start + DataConstants.SIZE_INT,
+                    body.readableBytes() - DataConstants.SIZE_INT), text, utf8Prefix.length, length);
+            target.writeInt(text.length);
+            compression.deflate(sink -> sink.write(text, 0, text.length), target::writeBytes);
+        } else if (in.getType() == Message.BYTES_TYPE && utf8Prefix.length > 0 && in.containsProperty(WIRE_FORMAT)) {
+            target.writeBytes(utf8Prefix);
+            target.writeBytes(body, start, body.readableBytes());
+        } else {
+            target.writeBytes(body, start, body.readableBytes());
+        }
+        return out;
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    try {
+                        relayLoop();
+                    } catch (Exception e) {
+                        if (!running) {
+                            break;
+                        }
+                        logger.error("Error in core relay on {}: {}", inputQueue, e.getMessage(), e);
+                        sleepQuietly(receiveTimeoutMs);
+                    }
+                }
+            } finally {
+                stopped.countDown();
+            }
+        }
+
+        private void relayLoop() throws Exception {
+            try (ClientSession session = sessionFactory.createSession(user, password, false, false, false,
+                    serverLocator.isPreAcknowledge(), serverLocator.getAckBatchSize())) {
+                AutoCreateUtil.autoCreateQueue(session, inputQueue, null);
+                AutoCreateUtil.autoCreateQueue(session, outputAddress, null);
+                try (ClientConsumer consumer = session.createConsumer(inputQueue);
+                     ClientProducer producer = session.createProducer(outputAddress)) {
+                    session.start();
+                    while (running) {
+                        ClientMessage in = consumer.receive(receiveTimeoutMs);
+                        if (in == null) {
+                            continue;
+                        }
+                        try {
+                            in.acknowledge();
+                            producer.send(relay(session, in));
+                            session.commit();
+                            messagesRelayed.incrementAndGet();
+                        } catch (Exception e) {
+                            messagesFailed.incrementAndGet();
+                            logger.error("Failed to relay message {} (delivery {}), rolling back: {}",
+                                    in.getMessageID(), in.getDeliveryCount(), e.getMessage(), e);
+                            session.rollback();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.component3.reply;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Correlation map of a request/reply client: outstanding requests by correlation ID, each a future
+ * that its reply completes or that fails with a {@link TimeoutException} after {@code timeoutMs}.
+ * A request leaves the map as soon as its future completes for whatever reason (reply, timeout,
+ * send failure, cancellation by the caller), so at most {@code maxOutstanding} entries are ever
+ * held and a reply arriving after the timeout finds nothing to complete.
+ * <p>
+ * Timeouts use {@link CompletableFuture#orTimeout}, whose shared timer drops the timeout once the
+ * future completes. Callbacks attached with the non-async {@code CompletableFuture} methods run on
+ * the thread that completes the future, usually the reply consumer: keep them short.
+ */
+public class ReplyCorrelator {
+
+    private final String idPrefix = UUID.randomUUID().toString().substring(0, 8) + "-";
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder lateReplies = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final long timeoutMs;
+    private final int maxOutstanding;
+    private final Timer roundTrip;
+
+    private record Pending(CompletableFuture<String> future, long startNanos) {
+    }
+
+    /**
+     * @param name          tag for the metrics, e.g. the reply queue
+     * @param meterRegistry registry for correlation metrics, may be {@code null}
+     */
+    public ReplyCorrelator(String name, long timeoutMs, int maxOutstanding, MeterRegistry meterRegistry) {
+        this.timeoutMs = timeoutMs;
+        this.maxOutstanding = maxOutstanding;
+        if (meterRegistry != null) {
+            Gauge.builder("artemis.request-reply.outstanding", outstanding, AtomicInteger::get)
+                    .tag("reply-queue", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.request-reply.timeouts", timeouts, LongAdder::sum)
+                    .tag("reply-queue", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.request-reply.late-replies", lateReplies, LongAdder::sum)
+                    .description("Replies for requests that had already timed out or were cancelled")
+                    .tag("reply-queue", name).register(meterRegistry);
+            FunctionCounter.builder("artemis.request-reply.rejected", rejected, LongAdder::sum)
+                    .description("Requests refused because max-outstanding requests were waiting")
+                    .tag("reply-queue", name).register(meterRegistry);
+            roundTrip = Timer.builder("artemis.request-reply.round-trip")
+                    .description("Time from registering a request to receiving its reply")
+                    .tag("reply-queue", name).register(meterRegistry);
+        } else {
+            roundTrip = null;
+        }
+    }
+
+    /**
+     * A correlation ID unique to this correlator: a random prefix and a sequence number, cheaper
+     * than a random UUID per request.
+     */
+    public String nextCorrelationId() {
+        return idPrefix + Long.toString(sequence.incrementAndGet(), 36);
+    }
+
+    /**
+     * Register a request before it is sent, so that even an immediate reply finds it.
+     *
+     * @throws RejectedExecutionException when {@code maxOutstanding} requests are already waiting
+     */
+    public CompletableFuture<String> register(String correlationId) {
+        if (outstanding.incrementAndGet() > maxOutstanding) {
+            outstanding.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Too many outstanding requests (" + maxOutstanding + "), retry later");
+        }
+        Pending request = new Pending(new CompletableFuture<>(), System.nanoTime());
+        pending.put(correlationId, request);
+        request.future().orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((reply, failure) -> {
+            // No-op when the reply already removed it
+            pending.remove(correlationId, request);
+            outstanding.decrementAndGet();
+            if (failure instanceof TimeoutException) {
+                timeouts.increment();
+            }
+        });
+        return request.future();
+    }
+
+    /**
+     * Complete the request {@code correlationId} with its reply.
+     *
+     * @return {@code false} for a reply nobody waits for any more (or an unknown ID)
+     */
+    public boolean complete(String correlationId, String reply) {
+        Pending request = correlationId != null ? pending.remove(correlationId) : null;
+        if (request == null || !request.future().complete(reply)) {
+            lateReplies.increment();
+            return false;
+        }
+        if (roundTrip != null) {
+            roundTrip.record(System.nanoTime() - request.startNanos(), TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Fail the request {@code correlationId}, e.g. because it could not be sent.
+     */
+    public void fail(String correlationId, Throwable failure) {
+        Pending request = pending.remove(correlationId);
+        if (request != null) {
+            request.future().completeExceptionally(failure);
+        }
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getLateReplies() {
+        return lateReplies.sum();
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.component3.reply;
+
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.WireMessageConverter;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.jms.client.ActiveMQQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Request/reply over one long-lived reply queue per instance. Requests carry a
+ * {@code JMSCorrelationID} and a {@code JMSReplyTo} naming that queue; a single consumer thread
+ * reads the replies and completes the matching futures through a {@link ReplyCorrelator}. Unlike
+ * a temporary queue per request, no queue is created or deleted on the request path and the
+ * number of outstanding requests is bounded only by {@code max-outstanding}, not by threads.
+ * <p>
+ * Requests expire on the broker after the reply timeout, so a consumer that falls behind skips
+ * requests nobody waits for any more; repliers give their replies the remaining time to live.
+ */
+public class RequestReplyClient implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestReplyClient.class);
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final ConnectionFactory connectionFactory;
+    private final String replyQueue;
+    private final Queue replyDestination;
+    private final ReplyCorrelator correlator;
+    private final JmsTemplate jmsTemplate;
+    private final PinningGuard pinningGuard;
+
+    private volatile boolean running;
+    private Connection connection;
+    private Thread receiver;
+
+    /**
+     * @param persistent whether requests (and so replies) are persistent; a caller that gives up
+     *                   after the timeout rarely needs them to survive a broker restart
+     */
+    public RequestReplyClient(ConnectionFactory connectionFactory, MessageConverter messageConverter, String replyQueue,
+                              ReplyCorrelator correlator, boolean persistent, PinningGuard pinningGuard) {
+        this.connectionFactory = connectionFactory;
+        this.replyQueue = replyQueue;
+        this.replyDestination = new ActiveMQQueue(replyQueue);
+        this.correlator = correlator;
+        this.pinningGuard = pinningGuard;
+        this.jmsTemplate = new JmsTemplate(connectionFactory);
+        jmsTemplate.setMessageConverter(messageConverter);
+        jmsTemplate.setExplicitQosEnabled(true);
+        jmsTemplate.setDeliveryPersistent(persistent);
+        jmsTemplate.setTimeToLive(correlator.getTimeoutMs());
+    }
+
+    /**
+     * Send {@code body} to {@code destination} and return a future for the reply. The future fails
+     * with a {@link java.util.concurrent.TimeoutException} when no reply arrives in time, or with
+     * the send failure; it is never completed on the calling thread by a reply.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when too many requests are outstanding
+     */
+    public CompletableFuture<String> request(String destination, String body) {
+        String correlationId = correlator.nextCorrelationId();
+        CompletableFuture<String> reply = correlator.register(correlationId);
+        try {
+            pinningGuard.run(() -> jmsTemplate.convertAndSend(destination, body, message -> {
+                message.setJMSCorrelationID(correlationId);
+                message.setJMSReplyTo(replyDestination);
+                return message;
+            }));
+        } catch (RuntimeException e) {
+            logger.error("Error sending request {} to {}: {}", correlationId, destination, e.getMessage());
+            correlator.fail(correlationId, e);
+        }
+        return reply;
+    }
+
+    public String getReplyQueue() {
+        return replyQueue;
+    }
+
+    public ReplyCorrelator getCorrelator() {
+        return correlator;
+    }
+
+    @Override
+    public synchronized void start() {
+        logger.info("Starting request/reply client: reply queue={}, timeout={} ms", replyQueue, correlator.getTimeoutMs());
+        try {
+            connection = connectionFactory.createConnection();
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Failed to open connection for reply queue " + replyQueue, e);
+        }
+        running = true;
+        receiver = new Thread(this::receiveLoop, "reply-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        try {
+            receiver.join(POLL_INTERVAL_MS * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        JmsUtils.closeConnection(connection, true);
+        // Requests still outstanding time out
+        logger.info("Request/reply client on {} stopped, {} request(s) outstanding", replyQueue, correlator.getOutstanding());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void receiveLoop() {
+        Session session = null;
+        MessageConsumer consumer = null;
+        while (running) {
+            try {
+                if (session == null) {
+                    // A redelivered reply is dropped as late, so lazy acknowledgement is safe
+                    session = connection.createSession(false, Session.DUPS_OK_ACKNOWLEDGE);
+                    consumer = session.createConsumer(replyDestination);
+                }
+                Message reply = consumer.receive(POLL_INTERVAL_MS);
+                if (reply != null) {
+                    onReply(reply);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Error in reply consumer on {}: {}", replyQueue, e.getMessage(), e);
+                JmsUtils.closeMessageConsumer(consumer);
+                JmsUtils.closeSession(session);
+                consumer = null;
+                session = null;
+                sleepQuietly(POLL_INTERVAL_MS * 10);
+            }
+        }
+        JmsUtils.closeMessageConsumer(consumer);
+        JmsUtils.closeSession(session);
+    }
+
+    private void onReply(Message reply) throws JMSException {
+        String correlationId = reply.getJMSCorrelationID();
+        if (!correlator.complete(correlationId, WireMessageConverter.readText(reply))) {
+            logger.debug("Dropping reply {} on {}: request timed out or unknown", correlationId, replyQueue);
+        }
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,32 +1,180 @@
 package com.example.component3.service;
 
+import com.example.artemis.common.AsyncMessageSender;
+import com.example.artemis.common.DuplicateIds;
+import com.example.artemis.common.LaneRouter;
+import com.example.artemis.common.LargeMessages;
+import com.example.artemis.common.LatencyTracing;
+import com.example.artemis.common.PayloadCompression;
+import com.example.artemis.common.PinningGuard;
+import com.example.artemis.common.WireMessageConverter;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStream;
+import java.util.Enumeration;
+
 @Service
 public class MessageForwardingService {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageForwardingService.class);
     private final JmsTemplate jmsTemplate;
+    private final AsyncMessageSender asyncMessageSender;
+    private final PinningGuard pinningGuard;
+    private final LaneRouter laneRouter;
 
     @Value("${artemis.queue.output:component4.queue}")
     private String outputQueue;
 
-    public MessageForwardingService(JmsTemplate jmsTemplate) {
+    @Value("${artemis.queue.dead-letter:DLQ}")
+    private String deadLetterQueue;
+
+    public MessageForwardingService(JmsTemplate jmsTemplate, ObjectProvider<AsyncMessageSender> asyncMessageSender,
+                                    PinningGuard pinningGuard, ObjectProvider<LaneRouter> laneRouter) {
         this.jmsTemplate = jmsTemplate;
+        this.asyncMessageSender = asyncMessageSender.getIfAvailable();
+        this.pinningGuard = pinningGuard;
+        this.laneRouter = laneRouter.getIfAvailable();
+    }
+
+    /**
+     * Lane of a received message when priority lanes are enabled ({@code artemis.lanes}), from its
+     * lane property or JMS priority; {@code null} otherwise.
+     */
+    public String laneOf(Message message) throws JMSException {
+        return laneRouter != null ? laneRouter.lane(message) : null;
+    }
+
+    /**
+     * Component 4 queue for {@code lane} (a lane name, or {@code null} for the default lane): the
+     * output queue itself unless it is split into priority lanes.
+     */
+    public String component4Queue(String lane) {
+        return laneRouter != null ? laneRouter.destination(outputQueue, lane, null) : outputQueue;
     }
 
     public void forwardToComponent4(String message) {
+        forwardToComponent4(message, null, null, null);
+    }
+
+    /**
+     * Send to Component 4, carrying the pipeline origin timestamp and incrementing the hop count.
+     * Messages without an origin (e.g. REST requests to this component) start a new trace here.
+     * With a {@code sourceKey} (the relayed message's deduplication key) the copy gets a duplicate-
+     * detection ID derived from it, so relaying the same message twice reaches Component 4 once.
+     */
+    public void forwardToComponent4(String message, Long originTimestampNanos, Integer hopCount, String sourceKey) {
+        forwardToComponent4(message, originTimestampNanos, hopCount, sourceKey, null);
+    }
+
+    /**
+     * As above, to the Component 4 queue of {@code lane} when priority lanes are enabled.
+     */
+    public void forwardToComponent4(String message, Long originTimestampNanos, Integer hopCount, String sourceKey,
+                                    String lane) {
+        String destination = component4Queue(lane);
         try {
-            logger.info("Sending message to queue: {}", outputQueue);
-            jmsTemplate.convertAndSend(outputQueue, message);
+            logger.info("Sending message to queue: {}", destination);
+            pinningGuard.run(() -> jmsTemplate.convertAndSend(destination, message, jmsMessage -> {
+                stampHop(jmsMessage, originTimestampNanos, hopCount, sourceKey);
+                return jmsMessage;
+            }));
             logger.info("Message sent successfully to Component 4 queue");
         } catch (Exception e) {
+            if (DuplicateIds.isDuplicateRejection(e)) {
+                logger.info("Message {} was already forwarded to Component 4, skipping", sourceKey);
+                return;
+            }
             logger.error("Error sending message to Component 4: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to forward message to Component 4", e);
         }
     }
+
+    /**
+     * Stream a body of any size to Component 4 as an Artemis large message, with the same tracing
+     * and duplicate-detection properties as {@link #forwardToComponent4(String, Long, Integer, String)}.
+     */
+    public void streamToComponent4(InputStream body, Long originTimestampNanos, Integer hopCount, String sourceKey) {
+        try {
+            logger.info("Streaming message to queue: {}", outputQueue);
+            pinningGuard.run(() -> jmsTemplate.send(outputQueue, session -> {
+                BytesMessage bytesMessage = session.createBytesMessage();
+                LargeMessages.setBodyStream(bytesMessage, body);
+                stampHop(bytesMessage, originTimestampNanos, hopCount, sourceKey);
+                return bytesMessage;
+            }));
+            logger.info("Message streamed successfully to Component 4 queue");
+        } catch (Exception e) {
+            if (DuplicateIds.isDuplicateRejection(e)) {
+                logger.info("Message {} was already forwarded to Component 4, skipping", sourceKey);
+                return;
+            }
+            logger.error("Error streaming message to Component 4: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to stream message to Component 4", e);
+        }
+    }
+
+    private void stampHop(Message jmsMessage, Long originTimestampNanos, Integer hopCount, String sourceKey) throws JMSException {
+        LatencyTracing.stamp(jmsMessage, originTimestampNanos != null ? originTimestampNanos : LatencyTracing.now(),
+                hopCount != null ? hopCount + 1 : 1);
+        if (sourceKey != null) {
+            jmsMessage.setStringProperty(DuplicateIds.PROPERTY, DuplicateIds.derive(sourceKey, outputQueue));
+        }
+    }
+
+    /**
+     * Park a message that could not be processed on the dead letter queue, keeping its properties
+     * and recording the failure in {@code deadLetterReason}.
+     */
+    public void forwardToDeadLetter(Message message, Exception cause) {
+        try {
+            logger.warn("Sending message {} to dead letter queue: {}", message.getJMSMessageID(), deadLetterQueue);
+            String text = WireMessageConverter.isText(message) ? WireMessageConverter.readText(message) : null;
+            pinningGuard.run(() -> jmsTemplate.send(deadLetterQueue, session -> {
+                Message deadLetter = text != null
+                        ? jmsTemplate.getMessageConverter().toMessage(text, session) : session.createTextMessage();
+                Enumeration<?> names = message.getPropertyNames();
+                while (names.hasMoreElements()) {
+                    String name = (String) names.nextElement();
+                    // The copy's body encoding is set by the converter, not taken from the original
+                    if (!name.startsWith("JMSX") && !name.equals(DuplicateIds.PROPERTY)
+                            && !name.equals(WireMessageConverter.FORMAT_PROPERTY)
+                            && !name.equals(PayloadCompression.PROPERTY)) {
+                        deadLetter.setObjectProperty(name, message.getObjectProperty(name));
+                    }
+                }
+                deadLetter.setStringProperty("deadLetterReason", String.valueOf(cause.getMessage()));
+                return deadLetter;
+            }));
+        } catch (Exception e) {
+            logger.error("Error sending message to dead letter queue: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to dead-letter message", e);
+        }
+    }
+
+    /**
+     * Send to Component 4 asynchronously; returns a tracking ID that can be polled
+     */
+    public String forwardToComponent4Async(String message) {
+        if (asyncMessageSender == null) {
+            throw new IllegalStateException("Async send mode is not enabled (artemis.async.enabled)");
+        }
+        logger.info("Submitting async message to queue: {}", outputQueue);
+        return asyncMessageSender.send(outputQueue, message);
+    }
+
+    public AsyncMessageSender.SendTracking getAsyncSendStatus(String trackingId) {
+        return asyncMessageSender != null ? asyncMessageSender.getTracking(trackingId) : null;
+    }
+
+    public boolean isAsyncEnabled() {
+        return asyncMessageSender != null;
+    }
 }
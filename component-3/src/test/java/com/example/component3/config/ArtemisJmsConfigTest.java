@@ -0,0 +1,18 @@
+package com.example.component3.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtemisJmsConfigTest {
+
+    @Test
+    void shardingIsRejectedAtStartup() {
+        new ApplicationContextRunner()
+                .withPropertyValues("artemis.sharding.enabled=true")
+                .withUserConfiguration(ArtemisJmsConfig.class)
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().hasMessageContaining("artemis.sharding"));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.component3.ordering;
+
+import jakarta.jms.Connection;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedConsumerTest {
+
+    private static final String QUEUE = "component3.queue";
+
+    private final EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+    private ActiveMQConnectionFactory connectionFactory;
+    private final List<String> processed = new CopyOnWriteArrayList<>();
+    private final AtomicInteger deadLetterFailures = new AtomicInteger();
+    private KeyOrderedConsumer consumer;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0"));
+        broker.start();
+        connectionFactory = new ActiveMQConnectionFactory("vm://0");
+        consumer = new KeyOrderedConsumer(connectionFactory, QUEUE,
+                new OrderingKeyExtractor(OrderingKeyExtractor.Source.GROUP_ID, null),
+                message -> {
+                    String text = ((TextMessage) message).getText();
+                    if (text.startsWith("poison")) {
+                        throw new IllegalStateException("cannot process " + text);
+                    }
+                    processed.add(text);
+                },
+                (message, e) -> {
+                    if (deadLetterFailures.getAndDecrement() > 0) {
+                        throw new IllegalStateException("dead-letter queue unavailable");
+                    }
+                    processed.add("dead-lettered " + text(message));
+                }, 2, 10, 1, 0, null);
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        if (consumer.isRunning()) {
+            consumer.stop();
+        }
+        connectionFactory.close();
+        broker.stop();
+    }
+
+    @Test
+    void consumesAgainAfterRestart() throws Exception {
+        consumer.start();
+        send("first");
+        awaitProcessed(1);
+        consumer.stop();
+
+        consumer.start();
+        send("second");
+        awaitProcessed(2);
+
+        assertThat(processed).containsExactly("first", "second");
+    }
+
+    @Test
+    void reconnectsAfterTheBrokerRestarts() throws Exception {
+        send("before");
+        consumer.start();
+        awaitProcessed(1);
+
+        broker.stop();
+        broker.start();
+        send("after");
+        awaitProcessed(2);
+
+        assertThat(processed).containsExactly("before", "after");
+    }
+
+    @Test
+    void failedDeadLetteringRedeliversTheKeyInOrder() throws Exception {
+        deadLetterFailures.set(2);
+        send("key-1", "poison-1", "key-1-a", "key-1-b");
+        consumer.start();
+
+        awaitProcessed(3);
+
+        assertThat(processed).containsExactly("dead-lettered poison-1", "key-1-a", "key-1-b");
+    }
+
+    private void send(String text) throws Exception {
+        send(null, text);
+    }
+
+    private void send(String key, String... texts) throws Exception {
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(QUEUE));
+            for (String text : texts) {
+                TextMessage message = session.createTextMessage(text);
+                if (key != null) {
+                    message.setStringProperty("JMSXGroupID", key);
+                }
+                producer.send(message);
+            }
+        }
+    }
+
+    private static String text(Message message) {
+        try {
+            return ((TextMessage) message).getText();
+        } catch (JMSException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitProcessed(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (processed.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
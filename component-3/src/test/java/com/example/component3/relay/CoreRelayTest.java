@@ -0,0 +1,47 @@
+package com.example.component3.relay;
+
+import com.example.artemis.common.LatencyRecorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.artemis.api.core.Message;
+import org.apache.activemq.artemis.api.core.SimpleString;
+import org.apache.activemq.artemis.api.core.client.ClientMessage;
+import org.apache.activemq.artemis.api.core.client.ClientSession;
+import org.apache.activemq.artemis.core.client.impl.ClientMessageImpl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyByte;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoreRelayTest {
+
+    private final CoreRelay relay = new CoreRelay(null, null, null, "component3.queue", "component4.queue", "Relayed: ",
+            null, 1, 100, new LatencyRecorder(new SimpleMeterRegistry()), null);
+
+    @Test
+    void keepsMessageGroupButDropsBrokerBookkeeping() throws Exception {
+        ClientSession session = mock(ClientSession.class);
+        when(session.createMessage(anyByte(), anyBoolean(), anyLong(), anyLong(), anyByte()))
+                .thenAnswer(invocation -> new ClientMessageImpl(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4), 256, null));
+        ClientMessage in = new ClientMessageImpl(Message.TEXT_TYPE, true, 0, 0, (byte) 4, 256, null);
+        in.getBodyBuffer().writeNullableSimpleString(SimpleString.toSimpleString("order"));
+        in.putStringProperty("customer", "c-1");
+        in.putStringProperty(Message.HDR_GROUP_ID, SimpleString.toSimpleString("key-1"));
+        in.putIntProperty(Message.HDR_GROUP_SEQUENCE, 7);
+        in.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, SimpleString.toSimpleString("dup-1"));
+        in.putStringProperty(Message.HDR_ORIGINAL_ADDRESS, SimpleString.toSimpleString("component3.queue"));
+
+        ClientMessage out = relay.relay(session, in);
+
+        assertThat(out.getStringProperty("customer")).isEqualTo("c-1");
+        assertThat(out.getStringProperty(Message.HDR_GROUP_ID)).isEqualTo("key-1");
+        assertThat(out.getIntProperty(Message.HDR_GROUP_SEQUENCE)).isEqualTo(7);
+        assertThat(out.containsProperty(Message.HDR_DUPLICATE_DETECTION_ID)).isFalse();
+        assertThat(out.containsProperty(Message.HDR_ORIGINAL_ADDRESS)).isFalse();
+        assertThat(out.getBodyBuffer().readNullableSimpleString().toString()).isEqualTo("Relayed: order");
+    }
+}